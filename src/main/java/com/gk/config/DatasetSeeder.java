@@ -0,0 +1,64 @@
+package com.gk.config;
+
+import com.gk.service.StudentDuesService;
+import com.gk.service.seed.DatasetGenerator;
+import com.gk.service.seed.SeedOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Fills an empty database with a synthetic dataset when the {@code seed}
+ * profile is active, then exits:
+ * <pre>
+ * java -jar app.jar --spring.profiles.active=seed --app.seed.students=100000 --app.seed.random-seed=42
+ * </pre>
+ * See {@code application-seed.properties} for the other settings.
+ */
+@Component
+@Profile("seed")
+public class DatasetSeeder implements CommandLineRunner {
+    private final DatasetGenerator datasetGenerator;
+    private final StudentDuesService studentDuesService;
+    private final ConfigurableApplicationContext context;
+    private final SeedOptions options;
+    private final boolean exitWhenDone;
+
+    public DatasetSeeder(DatasetGenerator datasetGenerator, StudentDuesService studentDuesService,
+                         ConfigurableApplicationContext context,
+                         @Value("${app.seed.students:10000}") int students,
+                         @Value("${app.seed.courses:0}") int courses,
+                         @Value("${app.seed.terms:2}") int terms,
+                         @Value("${app.seed.attendance-days:60}") int attendanceDays,
+                         @Value("${app.seed.events-per-student:3}") int eventsPerStudent,
+                         @Value("${app.seed.random-seed:42}") long seed,
+                         @Value("${app.seed.end-date:}") String endDate,
+                         @Value("${app.seed.batch-size:1000}") int batchSize,
+                         @Value("${app.seed.chunk-size:1000}") int chunkSize,
+                         @Value("${app.seed.parallelism:4}") int parallelism,
+                         @Value("${app.seed.password:password}") String password,
+                         @Value("${app.seed.exit-when-done:true}") boolean exitWhenDone) {
+        this.datasetGenerator = datasetGenerator;
+        this.studentDuesService = studentDuesService;
+        this.context = context;
+        SeedOptions defaults = SeedOptions.of(students, seed);
+        this.options = new SeedOptions(students, courses > 0 ? courses : defaults.courses(), terms, attendanceDays,
+                eventsPerStudent, seed, endDate.isBlank() ? LocalDate.now() : LocalDate.parse(endDate), batchSize,
+                chunkSize, parallelism, password);
+        this.exitWhenDone = exitWhenDone;
+    }
+
+    @Override
+    public void run(String... args) {
+        datasetGenerator.generate(options);
+        studentDuesService.refreshAll();
+        if (exitWhenDone) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+}
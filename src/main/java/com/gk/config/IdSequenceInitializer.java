@@ -0,0 +1,39 @@
+package com.gk.config;
+
+import com.gk.repository.IdBlockAllocator;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.metamodel.EntityType;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+
+/**
+ * Aligns every pooled id sequence with the data already in its table before
+ * the application starts serving requests. Tables created while ids were
+ * still AUTO_INCREMENT would otherwise collide with the first blocks.
+ * By convention a generator's {@code pkColumnValue} is its table name.
+ */
+@Component
+public class IdSequenceInitializer implements SmartInitializingSingleton {
+    private final EntityManagerFactory entityManagerFactory;
+    private final IdBlockAllocator idBlockAllocator;
+
+    public IdSequenceInitializer(EntityManagerFactory entityManagerFactory, IdBlockAllocator idBlockAllocator) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.idBlockAllocator = idBlockAllocator;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            for (Field field : entity.getJavaType().getDeclaredFields()) {
+                TableGenerator generator = field.getAnnotation(TableGenerator.class);
+                if (generator != null) {
+                    idBlockAllocator.synchronize(generator.pkColumnValue());
+                }
+            }
+        }
+    }
+}
@@ -29,10 +29,17 @@ public class SecurityConfig {
                 // Public pages
                 .requestMatchers("/login", "/error", "/access-denied").permitAll()
 
+                // Management port, bound to loopback: scrapes and health checks need no login
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
+
                 // Admin only pages
                 .requestMatchers("/admin/**").hasRole("ADMIN")
                 .requestMatchers("/students/*/edit", "/students/*/delete").hasRole("ADMIN")
                 .requestMatchers("/courses/new", "/courses/*/edit", "/courses/*/delete").hasRole("ADMIN")
+                .requestMatchers("/courses/*/installments/**").hasRole("ADMIN")
+                .requestMatchers("/api/students/fees/dues/refresh").hasRole("ADMIN")
+                .requestMatchers("/api/students/import/**").hasRole("ADMIN")
 
                 // Teacher and Admin pages
                 .requestMatchers("/students/dashboard", "/students/list").hasAnyRole("TEACHER", "ADMIN")
@@ -41,6 +48,7 @@ public class SecurityConfig {
 
                 // Finance related pages
                 .requestMatchers("/students/fees/**").hasAnyRole("ADMIN", "ACCOUNTANT")
+                .requestMatchers("/api/payments/**").hasAnyRole("ADMIN", "ACCOUNTANT")
 
                 // Parent pages
                 .requestMatchers("/students/parent-dashboard/**").hasRole("PARENT")
@@ -0,0 +1,129 @@
+package com.gk.config.bulkhead;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrency limit with a bounded queue that adapts to latency. Completed
+ * requests are looked at in windows of {@value #WINDOW_SAMPLES}, or of five
+ * seconds for slow endpoints: when their average latency exceeded the target,
+ * the limit drops by a quarter; when it did not and every slot was in use at
+ * some point, the limit grows by one. Only the time after admission counts, so
+ * waiting in the queue does not feed back into the limit.
+ */
+final class AdaptiveLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveLimiter.class);
+    private static final int WINDOW_SAMPLES = 10;
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final double BACKOFF = 0.75;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final long targetLatencyNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private volatile int limit;
+    private volatile int inFlight;
+    private volatile int queued;
+    private int samples;
+    private long latencySum;
+    private boolean saturated;
+    private long windowStart = System.nanoTime();
+
+    AdaptiveLimiter(String name, int limit, int minLimit, int maxLimit, int maxQueue, long maxWaitNanos,
+                    long targetLatencyNanos) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.clamp(limit, this.minLimit, this.maxLimit);
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = maxWaitNanos;
+        this.targetLatencyNanos = targetLatencyNanos;
+    }
+
+    /** Takes a slot, waiting in the queue if there is room in it; false if none was free in time. */
+    boolean tryAcquire() throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < limit) {
+                inFlight++;
+                return true;
+            }
+            if (queued >= maxQueue) {
+                return false;
+            }
+            queued++;
+            try {
+                long remaining = maxWaitNanos;
+                while (inFlight >= limit) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                inFlight++;
+                return true;
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(long latencyNanos) {
+        lock.lock();
+        try {
+            saturated |= inFlight >= limit;
+            inFlight--;
+            samples++;
+            latencySum += latencyNanos;
+            long now = System.nanoTime();
+            if (samples >= WINDOW_SAMPLES || now - windowStart >= WINDOW_NANOS) {
+                adapt(now);
+            }
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adapt(long now) {
+        long averageLatency = latencySum / samples;
+        int previous = limit;
+        if (averageLatency > targetLatencyNanos) {
+            limit = Math.max(minLimit, (int) (limit * BACKOFF));
+        } else if (saturated) {
+            limit = Math.min(maxLimit, limit + 1);
+            released.signal();
+        }
+        if (limit != previous) {
+            logger.info("Bulkhead {}: limit {} -> {} (average latency {} ms over {} requests)", name, previous,
+                    limit, TimeUnit.NANOSECONDS.toMillis(averageLatency), samples);
+        }
+        samples = 0;
+        latencySum = 0;
+        saturated = false;
+        windowStart = now;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight;
+    }
+
+    int queued() {
+        return queued;
+    }
+}
@@ -0,0 +1,68 @@
+package com.gk.config.bulkhead;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** One endpoint class: its path patterns, its {@link AdaptiveLimiter} and its per-user count. */
+final class Bulkhead {
+    private final String name;
+    private final List<PathPattern> paths;
+    private final AdaptiveLimiter limiter;
+    private final int perUser;
+    private final Duration retryAfter;
+    private final Map<String, Integer> requestsByUser = new ConcurrentHashMap<>();
+
+    Bulkhead(String name, BulkheadProperties.EndpointClass properties) {
+        this.name = name;
+        this.paths = properties.paths().stream().map(PathPatternParser.defaultInstance::parse).toList();
+        this.limiter = new AdaptiveLimiter(name, properties.limit(), properties.minLimit(), properties.maxLimit(),
+                properties.queue(), properties.maxWait().toNanos(), properties.targetLatency().toNanos());
+        this.perUser = properties.perUser();
+        this.retryAfter = properties.retryAfter();
+    }
+
+    String name() {
+        return name;
+    }
+
+    AdaptiveLimiter limiter() {
+        return limiter;
+    }
+
+    Duration retryAfter() {
+        return retryAfter;
+    }
+
+    boolean matches(PathContainer path) {
+        return paths.stream().anyMatch(pattern -> pattern.matches(path));
+    }
+
+    /** Counts a request of {@code user}; false if they already have {@code per-user} running. */
+    boolean enter(String user) {
+        if (perUser <= 0 || user == null) {
+            return true;
+        }
+        boolean[] entered = {false};
+        requestsByUser.compute(user, (key, running) -> {
+            int count = running == null ? 0 : running;
+            if (count >= perUser) {
+                return running;
+            }
+            entered[0] = true;
+            return count + 1;
+        });
+        return entered[0];
+    }
+
+    void leave(String user) {
+        if (perUser > 0 && user != null) {
+            requestsByUser.computeIfPresent(user, (key, running) -> running <= 1 ? null : running - 1);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.gk.config.bulkhead;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Bulkheads for the endpoint classes in {@code app.bulkhead.classes}, so one
+ * class of traffic, such as exports, cannot take every connection and thread
+ * from the others. The filter runs after Spring Security: requests that are
+ * turned away at login never take a slot, and per-user limits know the user.
+ * Each class's limit, in-flight and queued requests are gauges tagged with the
+ * class.
+ */
+@Configuration
+@EnableConfigurationProperties(BulkheadProperties.class)
+@ConditionalOnProperty(name = "app.bulkhead.enabled", havingValue = "true", matchIfMissing = true)
+public class BulkheadConfig {
+
+    @Bean
+    public FilterRegistrationBean<BulkheadFilter> bulkheadFilter(BulkheadProperties properties,
+                                                                 MeterRegistry meterRegistry) {
+        List<Bulkhead> bulkheads = new ArrayList<>();
+        Bulkhead defaultBulkhead = null;
+        for (var entry : properties.classes().entrySet()) {
+            Bulkhead bulkhead = new Bulkhead(entry.getKey(), entry.getValue());
+            if (entry.getKey().equals(properties.defaultClass())) {
+                defaultBulkhead = bulkhead;
+            } else {
+                bulkheads.add(bulkhead);
+            }
+            register(meterRegistry, bulkhead, "app.bulkhead.limit", "Concurrent requests the class admits",
+                    AdaptiveLimiter::limit);
+            register(meterRegistry, bulkhead, "app.bulkhead.in-flight", "Requests of the class being handled",
+                    AdaptiveLimiter::inFlight);
+            register(meterRegistry, bulkhead, "app.bulkhead.queued", "Requests of the class waiting for a slot",
+                    AdaptiveLimiter::queued);
+        }
+        FilterRegistrationBean<BulkheadFilter> registration = new FilterRegistrationBean<>(
+                new BulkheadFilter(bulkheads, defaultBulkhead, meterRegistry));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+
+    private static void register(MeterRegistry meterRegistry, Bulkhead bulkhead, String name, String description,
+                                 ToDoubleFunction<AdaptiveLimiter> value) {
+        Gauge.builder(name, bulkhead.limiter(), value)
+                .description(description)
+                .tag("class", bulkhead.name())
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,104 @@
+package com.gk.config.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Admits each request through the bulkhead of its endpoint class. A request
+ * that finds its class full and its queue full, or waits longer than
+ * {@code max-wait}, gets a 503; a user over the class's {@code per-user} limit
+ * gets a 429. Both carry Retry-After.
+ */
+public class BulkheadFilter extends OncePerRequestFilter {
+    static final String REJECTED_METRIC = "app.bulkhead.rejected";
+
+    private final List<Bulkhead> bulkheads;
+    private final Bulkhead defaultBulkhead;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    BulkheadFilter(List<Bulkhead> bulkheads, Bulkhead defaultBulkhead, MeterRegistry meterRegistry) {
+        this.bulkheads = bulkheads;
+        this.defaultBulkhead = defaultBulkhead;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Bulkhead bulkhead = classify(request);
+        if (bulkhead == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String user = user();
+        if (!bulkhead.enter(user)) {
+            reject(response, bulkhead, HttpStatus.TOO_MANY_REQUESTS, "user",
+                    "Too many concurrent " + bulkhead.name() + " requests");
+            return;
+        }
+        try {
+            boolean admitted;
+            try {
+                admitted = bulkhead.limiter().tryAcquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                admitted = false;
+            }
+            if (!admitted) {
+                reject(response, bulkhead, HttpStatus.SERVICE_UNAVAILABLE, "full",
+                        "The server is busy with " + bulkhead.name() + " requests");
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                bulkhead.limiter().release(System.nanoTime() - start);
+            }
+        } finally {
+            bulkhead.leave(user);
+        }
+    }
+
+    private Bulkhead classify(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (Bulkhead bulkhead : bulkheads) {
+            if (bulkhead.matches(path)) {
+                return bulkhead;
+            }
+        }
+        return defaultBulkhead;
+    }
+
+    private static String user() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || !authentication.isAuthenticated() ? null : authentication.getName();
+    }
+
+    private void reject(HttpServletResponse response, Bulkhead bulkhead, HttpStatus status, String reason,
+                        String message) throws IOException {
+        rejections.computeIfAbsent(bulkhead.name() + "/" + reason, key -> Counter.builder(REJECTED_METRIC)
+                .description("Requests turned away by their endpoint class's bulkhead")
+                .tag("class", bulkhead.name())
+                .tag("reason", reason)
+                .register(meterRegistry)).increment();
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, bulkhead.retryAfter().toSeconds())));
+        response.sendError(status.value(), message);
+    }
+}
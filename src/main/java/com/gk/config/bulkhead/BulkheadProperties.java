@@ -0,0 +1,44 @@
+package com.gk.config.bulkhead;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code app.bulkhead.*}: the endpoint classes, each with its own concurrency
+ * limit and queue. A request belongs to the first class with a matching path
+ * pattern, or to {@code default-class}.
+ */
+@ConfigurationProperties("app.bulkhead")
+public record BulkheadProperties(@DefaultValue("true") boolean enabled,
+                                 @DefaultValue("interactive") String defaultClass,
+                                 Map<String, EndpointClass> classes) {
+
+    public BulkheadProperties {
+        classes = classes == null ? Map.of() : classes;
+    }
+
+    /**
+     * @param limit         concurrent requests to start with
+     * @param minLimit      lowest the limit adapts down to
+     * @param maxLimit      highest the limit adapts up to
+     * @param queue         requests that may wait for a slot
+     * @param maxWait       how long they wait before being turned away
+     * @param targetLatency average latency above which the limit is lowered
+     * @param perUser       concurrent requests one user may have in the class, 0 for no limit
+     * @param retryAfter    sent as Retry-After with the rejection
+     */
+    public record EndpointClass(@DefaultValue List<String> paths,
+                                @DefaultValue("20") int limit,
+                                @DefaultValue("1") int minLimit,
+                                @DefaultValue("100") int maxLimit,
+                                @DefaultValue("50") int queue,
+                                @DefaultValue("1s") Duration maxWait,
+                                @DefaultValue("1s") Duration targetLatency,
+                                @DefaultValue("0") int perUser,
+                                @DefaultValue("5s") Duration retryAfter) {
+    }
+}
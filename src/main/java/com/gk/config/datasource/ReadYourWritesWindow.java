@@ -0,0 +1,57 @@
+package com.gk.config.datasource;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers who committed a read-write transaction in the last
+ * {@code app.datasource.read-your-writes-ms}, so their reads stay on the
+ * primary until the replica has had time to catch up. Callers are told apart
+ * by the signed-in user, and by thread when nobody is signed in. Writes made
+ * outside a transaction are not seen.
+ */
+public class ReadYourWritesWindow implements TransactionExecutionListener {
+    private static final int PRUNE_ABOVE = 10_000;
+
+    private final long windowNanos;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadYourWritesWindow(long windowMillis) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        if (windowNanos > 0 && commitFailure == null && transaction.isNewTransaction() && !transaction.isReadOnly()) {
+            if (lastWrites.size() > PRUNE_ABOVE) {
+                long now = System.nanoTime();
+                lastWrites.values().removeIf(at -> now - at >= windowNanos);
+            }
+            lastWrites.put(caller(), System.nanoTime());
+        }
+    }
+
+    /** Whether the current caller wrote recently enough that the replica may not have their change yet. */
+    public boolean isOpen() {
+        if (windowNanos <= 0) {
+            return false;
+        }
+        Long at = lastWrites.get(caller());
+        return at != null && System.nanoTime() - at < windowNanos;
+    }
+
+    private static String caller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "thread:" + Thread.currentThread().threadId();
+    }
+}
@@ -0,0 +1,74 @@
+package com.gk.config.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The read-only side of the routing: hands out replica connections, except to
+ * callers inside their {@link ReadYourWritesWindow} and while the replica is
+ * unreachable. After a failed connection attempt reads go to the primary for
+ * {@code app.datasource.replica.retry-after-ms} before the replica is tried
+ * again.
+ */
+public class ReplicaDataSource extends DelegatingDataSource {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaDataSource.class);
+
+    private final DataSource primary;
+    private final ReadYourWritesWindow readYourWritesWindow;
+    private final long retryAfterNanos;
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private volatile long unavailableUntil = System.nanoTime();
+
+    public ReplicaDataSource(DataSource replica, DataSource primary, ReadYourWritesWindow readYourWritesWindow,
+                             long retryAfterMillis) {
+        super(replica);
+        this.primary = primary;
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.retryAfterNanos = TimeUnit.MILLISECONDS.toNanos(retryAfterMillis);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (readYourWritesWindow.isOpen() || System.nanoTime() - unavailableUntil < 0) {
+            return primaryConnection();
+        }
+        try {
+            Connection connection = super.getConnection();
+            replicaReads.increment();
+            return connection;
+        } catch (SQLException e) {
+            unavailableUntil = System.nanoTime() + retryAfterNanos;
+            logger.warn("Replica unavailable, reading from the primary for the next {} ms: {}",
+                    TimeUnit.NANOSECONDS.toMillis(retryAfterNanos), e.getMessage());
+            return primaryConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    private Connection primaryConnection() throws SQLException {
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    /** Read-only connections handed out by the replica. */
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    /** Read-only connections that went to the primary instead. */
+    public long getPrimaryReads() {
+        return primaryReads.sum();
+    }
+}
@@ -0,0 +1,89 @@
+package com.gk.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Replaces the auto-configured data source with a {@link ReplicaRoutingDataSource}
+ * when {@code app.datasource.replica.url} is set. The primary pool is built from
+ * {@code spring.datasource.*}; the replica pool from
+ * {@code app.datasource.replica.*}, with the primary's credentials unless it
+ * has its own, and {@code app.datasource.replica.hikari.*}.
+ * <p>
+ * Hibernate is switched to releasing its connection after each transaction.
+ * By default it holds one for the whole open-in-view request, so the first
+ * transaction of a request would pick the database for all the others,
+ * writes included.
+ */
+@Configuration
+@ConditionalOnProperty("app.datasource.replica.url")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public ReadYourWritesWindow readYourWritesWindow(@Value("${app.datasource.read-your-writes-ms:0}") long windowMillis) {
+        return new ReadYourWritesWindow(windowMillis);
+    }
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+                                 ReadYourWritesWindow readYourWritesWindow,
+                                 @Value("${app.datasource.replica.retry-after-ms:30000}") long retryAfterMillis) {
+        Binder binder = Binder.get(environment);
+        DataSourceProperties replicaProperties = binder.bind("app.datasource.replica",
+                Bindable.ofInstance(new DataSourceProperties())).get();
+        if (replicaProperties.getUsername() == null) {
+            replicaProperties.setUsername(properties.determineUsername());
+            replicaProperties.setPassword(properties.determinePassword());
+        }
+        HikariDataSource primary = pool(properties, binder, "spring.datasource.hikari", "primary");
+        HikariDataSource replica = pool(replicaProperties, binder, "app.datasource.replica.hikari", "replica");
+        return new ReplicaRoutingDataSource(primary,
+                new ReplicaDataSource(replica, primary, readYourWritesWindow, retryAfterMillis));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer connectionPerTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public MeterBinder replicaReadMetrics(DataSource dataSource) throws SQLException {
+        ReplicaDataSource replica = dataSource.unwrap(ReplicaRoutingDataSource.class).getReplica();
+        return registry -> {
+            FunctionCounter.builder("app.datasource.read.connections", replica, ReplicaDataSource::getReplicaReads)
+                    .description("Connections handed to read-only transactions")
+                    .tag("target", "replica")
+                    .register(registry);
+            FunctionCounter.builder("app.datasource.read.connections", replica, ReplicaDataSource::getPrimaryReads)
+                    .description("Connections handed to read-only transactions")
+                    .tag("target", "primary")
+                    .register(registry);
+        };
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, Binder binder, String hikariPrefix,
+                                         String poolName) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind(hikariPrefix, Bindable.ofInstance(pool));
+        if (pool.getPoolName() == null) {
+            pool.setPoolName(poolName);
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,67 @@
+package com.gk.config.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Sends read-only transactions to the {@link ReplicaDataSource} and
+ * everything else to the primary. The physical connection is only fetched at
+ * the first statement, by which time the transaction is marked read-only
+ * either on the connection (JDBC transactions) or in the transaction
+ * synchronization (JPA transactions, since Hibernate does not pass the flag
+ * on unless it holds connections for the whole session).
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+    private final DataSource primary;
+    private final ReplicaDataSource replica;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaDataSource replica) {
+        super(new TransactionRouting(primary, replica));
+        setReadOnlyDataSource(replica);
+        this.primary = primary;
+        this.replica = replica;
+    }
+
+    public ReplicaDataSource getReplica() {
+        return replica;
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            if (replica.getTargetDataSource() instanceof AutoCloseable pool) {
+                pool.close();
+            }
+        } finally {
+            if (primary instanceof AutoCloseable pool) {
+                pool.close();
+            }
+        }
+    }
+
+    private static final class TransactionRouting extends DelegatingDataSource {
+        private final DataSource replica;
+
+        TransactionRouting(DataSource primary, DataSource replica) {
+            super(primary);
+            this.replica = replica;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                    ? replica.getConnection() : super.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                    ? replica.getConnection(username, password) : super.getConnection(username, password);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.gk.config.monitoring;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Adds a {@code role} tag to the {@code http.server.requests} timers. The
+ * security context is already cleared when the timer stops, so an interceptor
+ * notes the caller's role on the request while the handler runs.
+ */
+@Configuration
+public class HttpMetricsConfig implements WebMvcConfigurer {
+    private static final String ROLE_ATTRIBUTE = HttpMetricsConfig.class.getName() + ".role";
+    private static final List<String> ROLES = List.of("ADMIN", "ACCOUNTANT", "TEACHER", "PARENT");
+    private static final String ANONYMOUS = "anonymous";
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                request.setAttribute(ROLE_ATTRIBUTE, role(SecurityContextHolder.getContext().getAuthentication()));
+                return true;
+            }
+        });
+    }
+
+    @Bean
+    public ServerRequestObservationConvention roleTaggingObservationConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                Object role = context.getCarrier().getAttribute(ROLE_ATTRIBUTE);
+                return super.getLowCardinalityKeyValues(context)
+                        .and(KeyValue.of("role", role == null ? ANONYMOUS : role.toString()));
+            }
+        };
+    }
+
+    /** The most privileged role, so users holding several roles fall into a single series. */
+    private static String role(Authentication authentication) {
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return ANONYMOUS;
+        }
+        List<String> granted = authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+        for (String role : ROLES) {
+            if (granted.contains("ROLE_" + role)) {
+                return role.toLowerCase(Locale.ROOT);
+            }
+        }
+        return "other";
+    }
+}
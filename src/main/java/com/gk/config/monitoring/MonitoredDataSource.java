@@ -0,0 +1,190 @@
+package com.gk.config.monitoring;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Wraps connections so every executed statement and every fetched row is
+ * reported to the {@link QueryStats} of the calling thread, and statements
+ * slower than a threshold are handed to a {@link SlowStatementListener} with
+ * their bind values. Batches count as one statement, since they are one round
+ * trip. Execution time excludes fetching the rows of a streamed result.
+ */
+public class MonitoredDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface SlowStatementListener {
+        /** @param dataSource the unwrapped data source, for follow-up queries such as EXPLAIN */
+        void onSlowStatement(String sql, List<Object> binds, long nanos, DataSource dataSource);
+    }
+
+    private final boolean countStatements;
+    private final long slowThresholdNanos;
+    private final SlowStatementListener slowStatementListener;
+
+    /** @param slowThresholdNanos negative to not time statements at all */
+    public MonitoredDataSource(DataSource target, boolean countStatements, long slowThresholdNanos,
+                               SlowStatementListener slowStatementListener) {
+        super(target);
+        this.countStatements = countStatements;
+        this.slowThresholdNanos = slowThresholdNanos;
+        this.slowStatementListener = slowStatementListener;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    /** Closes the wrapped pool, which Spring would otherwise not see behind this wrapper at shutdown. */
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable target) {
+            target.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T wrap(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(MonitoredDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private abstract static class Handler implements InvocationHandler {
+        final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "toString" -> "Monitored " + target;
+                default -> handle(method, args);
+            };
+        }
+
+        abstract Object handle(Method method, Object[] args) throws Throwable;
+
+        Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+
+    private final class ConnectionHandler extends Handler {
+        ConnectionHandler(Connection target) {
+            super(target);
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = call(method, args);
+            if (result instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                return wrap(method.getReturnType(), new StatementHandler(statement, sql));
+            }
+            return result;
+        }
+    }
+
+    private final class StatementHandler extends Handler {
+        private final String preparedSql;
+        private Object[] binds = new Object[0];
+        private int bindCount;
+
+        StatementHandler(Statement target, String preparedSql) {
+            super(target);
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                if (slowThresholdNanos >= 0) {
+                    captureBind(method, args);
+                }
+                return wrapResult(call(method, args));
+            }
+            boolean literal = !name.equals("executeBatch") && args != null && args.length > 0
+                    && args[0] instanceof String;
+            String sql = literal ? (String) args[0] : preparedSql;
+            if (countStatements) {
+                QueryStats.statementExecuted(sql);
+            }
+            if (slowThresholdNanos < 0) {
+                return wrapResult(call(method, args));
+            }
+            long start = System.nanoTime();
+            try {
+                return wrapResult(call(method, args));
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                if (elapsed >= slowThresholdNanos && sql != null) {
+                    List<Object> values = literal ? List.of() : Arrays.asList(Arrays.copyOf(binds, bindCount));
+                    slowStatementListener.onSlowStatement(sql, values, elapsed, getTargetDataSource());
+                }
+            }
+        }
+
+        /** Remembers {@code setXxx(index, value, ...)} calls on prepared statements. */
+        private void captureBind(Method method, Object[] args) {
+            if (method.getDeclaringClass() == PreparedStatement.class && method.getName().startsWith("set")
+                    && args != null && args.length >= 2 && args[0] instanceof Integer index && index > 0) {
+                if (index > binds.length) {
+                    binds = Arrays.copyOf(binds, Math.max(index, binds.length * 2));
+                }
+                binds[index - 1] = method.getName().equals("setNull") ? null : args[1];
+                bindCount = Math.max(bindCount, index);
+            } else if (method.getName().equals("clearParameters")) {
+                Arrays.fill(binds, null);
+                bindCount = 0;
+            }
+        }
+
+        private Object wrapResult(Object result) {
+            if (countStatements && result instanceof ResultSet resultSet) {
+                return wrap(ResultSet.class, new ResultSetHandler(resultSet));
+            }
+            return result;
+        }
+    }
+
+    private static final class ResultSetHandler extends Handler {
+        ResultSetHandler(ResultSet target) {
+            super(target);
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = call(method, args);
+            if (result == Boolean.TRUE && method.getName().equals("next")) {
+                QueryStats.rowFetched();
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.gk.config.monitoring;
+
+import java.util.*;
+
+/**
+ * Counts the SQL statements, fetched rows and lazy collection loads made by
+ * the current thread while a scope is open. Scopes nest: closing an inner
+ * scope adds its counts to the enclosing one, so a test can pin the queries of
+ * one call while the request filter still sees the whole request.
+ * <pre>
+ * try (QueryStats stats = QueryStats.open()) {
+ *     studentService.getTopPerformers(10);
+ * }
+ * </pre>
+ */
+public final class QueryStats implements AutoCloseable {
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+    private static final int MAX_TRACKED_STATEMENTS = 500;
+
+    private final QueryStats parent;
+    private final Map<String, Integer> executions = new HashMap<>();
+    private final Map<String, Integer> collectionLoads = new HashMap<>();
+    private int statements;
+    private long rows;
+    private int collections;
+    private boolean closed;
+
+    private QueryStats(QueryStats parent) {
+        this.parent = parent;
+    }
+
+    public static QueryStats open() {
+        QueryStats stats = new QueryStats(CURRENT.get());
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Adds a scope opened and closed on another thread, such as a worker a
+     * request handed part of its work to, to the current scope.
+     */
+    public static void include(QueryStats finished) {
+        QueryStats stats = CURRENT.get();
+        if (stats != null && stats != finished) {
+            finished.addTo(stats);
+        }
+    }
+
+    static void statementExecuted(String sql) {
+        QueryStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.statements++;
+            stats.count(stats.executions, sql == null ? "<batch>" : sql, 1);
+        }
+    }
+
+    static void rowFetched() {
+        QueryStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.rows++;
+        }
+    }
+
+    static void collectionInitialized(String role) {
+        QueryStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.collections++;
+            stats.count(stats.collectionLoads, role, 1);
+        }
+    }
+
+    public int statements() {
+        return statements;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public int collectionInitializations() {
+        return collections;
+    }
+
+    /** Statements run at least {@code threshold} times, most repeated first: the footprint of an N+1. */
+    public Map<String, Integer> repeatedStatements(int threshold) {
+        return mostFrequent(executions, threshold);
+    }
+
+    /** Lazy collections, by role such as {@code com.gk.model.Student.marks}, loaded at least {@code threshold} times. */
+    public Map<String, Integer> repeatedCollectionLoads(int threshold) {
+        return mostFrequent(collectionLoads, threshold);
+    }
+
+    public int maxRepetitions() {
+        return executions.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (CURRENT.get() == this) {
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+            }
+        }
+        if (parent != null) {
+            addTo(parent);
+        }
+    }
+
+    private void addTo(QueryStats target) {
+        target.statements += statements;
+        target.rows += rows;
+        target.collections += collections;
+        executions.forEach((sql, count) -> target.count(target.executions, sql, count));
+        collectionLoads.forEach((role, count) -> target.count(target.collectionLoads, role, count));
+    }
+
+    @Override
+    public String toString() {
+        return statements + " statements, " + rows + " rows, " + collections + " collection loads";
+    }
+
+    private void count(Map<String, Integer> counts, String key, int times) {
+        // Statements built with literal values would each get an entry; stop tracking new ones past the cap
+        if (counts.size() < MAX_TRACKED_STATEMENTS || counts.containsKey(key)) {
+            counts.merge(key, times, Integer::sum);
+        }
+    }
+
+    private static Map<String, Integer> mostFrequent(Map<String, Integer> counts, int threshold) {
+        Map<String, Integer> frequent = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .filter(entry -> entry.getValue() >= threshold)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(entry -> frequent.put(entry.getKey(), entry.getValue()));
+        return frequent;
+    }
+}
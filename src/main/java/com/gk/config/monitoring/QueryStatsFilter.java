@@ -0,0 +1,35 @@
+package com.gk.config.monitoring;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/** Opens a {@link QueryStats} scope around each request and hands it to the registry. */
+public class QueryStatsFilter extends OncePerRequestFilter {
+    private final QueryStatsRegistry registry;
+
+    public QueryStatsFilter(QueryStatsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryStats stats = QueryStats.open();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            stats.close();
+            // Only requests that reached a controller have a pattern; static resources are not tracked
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (pattern != null) {
+                registry.record(request.getMethod(), pattern.toString(), stats);
+            }
+        }
+    }
+}
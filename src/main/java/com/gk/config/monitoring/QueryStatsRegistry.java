@@ -0,0 +1,137 @@
+package com.gk.config.monitoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint totals of the {@link QueryStats} recorded for each request, and
+ * the check against the endpoint's statement budget. A request is a violation
+ * when it runs more statements than its budget or repeats one statement
+ * {@code repeat-threshold} times or more.
+ */
+@Component
+public class QueryStatsRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(QueryStatsRegistry.class);
+    private static final int RECENT_VIOLATIONS = 50;
+    private static final int SQL_PREVIEW = 200;
+
+    private final int defaultBudget;
+    private final int repeatThreshold;
+    private final Map<String, Integer> budgets;
+    private final Map<String, EndpointTotals> endpoints = new ConcurrentHashMap<>();
+    private final Deque<Map<String, Object>> recentViolations = new ArrayDeque<>();
+
+    public QueryStatsRegistry(@Value("${app.query-stats.default-budget:50}") int defaultBudget,
+                              @Value("${app.query-stats.repeat-threshold:10}") int repeatThreshold,
+                              @Value("${app.query-stats.budgets:}") String budgets) {
+        this.defaultBudget = defaultBudget;
+        this.repeatThreshold = repeatThreshold;
+        this.budgets = parseBudgets(budgets);
+    }
+
+    private static final class EndpointTotals {
+        final LongAdder requests = new LongAdder();
+        final LongAdder statements = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder collections = new LongAdder();
+        final LongAccumulator maxStatements = new LongAccumulator(Math::max, 0);
+        final LongAdder violations = new LongAdder();
+    }
+
+    /** @param path the handler's path pattern, e.g. {@code /api/students/{id}} */
+    public void record(String method, String path, QueryStats stats) {
+        String endpoint = method + " " + path;
+        EndpointTotals totals = endpoints.computeIfAbsent(endpoint, key -> new EndpointTotals());
+        totals.requests.increment();
+        totals.statements.add(stats.statements());
+        totals.rows.add(stats.rows());
+        totals.collections.add(stats.collectionInitializations());
+        totals.maxStatements.accumulate(stats.statements());
+
+        int budget = budgets.getOrDefault(path, defaultBudget);
+        if (stats.statements() <= budget && stats.maxRepetitions() < repeatThreshold) {
+            return;
+        }
+        totals.violations.increment();
+        Map<String, Integer> repeated = preview(stats.repeatedStatements(repeatThreshold));
+        Map<String, Integer> collections = stats.repeatedCollectionLoads(repeatThreshold);
+        logger.warn("{} ran {} statements (budget {}), fetched {} rows and loaded {} collections; repeated: {} {}",
+                endpoint, stats.statements(), budget, stats.rows(), stats.collectionInitializations(), repeated,
+                collections);
+
+        Map<String, Object> violation = new LinkedHashMap<>();
+        violation.put("endpoint", endpoint);
+        violation.put("at", LocalDateTime.now());
+        violation.put("statements", stats.statements());
+        violation.put("budget", budget);
+        violation.put("rows", stats.rows());
+        violation.put("collectionInitializations", stats.collectionInitializations());
+        violation.put("repeatedStatements", repeated);
+        violation.put("repeatedCollections", collections);
+        synchronized (recentViolations) {
+            if (recentViolations.size() == RECENT_VIOLATIONS) {
+                recentViolations.removeLast();
+            }
+            recentViolations.addFirst(violation);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> byEndpoint = new TreeMap<>();
+        endpoints.forEach((endpoint, totals) -> {
+            long requests = totals.requests.sum();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("requests", requests);
+            row.put("statements", totals.statements.sum());
+            row.put("avgStatements", requests == 0 ? 0 : (double) totals.statements.sum() / requests);
+            row.put("maxStatements", totals.maxStatements.get());
+            row.put("rows", totals.rows.sum());
+            row.put("collectionInitializations", totals.collections.sum());
+            row.put("violations", totals.violations.sum());
+            byEndpoint.put(endpoint, row);
+        });
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("defaultBudget", defaultBudget);
+        snapshot.put("repeatThreshold", repeatThreshold);
+        snapshot.put("budgets", budgets);
+        snapshot.put("endpoints", byEndpoint);
+        synchronized (recentViolations) {
+            snapshot.put("recentViolations", new ArrayList<>(recentViolations));
+        }
+        return snapshot;
+    }
+
+    public void reset() {
+        endpoints.clear();
+        synchronized (recentViolations) {
+            recentViolations.clear();
+        }
+    }
+
+    private static Map<String, Integer> preview(Map<String, Integer> statements) {
+        Map<String, Integer> preview = new LinkedHashMap<>();
+        statements.forEach((sql, count) -> preview.put(
+                sql.length() > SQL_PREVIEW ? sql.substring(0, SQL_PREVIEW) + "..." : sql, count));
+        return preview;
+    }
+
+    /** Reads {@code /students/dashboard:40,/api/students/{id}:5}. */
+    private static Map<String, Integer> parseBudgets(String budgets) {
+        Map<String, Integer> parsed = new TreeMap<>();
+        for (String entry : budgets.split(",")) {
+            int separator = entry.lastIndexOf(':');
+            if (separator > 0) {
+                parsed.put(entry.substring(0, separator).trim(), Integer.parseInt(entry.substring(separator + 1).trim()));
+            }
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,57 @@
+package com.gk.config.monitoring;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hit rates of the Hibernate second-level cache regions, read from the
+ * session factory statistics ({@code hibernate.generate_statistics}). The
+ * same counters are exported as {@code hibernate.second.level.cache.*}
+ * metrics, so they are cumulative and not cleared by the query stats reset.
+ */
+@Component
+public class SecondLevelCacheStats {
+    private final Statistics statistics;
+
+    public SecondLevelCacheStats(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> regions = new TreeMap<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                regions.put(region, row(regionStatistics.getHitCount(), regionStatistics.getMissCount(),
+                        regionStatistics.getPutCount(), regionStatistics.getElementCountInMemory()));
+            }
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        snapshot.put("entities", row(statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount(), -1));
+        snapshot.put("queries", row(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount(), -1));
+        snapshot.put("regions", regions);
+        return snapshot;
+    }
+
+    private static Map<String, Object> row(long hits, long misses, long puts, long elements) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("hits", hits);
+        row.put("misses", misses);
+        row.put("puts", puts);
+        row.put("hitRate", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+        if (elements >= 0) {
+            row.put("elements", elements);
+        }
+        return row;
+    }
+}
@@ -0,0 +1,82 @@
+package com.gk.config.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public method of the {@code @Service} beans as
+ * {@value #METRIC}, tagged with the class, the method and the MVC endpoint
+ * that called it ({@code none} off the request thread). Calls a service
+ * makes to itself bypass the proxy and are part of the caller's time. With
+ * that many series, the timers publish no histogram.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+    static final String METRIC = "app.service.calls";
+    private static final String NO_ENDPOINT = "none";
+
+    private record TimerKey(Method method, String endpoint, String exception) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    public ServiceMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("@within(org.springframework.stereotype.Service) && execution(public * com.gk..*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            timers.computeIfAbsent(new TimerKey(method, endpoint(), exception), this::register)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer register(TimerKey key) {
+        return Timer.builder(METRIC)
+                .description("Latency of public service methods")
+                .tag("class", key.method().getDeclaringClass().getSimpleName())
+                .tag("method", key.method().getName())
+                .tag("endpoint", key.endpoint())
+                .tag("exception", key.exception())
+                .register(meterRegistry);
+    }
+
+    private static String endpoint() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null) {
+            return NO_ENDPOINT;
+        }
+        try {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+                    RequestAttributes.SCOPE_REQUEST);
+            return pattern == null ? NO_ENDPOINT : pattern.toString();
+        } catch (IllegalStateException e) {
+            // A worker the request handed work to outlived it, e.g. a widget that timed out
+            return NO_ENDPOINT;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.gk.config.monitoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Records statements slower than {@code app.slow-query.threshold-ms}. Each one
+ * is written to the {@value #LOGGER} logger, which logback-spring.xml sends
+ * through an async appender to a rotating file, together with the application
+ * method that issued it, the endpoint and, for a sample of executions, the
+ * bind values. Per statement totals are kept in memory for the top-N view,
+ * along with one EXPLAIN plan per SELECT when {@code app.slow-query.explain}
+ * is on.
+ */
+@Component
+public class SlowQueryLog implements MonitoredDataSource.SlowStatementListener {
+    static final String LOGGER = "slow-queries";
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+    private static final Logger slowQueries = LoggerFactory.getLogger(LOGGER);
+    private static final int MAX_STATEMENTS = 1000;
+    private static final int MAX_BIND_LENGTH = 64;
+    private static final String MONITORING_PACKAGE = SlowQueryLog.class.getPackageName();
+
+    private final double bindSampleRate;
+    private final boolean explain;
+    private final int top;
+    private final TaskExecutor taskExecutor;
+    private final Map<String, SlowStatement> statements = new ConcurrentHashMap<>();
+
+    public SlowQueryLog(@Value("${app.slow-query.bind-sample-rate:0.1}") double bindSampleRate,
+                        @Value("${app.slow-query.explain:false}") boolean explain,
+                        @Value("${app.slow-query.top:20}") int top,
+                        @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor) {
+        this.bindSampleRate = bindSampleRate;
+        this.explain = explain;
+        this.top = top;
+        this.taskExecutor = taskExecutor;
+    }
+
+    private static final class SlowStatement {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final Set<String> origins = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean explained = new AtomicBoolean();
+        volatile String sampleBinds;
+        volatile String plan;
+        volatile LocalDateTime lastSeen;
+    }
+
+    @Override
+    public void onSlowStatement(String sql, List<Object> binds, long nanos, DataSource dataSource) {
+        String origin = origin();
+        String endpoint = endpoint();
+        boolean sampled = !binds.isEmpty() && ThreadLocalRandom.current().nextDouble() < bindSampleRate;
+        String sampledBinds = sampled ? format(binds) : null;
+        slowQueries.info("{} ms | {} | {} | binds={} | {}", String.format(Locale.ROOT, "%.1f", nanos / 1e6), origin,
+                endpoint, sampled ? sampledBinds : binds.isEmpty() ? "[]" : "<not sampled>", oneLine(sql));
+
+        SlowStatement statement = statements.get(sql);
+        if (statement == null) {
+            if (statements.size() >= MAX_STATEMENTS) {
+                return;
+            }
+            statement = statements.computeIfAbsent(sql, key -> new SlowStatement());
+        }
+        statement.count.increment();
+        statement.totalNanos.add(nanos);
+        statement.maxNanos.accumulate(nanos);
+        statement.lastSeen = LocalDateTime.now();
+        if (statement.origins.size() < 5) {
+            statement.origins.add(origin);
+        }
+        if (sampled) {
+            statement.sampleBinds = sampledBinds;
+        }
+        if (explain && sql.stripLeading().regionMatches(true, 0, "select", 0, 6)
+                && statement.explained.compareAndSet(false, true)) {
+            SlowStatement explained = statement;
+            taskExecutor.execute(() -> explained.plan = explain(dataSource, sql, binds));
+        }
+    }
+
+    /** The slowest statements by total time. */
+    public List<Map<String, Object>> snapshot() {
+        return statements.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, SlowStatement> entry) ->
+                        entry.getValue().totalNanos.sum()).reversed())
+                .limit(top)
+                .map(entry -> {
+                    SlowStatement statement = entry.getValue();
+                    long count = statement.count.sum();
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("sql", oneLine(entry.getKey()));
+                    row.put("count", count);
+                    row.put("totalMs", statement.totalNanos.sum() / 1e6);
+                    row.put("avgMs", count == 0 ? 0 : statement.totalNanos.sum() / 1e6 / count);
+                    row.put("maxMs", statement.maxNanos.get() / 1e6);
+                    row.put("origins", statement.origins);
+                    row.put("sampleBinds", statement.sampleBinds);
+                    row.put("plan", statement.plan);
+                    row.put("lastSeen", statement.lastSeen);
+                    return row;
+                })
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        statements.clear();
+    }
+
+    private static String explain(DataSource dataSource, String sql, List<Object> binds) {
+        try {
+            return new JdbcTemplate(dataSource).query("EXPLAIN " + sql, rs -> {
+                StringJoiner plan = new StringJoiner("\n");
+                int columns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    StringJoiner row = new StringJoiner(" | ");
+                    for (int i = 1; i <= columns; i++) {
+                        row.add(rs.getMetaData().getColumnLabel(i) + "=" + rs.getString(i));
+                    }
+                    plan.add(row.toString());
+                }
+                return plan.toString();
+            }, binds.toArray());
+        } catch (RuntimeException e) {
+            logger.debug("Could not explain {}", sql, e);
+            return "EXPLAIN failed: " + e.getMessage();
+        }
+    }
+
+    /** The innermost application frame that is not part of this instrumentation. */
+    private static String origin() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith("com.gk.")
+                        && !frame.getClassName().startsWith(MONITORING_PACKAGE)
+                        && !frame.getClassName().contains("$$"))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                        + "." + frame.getMethodName())
+                .orElse("unknown"));
+    }
+
+    private static String endpoint() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        Object pattern = request == null ? null : request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        return pattern == null ? "none" : pattern.toString();
+    }
+
+    private static String format(List<Object> binds) {
+        StringJoiner formatted = new StringJoiner(", ", "[", "]");
+        for (Object value : binds) {
+            String text;
+            if (value instanceof byte[] bytes) {
+                text = "<" + bytes.length + " bytes>";
+            } else if (value instanceof InputStream || value instanceof Reader || value instanceof Blob
+                    || value instanceof Clob) {
+                text = "<" + value.getClass().getSimpleName() + ">";
+            } else {
+                text = String.valueOf(value);
+                if (text.length() > MAX_BIND_LENGTH) {
+                    text = text.substring(0, MAX_BIND_LENGTH) + "...";
+                }
+            }
+            formatted.add(text);
+        }
+        return formatted.toString();
+    }
+
+    private static String oneLine(String sql) {
+        return sql.replaceAll("\\s+", " ").trim();
+    }
+}
@@ -0,0 +1,90 @@
+package com.gk.config.monitoring;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.jpa.boot.spi.JpaSettings;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL monitoring: wraps the data source so statements and rows are counted per
+ * request and slow statements reach the {@link SlowQueryLog}, hooks Hibernate's
+ * lazy collection loads and registers the request filter. Counting is turned
+ * off with {@code app.query-stats.enabled=false}, the slow query log with
+ * {@code app.slow-query.enabled=false}.
+ */
+@Configuration
+public class SqlMonitoringConfig {
+    private static final String COUNTING = "app.query-stats.enabled";
+
+    @Bean
+    public static BeanPostProcessor monitoredDataSourcePostProcessor(Environment environment,
+                                                                     ObjectProvider<SlowQueryLog> slowQueryLog) {
+        boolean countStatements = environment.getProperty(COUNTING, Boolean.class, true);
+        boolean logSlowStatements = environment.getProperty("app.slow-query.enabled", Boolean.class, true);
+        long thresholdMillis = environment.getProperty("app.slow-query.threshold-ms", Long.class, 200L);
+        long thresholdNanos = logSlowStatements ? TimeUnit.MILLISECONDS.toNanos(thresholdMillis) : -1;
+        // Resolved on the first slow statement, so the log's own dependencies are not created this early
+        MonitoredDataSource.SlowStatementListener listener = (sql, binds, nanos, dataSource) ->
+                slowQueryLog.getObject().onSlowStatement(sql, binds, nanos, dataSource);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof MonitoredDataSource)
+                        && (countStatements || logSlowStatements)) {
+                    return new MonitoredDataSource(dataSource, countStatements, thresholdNanos, listener);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = COUNTING, havingValue = "true", matchIfMissing = true)
+    public HibernatePropertiesCustomizer collectionLoadCounter() {
+        InitializeCollectionEventListener listener =
+                event -> QueryStats.collectionInitialized(event.getCollection().getRole());
+        Integrator integrator = new Integrator() {
+            @Override
+            public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                                  SessionFactoryImplementor sessionFactory) {
+                sessionFactory.getServiceRegistry().requireService(EventListenerRegistry.class)
+                        .appendListeners(EventType.INIT_COLLECTION, listener);
+            }
+
+            @Override
+            public void disintegrate(SessionFactoryImplementor sessionFactory,
+                                     SessionFactoryServiceRegistry serviceRegistry) {
+            }
+        };
+        return properties -> properties.put(JpaSettings.INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> List.of(integrator));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = COUNTING, havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<QueryStatsFilter> queryStatsFilter(QueryStatsRegistry registry) {
+        FilterRegistrationBean<QueryStatsFilter> registration = new FilterRegistrationBean<>(new QueryStatsFilter(registry));
+        // Outside Spring Security, so the queries of authentication are charged to the request too
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
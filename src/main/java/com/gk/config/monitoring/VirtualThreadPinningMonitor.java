@@ -0,0 +1,140 @@
+package com.gk.config.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that block while pinned to their carrier, from the
+ * JDK's {@code jdk.VirtualThreadPinned} flight recorder event. A pinned
+ * thread holds its carrier for as long as it blocks, so a few of them can
+ * stall every request. Each pinning longer than the threshold is timed as
+ * {@value #METRIC}, tagged with its site: the first frame outside the JDK,
+ * in this application or in a dependency. The first pinning at each site is
+ * logged with its stack.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(name = "app.virtual-threads.pinning-monitor", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+    static final String METRIC = "app.threads.virtual.pinned";
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    static final int MAX_SITES = 100;
+    private static final int LOGGED_FRAMES = 20;
+
+    /** A frame of a pinned thread's stack, as the flight recorder reports it. */
+    record Frame(String type, String method, int line) {
+        @Override
+        public String toString() {
+            return type + "." + method + ":" + line;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Duration threshold;
+    private final Map<String, Timer> sites = new ConcurrentHashMap<>();
+    private volatile RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${app.virtual-threads.pinned-threshold-ms:20}") long thresholdMillis) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = Duration.ofMillis(thresholdMillis);
+    }
+
+    @Override
+    public void start() {
+        RecordingStream recording = new RecordingStream();
+        recording.enable(EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(EVENT, this::pinned);
+        recording.startAsync();
+        stream = recording;
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream recording = stream;
+        stream = null;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    private void pinned(RecordedEvent event) {
+        pinned(frames(event.getStackTrace()), event.getThread() == null ? null : event.getThread().getJavaThreadId(),
+                event.getDuration());
+    }
+
+    /** Times one pinning at the site {@code stack} points to; the stack is null if the event carried none. */
+    void pinned(List<Frame> stack, Long threadId, Duration duration) {
+        String site = site(stack);
+        if (!sites.containsKey(site) && sites.size() >= MAX_SITES) {
+            site = "other";
+        }
+        sites.computeIfAbsent(site, key -> register(key, stack, threadId, duration)).record(duration);
+    }
+
+    private Timer register(String site, List<Frame> stack, Long threadId, Duration duration) {
+        logger.warn("Virtual thread #{} pinned for {} ms at {}:\n{}", threadId == null ? "?" : threadId,
+                duration.toMillis(), site, format(stack));
+        return Timer.builder(METRIC)
+                .description("Time virtual threads spent blocked while pinned to their carrier")
+                .tag("site", site)
+                .register(meterRegistry);
+    }
+
+    static String site(List<Frame> stack) {
+        if (stack == null) {
+            return "unknown";
+        }
+        for (Frame frame : stack) {
+            if (!isJdk(frame.type())) {
+                return frame.toString();
+            }
+        }
+        return "jdk";
+    }
+
+    static boolean isJdk(String type) {
+        return type.startsWith("java.") || type.startsWith("jdk.") || type.startsWith("sun.")
+                || type.startsWith("com.sun.");
+    }
+
+    private static String format(List<Frame> stack) {
+        if (stack == null) {
+            return "\t(no stack trace)";
+        }
+        return stack.stream().limit(LOGGED_FRAMES).map(frame -> "\tat " + frame).collect(Collectors.joining("\n"));
+    }
+
+    private static List<Frame> frames(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return null;
+        }
+        return stackTrace.getFrames().stream()
+                .map(frame -> new Frame(frame.getMethod().getType().getName(), frame.getMethod().getName(),
+                        frame.getLineNumber()))
+                .toList();
+    }
+}
@@ -0,0 +1,75 @@
+package com.gk.controller;
+
+import com.gk.repository.ResourceVersionRepository.Version;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.support.RequestContextUtils;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Conditional GET for resources whose version is one cheap query away. A
+ * handler looks the version up before loading anything and returns
+ * {@code null} when the client's copy is current: the response is then a
+ * 304 with no entity loaded and no template rendered.
+ * <p>
+ * Responses are marked {@code private, no-cache} so browsers keep them but
+ * revalidate every time. Pages show who is signed in, so their weak ETags
+ * carry the user as well and are not validated by date alone, and a page
+ * showing a flash message is always rendered.
+ */
+final class ConditionalGet {
+    private static final String CACHE_CONTROL = "private, no-cache";
+
+    private ConditionalGet() {
+    }
+
+    /** One version of a resource's JSON, validated by a strong ETag and by its modification date. */
+    static boolean notModified(ServletWebRequest request, String resource, Long id, Instant lastModified) {
+        if (lastModified == null) {
+            return false;
+        }
+        revalidate(request);
+        return request.checkNotModified("\"" + resource + "-" + id + "-" + lastModified.toEpochMilli() + "\"",
+                lastModified.toEpochMilli());
+    }
+
+    /** A page of one resource. */
+    static boolean pageNotModified(ServletWebRequest request, String page, Long id, Instant lastModified) {
+        if (lastModified == null) {
+            return false;
+        }
+        return page(request, page + "-" + id + "-" + lastModified.toEpochMilli());
+    }
+
+    /** A list, whole; its version changes when a row is added, changed or removed. */
+    static boolean pageNotModified(ServletWebRequest request, String page, Version version) {
+        return page(request, page + "-" + version.tag());
+    }
+
+    /** A list's JSON. */
+    static boolean notModified(ServletWebRequest request, String resource, Version version) {
+        revalidate(request);
+        return request.checkNotModified("W/\"" + resource + "-" + version.tag() + "\"");
+    }
+
+    private static boolean page(ServletWebRequest request, String tag) {
+        revalidate(request);
+        // A redirect after a form post carries its message in the flash map, which the cached page lacks
+        Map<String, ?> flash = RequestContextUtils.getInputFlashMap(request.getRequest());
+        if (flash != null && !flash.isEmpty()) {
+            return false;
+        }
+        Principal user = request.getUserPrincipal();
+        String userTag = Integer.toHexString(user == null ? 0 : user.getName().hashCode());
+        return request.checkNotModified("W/\"" + tag + "-" + userTag + "\"");
+    }
+
+    private static void revalidate(ServletWebRequest request) {
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        }
+    }
+}
@@ -1,28 +1,39 @@
 package com.gk.controller;
 
+import com.gk.dto.FeeInstallment;
 import com.gk.dto.Schedule;
 import com.gk.exception.NotFoundException;
 import com.gk.model.Course;
+import com.gk.repository.ResourceVersionRepository.Version;
 import com.gk.service.CourseService;
+import com.gk.service.StudentQueryService;
 import jakarta.validation.Valid;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.util.Optional;
+
 @Controller
 @RequestMapping("/courses")
 public class CourseController {
 
     private final CourseService courseService;
+    private final StudentQueryService studentQueryService;
 
-    public CourseController(CourseService courseService) {
+    public CourseController(CourseService courseService, StudentQueryService studentQueryService) {
         this.courseService = courseService;
+        this.studentQueryService = studentQueryService;
     }
 
     @GetMapping
-    public String listCourses(Model model) {
+    public String listCourses(Model model, ServletWebRequest request) {
+        if (ConditionalGet.pageNotModified(request, "courses", studentQueryService.getCoursesVersion())) {
+            return null;
+        }
         model.addAttribute("courses", courseService.getAllCourses());
         return "courses/list";
     }
@@ -52,7 +63,11 @@ public class CourseController {
     }
 
     @GetMapping("/{id}")
-    public String viewCourse(@PathVariable Long id, Model model) {
+    public String viewCourse(@PathVariable Long id, Model model, ServletWebRequest request) {
+        Optional<Version> version = studentQueryService.getCourseVersion(id);
+        if (version.isPresent() && ConditionalGet.pageNotModified(request, "course-" + id, version.get())) {
+            return null;
+        }
         try {
             Course course = courseService.getCourseById(id);
             double enrollmentPercentage = course.getMaxStudents() > 0
@@ -180,6 +195,38 @@ public class CourseController {
         return "redirect:/courses/" + courseId + "/schedule";
     }
 
+    @PostMapping("/{id}/installments/add")
+    public String addInstallment(@PathVariable Long id,
+                                 @Valid @ModelAttribute FeeInstallment installment,
+                                 BindingResult result,
+                                 RedirectAttributes redirectAttributes) {
+        if (result.hasErrors()) {
+            redirectAttributes.addFlashAttribute("error", "Invalid installment data");
+            return "redirect:/courses/" + id;
+        }
+
+        try {
+            courseService.addInstallment(id, installment);
+            redirectAttributes.addFlashAttribute("message", "Installment added successfully!");
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
+        return "redirect:/courses/" + id;
+    }
+
+    @PostMapping("/{courseId}/installments/{index}/delete")
+    public String deleteInstallment(@PathVariable Long courseId,
+                                    @PathVariable int index,
+                                    RedirectAttributes redirectAttributes) {
+        try {
+            courseService.removeInstallment(courseId, index);
+            redirectAttributes.addFlashAttribute("message", "Installment removed successfully!");
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
+        return "redirect:/courses/" + courseId;
+    }
+
     @GetMapping("/instructor/{instructor}")
     public String getCoursesByInstructor(@PathVariable String instructor, Model model) {
         model.addAttribute("courses", courseService.findByInstructor(instructor));
@@ -3,6 +3,8 @@ package com.gk.controller;
 import com.gk.model.EventType;
 import com.gk.model.Student;
 import com.gk.model.StudentEvent;
+import com.gk.repository.ResourceVersionRepository.CalendarVersion;
+import com.gk.service.StudentQueryService;
 import com.gk.service.StudentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -10,8 +12,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,10 +26,12 @@ import java.util.stream.Collectors;
 @RequestMapping("/events")
 public class EventController {
     private final StudentService studentService;
+    private final StudentQueryService studentQueryService;
 
     @Autowired
-    public EventController(StudentService studentService) {
+    public EventController(StudentService studentService, StudentQueryService studentQueryService) {
         this.studentService = studentService;
+        this.studentQueryService = studentQueryService;
     }
 
     private String getEventClassName(EventType type) {
@@ -39,7 +46,15 @@ public class EventController {
     }
 
     @GetMapping("/calendar")
-    public String showCalendar(Model model) {
+    public String showCalendar(Model model, ServletWebRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        CalendarVersion version = studentQueryService.getCalendarVersion(now);
+        // The upcoming list also changes when its first event starts
+        String page = "calendar-"
+                + (version.nextStart() == null ? 0 : version.nextStart().toEpochSecond(ZoneOffset.UTC));
+        if (ConditionalGet.pageNotModified(request, page, version.events())) {
+            return null;
+        }
         List<Student> students = studentService.getAllStudents();
 
         List<Map<String, Object>> events = students.stream()
@@ -56,7 +71,15 @@ public class EventController {
                 })
                 .toList();
 
+        // From the students loaded above; StudentService.getUpcomingEvents() would load them all again
+        List<StudentEvent> upcomingEvents = students.stream()
+                .flatMap(student -> student.getEvents().stream())
+                .filter(event -> event.getStart().isAfter(now))
+                .sorted(Comparator.comparing(StudentEvent::getStart))
+                .toList();
+
         model.addAttribute("events", events);
+        model.addAttribute("upcomingEvents", upcomingEvents);
         model.addAttribute("eventTypes", EventType.values());
         return "events/calendar";
     }
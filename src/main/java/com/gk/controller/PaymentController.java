@@ -0,0 +1,121 @@
+package com.gk.controller;
+
+import com.gk.dto.PaymentEvent;
+import com.gk.dto.ReconciliationJob;
+import com.gk.service.PaymentIngestionService;
+import com.gk.service.PaymentReconciliationService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Controller
+@RequestMapping("/api/payments")
+@Validated
+public class PaymentController {
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final int MAX_BATCH = 5000;
+
+    private final PaymentIngestionService paymentIngestionService;
+    private final PaymentReconciliationService paymentReconciliationService;
+    private final Validator validator;
+
+    public PaymentController(PaymentIngestionService paymentIngestionService,
+                             PaymentReconciliationService paymentReconciliationService, Validator validator) {
+        this.paymentIngestionService = paymentIngestionService;
+        this.paymentReconciliationService = paymentReconciliationService;
+        this.validator = validator;
+    }
+
+    /**
+     * Takes the idempotency key from the {@code Idempotency-Key} header, or
+     * from the body without one; the event is validated once the key is in.
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> ingestPayment(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody PaymentEvent event) {
+        if (idempotencyKey != null) {
+            event.setIdempotencyKey(idempotencyKey);
+        }
+        Set<ConstraintViolation<PaymentEvent>> violations = validator.validate(event);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        Map<String, Object> result = paymentIngestionService.submit(List.of(event)).get(0);
+        return switch ((String) result.get("status")) {
+            case PaymentIngestionService.REJECTED -> backPressure(result);
+            case PaymentIngestionService.DUPLICATE -> ResponseEntity.ok(result);
+            default -> ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
+        };
+    }
+
+    /**
+     * Accepts up to {@value #MAX_BATCH} payments at once. If the buffer fills up
+     * part way, the response is 503 and the whole batch can be resent: events
+     * that were already accepted come back as duplicates.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> ingestPayments(
+            @RequestBody @NotEmpty @Size(max = MAX_BATCH) List<@Valid PaymentEvent> events) {
+        List<Map<String, Object>> results = paymentIngestionService.submit(events);
+        Map<String, Object> response = new HashMap<>();
+        response.put("results", results);
+        boolean full = results.stream().anyMatch(result -> PaymentIngestionService.REJECTED.equals(result.get("status")));
+        return full ? backPressure(response) : ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @PostMapping(value = "/reconciliations", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ReconciliationJob> reconcileStatement(@RequestParam("file") MultipartFile file)
+            throws IOException {
+        return ResponseEntity.accepted().body(paymentReconciliationService.submit(file));
+    }
+
+    @GetMapping("/reconciliations/{jobId}")
+    public ResponseEntity<ReconciliationJob> getReconciliation(@PathVariable String jobId) {
+        return ResponseEntity.ok(paymentReconciliationService.getJob(jobId));
+    }
+
+    @GetMapping("/reconciliations/{jobId}/report")
+    public ResponseEntity<Resource> getReconciliationReport(@PathVariable String jobId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+        headers.setContentDispositionFormData("filename", "reconciliation-" + jobId + ".csv");
+        return ResponseEntity.ok().headers(headers)
+                .body(new FileSystemResource(paymentReconciliationService.getReport(jobId)));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getIngestionStats() {
+        return ResponseEntity.ok(paymentIngestionService.getStats());
+    }
+
+    @GetMapping("/{idempotencyKey}")
+    public ResponseEntity<Map<String, Object>> getPaymentStatus(@PathVariable String idempotencyKey) {
+        return ResponseEntity.ok(paymentIngestionService.getStatus(idempotencyKey));
+    }
+
+    private static ResponseEntity<Map<String, Object>> backPressure(Map<String, Object> body) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(body);
+    }
+}
@@ -0,0 +1,50 @@
+package com.gk.controller;
+
+import com.gk.config.monitoring.QueryStatsRegistry;
+import com.gk.config.monitoring.SecondLevelCacheStats;
+import com.gk.config.monitoring.SlowQueryLog;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.util.List;
+import java.util.Map;
+
+@Controller
+@RequestMapping("/admin/query-stats")
+public class QueryStatsController {
+    private final QueryStatsRegistry queryStatsRegistry;
+    private final SlowQueryLog slowQueryLog;
+    private final SecondLevelCacheStats secondLevelCacheStats;
+
+    public QueryStatsController(QueryStatsRegistry queryStatsRegistry, SlowQueryLog slowQueryLog,
+                                SecondLevelCacheStats secondLevelCacheStats) {
+        this.queryStatsRegistry = queryStatsRegistry;
+        this.slowQueryLog = slowQueryLog;
+        this.secondLevelCacheStats = secondLevelCacheStats;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getQueryStats() {
+        return ResponseEntity.ok(queryStatsRegistry.snapshot());
+    }
+
+    @GetMapping("/slow-queries")
+    public ResponseEntity<List<Map<String, Object>>> getSlowQueries() {
+        return ResponseEntity.ok(slowQueryLog.snapshot());
+    }
+
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(secondLevelCacheStats.snapshot());
+    }
+
+    @PostMapping("/reset")
+    public ResponseEntity<Void> resetQueryStats() {
+        queryStatsRegistry.reset();
+        slowQueryLog.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
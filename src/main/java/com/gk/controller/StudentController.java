@@ -1,9 +1,20 @@
 package com.gk.controller;
 
+import com.gk.dto.ClassRank;
+import com.gk.dto.ImportJob;
+import com.gk.dto.StudentDues;
 import com.gk.model.AttendanceRecord;
 import com.gk.model.Student;
 import com.gk.model.SubjectMark;
+import com.gk.repository.StudentReportRepository.DailyPayments;
+import com.gk.repository.StudentReportRepository.RecentPayment;
+import com.gk.service.PrerequisiteService;
+import com.gk.service.StudentDuesService;
+import com.gk.service.StudentImportService;
+import com.gk.service.StudentQueryService;
 import com.gk.service.StudentService;
+import com.gk.service.WidgetComposer;
+import com.gk.service.ranking.ClassRankService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
@@ -15,7 +26,10 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -26,9 +40,21 @@ import java.util.Map;
 @Validated
 public class StudentController {
     private final StudentService studentService;
-
-    public StudentController(StudentService studentService) {
+    private final StudentQueryService studentQueryService;
+    private final PrerequisiteService prerequisiteService;
+    private final StudentImportService studentImportService;
+    private final StudentDuesService studentDuesService;
+    private final WidgetComposer widgetComposer;
+
+    public StudentController(StudentService studentService, StudentQueryService studentQueryService,
+                             PrerequisiteService prerequisiteService, StudentImportService studentImportService,
+                             StudentDuesService studentDuesService, WidgetComposer widgetComposer) {
         this.studentService = studentService;
+        this.studentQueryService = studentQueryService;
+        this.prerequisiteService = prerequisiteService;
+        this.studentImportService = studentImportService;
+        this.studentDuesService = studentDuesService;
+        this.widgetComposer = widgetComposer;
     }
 
     @PostMapping("/save")
@@ -44,12 +70,20 @@ public class StudentController {
     }
 
     @GetMapping
-    public List<Student> getAllStudents() {
+    @ResponseBody
+    public List<Student> getAllStudents(ServletWebRequest request) {
+        if (ConditionalGet.notModified(request, "students", studentQueryService.getStudentsVersion())) {
+            return null;
+        }
         return studentService.getAllStudents();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Student> getStudentById(@PathVariable Long id) {
+    public ResponseEntity<Student> getStudentById(@PathVariable Long id, ServletWebRequest request) {
+        if (ConditionalGet.notModified(request, "student", id,
+                studentQueryService.getStudentLastModified(id).orElse(null))) {
+            return null;
+        }
         Student student = studentService.getStudentById(id);
         return ResponseEntity.ok(student);
     }
@@ -67,10 +101,30 @@ public class StudentController {
     }
 
     @GetMapping("/search")
+    @ResponseBody
     public List<Student> searchStudents(@RequestParam String query) {
         return studentService.searchStudents(query);
     }
 
+    // Bulk Import
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportJob> importStudents(@RequestParam("file") MultipartFile file) throws IOException {
+        return ResponseEntity.accepted().body(studentImportService.submit(file));
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ImportJob> getImportProgress(@PathVariable String jobId) {
+        return ResponseEntity.ok(studentImportService.getJob(jobId));
+    }
+
+    @GetMapping("/import/{jobId}/errors")
+    public ResponseEntity<String> getImportErrors(@PathVariable String jobId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+        headers.setContentDispositionFormData("filename", "import-errors-" + jobId + ".csv");
+        return ResponseEntity.ok().headers(headers).body(studentImportService.getErrorReport(jobId));
+    }
+
     // Marks Management
     @PostMapping("/{id}/marks")
     public ResponseEntity<Student> addMark(
@@ -90,6 +144,36 @@ public class StudentController {
         return ResponseEntity.ok(studentService.getTopPerformers(limit));
     }
 
+    @GetMapping("/{id}/rank")
+    public ResponseEntity<ClassRank> getClassRank(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "SECTION") ClassRankService.Scope scope,
+            @RequestParam(required = false) String subject,
+            @RequestParam(required = false) String term) {
+        return ResponseEntity.ok(studentService.getClassRank(id, scope, subject, term));
+    }
+
+    @GetMapping("/ranks")
+    public ResponseEntity<List<ClassRank>> getTopRanked(
+            @RequestParam String grade,
+            @RequestParam(required = false) String section,
+            @RequestParam(required = false) String subject,
+            @RequestParam(required = false) String term,
+            @RequestParam(defaultValue = "10") @Min(1) int limit) {
+        return ResponseEntity.ok(studentService.getTopRanked(grade, section, subject, term, limit));
+    }
+
+    // Course Eligibility
+    @GetMapping("/{id}/eligible-courses")
+    public ResponseEntity<List<Map<String, Object>>> getEligibleCourses(@PathVariable Long id) {
+        return ResponseEntity.ok(prerequisiteService.getEligibleCourses(id));
+    }
+
+    @GetMapping("/eligibility")
+    public ResponseEntity<Map<Long, List<String>>> getEligibilityByGrade(@RequestParam String grade) {
+        return ResponseEntity.ok(prerequisiteService.getEligibleCoursesByGrade(grade));
+    }
+
     // Attendance Management
     @GetMapping("/attendance/today")
     public ResponseEntity<List<AttendanceRecord>> getTodayAttendance() {
@@ -143,14 +227,14 @@ public class StudentController {
     // Statistics and Reports
     @GetMapping("/statistics")
     public ResponseEntity<Map<String, Object>> getStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalStudents", studentService.getTotalStudents());
-        stats.put("averageAttendance", studentService.getAverageAttendance());
-        stats.put("averageGrade", studentService.getAverageGrade());
-        stats.put("totalCourses", studentService.getTotalCourses());
-        stats.put("gradeDistribution", studentService.getGradeDistribution());
-        stats.put("attendanceTrend", studentService.getAttendanceTrend());
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok(widgetComposer.compose()
+                .add("totalStudents", studentQueryService::getTotalStudents, 0L)
+                .add("averageAttendance", studentQueryService::getAverageAttendance, 0.0)
+                .add("averageGrade", studentQueryService::getAverageGrade, 0.0)
+                .add("totalCourses", studentQueryService::getCoursesWithEnrollments, 0L)
+                .add("gradeDistribution", studentQueryService::getGradeDistribution, Map.of())
+                .add("attendanceTrend", studentQueryService::getAttendanceTrend, Map.of())
+                .join());
     }
 
     @GetMapping("/export")
@@ -204,25 +288,40 @@ public class StudentController {
     // Fee Reports
     @GetMapping("/fees/summary")
     public ResponseEntity<Map<String, Object>> getFeeSummary() {
-        Map<String, Object> summary = new HashMap<>();
-        summary.put("totalRevenue", studentService.calculateTotalRevenue());
-        summary.put("todayPayments", studentService.calculateTodayPayments());
-        summary.put("transactionCount", studentService.getTodayTransactionCount());
-        summary.put("pendingDues", studentService.calculateTotalPendingDues());
-        summary.put("collectionRate", studentService.calculateCollectionRate());
-        summary.put("revenueTrend", studentService.getRevenueTrend());
-        summary.put("feeTypeDistribution", studentService.getFeeTypeDistribution());
+        Map<String, Object> summary = widgetComposer.compose()
+                .add("totalRevenue", studentQueryService::calculateTotalRevenue, 0.0)
+                .add("today", studentQueryService::getTodayPayments, new DailyPayments(0, 0))
+                .add("pendingDues", studentQueryService::calculateTotalPendingDues, 0.0)
+                .add("collectionRate", studentQueryService::calculateCollectionRate, 0.0)
+                .add("revenueTrend", studentQueryService::getRevenueTrend, List.of())
+                .add("feeTypeDistribution", studentQueryService::getFeeTypeDistribution, Map.of())
+                .join();
+        DailyPayments today = (DailyPayments) summary.remove("today");
+        summary.put("todayPayments", today.paidAmount());
+        summary.put("transactionCount", today.transactions());
         return ResponseEntity.ok(summary);
     }
 
     @GetMapping("/fees/recent-payments")
-    public ResponseEntity<List<Map<String, Object>>> getRecentPayments() {
-        return ResponseEntity.ok(studentService.getRecentPayments());
+    public ResponseEntity<List<RecentPayment>> getRecentPayments() {
+        return ResponseEntity.ok(studentQueryService.getRecentPayments());
     }
 
     @GetMapping("/fees/due-payments")
     public ResponseEntity<List<Map<String, Object>>> getDuePayments() {
-        return ResponseEntity.ok(studentService.getDuePayments());
+        return ResponseEntity.ok(studentQueryService.getDuePayments());
+    }
+
+    @PostMapping("/fees/dues/refresh")
+    public ResponseEntity<Map<String, Object>> refreshDues() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("refreshed", studentDuesService.refreshAll());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{id}/fees/dues")
+    public ResponseEntity<StudentDues> getStudentDues(@PathVariable Long id) {
+        return ResponseEntity.ok(studentService.getStudentDues(id));
     }
 
     @PostMapping("/{id}/fees/reminder")
@@ -2,8 +2,11 @@ package com.gk.controller;
 
 import com.gk.model.Student;
 import com.gk.model.SubjectMark;
-import com.gk.service.CourseService;
+import com.gk.repository.StudentReportRepository.DailyPayments;
+import com.gk.repository.StudentReportRepository.StudentSummary;
+import com.gk.service.StudentQueryService;
 import com.gk.service.StudentService;
+import com.gk.service.WidgetComposer;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -12,6 +15,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.Date;
@@ -23,11 +27,14 @@ import java.util.Optional;
 @RequestMapping("/students")
 public class StudentViewController {
     private final StudentService studentService;
-    private final CourseService courseService;
+    private final StudentQueryService studentQueryService;
+    private final WidgetComposer widgetComposer;
 
-    public StudentViewController(StudentService studentService, CourseService courseService) {
+    public StudentViewController(StudentService studentService, StudentQueryService studentQueryService,
+                                 WidgetComposer widgetComposer) {
         this.studentService = studentService;
-        this.courseService = courseService;
+        this.studentQueryService = studentQueryService;
+        this.widgetComposer = widgetComposer;
     }
 
     // Basic Student Management
@@ -37,7 +44,12 @@ public class StudentViewController {
     }
 
     @GetMapping("/list")
-    public String listStudents(Model model, @RequestParam(required = false) String search) {
+    public String listStudents(Model model, @RequestParam(required = false) String search,
+                               ServletWebRequest request) {
+        if ((search == null || search.isBlank())
+                && ConditionalGet.pageNotModified(request, "students", studentQueryService.getStudentsVersion())) {
+            return null;
+        }
         List<Student> students = Optional.of(search).filter(s -> !s.isEmpty())
                 .map(s -> studentService.searchStudents(s.trim())).orElse(studentService.getAllStudents());
 
@@ -70,7 +82,11 @@ public class StudentViewController {
     }
 
     @GetMapping("/{id}")
-    public String viewStudent(@PathVariable Long id, Model model) {
+    public String viewStudent(@PathVariable Long id, Model model, ServletWebRequest request) {
+        if (ConditionalGet.pageNotModified(request, "student", id,
+                studentQueryService.getStudentLastModified(id).orElse(null))) {
+            return null;
+        }
         try {
             Student student = studentService.getStudentById(id);
             if (student == null) {
@@ -116,13 +132,15 @@ public class StudentViewController {
     // Dashboard
     @GetMapping("/dashboard")
     public String showDashboard(Model model) {
-        model.addAttribute("totalStudents", studentService.getTotalStudents());
-        model.addAttribute("averageAttendance", studentService.getAverageAttendance());
-        model.addAttribute("averageGrade", studentService.getAverageGrade());
-        model.addAttribute("gradeDistribution", studentService.getGradeDistribution());
-        model.addAttribute("attendanceTrend", studentService.getAttendanceTrend());
-        model.addAttribute("topPerformers", studentService.getTopPerformers(5));
-        model.addAttribute("totalCourses", courseService.getAllCourses().size());
+        model.addAllAttributes(widgetComposer.compose()
+                .add("totalStudents", studentQueryService::getTotalStudents, 0L)
+                .add("averageAttendance", studentQueryService::getAverageAttendance, 0.0)
+                .add("averageGrade", studentQueryService::getAverageGrade, 0.0)
+                .add("gradeDistribution", studentQueryService::getGradeDistribution, Map.of())
+                .add("attendanceTrend", studentQueryService::getAttendanceTrend, Map.of())
+                .add("topPerformers", () -> studentQueryService.getTopPerformers(5), List.of())
+                .add("totalCourses", studentQueryService::getTotalCourses, 0L)
+                .join());
         return "students/dashboard";
     }
 
@@ -185,13 +203,21 @@ public class StudentViewController {
 
     @GetMapping("/fees/summary")
     public String showFeesSummary(Model model) {
-        model.addAttribute("totalRevenue", studentService.calculateTotalRevenue());
-        model.addAttribute("todayPayments", studentService.calculateTodayPayments());
-        model.addAttribute("pendingDues", studentService.calculateTotalPendingDues());
-        model.addAttribute("collectionRate", studentService.calculateCollectionRate());
-        model.addAttribute("recentPayments", studentService.getRecentPayments());
-        model.addAttribute("duePayments", studentService.getDuePayments());
-        model.addAttribute("revenueTrend", studentService.getRevenueTrend());
+        Map<String, Object> widgets = widgetComposer.compose()
+                .add("totalRevenue", studentQueryService::calculateTotalRevenue, 0.0)
+                .add("today", studentQueryService::getTodayPayments, new DailyPayments(0, 0))
+                .add("pendingDues", studentQueryService::calculateTotalPendingDues, 0.0)
+                .add("collectionRate", studentQueryService::calculateCollectionRate, 0.0)
+                .add("recentPayments", studentQueryService::getRecentPayments, List.of())
+                .add("duePayments", studentQueryService::getDuePayments, List.of())
+                .add("revenueTrend", studentQueryService::getRevenueTrend, List.of())
+                .add("feeDistribution", studentQueryService::getFeeTypeDistribution, Map.of())
+                .join();
+        DailyPayments today = (DailyPayments) widgets.remove("today");
+        model.addAllAttributes(widgets);
+        model.addAttribute("todayPayments", today.paidAmount());
+        model.addAttribute("todayTransactions", today.transactions());
+        model.addAttribute("pendingCount", ((List<?>) widgets.get("duePayments")).size());
         return "students/fees-summary";
     }
 
@@ -208,12 +234,14 @@ public class StudentViewController {
     // Reports
     @GetMapping("/reports")
     public String showReportsOverview(Model model) {
-        List<Student> students = studentService.getAllStudents();
-        model.addAttribute("students", students);
-        model.addAttribute("totalStudents", students.size());
-        model.addAttribute("averageAttendance", studentService.getAverageAttendance());
-        model.addAttribute("averageGrade", studentService.getAverageGrade());
-        model.addAttribute("gradeDistribution", studentService.getGradeDistribution());
+        Map<String, Object> widgets = widgetComposer.compose()
+                .add("students", studentQueryService::getStudentSummaries, List.<StudentSummary>of())
+                .add("averageAttendance", studentQueryService::getAverageAttendance, 0.0)
+                .add("averageGrade", studentQueryService::getAverageGrade, 0.0)
+                .add("gradeDistribution", studentQueryService::getGradeDistribution, Map.of())
+                .join();
+        model.addAllAttributes(widgets);
+        model.addAttribute("totalStudents", ((List<?>) widgets.get("students")).size());
         return "students/reports";
     }
 
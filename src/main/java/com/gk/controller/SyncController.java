@@ -0,0 +1,45 @@
+package com.gk.controller;
+
+import com.gk.dto.ChangeFeed;
+import com.gk.service.sync.ChangeFeedService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
+import java.util.Set;
+
+@Controller
+@RequestMapping("/api/sync")
+public class SyncController {
+    private static final Set<String> STAFF_ROLES = Set.of("ROLE_ADMIN", "ROLE_TEACHER", "ROLE_ACCOUNTANT");
+
+    private final ChangeFeedService changeFeedService;
+
+    public SyncController(ChangeFeedService changeFeedService) {
+        this.changeFeedService = changeFeedService;
+    }
+
+    /**
+     * Changes since {@code cursor}; staff see every student, parents only
+     * their children.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeFeed> getChanges(@RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "500") int limit,
+                                                 Authentication authentication) {
+        boolean staff = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(STAFF_ROLES::contains);
+        List<Long> studentIds = staff ? null : changeFeedService.getChildrenOf(authentication.getName());
+        try {
+            return ResponseEntity.ok(changeFeedService.getChanges(cursor, limit, studentIds));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.gk.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * One page of the change feed: what changed since the client's cursor, and
+ * the cursor to send next time. With {@code hasMore} the client should ask
+ * again straight away. {@code reset} means the cursor is older than the
+ * deletions still on record; the client should drop its copy and sync again
+ * from no cursor.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChangeFeed(List<Change> changes, String cursor,
+                         @JsonInclude(JsonInclude.Include.NON_DEFAULT) boolean hasMore,
+                         @JsonInclude(JsonInclude.Include.NON_DEFAULT) boolean reset) {
+
+    /**
+     * A created or updated row ({@code upsert}), carrying its current fields, or
+     * a deleted one ({@code delete}). Marks and payments are sent as a
+     * student's complete list, which replaces the one the client holds.
+     * Deleting a student deletes everything that belongs to them.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Change(String type, String op, Long id, Long studentId, Object data) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.gk.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A student's standing among the students of a grade, or of one section of
+ * it, by average mark in a subject and term. No subject or term means all of
+ * them; no grade means the whole school. Equal scores share a rank, and the
+ * percentile counts the students below plus half of those level with the
+ * student.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ClassRank(long studentId, String grade, String section, String subject, String term,
+                        int rank, int cohortSize, double percentile, double score) {
+}
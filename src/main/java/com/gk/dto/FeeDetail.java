@@ -1,5 +1,6 @@
 package com.gk.dto;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
@@ -34,4 +35,9 @@ public class FeeDetail {
     private String transactionId;
 
     private String remarks;
+
+    // When the payment was recorded, which may be after it was paid
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "recorded_at")
+    private Date recordedAt;
 }
\ No newline at end of file
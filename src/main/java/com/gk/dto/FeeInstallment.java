@@ -0,0 +1,41 @@
+package com.gk.dto;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import org.hibernate.validator.constraints.Length;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+
+/**
+ * One part of a course fee, due on a fixed date. A course with no installments
+ * is billed in full on its start date.
+ */
+@Embeddable
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeeInstallment {
+    @NotBlank(message = "Installment label is required")
+    @Length(max = 50)
+    private String label;
+
+    @NotNull(message = "Due date is required")
+    @Temporal(TemporalType.DATE)
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    @Column(name = "due_date")
+    private Date dueDate;
+
+    @DecimalMin(value = "0.0", inclusive = false)
+    @DecimalMax(value = "100.0")
+    private double percentage;
+}
@@ -0,0 +1,104 @@
+package com.gk.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one bulk import. Counters are written by the import worker and
+ * read concurrently by pollers.
+ */
+@Getter
+public class ImportJob {
+    public enum Status {QUEUED, RUNNING, COMPLETED, FAILED}
+
+    public record RowError(int row, String field, String message) {
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String fileName;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime finishedAt;
+    private volatile String message;
+
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final List<RowError> errors = new ArrayList<>();
+    private final int maxErrors;
+
+    public ImportJob(String fileName, int maxErrors) {
+        this.fileName = fileName;
+        this.maxErrors = maxErrors;
+    }
+
+    public void start() {
+        status = Status.RUNNING;
+    }
+
+    public void complete() {
+        finish(Status.COMPLETED, null);
+    }
+
+    public void fail(String message) {
+        finish(Status.FAILED, message);
+    }
+
+    private void finish(Status status, String message) {
+        this.message = message;
+        this.finishedAt = LocalDateTime.now();
+        this.status = status;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    public void rowsImported(int count) {
+        imported.addAndGet(count);
+    }
+
+    public void reject(int row, String field, String message) {
+        reject(List.of(new RowError(row, field, message)));
+    }
+
+    public void reject(List<RowError> rowErrors) {
+        rejected.incrementAndGet();
+        synchronized (errors) {
+            for (RowError error : rowErrors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(error);
+                }
+            }
+        }
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getImported() {
+        return imported.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @JsonIgnore
+    public List<RowError> getErrors() {
+        synchronized (errors) {
+            return List.copyOf(errors);
+        }
+    }
+}
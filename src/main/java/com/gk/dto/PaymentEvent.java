@@ -0,0 +1,44 @@
+package com.gk.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.Date;
+
+/**
+ * A payment callback from the gateway. The idempotency key identifies the
+ * request; resubmitting the same key never records the payment twice. The
+ * gateway's own transaction id, when sent, identifies the payment itself: a
+ * second request for a transaction already recorded is a duplicate whatever
+ * its key.
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentEvent {
+    @NotBlank
+    @Size(max = 100)
+    private String idempotencyKey;
+
+    @Size(max = 64)
+    private String gatewayTransactionId;
+
+    @NotNull
+    private Long studentId;
+
+    @NotBlank
+    private String feeType;
+
+    @NotNull
+    @Positive
+    private Double amount;
+
+    private Date paidDate;
+
+    private String remarks;
+}
@@ -0,0 +1,99 @@
+package com.gk.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.gk.service.reconciliation.ReconciliationResult;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and totals of one bank statement reconciliation. The line-level
+ * outcome is written to a CSV report file as the job runs.
+ */
+@Getter
+public class ReconciliationJob {
+    public enum Status {QUEUED, RUNNING, COMPLETED, FAILED}
+
+    private final String id = UUID.randomUUID().toString();
+    private final String fileName;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime finishedAt;
+    private volatile String message;
+    @JsonIgnore
+    private volatile Path report;
+
+    private final AtomicLong linesRead = new AtomicLong();
+    private final AtomicLong invalidLines = new AtomicLong();
+    private final AtomicLong ledgerEntries = new AtomicLong();
+    private final Map<ReconciliationResult.Status, AtomicLong> outcomes = new EnumMap<>(ReconciliationResult.Status.class);
+
+    public ReconciliationJob(String fileName) {
+        this.fileName = fileName;
+        for (ReconciliationResult.Status outcome : ReconciliationResult.Status.values()) {
+            outcomes.put(outcome, new AtomicLong());
+        }
+    }
+
+    public void start(Path report) {
+        this.report = report;
+        status = Status.RUNNING;
+    }
+
+    public void complete() {
+        finish(Status.COMPLETED, null);
+    }
+
+    public void fail(String message) {
+        finish(Status.FAILED, message);
+    }
+
+    private void finish(Status status, String message) {
+        this.message = message;
+        this.finishedAt = LocalDateTime.now();
+        this.status = status;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public void lineRead() {
+        linesRead.incrementAndGet();
+    }
+
+    public void lineInvalid() {
+        invalidLines.incrementAndGet();
+    }
+
+    public void ledgerEntryRead() {
+        ledgerEntries.incrementAndGet();
+    }
+
+    public void outcome(ReconciliationResult.Status outcome) {
+        outcomes.get(outcome).incrementAndGet();
+    }
+
+    public long getLinesRead() {
+        return linesRead.get();
+    }
+
+    public long getInvalidLines() {
+        return invalidLines.get();
+    }
+
+    public long getLedgerEntries() {
+        return ledgerEntries.get();
+    }
+
+    public Map<ReconciliationResult.Status, Long> getOutcomes() {
+        Map<ReconciliationResult.Status, Long> counts = new EnumMap<>(ReconciliationResult.Status.class);
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.get()));
+        return counts;
+    }
+}
@@ -0,0 +1,12 @@
+package com.gk.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Fee position of one student as computed from the installment schedules of
+ * the enrolled courses and the payments recorded so far.
+ */
+public record StudentDues(long studentId, double totalFees, double paidAmount, double outstanding,
+                          double overdueAmount, LocalDate nextDueDate, double nextDueAmount,
+                          LocalDate lastPaymentDate) {
+}
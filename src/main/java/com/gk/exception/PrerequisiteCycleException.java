@@ -0,0 +1,7 @@
+package com.gk.exception;
+
+public class PrerequisiteCycleException extends RuntimeException {
+    public PrerequisiteCycleException(String message) {
+        super(message);
+    }
+}
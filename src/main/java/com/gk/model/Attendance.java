@@ -15,7 +15,9 @@ import java.util.Date;
 @NoArgsConstructor
 public class Attendance {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "attendance_id")
+    @TableGenerator(name = "attendance_id", table = "id_sequences", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "attendance", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -16,10 +16,13 @@ import java.util.Date;
 @ToString
 @Entity
 @Table(name = "attendance_records",
-        uniqueConstraints = @UniqueConstraint(columnNames = {"student_id", "date"}))
+        uniqueConstraints = @UniqueConstraint(columnNames = {"student_id", "date"}),
+        indexes = @Index(name = "idx_attendance_records_marked_at", columnList = "marked_at, id"))
 public class AttendanceRecord {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "attendance_records_id")
+    @TableGenerator(name = "attendance_records_id", table = "id_sequences", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "attendance_records", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -1,17 +1,23 @@
 package com.gk.model;
 
 import com.gk.dto.Assessment;
+import com.gk.dto.FeeInstallment;
 import com.gk.dto.Material;
 import com.gk.dto.Schedule;
 import jakarta.persistence.*;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.Length;
 
 import java.util.*;
 
 @Entity
 @Table(name = "courses")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -20,7 +26,9 @@ import java.util.*;
 @EqualsAndHashCode
 public class Course {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "courses_id")
+    @TableGenerator(name = "courses_id", table = "id_sequences", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "courses", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Course name is required")
@@ -43,10 +51,18 @@ public class Course {
     @DecimalMin(value = "0.0", message = "Fee cannot be negative")
     private double fee;
 
+    @Valid
+    @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @CollectionTable(name = "course_fee_installments", joinColumns = @JoinColumn(name = "course_id"))
+    @OrderBy("dueDate")
+    private List<FeeInstallment> installments = new ArrayList<>();
+
     @ManyToMany(mappedBy = "courses")
     private Set<Student> students = new HashSet<>();
 
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @CollectionTable(name = "course_schedules", joinColumns = @JoinColumn(name = "course_id"))
     private List<Schedule> schedules = new ArrayList<>();
 
@@ -64,6 +80,7 @@ public class Course {
 
     @Column(name = "prerequisites")
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Set<String> prerequisites = new HashSet<>();
 
     @Column(name = "department")
@@ -77,13 +94,30 @@ public class Course {
     private String syllabus;
 
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @CollectionTable(name = "course_materials")
     private List<Material> materials = new ArrayList<>();
 
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @CollectionTable(name = "course_assessments")
     private List<Assessment> assessments = new ArrayList<>();
 
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "updated_at")
+    private Date updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = new Date();
+    }
+
+    /** Marks the course changed when only its collections or enrollments did, which does not run {@link #onUpdate()}. */
+    public void touch() {
+        updatedAt = new Date();
+    }
+
     public Long getId() {
         return id;
     }
@@ -10,7 +10,7 @@ import java.time.LocalDate;
 import java.util.*;
 
 @Entity
-@Table(name = "students")
+@Table(name = "students", indexes = @Index(name = "idx_students_last_modified", columnList = "last_modified_date, id"))
 @ToString
 @AllArgsConstructor
 @NoArgsConstructor
@@ -18,7 +18,9 @@ import java.util.*;
 @Setter
 public class Student {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "students_id")
+    @TableGenerator(name = "students_id", table = "id_sequences", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "students", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Name is required")
@@ -41,7 +43,8 @@ public class Student {
     private String grade;
 
     @ElementCollection
-    @CollectionTable(name = "student_marks", joinColumns = @JoinColumn(name = "student_id"))
+    @CollectionTable(name = "student_marks", joinColumns = @JoinColumn(name = "student_id"),
+            indexes = @Index(name = "idx_student_marks_recorded_at", columnList = "recorded_at, student_id"))
     private List<SubjectMark> marks = new ArrayList<>();
 
     @DecimalMin(value = "0.0", message = "Attendance cannot be negative")
@@ -66,7 +69,10 @@ public class Student {
     private Set<Course> courses = new HashSet<>();
 
     @ElementCollection
-    @CollectionTable(name = "student_fees", joinColumns = @JoinColumn(name = "student_id"))
+    @CollectionTable(name = "student_fees", joinColumns = @JoinColumn(name = "student_id"),
+            indexes = {@Index(name = "idx_student_fees_transaction_id", columnList = "transaction_id"),
+                    @Index(name = "idx_student_fees_paid_date", columnList = "paid_date"),
+                    @Index(name = "idx_student_fees_recorded_at", columnList = "recorded_at, student_id")})
     private List<FeeDetail> feePayments = new ArrayList<>();
 
     @OneToMany(mappedBy = "student", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
@@ -125,6 +131,11 @@ public class Student {
         lastModifiedDate = new Date();
     }
 
+    /** Marks the student changed when only its collections did, which does not run {@link #onUpdate()}. */
+    public void touch() {
+        lastModifiedDate = new Date();
+    }
+
     // Helper methods
     public boolean hasUnpaidFees() {
         return feePayments.stream()
@@ -11,6 +11,7 @@ import org.hibernate.validator.constraints.Length;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(name = "student_event", indexes = @Index(name = "idx_student_event_modified_at", columnList = "modified_at, id"))
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
@@ -20,7 +21,9 @@ import java.time.LocalDateTime;
 @Builder
 public class StudentEvent {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "student_event_id")
+    @TableGenerator(name = "student_event_id", table = "id_sequences", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "student_event", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Title is required")
@@ -21,6 +21,8 @@ import java.util.Date;
 @AllArgsConstructor
 @Builder
 public class SubjectMark {
+    public static final double PASS_MARK = 60.0;
+
     @NotBlank(message = "Subject name is required")
     @Length(min = 2, max = 50, message = "Subject name must be between 2 and 50 characters")
     @Column(nullable = false)
@@ -54,6 +56,11 @@ public class SubjectMark {
     @Length(max = 255, message = "Teacher name must not exceed 255 characters")
     private String teacherName;
 
+    // When the mark was entered, for the change feed
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "recorded_at")
+    private Date recordedAt;
+
     public String calculateGrade() {
         if (marks >= 97) return "A+";
         if (marks >= 93) return "A";
@@ -77,7 +84,7 @@ public class SubjectMark {
 
     // Helper methods
     public boolean isPassing() {
-        return marks >= 60.0;
+        return marks >= PASS_MARK;
     }
 
     public String getStatus() {
@@ -0,0 +1,242 @@
+package com.gk.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Reads behind the change feed. Every source is a table whose modification
+ * timestamp and key are indexed together, so a page of changes is a range scan
+ * from where the client left off. Deleted students and events leave a
+ * tombstone in {@value #TOMBSTONES_TABLE}, kept long enough for clients that
+ * sync at least that often.
+ */
+@Repository
+public class ChangeFeedRepository {
+    public static final String TOMBSTONES_TABLE = "sync_tombstones";
+
+    private static final String STUDENT_COLUMNS = "id, name, grade, section, roll_number, registration_number, email, "
+            + "phone_number, attendance, date_of_birth, admission_date, parent_name, parent_email, parent_phone";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public ChangeFeedRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @PostConstruct
+    public void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TOMBSTONES_TABLE
+                + " (id BIGINT NOT NULL AUTO_INCREMENT, entity VARCHAR(16) NOT NULL, entity_id BIGINT NOT NULL,"
+                + " student_id BIGINT, deleted_at TIMESTAMP(3) NOT NULL, PRIMARY KEY (id),"
+                + " INDEX idx_sync_tombstones_deleted_at (deleted_at, id))");
+    }
+
+    /**
+     * A table the feed reads: its modification timestamp, the key that orders
+     * rows changed at the same time, and which students' rows a client may
+     * see. Marks and payments have no key of their own, so they are read by
+     * student. Student tombstones are seen by everyone: the student is gone,
+     * so there is nothing left to scope them by.
+     */
+    public enum Source {
+        STUDENT("student", "students", "last_modified_date", "id", "id IN (:students)"),
+        EVENT("event", "student_event", "modified_at", "id", "student_id IN (:students)"),
+        ATTENDANCE("attendance", "attendance_records", "marked_at", "id", "student_id IN (:students)"),
+        MARKS("marks", "student_marks", "recorded_at", "student_id", "student_id IN (:students)"),
+        PAYMENTS("payments", "student_fees", "recorded_at", "student_id", "student_id IN (:students)"),
+        TOMBSTONE("tombstone", TOMBSTONES_TABLE, "deleted_at", "id",
+                "(student_id IN (:students) OR entity = 'student')");
+
+        private final String type;
+        private final String table;
+        private final String timestampColumn;
+        private final String keyColumn;
+        private final String scope;
+
+        Source(String type, String table, String timestampColumn, String keyColumn, String scope) {
+            this.type = type;
+            this.table = table;
+            this.timestampColumn = timestampColumn;
+            this.keyColumn = keyColumn;
+            this.scope = scope;
+        }
+
+        /** The name of the rows' type in the feed. */
+        public String type() {
+            return type;
+        }
+    }
+
+    /** A row's place in its source: when it last changed, then its key. */
+    public record Position(long millis, long key) implements Comparable<Position> {
+        public static final Position START = new Position(0, 0);
+
+        @Override
+        public int compareTo(Position other) {
+            int byTime = Long.compare(millis, other.millis);
+            return byTime != 0 ? byTime : Long.compare(key, other.key);
+        }
+    }
+
+    public record Tombstone(String entity, long entityId, Long studentId) {
+    }
+
+    /**
+     * Positions of the rows of {@code source} changed after {@code after} and no
+     * later than {@code upTo}, in order, optionally only those of the given
+     * students.
+     */
+    public List<Position> findChanges(Source source, Position after, Instant upTo, Collection<Long> studentIds,
+                                      int limit) {
+        String ts = source.timestampColumn;
+        String key = source.keyColumn;
+        MapSqlParameterSource params = new MapSqlParameterSource("after", new Timestamp(after.millis()))
+                .addValue("afterKey", after.key())
+                .addValue("upTo", Timestamp.from(upTo))
+                .addValue("limit", limit);
+        String sql = "SELECT DISTINCT " + ts + ", " + key + " FROM " + source.table
+                + " WHERE " + ts + " >= :after AND (" + ts + " > :after OR " + key + " > :afterKey) AND "
+                + ts + " <= :upTo";
+        if (studentIds != null) {
+            sql += " AND " + source.scope;
+            params.addValue("students", studentIds);
+        }
+        return namedJdbcTemplate.query(sql + " ORDER BY " + ts + ", " + key + " LIMIT :limit", params,
+                (rs, rowNum) -> new Position(rs.getTimestamp(1).getTime(), rs.getLong(2)));
+    }
+
+    public Map<Long, Map<String, Object>> findStudents(Collection<Long> ids) {
+        return byId("SELECT " + STUDENT_COLUMNS + " FROM students WHERE id IN (:ids)", ids);
+    }
+
+    public Map<Long, Map<String, Object>> findEvents(Collection<Long> ids) {
+        return byId("SELECT id, student_id, title, description, start, type, status, location, duration_minutes "
+                + "FROM student_event WHERE id IN (:ids)", ids);
+    }
+
+    public Map<Long, Map<String, Object>> findAttendance(Collection<Long> ids) {
+        return byId("SELECT id, student_id, date, status, notes, late_minutes, session_type, marked_by "
+                + "FROM attendance_records WHERE id IN (:ids)", ids);
+    }
+
+    public Map<Long, List<Map<String, Object>>> findMarks(Collection<Long> studentIds) {
+        return byStudent("SELECT student_id, subject, marks, grade, term, exam_type, date, is_published "
+                + "FROM student_marks WHERE student_id IN (:ids) ORDER BY student_id, date, subject", studentIds);
+    }
+
+    public Map<Long, List<Map<String, Object>>> findPayments(Collection<Long> studentIds) {
+        return byStudent("SELECT student_id, fee_type, amount, paid_date, status, transaction_id, remarks "
+                + "FROM student_fees WHERE student_id IN (:ids) ORDER BY student_id, paid_date", studentIds);
+    }
+
+    public Map<Long, Tombstone> findTombstones(Collection<Long> ids) {
+        Map<Long, Tombstone> tombstones = new HashMap<>();
+        if (ids.isEmpty()) {
+            return tombstones;
+        }
+        namedJdbcTemplate.query("SELECT id, entity, entity_id, student_id FROM " + TOMBSTONES_TABLE
+                + " WHERE id IN (:ids)", new MapSqlParameterSource("ids", ids), rs -> {
+                    Long studentId = rs.getObject(4, Long.class);
+                    tombstones.put(rs.getLong(1), new Tombstone(rs.getString(2), rs.getLong(3), studentId));
+                });
+        return tombstones;
+    }
+
+    public void insertTombstone(Source source, long entityId, Long studentId) {
+        jdbcTemplate.update("INSERT INTO " + TOMBSTONES_TABLE + " (entity, entity_id, student_id, deleted_at) "
+                + "VALUES (?, ?, ?, ?)", source.type(), entityId, studentId, new Timestamp(System.currentTimeMillis()));
+    }
+
+    public int deleteTombstonesBefore(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM " + TOMBSTONES_TABLE + " WHERE deleted_at < ?",
+                Timestamp.from(cutoff));
+    }
+
+    /** Students whose parent signs in as {@code username}. */
+    public List<Long> findChildrenOf(String username) {
+        return jdbcTemplate.queryForList("SELECT s.id FROM students s JOIN users u ON u.email = s.parent_email "
+                + "WHERE u.username = ?", Long.class, username);
+    }
+
+    /**
+     * Stamps rows written before they had a modification timestamp, which the
+     * feed would otherwise never return. Marks and payments get the date they
+     * were taken or paid.
+     */
+    public int backfillTimestamps() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return jdbcTemplate.update("UPDATE students SET last_modified_date = ? WHERE last_modified_date IS NULL", now)
+                + jdbcTemplate.update("UPDATE student_event SET modified_at = COALESCE(created_at, ?) "
+                + "WHERE modified_at IS NULL", now)
+                + jdbcTemplate.update("UPDATE attendance_records SET marked_at = COALESCE(date, ?) "
+                + "WHERE marked_at IS NULL", now)
+                + jdbcTemplate.update("UPDATE student_marks SET recorded_at = COALESCE(date, ?) "
+                + "WHERE recorded_at IS NULL", now)
+                + jdbcTemplate.update("UPDATE student_fees SET recorded_at = COALESCE(paid_date, ?) "
+                + "WHERE recorded_at IS NULL", now);
+    }
+
+    private Map<Long, Map<String, Object>> byId(String sql, Collection<Long> ids) {
+        Map<Long, Map<String, Object>> rows = new HashMap<>();
+        if (!ids.isEmpty()) {
+            namedJdbcTemplate.query(sql, new MapSqlParameterSource("ids", ids),
+                    rs -> {
+                        rows.put(rs.getLong("id"), compact(rs));
+                    });
+        }
+        return rows;
+    }
+
+    private Map<Long, List<Map<String, Object>>> byStudent(String sql, Collection<Long> studentIds) {
+        Map<Long, List<Map<String, Object>>> rows = new HashMap<>();
+        if (!studentIds.isEmpty()) {
+            namedJdbcTemplate.query(sql, new MapSqlParameterSource("ids", studentIds),
+                    rs -> {
+                        Map<String, Object> row = compact(rs);
+                        row.remove("studentId");
+                        rows.computeIfAbsent(rs.getLong("student_id"), id -> new ArrayList<>()).add(row);
+                    });
+        }
+        return rows;
+    }
+
+    /** The row's columns by camel-case name, leaving out nulls and the id, which the change carries. */
+    private static Map<String, Object> compact(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+            String name = metaData.getColumnLabel(column).toLowerCase(Locale.ROOT);
+            Object value = rs.getObject(column);
+            if (value != null && !name.equals("id")) {
+                row.put(camelCase(name), value);
+            }
+        }
+        return row;
+    }
+
+    private static String camelCase(String column) {
+        StringBuilder name = new StringBuilder(column.length());
+        boolean upper = false;
+        for (char c : column.toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                name.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package com.gk.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/** Reads the marks the class ranks are built from, with each student's grade and section. */
+@Repository
+public class ClassRankRepository {
+    private static final String MARKS = "SELECT s.id, s.grade, s.section, m.subject, m.term, m.marks "
+            + "FROM students s JOIN student_marks m ON m.student_id = s.id ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public ClassRankRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public record MarkRow(long studentId, String grade, String section, String subject, String term, double marks) {
+    }
+
+    /** Every mark, in student order, handed over row by row rather than collected into a list. */
+    public void forEachMark(Consumer<MarkRow> consumer) {
+        jdbcTemplate.query(MARKS + "ORDER BY s.id", rs -> {
+            consumer.accept(markRow(rs));
+        });
+    }
+
+    /** The marks of the given students, in student order; students without marks have no rows. */
+    public void forEachMark(Collection<Long> studentIds, Consumer<MarkRow> consumer) {
+        namedJdbcTemplate.query(MARKS + "WHERE s.id IN (:ids) ORDER BY s.id", Map.of("ids", studentIds), rs -> {
+            consumer.accept(markRow(rs));
+        });
+    }
+
+    private static MarkRow markRow(ResultSet rs) throws SQLException {
+        return new MarkRow(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                rs.getDouble(6));
+    }
+}
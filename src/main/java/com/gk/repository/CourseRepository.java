@@ -1,18 +1,24 @@
 package com.gk.repository;
 
 import com.gk.model.Course;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface CourseRepository extends JpaRepository<Course, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Course> findByCode(String code);
 
     List<Course> findByNameContainingIgnoreCase(String name);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT c FROM Course c JOIN c.schedules s WHERE s.instructor = :instructor")
     List<Course> findByInstructor(@Param("instructor") String instructor);
 
@@ -24,4 +30,15 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
 
     @Query("SELECT COUNT(s) FROM Course c JOIN c.students s WHERE c.id = :courseId")
     long getEnrollmentCount(@Param("courseId") Long courseId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT DISTINCT c FROM Course c LEFT JOIN FETCH c.installments")
+    List<Course> findAllWithInstallments();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT DISTINCT c FROM Course c LEFT JOIN FETCH c.installments WHERE c.id IN :ids")
+    List<Course> findAllWithInstallmentsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT c.id, c.code, c.name, p FROM Course c LEFT JOIN c.prerequisites p")
+    List<Object[]> findPrerequisiteRows();
 }
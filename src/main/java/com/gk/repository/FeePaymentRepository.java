@@ -0,0 +1,136 @@
+package com.gk.repository;
+
+import com.gk.dto.FeeDetail;
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Appends fee payments straight to the {@code student_fees} collection table,
+ * so recording a payment no longer loads and rewrites the student's whole
+ * payment list. Idempotency keys of ingested payments are kept in
+ * {@code payment_requests}, whose primary key makes each key count once even
+ * across application instances.
+ */
+@Repository
+public class FeePaymentRepository {
+    public static final String REQUESTS_TABLE = "payment_requests";
+
+    private static final String INSERT_FEE_SQL = "INSERT INTO student_fees (student_id, fee_type, amount, paid_date, "
+            + "status, transaction_id, remarks, recorded_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_REQUEST_SQL = "INSERT INTO " + REQUESTS_TABLE
+            + " (idempotency_key, transaction_id, gateway_transaction_id, student_id, status, created_at)"
+            + " VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public FeePaymentRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @PostConstruct
+    public void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + REQUESTS_TABLE
+                + " (idempotency_key VARCHAR(100) NOT NULL, transaction_id VARCHAR(32) NOT NULL,"
+                + " gateway_transaction_id VARCHAR(64), student_id BIGINT, status VARCHAR(16) NOT NULL,"
+                + " created_at TIMESTAMP NOT NULL, PRIMARY KEY (idempotency_key),"
+                + " CONSTRAINT uk_payment_requests_txn UNIQUE (transaction_id),"
+                + " CONSTRAINT uk_payment_requests_gateway_txn UNIQUE (gateway_transaction_id))");
+    }
+
+    /** A payment to record; only rows stored as recorded claim their gateway transaction id. */
+    public record PaymentRow(String idempotencyKey, String gatewayTransactionId, Long studentId, FeeDetail fee) {
+        public PaymentRow withoutGatewayTransactionId() {
+            return new PaymentRow(idempotencyKey, null, studentId, fee);
+        }
+    }
+
+    public record ProcessedRequest(String transactionId, String status) {
+    }
+
+    public void insertFee(Long studentId, FeeDetail fee) {
+        insertFees(List.of(new PaymentRow(null, null, studentId, fee)));
+    }
+
+    public void insertFees(List<PaymentRow> rows) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(INSERT_FEE_SQL, rows, rows.size(), (ps, row) -> {
+            FeeDetail fee = row.fee();
+            ps.setLong(1, row.studentId());
+            ps.setString(2, fee.getFeeType());
+            ps.setDouble(3, fee.getAmount());
+            ps.setTimestamp(4, new Timestamp(fee.getPaidDate().getTime()));
+            ps.setString(5, fee.getStatus());
+            ps.setString(6, fee.getTransactionId());
+            ps.setString(7, fee.getRemarks());
+            ps.setTimestamp(8, now);
+        });
+        // The payments are part of the student, so they are a change to it
+        namedJdbcTemplate.update("UPDATE students SET last_modified_date = :now WHERE id IN (:ids)",
+                new MapSqlParameterSource("now", now)
+                        .addValue("ids", rows.stream().map(PaymentRow::studentId).distinct().toList()));
+    }
+
+    public void insertRequests(List<PaymentRow> rows, String status) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(INSERT_REQUEST_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.idempotencyKey());
+            ps.setString(2, row.fee().getTransactionId());
+            ps.setString(3, row.gatewayTransactionId());
+            ps.setLong(4, row.studentId());
+            ps.setString(5, status);
+            ps.setTimestamp(6, now);
+        });
+    }
+
+    public int deleteRequests(Collection<String> idempotencyKeys, String status) {
+        if (idempotencyKeys.isEmpty()) {
+            return 0;
+        }
+        return namedJdbcTemplate.update("DELETE FROM " + REQUESTS_TABLE
+                        + " WHERE idempotency_key IN (:keys) AND status = :status",
+                new MapSqlParameterSource("keys", idempotencyKeys).addValue("status", status));
+    }
+
+    public Map<String, ProcessedRequest> findRequests(Collection<String> idempotencyKeys) {
+        Map<String, ProcessedRequest> requests = new HashMap<>();
+        if (idempotencyKeys.isEmpty()) {
+            return requests;
+        }
+        namedJdbcTemplate.query("SELECT idempotency_key, transaction_id, status FROM " + REQUESTS_TABLE
+                        + " WHERE idempotency_key IN (:keys)", new MapSqlParameterSource("keys", idempotencyKeys),
+                rs -> {
+                    requests.put(rs.getString(1), new ProcessedRequest(rs.getString(2), rs.getString(3)));
+                });
+        return requests;
+    }
+
+    /** Our transaction ids of the payments recorded for these gateway transaction ids. */
+    public Map<String, String> findGatewayTransactions(Collection<String> gatewayTransactionIds) {
+        Map<String, String> transactions = new HashMap<>();
+        if (gatewayTransactionIds.isEmpty()) {
+            return transactions;
+        }
+        namedJdbcTemplate.query("SELECT gateway_transaction_id, transaction_id FROM " + REQUESTS_TABLE
+                        + " WHERE gateway_transaction_id IN (:ids)",
+                new MapSqlParameterSource("ids", gatewayTransactionIds), rs -> {
+                    transactions.put(rs.getString(1), rs.getString(2));
+                });
+        return transactions;
+    }
+
+    public Set<Long> findExistingStudentIds(Collection<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(namedJdbcTemplate.queryForList("SELECT id FROM students WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", studentIds), Long.class));
+    }
+}
@@ -0,0 +1,124 @@
+package com.gk.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Hands out blocks of primary keys from the {@code id_sequences} table so bulk
+ * writers can assign ids client-side and batch their inserts. Each row keeps
+ * the next free id of one table; reserving a block advances it by the block
+ * size, which gives the caller the ids {@code [first, first + size)}.
+ * <p>
+ * Entities share the same rows through {@code @TableGenerator} with the
+ * pooled-lo optimizer, which follows exactly this contract, so JDBC bulk
+ * writers and Hibernate never hand out the same id.
+ */
+@Repository
+public class IdBlockAllocator {
+    private static final Logger logger = LoggerFactory.getLogger(IdBlockAllocator.class);
+
+    public static final String TABLE = "id_sequences";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public IdBlockAllocator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE
+                + " (sequence_name VARCHAR(255) NOT NULL, next_val BIGINT, PRIMARY KEY (sequence_name))");
+    }
+
+    /**
+     * Reserves {@code size} consecutive ids for {@code tableName} and returns the
+     * first one. The reservation commits independently of the caller's
+     * transaction, so a rollback leaves a gap but never a reused id.
+     */
+    public long reserve(String tableName, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + size);
+        }
+        Long first = transactionTemplate.execute(status -> {
+            long next = lockNextValue(tableName);
+            jdbcTemplate.update("UPDATE " + TABLE + " SET next_val = ? WHERE sequence_name = ?", next + size, tableName);
+            return next;
+        });
+        logger.debug("Reserved ids [{}, {}) for {}", first, first + size, tableName);
+        return first;
+    }
+
+    /**
+     * Moves the sequence of {@code tableName} past the highest id already in the
+     * table, covering rows written before the sequence existed.
+     */
+    public void synchronize(String tableName) {
+        transactionTemplate.executeWithoutResult(status -> {
+            long next = lockNextValue(tableName);
+            Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + tableName, Long.class);
+            if (max != null && next <= max) {
+                jdbcTemplate.update("UPDATE " + TABLE + " SET next_val = ? WHERE sequence_name = ?", max + 1, tableName);
+                logger.info("Advanced id sequence of {} from {} to {}", tableName, next, max + 1);
+            }
+        });
+    }
+
+    public Pool pool(String tableName, int blockSize) {
+        return new Pool(tableName, blockSize);
+    }
+
+    private long lockNextValue(String tableName) {
+        List<Long> current = jdbcTemplate.queryForList(
+                "SELECT next_val FROM " + TABLE + " WHERE sequence_name = ? FOR UPDATE", Long.class, tableName);
+        if (!current.isEmpty()) {
+            return current.get(0);
+        }
+        // First use: start above whatever the table already holds.
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + tableName, Long.class);
+        try {
+            jdbcTemplate.update("INSERT INTO " + TABLE + " (sequence_name, next_val) VALUES (?, ?)",
+                    tableName, max == null ? 1L : max + 1);
+        } catch (DuplicateKeyException e) {
+            logger.debug("Sequence row for {} created concurrently", tableName);
+        }
+        return jdbcTemplate.queryForObject(
+                "SELECT next_val FROM " + TABLE + " WHERE sequence_name = ? FOR UPDATE", Long.class, tableName);
+    }
+
+    /**
+     * Single-threaded cursor over reserved blocks; fetches the next block when
+     * the current one is used up.
+     */
+    public final class Pool {
+        private final String tableName;
+        private final int blockSize;
+        private long next;
+        private long limit;
+
+        private Pool(String tableName, int blockSize) {
+            this.tableName = tableName;
+            this.blockSize = blockSize;
+        }
+
+        public long nextId() {
+            if (next == limit) {
+                next = reserve(tableName, blockSize);
+                limit = next + blockSize;
+            }
+            return next++;
+        }
+    }
+}
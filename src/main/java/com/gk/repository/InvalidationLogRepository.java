@@ -0,0 +1,73 @@
+package com.gk.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The cache invalidation log every application instance tails. A row names
+ * an entity type and a range of ids whose cached copies are stale, and the
+ * instance that wrote it, which skips its own rows. Rows are only needed
+ * until every instance has polled past them, so old ones are deleted.
+ */
+@Repository
+public class InvalidationLogRepository {
+    public static final String TABLE = "cache_invalidations";
+
+    private static final String INSERT_SQL = "INSERT INTO " + TABLE
+            + " (origin, entity, first_id, last_id, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InvalidationLogRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE
+                + " (id BIGINT NOT NULL AUTO_INCREMENT, origin VARCHAR(36) NOT NULL, entity VARCHAR(32) NOT NULL,"
+                + " first_id BIGINT NOT NULL, last_id BIGINT NOT NULL, created_at TIMESTAMP(3) NOT NULL,"
+                + " PRIMARY KEY (id))");
+    }
+
+    public record Invalidation(String entity, long firstId, long lastId) {
+    }
+
+    public record LogEntry(long id, String origin, Invalidation invalidation, Instant createdAt) {
+    }
+
+    public void append(String origin, List<Invalidation> invalidations) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(INSERT_SQL, invalidations, invalidations.size(), (ps, invalidation) -> {
+            ps.setString(1, origin);
+            ps.setString(2, invalidation.entity());
+            ps.setLong(3, invalidation.firstId());
+            ps.setLong(4, invalidation.lastId());
+            ps.setTimestamp(5, now);
+        });
+    }
+
+    /** Up to {@code limit} entries after {@code id}, in id order. */
+    public List<LogEntry> findAfter(long id, int limit) {
+        return jdbcTemplate.query("SELECT id, origin, entity, first_id, last_id, created_at FROM " + TABLE
+                        + " WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new LogEntry(rs.getLong(1), rs.getString(2),
+                        new Invalidation(rs.getString(3), rs.getLong(4), rs.getLong(5)),
+                        rs.getTimestamp(6).toInstant()),
+                id, limit);
+    }
+
+    public long findLatestId() {
+        Long latest = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + TABLE, Long.class);
+        return latest != null ? latest : 0;
+    }
+
+    public int deleteBefore(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE created_at < ?", Timestamp.from(cutoff));
+    }
+}
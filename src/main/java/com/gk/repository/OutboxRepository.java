@@ -0,0 +1,96 @@
+package com.gk.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The domain event outbox. Events are inserted by the transaction that makes
+ * the change, so they exist exactly when the change does; their
+ * auto-increment id is the offset subscribers read from. How far each
+ * subscriber has got is kept in {@value #OFFSETS_TABLE}, so it resumes there
+ * after a restart.
+ */
+@Repository
+public class OutboxRepository {
+    public static final String TABLE = "domain_outbox";
+    public static final String OFFSETS_TABLE = "domain_outbox_offsets";
+
+    private static final String INSERT_SQL = "INSERT INTO " + TABLE
+            + " (event_type, student_id, payload, occurred_at) VALUES (?, ?, ?, ?)";
+    // Never moves an offset back: two instances running the same subscriber may save out of order
+    private static final String SAVE_OFFSET_SQL = "INSERT INTO " + OFFSETS_TABLE
+            + " (subscriber, last_offset, updated_at) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "last_offset = GREATEST(last_offset, VALUES(last_offset)), updated_at = VALUES(updated_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE
+                + " (id BIGINT NOT NULL AUTO_INCREMENT, event_type VARCHAR(32) NOT NULL, student_id BIGINT NOT NULL,"
+                + " payload VARCHAR(2000) NOT NULL, occurred_at TIMESTAMP(3) NOT NULL, PRIMARY KEY (id))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + OFFSETS_TABLE
+                + " (subscriber VARCHAR(64) NOT NULL, last_offset BIGINT NOT NULL, updated_at TIMESTAMP(3) NOT NULL,"
+                + " PRIMARY KEY (subscriber))");
+    }
+
+    public record OutboxEntry(String type, long studentId, String payload) {
+    }
+
+    public record StoredEntry(long offset, String type, long studentId, String payload, Instant occurredAt) {
+    }
+
+    public void append(List<OutboxEntry> entries) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setString(1, entry.type());
+            ps.setLong(2, entry.studentId());
+            ps.setString(3, entry.payload());
+            ps.setTimestamp(4, now);
+        });
+    }
+
+    /** Up to {@code limit} entries after {@code offset}, in offset order. */
+    public List<StoredEntry> findAfter(long offset, int limit) {
+        return jdbcTemplate.query("SELECT id, event_type, student_id, payload, occurred_at FROM " + TABLE
+                        + " WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new StoredEntry(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getString(4),
+                        rs.getTimestamp(5).toInstant()),
+                offset, limit);
+    }
+
+    public long findLatestOffset() {
+        Long latest = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + TABLE, Long.class);
+        return latest != null ? latest : 0;
+    }
+
+    public Map<String, Long> findOffsets() {
+        Map<String, Long> offsets = new HashMap<>();
+        jdbcTemplate.query("SELECT subscriber, last_offset FROM " + OFFSETS_TABLE,
+                rs -> {
+                    offsets.put(rs.getString(1), rs.getLong(2));
+                });
+        return offsets;
+    }
+
+    public void saveOffset(String subscriber, long offset) {
+        jdbcTemplate.update(SAVE_OFFSET_SQL, subscriber, offset, new Timestamp(System.currentTimeMillis()));
+    }
+
+    /** Removes entries up to {@code offset} that are older than {@code before}. */
+    public int deleteUpTo(long offset, Instant before) {
+        return jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE id <= ? AND occurred_at < ?",
+                offset, Timestamp.from(before));
+    }
+}
@@ -0,0 +1,90 @@
+package com.gk.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Versions of students, courses and events for conditional GETs, read from
+ * their modification columns with one indexed or aggregate query each, so a
+ * client whose copy is current is answered without loading the resource.
+ */
+@Repository
+public class ResourceVersionRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public ResourceVersionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Version of a set of rows: how many there are and when the latest of them
+     * changed. A deletion leaves the latest change alone but lowers the count.
+     */
+    public record Version(long count, Instant lastModified) {
+        public String tag() {
+            return count + "-" + (lastModified == null ? 0 : lastModified.toEpochMilli());
+        }
+    }
+
+    /**
+     * The events, with the start of the first one after {@code now}: the
+     * calendar lists it as upcoming until it starts, with no row changed.
+     */
+    public record CalendarVersion(Version events, LocalDateTime nextStart) {
+    }
+
+    public Optional<Instant> findStudentLastModified(Long id) {
+        return first(jdbcTemplate.query("SELECT last_modified_date FROM students WHERE id = ?",
+                (rs, rowNum) -> toInstant(rs.getTimestamp(1)), id));
+    }
+
+    /** The course with its enrolled students, whose names and grades its page lists; empty if there is no such course. */
+    public Optional<Version> findCourseVersion(Long id) {
+        return first(jdbcTemplate.query("SELECT c.updated_at, COUNT(s.id), MAX(s.last_modified_date) FROM courses c "
+                        + "LEFT JOIN student_courses sc ON sc.course_id = c.id LEFT JOIN students s ON s.id = sc.student_id "
+                        + "WHERE c.id = ? GROUP BY c.id, c.updated_at",
+                (rs, rowNum) -> new Version(rs.getLong(2),
+                        latest(toInstant(rs.getTimestamp(1)), toInstant(rs.getTimestamp(3)))), id));
+    }
+
+    public Version studentsVersion() {
+        return version("SELECT COUNT(*), MAX(last_modified_date) FROM students");
+    }
+
+    public Version coursesVersion() {
+        return version("SELECT COUNT(*), MAX(updated_at) FROM courses");
+    }
+
+    public CalendarVersion calendarVersion(LocalDateTime now) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*), MAX(modified_at), MIN(CASE WHEN start > ? THEN start END) FROM student_event",
+                (rs, rowNum) -> new CalendarVersion(new Version(rs.getLong(1), toInstant(rs.getTimestamp(2))),
+                        rs.getObject(3, LocalDateTime.class)), now);
+    }
+
+    private Version version(String sql) {
+        return jdbcTemplate.queryForObject(sql,
+                (rs, rowNum) -> new Version(rs.getLong(1), toInstant(rs.getTimestamp(2))));
+    }
+
+    private static <T> Optional<T> first(List<T> rows) {
+        return rows.isEmpty() ? Optional.empty() : Optional.ofNullable(rows.get(0));
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+}
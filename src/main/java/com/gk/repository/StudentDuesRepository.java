@@ -0,0 +1,168 @@
+package com.gk.repository;
+
+import com.gk.dto.StudentDues;
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Precomputed fee position per student in {@code student_dues}, which the dues
+ * reports read instead of evaluating every student's schedule on each request.
+ * A row is marked dirty when the student's payments or enrollments change and
+ * is recomputed by the next refresh; a dirty mark made while a refresh is
+ * running survives that refresh.
+ */
+@Repository
+public class StudentDuesRepository {
+    public static final String TABLE = "student_dues";
+
+    private static final String UPSERT_SQL = "INSERT INTO " + TABLE + " (student_id, total_fees, paid_amount, "
+            + "outstanding, overdue_amount, next_due_date, next_due_amount, last_payment_date, computed_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE total_fees = VALUES(total_fees), "
+            + "paid_amount = VALUES(paid_amount), outstanding = VALUES(outstanding), "
+            + "overdue_amount = VALUES(overdue_amount), next_due_date = VALUES(next_due_date), "
+            + "next_due_amount = VALUES(next_due_amount), last_payment_date = VALUES(last_payment_date), "
+            + "computed_at = VALUES(computed_at), "
+            + "dirty_at = CASE WHEN dirty_at > VALUES(computed_at) THEN dirty_at ELSE NULL END";
+    private static final String SELECT_SQL = "SELECT student_id, total_fees, paid_amount, outstanding, "
+            + "overdue_amount, next_due_date, next_due_amount, last_payment_date FROM " + TABLE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public StudentDuesRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @PostConstruct
+    public void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE
+                + " (student_id BIGINT NOT NULL, total_fees DOUBLE NOT NULL, paid_amount DOUBLE NOT NULL,"
+                + " outstanding DOUBLE NOT NULL, overdue_amount DOUBLE NOT NULL, next_due_date DATE,"
+                + " next_due_amount DOUBLE NOT NULL, last_payment_date DATE, computed_at TIMESTAMP(3) NOT NULL,"
+                + " dirty_at TIMESTAMP(3) NULL, PRIMARY KEY (student_id))");
+    }
+
+    /**
+     * Stores computed rows. {@code startedAt} is when the computation read its
+     * inputs; dirty marks newer than that are kept.
+     */
+    public void saveAll(List<StudentDues> dues, Timestamp startedAt) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, dues, dues.size(), (ps, row) -> {
+            ps.setLong(1, row.studentId());
+            ps.setDouble(2, row.totalFees());
+            ps.setDouble(3, row.paidAmount());
+            ps.setDouble(4, row.outstanding());
+            ps.setDouble(5, row.overdueAmount());
+            ps.setDate(6, row.nextDueDate() != null ? Date.valueOf(row.nextDueDate()) : null);
+            ps.setDouble(7, row.nextDueAmount());
+            ps.setDate(8, row.lastPaymentDate() != null ? Date.valueOf(row.lastPaymentDate()) : null);
+            ps.setTimestamp(9, startedAt);
+        });
+    }
+
+    public void markDirty(Collection<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            return;
+        }
+        namedJdbcTemplate.update("UPDATE " + TABLE + " SET dirty_at = :now WHERE student_id IN (:ids)",
+                new MapSqlParameterSource("ids", studentIds).addValue("now", now()));
+    }
+
+    public void markCourseDirty(Long courseId) {
+        jdbcTemplate.update("UPDATE " + TABLE + " SET dirty_at = ? WHERE student_id IN "
+                + "(SELECT student_id FROM student_courses WHERE course_id = ?)", now(), courseId);
+    }
+
+    /** Students whose row is dirty or was never computed. */
+    public List<Long> findStaleStudentIds(int limit) {
+        return jdbcTemplate.queryForList("SELECT s.id FROM students s LEFT JOIN " + TABLE + " d ON d.student_id = s.id "
+                + "WHERE d.student_id IS NULL OR d.dirty_at IS NOT NULL ORDER BY s.id LIMIT ?", Long.class, limit);
+    }
+
+    public List<Long> findAllStudentIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM students ORDER BY id", Long.class);
+    }
+
+    public int deleteOrphans() {
+        return jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE student_id NOT IN (SELECT id FROM students)");
+    }
+
+    public Map<Long, List<Long>> findEnrollments(Collection<Long> studentIds) {
+        Map<Long, List<Long>> enrollments = new HashMap<>();
+        namedJdbcTemplate.query("SELECT student_id, course_id FROM student_courses WHERE student_id IN (:ids)",
+                new MapSqlParameterSource("ids", studentIds), rs -> {
+                    enrollments.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>()).add(rs.getLong(2));
+                });
+        return enrollments;
+    }
+
+    public record PaidTotal(double amount, LocalDate lastPaymentDate) {
+    }
+
+    public Map<Long, PaidTotal> findPaidTotals(Collection<Long> studentIds) {
+        Map<Long, PaidTotal> totals = new HashMap<>();
+        namedJdbcTemplate.query("SELECT student_id, SUM(amount), MAX(paid_date) FROM student_fees "
+                        + "WHERE status = 'PAID' AND student_id IN (:ids) GROUP BY student_id",
+                new MapSqlParameterSource("ids", studentIds), rs -> {
+                    Timestamp last = rs.getTimestamp(3);
+                    totals.put(rs.getLong(1), new PaidTotal(rs.getDouble(2),
+                            last != null ? last.toLocalDateTime().toLocalDate() : null));
+                });
+        return totals;
+    }
+
+    public Optional<StudentDues> findByStudentId(Long studentId) {
+        return jdbcTemplate.query(SELECT_SQL + " WHERE student_id = ?", StudentDuesRepository::mapRow, studentId)
+                .stream().findFirst();
+    }
+
+    /** The student's row if nothing marked it dirty and it was computed on or after {@code since}. */
+    public Optional<StudentDues> findCurrent(Long studentId, LocalDate since) {
+        return jdbcTemplate.query(SELECT_SQL + " WHERE student_id = ? AND dirty_at IS NULL AND computed_at >= ?",
+                StudentDuesRepository::mapRow, studentId, Date.valueOf(since)).stream().findFirst();
+    }
+
+    public record DuesTotals(double totalFees, double paidAmount, double outstanding, double overdueAmount) {
+    }
+
+    public DuesTotals totals() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(total_fees), 0), COALESCE(SUM(paid_amount), 0), "
+                + "COALESCE(SUM(outstanding), 0), COALESCE(SUM(overdue_amount), 0) FROM " + TABLE, (rs, rowNum) ->
+                new DuesTotals(rs.getDouble(1), rs.getDouble(2), rs.getDouble(3), rs.getDouble(4)));
+    }
+
+    public record DueRow(String studentName, StudentDues dues) {
+    }
+
+    /** Students with an outstanding balance, most urgent first. */
+    public List<DueRow> findOutstanding(int limit) {
+        return jdbcTemplate.query("SELECT d.student_id, d.total_fees, d.paid_amount, d.outstanding, d.overdue_amount, "
+                        + "d.next_due_date, d.next_due_amount, d.last_payment_date, s.name FROM " + TABLE + " d "
+                        + "JOIN students s ON s.id = d.student_id WHERE d.outstanding > 0 "
+                        + "ORDER BY d.next_due_date, d.outstanding DESC LIMIT ?",
+                (rs, rowNum) -> new DueRow(rs.getString(9), mapRow(rs, rowNum)), limit);
+    }
+
+    private static StudentDues mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Date nextDueDate = rs.getDate(6);
+        Date lastPaymentDate = rs.getDate(8);
+        return new StudentDues(rs.getLong(1), rs.getDouble(2), rs.getDouble(3), rs.getDouble(4), rs.getDouble(5),
+                nextDueDate != null ? nextDueDate.toLocalDate() : null, rs.getDouble(7),
+                lastPaymentDate != null ? lastPaymentDate.toLocalDate() : null);
+    }
+
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+}
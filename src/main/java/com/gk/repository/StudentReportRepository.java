@@ -0,0 +1,147 @@
+package com.gk.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates behind the dashboard, the reports overview, the fees summary and
+ * the statistics API. Every figure is computed by the database and read into
+ * a record or a map; no entity is loaded, so these pages cost a handful of
+ * queries however many students, marks and payments there are.
+ */
+@Repository
+public class StudentReportRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public StudentReportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public record StudentSummary(Long id, String name, String grade, double attendance) {
+    }
+
+    public record TopPerformer(Long id, String name, String grade, double attendance, double averageScore) {
+    }
+
+    public record RecentPayment(String studentName, double amount, java.util.Date date, String type) {
+    }
+
+    /** Payments of one day: the amount actually paid, and every transaction whatever its status. */
+    public record DailyPayments(double paidAmount, long transactions) {
+    }
+
+    public long countStudents() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM students", Long.class);
+    }
+
+    public long countCourses() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM courses", Long.class);
+    }
+
+    public long countCoursesWithEnrollments() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT course_id) FROM student_courses", Long.class);
+    }
+
+    public double averageAttendance() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(AVG(attendance), 0) FROM students", Double.class);
+    }
+
+    /** The mean of the students' average marks, counting students without marks as 0. */
+    public double averageOfStudentAverages() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(AVG(COALESCE(m.average_marks, 0)), 0) FROM students s "
+                + "LEFT JOIN (SELECT student_id, AVG(marks) AS average_marks FROM student_marks GROUP BY student_id) m "
+                + "ON m.student_id = s.id", Double.class);
+    }
+
+    public Map<String, Long> gradeDistribution() {
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT grade, COUNT(*) FROM students GROUP BY grade ORDER BY grade",
+                rs -> {
+                    distribution.put(rs.getString(1), rs.getLong(2));
+                });
+        return distribution;
+    }
+
+    public List<StudentSummary> findStudentSummaries() {
+        return jdbcTemplate.query("SELECT id, name, grade, attendance FROM students ORDER BY id", (rs, rowNum) ->
+                new StudentSummary(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getDouble(4)));
+    }
+
+    /** The summaries of the given students by id; ids of students that no longer exist are left out. */
+    public Map<Long, StudentSummary> findStudentSummaries(Collection<Long> ids) {
+        Map<Long, StudentSummary> summaries = new HashMap<>();
+        if (!ids.isEmpty()) {
+            namedJdbcTemplate.query("SELECT id, name, grade, attendance FROM students WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", ids), rs -> {
+                        summaries.put(rs.getLong(1), new StudentSummary(rs.getLong(1), rs.getString(2),
+                                rs.getString(3), rs.getDouble(4)));
+                    });
+        }
+        return summaries;
+    }
+
+    /** Attendance percentage per month from {@code from} (inclusive) to {@code to} (exclusive). */
+    public Map<YearMonth, Double> attendancePercentageByMonth(LocalDate from, LocalDate to) {
+        Map<YearMonth, Double> percentages = new HashMap<>();
+        jdbcTemplate.query("SELECT YEAR(date), MONTH(date), COUNT(*), SUM(CASE WHEN present THEN 1 ELSE 0 END) "
+                        + "FROM attendance WHERE date >= ? AND date < ? GROUP BY YEAR(date), MONTH(date)",
+                rs -> {
+                    percentages.put(YearMonth.of(rs.getInt(1), rs.getInt(2)), rs.getLong(4) * 100.0 / rs.getLong(3));
+                }, Date.valueOf(from), Date.valueOf(to));
+        return percentages;
+    }
+
+    public double totalPaid() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(amount), 0) FROM student_fees WHERE status = 'PAID'",
+                Double.class);
+    }
+
+    public DailyPayments paymentsOn(LocalDate day) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(CASE WHEN status = 'PAID' THEN amount ELSE 0 END), 0), "
+                        + "COUNT(*) FROM student_fees WHERE paid_date >= ? AND paid_date < ?",
+                (rs, rowNum) -> new DailyPayments(rs.getDouble(1), rs.getLong(2)),
+                Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+    }
+
+    /** Sum of the payments recorded per month, whatever their status, in {@code [from, to)}. */
+    public Map<YearMonth, Double> paymentsByMonth(LocalDate from, LocalDate to) {
+        Map<YearMonth, Double> amounts = new HashMap<>();
+        jdbcTemplate.query("SELECT YEAR(paid_date), MONTH(paid_date), SUM(amount) FROM student_fees "
+                        + "WHERE paid_date >= ? AND paid_date < ? GROUP BY YEAR(paid_date), MONTH(paid_date)",
+                rs -> {
+                    amounts.put(YearMonth.of(rs.getInt(1), rs.getInt(2)), rs.getDouble(3));
+                }, Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()));
+        return amounts;
+    }
+
+    public Map<String, Double> paidByFeeType() {
+        Map<String, Double> amounts = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT fee_type, SUM(amount) FROM student_fees WHERE status = 'PAID' "
+                + "GROUP BY fee_type ORDER BY fee_type", rs -> {
+                    amounts.put(rs.getString(1), rs.getDouble(2));
+                });
+        return amounts;
+    }
+
+    public List<RecentPayment> findRecentPayments(int limit) {
+        return jdbcTemplate.query("SELECT s.name, f.amount, f.paid_date, f.fee_type FROM student_fees f "
+                        + "JOIN students s ON s.id = f.student_id WHERE f.paid_date IS NOT NULL "
+                        + "ORDER BY f.paid_date DESC LIMIT ?",
+                (rs, rowNum) -> new RecentPayment(rs.getString(1), rs.getDouble(2), rs.getTimestamp(3),
+                        rs.getString(4)), limit);
+    }
+}
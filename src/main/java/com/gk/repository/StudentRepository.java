@@ -28,4 +28,10 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
 
     @Query("SELECT s FROM Student s WHERE SIZE(s.feePayments) = 0 OR s.feePayments IS EMPTY")
     List<Student> findStudentsWithNoPendingFees();
+
+    @Query("SELECT m.subject FROM Student s JOIN s.marks m WHERE s.id = :studentId AND m.marks >= :passMark")
+    List<String> findPassedSubjects(@Param("studentId") Long studentId, @Param("passMark") double passMark);
+
+    @Query("SELECT s.id, m.subject FROM Student s LEFT JOIN s.marks m ON m.marks >= :passMark WHERE s.grade = :grade")
+    List<Object[]> findPassedSubjectsByGrade(@Param("grade") String grade, @Param("passMark") double passMark);
 }
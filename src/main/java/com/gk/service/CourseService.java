@@ -1,23 +1,53 @@
 package com.gk.service;
 
+import com.gk.dto.FeeInstallment;
 import com.gk.dto.Schedule;
 import com.gk.model.Course;
 import com.gk.model.Student;
 import com.gk.repository.CourseRepository;
 import com.gk.repository.StudentRepository;
+import com.gk.service.events.DomainEvent;
+import com.gk.service.events.DomainEventPublisher;
+import com.gk.service.invalidation.CacheInvalidationService;
+import com.gk.service.invalidation.CachedEntity;
+import com.gk.service.invalidation.IdRange;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class CourseService {
+    private static final List<String> CACHED_COLLECTIONS =
+            List.of("installments", "schedules", "materials", "assessments", "prerequisites");
+    // Larger ranges clear the whole region rather than evicting id by id
+    private static final long MAX_EVICTED_IDS = 1000;
+
     private final CourseRepository courseRepository;
     private final StudentRepository studentRepository;
-
-    public CourseService(CourseRepository courseRepository, StudentRepository studentRepository) {
+    private final PrerequisiteService prerequisiteService;
+    private final StudentDuesService studentDuesService;
+    private final DomainEventPublisher domainEventPublisher;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final Cache secondLevelCache;
+
+    public CourseService(CourseRepository courseRepository, StudentRepository studentRepository,
+                         PrerequisiteService prerequisiteService, StudentDuesService studentDuesService,
+                         DomainEventPublisher domainEventPublisher,
+                         CacheInvalidationService cacheInvalidationService,
+                         EntityManagerFactory entityManagerFactory) {
         this.courseRepository = courseRepository;
         this.studentRepository = studentRepository;
+        this.prerequisiteService = prerequisiteService;
+        this.studentDuesService = studentDuesService;
+        this.domainEventPublisher = domainEventPublisher;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cacheInvalidationService.subscribe(CachedEntity.COURSE, this::evict);
     }
 
     public List<Course> getAllCourses() {
@@ -29,13 +59,30 @@ public class CourseService {
                 .orElseThrow(() -> new RuntimeException("Course not found with id: " + id));
     }
 
+    @Transactional
     public Course saveCourse(Course course) {
-        return courseRepository.save(course);
+        prerequisiteService.validateNoCycles(course);
+        if (course.getId() != null && course.getInstallments().isEmpty()) {
+            // The course form does not post installments; keep the ones managed on the course page
+            courseRepository.findById(course.getId())
+                    .ifPresent(existing -> course.setInstallments(new ArrayList<>(existing.getInstallments())));
+        }
+        validateInstallments(course.getInstallments());
+        course.touch();
+        Course saved = courseRepository.save(course);
+        prerequisiteService.invalidate();
+        studentDuesService.markCourseDirty(saved.getId());
+        evictFromCache(saved.getId());
+        return saved;
     }
 
+    @Transactional
     public void deleteCourse(Long id) {
         Course course = getCourseById(id);
+        studentDuesService.markCourseDirty(id);
         courseRepository.delete(course);
+        prerequisiteService.invalidate();
+        evictFromCache(id);
     }
 
     public List<Course> searchCourses(String query) {
@@ -48,11 +95,22 @@ public class CourseService {
         Student student = studentRepository.findById(studentId)
                 .orElseThrow(() -> new RuntimeException("Student not found with id: " + studentId));
 
+        List<String> missing = prerequisiteService.getMissingPrerequisites(studentId, courseId);
+        if (!missing.isEmpty()) {
+            throw new RuntimeException("Student has not completed prerequisites for " + course.getCode()
+                    + ": " + String.join(", ", missing));
+        }
+
         course.getStudents().add(student);
         student.getCourses().add(course);
+        course.touch();
+        student.touch();
 
         courseRepository.save(course);
         studentRepository.save(student);
+        studentDuesService.markStudentsDirty(List.of(studentId));
+        domainEventPublisher.publish(DomainEvent.Type.STUDENT_ENROLLED, studentId,
+                DomainEventPublisher.data("courseId", courseId));
     }
 
     @Transactional
@@ -63,9 +121,14 @@ public class CourseService {
 
         course.getStudents().remove(student);
         student.getCourses().remove(course);
+        course.touch();
+        student.touch();
 
         courseRepository.save(course);
         studentRepository.save(student);
+        studentDuesService.markStudentsDirty(List.of(studentId));
+        domainEventPublisher.publish(DomainEvent.Type.STUDENT_UNENROLLED, studentId,
+                DomainEventPublisher.data("courseId", courseId));
     }
 
     public long getEnrollmentCount(Long courseId) {
@@ -75,19 +138,85 @@ public class CourseService {
     public void addSchedule(Long courseId, Schedule schedule) {
         Course course = getCourseById(courseId);
         course.getSchedules().add(schedule);
+        course.touch();
         courseRepository.save(course);
+        evictFromCache(courseId);
     }
 
     public void removeSchedule(Long courseId, int index) {
         Course course = getCourseById(courseId);
         if (index >= 0 && index < course.getSchedules().size()) {
             course.getSchedules().remove(index);
+            course.touch();
             courseRepository.save(course);
+            evictFromCache(courseId);
         } else {
             throw new RuntimeException("Invalid schedule index");
         }
     }
 
+    @Transactional
+    public void addInstallment(Long courseId, FeeInstallment installment) {
+        Course course = getCourseById(courseId);
+        List<FeeInstallment> installments = new ArrayList<>(course.getInstallments());
+        installments.add(installment);
+        validateInstallments(installments);
+        course.getInstallments().add(installment);
+        course.touch();
+        courseRepository.save(course);
+        studentDuesService.markCourseDirty(courseId);
+        evictFromCache(courseId);
+    }
+
+    @Transactional
+    public void removeInstallment(Long courseId, int index) {
+        Course course = getCourseById(courseId);
+        if (index >= 0 && index < course.getInstallments().size()) {
+            course.getInstallments().remove(index);
+            course.touch();
+            courseRepository.save(course);
+            studentDuesService.markCourseDirty(courseId);
+            evictFromCache(courseId);
+        } else {
+            throw new RuntimeException("Invalid installment index");
+        }
+    }
+
+    /**
+     * Drops the cached course, its collections and the cached course queries
+     * on every instance once the write commits, so a reader cannot put the old
+     * state back in between the eviction and the commit.
+     */
+    private void evictFromCache(Long courseId) {
+        cacheInvalidationService.invalidate(CachedEntity.COURSE, courseId);
+    }
+
+    private void evict(List<IdRange> ranges) {
+        for (IdRange range : ranges) {
+            if (range.size() > MAX_EVICTED_IDS) {
+                secondLevelCache.evictEntityData(Course.class);
+                for (String collection : CACHED_COLLECTIONS) {
+                    secondLevelCache.evictCollectionData(Course.class.getName() + "." + collection);
+                }
+                break;
+            }
+            for (long courseId = range.first(); courseId <= range.last(); courseId++) {
+                secondLevelCache.evictEntityData(Course.class, courseId);
+                for (String collection : CACHED_COLLECTIONS) {
+                    secondLevelCache.evictCollectionData(Course.class.getName() + "." + collection, courseId);
+                }
+            }
+        }
+        secondLevelCache.evictDefaultQueryRegion();
+    }
+
+    private static void validateInstallments(List<FeeInstallment> installments) {
+        double total = installments.stream().mapToDouble(FeeInstallment::getPercentage).sum();
+        if (total > 100.0 + 1e-9) {
+            throw new RuntimeException("Installments add up to " + total + "% of the course fee");
+        }
+    }
+
     public List<Course> findByInstructor(String instructor) {
         return courseRepository.findByInstructor(instructor);
     }
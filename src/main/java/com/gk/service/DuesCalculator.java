@@ -0,0 +1,104 @@
+package com.gk.service;
+
+import com.gk.dto.FeeInstallment;
+import com.gk.dto.StudentDues;
+import com.gk.model.Course;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Turns course fee schedules into amounts owed. Payments are not tied to a
+ * course, so they settle the merged installments of all enrolled courses
+ * oldest first.
+ */
+final class DuesCalculator {
+    private static final double EPSILON = 0.005;
+    private static final Comparator<Installment> BY_DUE_DATE = Comparator.comparing(Installment::dueDate);
+
+    record Installment(LocalDate dueDate, double amount) {
+    }
+
+    private DuesCalculator() {
+    }
+
+    /**
+     * Expands a course fee into dated amounts. Percentages below 100 leave the
+     * remainder on the last installment. A course with neither installments nor
+     * a start date is due in full already, dated {@link LocalDate#EPOCH}: courses
+     * keep no creation date, and {@code updated_at} moves with every edit, which
+     * would push the fee back out of the overdue amount. Being earliest, it is
+     * also the first that payments settle.
+     */
+    static List<Installment> installments(Course course) {
+        List<Installment> installments = new ArrayList<>();
+        if (course.getFee() <= 0) {
+            return installments;
+        }
+        double allocated = 0;
+        for (FeeInstallment installment : course.getInstallments()) {
+            double amount = round(course.getFee() * installment.getPercentage() / 100);
+            installments.add(new Installment(toLocalDate(installment.getDueDate()), amount));
+            allocated += amount;
+        }
+        double remainder = round(course.getFee() - allocated);
+        if (installments.isEmpty()) {
+            LocalDate due = course.getStartDate() != null ? toLocalDate(course.getStartDate()) : LocalDate.EPOCH;
+            installments.add(new Installment(due, course.getFee()));
+        } else if (remainder > EPSILON) {
+            installments.sort(BY_DUE_DATE);
+            Installment last = installments.remove(installments.size() - 1);
+            installments.add(new Installment(last.dueDate(), round(last.amount() + remainder)));
+        }
+        installments.sort(BY_DUE_DATE);
+        return installments;
+    }
+
+    static StudentDues compute(long studentId, List<List<Installment>> courses, double paid,
+                               LocalDate lastPaymentDate, LocalDate today) {
+        List<Installment> schedule = new ArrayList<>();
+        courses.forEach(schedule::addAll);
+        schedule.sort(BY_DUE_DATE);
+
+        double total = 0;
+        double overdue = 0;
+        double unallocated = paid;
+        LocalDate nextDueDate = null;
+        double nextDueAmount = 0;
+        for (Installment installment : schedule) {
+            total += installment.amount();
+            double open = installment.amount() - Math.min(unallocated, installment.amount());
+            unallocated = Math.max(0, unallocated - installment.amount());
+            if (open <= EPSILON) {
+                continue;
+            }
+            if (installment.dueDate().isBefore(today)) {
+                overdue += open;
+            }
+            if (nextDueDate == null) {
+                nextDueDate = installment.dueDate().isAfter(today) ? installment.dueDate() : today;
+            }
+            if (installment.dueDate().isAfter(today) ? installment.dueDate().equals(nextDueDate)
+                    : nextDueDate.equals(today)) {
+                nextDueAmount += open;
+            }
+        }
+        return new StudentDues(studentId, round(total), round(paid), round(Math.max(0, total - paid)),
+                round(overdue), nextDueDate, round(nextDueAmount), lastPaymentDate);
+    }
+
+    static LocalDate toLocalDate(java.util.Date date) {
+        if (date instanceof Date sqlDate) {
+            return sqlDate.toLocalDate();
+        }
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static double round(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+}
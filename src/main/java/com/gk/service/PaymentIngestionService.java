@@ -0,0 +1,385 @@
+package com.gk.service;
+
+import com.gk.dto.FeeDetail;
+import com.gk.dto.PaymentEvent;
+import com.gk.exception.NotFoundException;
+import com.gk.repository.FeePaymentRepository;
+import com.gk.repository.FeePaymentRepository.PaymentRow;
+import com.gk.repository.FeePaymentRepository.ProcessedRequest;
+import com.gk.service.events.DomainEvent;
+import com.gk.service.events.DomainEventPublisher;
+import com.gk.service.events.DomainEventPublisher.PendingEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingests payment callbacks in bursts. Accepted payments get their transaction
+ * id immediately and wait in a bounded ring buffer; a single writer thread
+ * drains it and commits whole batches. When the buffer is full, submissions
+ * are rejected so the caller can back off and retry.
+ * <p>
+ * Each idempotency key is recorded at most once: keys are deduplicated while
+ * queued, and checked against {@code payment_requests} on submit and again by
+ * the writer. The gateway's transaction id, when the event carries one, is
+ * checked the same way, and its unique constraint holds across instances, so
+ * one gateway payment is recorded once even under different keys. Without it
+ * the idempotency key is the only guard.
+ * <p>
+ * Every accepted payment ends with a request row, so its status can always be
+ * looked up. A payment the writer cannot record is stored as {@link #FAILED},
+ * and the gateway's retry with the same key is accepted again. If even that
+ * row cannot be written, as when the database is down, the payment stays
+ * queued and is retried after {@code app.payments.retry-delay-ms}. Shutting
+ * down stops new submissions and waits for the queue to be written.
+ */
+@Service
+public class PaymentIngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentIngestionService.class);
+
+    public static final String ACCEPTED = "ACCEPTED";
+    public static final String PENDING = "PENDING";
+    public static final String DUPLICATE = "DUPLICATE";
+    public static final String REJECTED = "REJECTED";
+    public static final String RECORDED = "RECORDED";
+    public static final String UNKNOWN_STUDENT = "UNKNOWN_STUDENT";
+    public static final String FAILED = "FAILED";
+
+    private final FeePaymentRepository feePaymentRepository;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final StudentDuesService studentDuesService;
+    private final DomainEventPublisher domainEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PaymentRow> queue;
+    // Free slots in the queue, taken before a payment is claimed and given back as the writer takes it
+    private final Semaphore capacity;
+    private final Map<String, PaymentRow> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, PaymentRow> inFlightByGatewayId = new ConcurrentHashMap<>();
+    // Owned by the writer thread: payments to write again, not before retryAt
+    private final Deque<PaymentRow> retries = new ArrayDeque<>();
+    private final Map<String, Integer> attempts = new HashMap<>();
+    private final int batchSize;
+    private final long retryDelayMillis;
+    private final int maxAttempts;
+    private long retryAt;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public PaymentIngestionService(FeePaymentRepository feePaymentRepository,
+                                   TransactionIdGenerator transactionIdGenerator,
+                                   StudentDuesService studentDuesService,
+                                   DomainEventPublisher domainEventPublisher,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.payments.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${app.payments.batch-size:500}") int batchSize,
+                                   @Value("${app.payments.retry-delay-ms:1000}") long retryDelayMillis,
+                                   @Value("${app.payments.max-attempts:60}") int maxAttempts) {
+        this.feePaymentRepository = feePaymentRepository;
+        this.transactionIdGenerator = transactionIdGenerator;
+        this.studentDuesService = studentDuesService;
+        this.domainEventPublisher = domainEventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.capacity = new Semaphore(queueCapacity);
+        this.batchSize = batchSize;
+        this.retryDelayMillis = retryDelayMillis;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::drain, "payment-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Rejects new payments and returns once the writer has written, or given up on, every queued one. */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (!inFlight.isEmpty()) {
+            logger.info("Writing {} queued payments before shutting down", inFlight.size());
+        }
+        writer.join();
+    }
+
+    /**
+     * Queues the payments and returns one result per event, in order, with its
+     * transaction id and one of {@link #ACCEPTED}, {@link #DUPLICATE} or
+     * {@link #REJECTED} (buffer full, or shutting down). A key whose earlier
+     * payment {@link #FAILED} is accepted again.
+     */
+    public List<Map<String, Object>> submit(List<PaymentEvent> events) {
+        Map<String, ProcessedRequest> processed = feePaymentRepository.findRequests(
+                events.stream().map(PaymentEvent::getIdempotencyKey).toList());
+        Map<String, String> gatewayTransactions = feePaymentRepository.findGatewayTransactions(
+                events.stream().map(PaymentEvent::getGatewayTransactionId).filter(Objects::nonNull).toList());
+        List<Map<String, Object>> results = new ArrayList<>(events.size());
+        for (PaymentEvent event : events) {
+            String key = event.getIdempotencyKey();
+            ProcessedRequest request = processed.get(key);
+            if (request != null && !FAILED.equals(request.status())) {
+                duplicates.incrementAndGet();
+                results.add(result(key, request.transactionId(), DUPLICATE));
+                continue;
+            }
+            String gatewayId = event.getGatewayTransactionId();
+            if (gatewayId != null && gatewayTransactions.containsKey(gatewayId)) {
+                duplicates.incrementAndGet();
+                results.add(result(key, gatewayTransactions.get(gatewayId), DUPLICATE));
+                continue;
+            }
+            PaymentRow queued = findQueued(key, gatewayId);
+            if (queued == null && running && capacity.tryAcquire()) {
+                // Room is reserved before the claim is published, so a payment
+                // that others report as queued is always written
+                PaymentRow row = new PaymentRow(key, gatewayId, event.getStudentId(), toFeeDetail(event));
+                queued = claim(row);
+                if (queued == null) {
+                    queue.add(row);
+                    accepted.incrementAndGet();
+                    results.add(result(key, row.fee().getTransactionId(), ACCEPTED));
+                    continue;
+                }
+                capacity.release();
+            }
+            if (queued != null) {
+                duplicates.incrementAndGet();
+                results.add(result(key, queued.fee().getTransactionId(), DUPLICATE));
+            } else {
+                rejected.incrementAndGet();
+                results.add(result(key, null, REJECTED));
+            }
+        }
+        return results;
+    }
+
+    public Map<String, Object> getStatus(String idempotencyKey) {
+        PaymentRow queued = inFlight.get(idempotencyKey);
+        if (queued != null) {
+            return result(idempotencyKey, queued.fee().getTransactionId(), PENDING);
+        }
+        ProcessedRequest request = feePaymentRepository.findRequests(List.of(idempotencyKey)).get(idempotencyKey);
+        if (request == null) {
+            throw new NotFoundException("No payment with idempotency key: " + idempotencyKey);
+        }
+        return result(idempotencyKey, request.transactionId(), request.status());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("capacity", queue.size() + queue.remainingCapacity());
+        stats.put("accepted", accepted.get());
+        stats.put("duplicates", duplicates.get());
+        stats.put("rejected", rejected.get());
+        stats.put("written", written.get());
+        stats.put("batches", batches.get());
+        stats.put("failed", failed.get());
+        stats.put("lost", lost.get());
+        return stats;
+    }
+
+    private void drain() {
+        List<PaymentRow> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty() || !retries.isEmpty()) {
+            try {
+                if (!retries.isEmpty() && System.currentTimeMillis() >= retryAt) {
+                    while (!retries.isEmpty() && batch.size() < batchSize) {
+                        batch.add(retries.poll());
+                    }
+                } else {
+                    PaymentRow first = queue.poll(retries.isEmpty() ? 200 : Math.max(1,
+                            Math.min(200, retryAt - System.currentTimeMillis())), TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    capacity.release(batch.size());
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PaymentRow> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> record(batch));
+            batch.forEach(this::done);
+            return;
+        } catch (RuntimeException e) {
+            // A key recorded concurrently by another instance fails the whole
+            // batch on the primary key; retry row by row so only it is skipped.
+            logger.debug("Payment batch failed, retrying {} rows individually: {}", batch.size(), e.getMessage());
+        }
+        for (PaymentRow row : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> record(List.of(row)));
+                done(row);
+            } catch (RuntimeException rowFailure) {
+                fail(row, rowFailure);
+            }
+        }
+    }
+
+    /** Stores the payment as FAILED; if that cannot be written either, queues it to be tried again later. */
+    private void fail(PaymentRow row, RuntimeException cause) {
+        String key = row.idempotencyKey();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                feePaymentRepository.deleteRequests(List.of(key), FAILED);
+                feePaymentRepository.insertRequests(List.of(row.withoutGatewayTransactionId()), FAILED);
+            });
+            failed.incrementAndGet();
+            logger.error("Could not record payment {} ({}), stored it as failed", key, row.fee().getTransactionId(),
+                    cause);
+            done(row);
+        } catch (RuntimeException e) {
+            int attempt = attempts.merge(key, 1, Integer::sum);
+            if (attempt < maxAttempts) {
+                logger.warn("Could not record payment {} ({}), attempt {} of {}: {}", key,
+                        row.fee().getTransactionId(), attempt, maxAttempts, cause.getMessage());
+                retries.add(row);
+                retryAt = System.currentTimeMillis() + retryDelayMillis;
+            } else {
+                lost.incrementAndGet();
+                logger.error("Gave up on payment {} ({}) of student {} for {} after {} attempts", key,
+                        row.fee().getTransactionId(), row.studentId(), row.fee().getAmount(), attempt, cause);
+                done(row);
+            }
+        }
+    }
+
+    private PaymentRow findQueued(String idempotencyKey, String gatewayTransactionId) {
+        PaymentRow queued = inFlight.get(idempotencyKey);
+        return queued != null || gatewayTransactionId == null ? queued
+                : inFlightByGatewayId.get(gatewayTransactionId);
+    }
+
+    /** Claims the payment's key and gateway id; returns the queued payment holding either, or null. */
+    private PaymentRow claim(PaymentRow row) {
+        PaymentRow queued = inFlight.putIfAbsent(row.idempotencyKey(), row);
+        if (queued == null && row.gatewayTransactionId() != null) {
+            queued = inFlightByGatewayId.putIfAbsent(row.gatewayTransactionId(), row);
+            if (queued != null) {
+                inFlight.remove(row.idempotencyKey());
+            }
+        }
+        return queued;
+    }
+
+    private void done(PaymentRow row) {
+        attempts.remove(row.idempotencyKey());
+        inFlight.remove(row.idempotencyKey());
+        if (row.gatewayTransactionId() != null) {
+            inFlightByGatewayId.remove(row.gatewayTransactionId());
+        }
+    }
+
+    private void record(List<PaymentRow> batch) {
+        Set<String> keys = new HashSet<>();
+        Set<String> gatewayIds = new HashSet<>();
+        Set<Long> studentIds = new HashSet<>();
+        for (PaymentRow row : batch) {
+            keys.add(row.idempotencyKey());
+            if (row.gatewayTransactionId() != null) {
+                gatewayIds.add(row.gatewayTransactionId());
+            }
+            studentIds.add(row.studentId());
+        }
+        Map<String, ProcessedRequest> requests = feePaymentRepository.findRequests(keys);
+        Set<String> processedKeys = new HashSet<>();
+        requests.forEach((key, request) -> {
+            if (!FAILED.equals(request.status())) {
+                processedKeys.add(key);
+            }
+        });
+        Set<String> recordedGatewayIds = feePaymentRepository.findGatewayTransactions(gatewayIds).keySet();
+        Set<Long> knownStudents = feePaymentRepository.findExistingStudentIds(studentIds);
+
+        List<PaymentRow> payments = new ArrayList<>(batch.size());
+        List<PaymentRow> unknownStudents = new ArrayList<>();
+        List<PaymentRow> alreadyPaid = new ArrayList<>();
+        for (PaymentRow row : batch) {
+            if (processedKeys.contains(row.idempotencyKey())) {
+                duplicates.incrementAndGet();
+            } else if (recordedGatewayIds.contains(row.gatewayTransactionId())) {
+                // Recorded under another key since this one was accepted
+                duplicates.incrementAndGet();
+                alreadyPaid.add(row.withoutGatewayTransactionId());
+            } else if (knownStudents.contains(row.studentId())) {
+                payments.add(row);
+            } else {
+                unknownStudents.add(row);
+            }
+        }
+        // Resubmitted after failing: the new outcome replaces the failure
+        feePaymentRepository.deleteRequests(keys, FAILED);
+        if (!payments.isEmpty()) {
+            feePaymentRepository.insertRequests(payments, RECORDED);
+            feePaymentRepository.insertFees(payments);
+            studentDuesService.markStudentsDirty(payments.stream().map(PaymentRow::studentId).distinct().toList());
+            domainEventPublisher.publishAll(payments.stream()
+                    .map(row -> new PendingEvent(DomainEvent.Type.PAYMENT_RECORDED, row.studentId(),
+                            StudentService.paymentData(row.fee())))
+                    .toList());
+        }
+        if (!unknownStudents.isEmpty()) {
+            feePaymentRepository.insertRequests(unknownStudents.stream()
+                    .map(PaymentRow::withoutGatewayTransactionId).toList(), UNKNOWN_STUDENT);
+        }
+        if (!alreadyPaid.isEmpty()) {
+            feePaymentRepository.insertRequests(alreadyPaid, DUPLICATE);
+        }
+        written.addAndGet(payments.size());
+        batches.incrementAndGet();
+    }
+
+    private FeeDetail toFeeDetail(PaymentEvent event) {
+        FeeDetail fee = new FeeDetail();
+        fee.setFeeType(event.getFeeType());
+        fee.setAmount(event.getAmount());
+        fee.setPaidDate(event.getPaidDate() != null ? event.getPaidDate() : new Date());
+        fee.setStatus("PAID");
+        fee.setTransactionId(transactionIdGenerator.nextTransactionId());
+        fee.setRemarks(event.getRemarks());
+        return fee;
+    }
+
+    private static Map<String, Object> result(String idempotencyKey, String transactionId, String status) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("idempotencyKey", idempotencyKey);
+        result.put("transactionId", transactionId);
+        result.put("status", status);
+        return result;
+    }
+}
@@ -0,0 +1,248 @@
+package com.gk.service;
+
+import com.gk.dto.ReconciliationJob;
+import com.gk.exception.NotFoundException;
+import com.gk.service.reconciliation.LedgerEntry;
+import com.gk.service.reconciliation.ReconciliationResult;
+import com.gk.service.reconciliation.StatementLine;
+import com.gk.service.reconciliation.StatementReconciler;
+import com.gk.service.tabular.TabularRow;
+import com.gk.service.tabular.TabularRowReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reconciles uploaded bank statements against the recorded fee payments. The
+ * statement is streamed from disk and the ledger from a database cursor into a
+ * {@link StatementReconciler}, so memory stays bounded by one join partition
+ * regardless of statement size.
+ */
+@Service
+public class PaymentReconciliationService {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReconciliationService.class);
+
+    private static final Pattern TRANSACTION_ID = Pattern.compile("TXN[0-9A-Z]{6,}");
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+            DateTimeFormatter.ofPattern("dd-MM-yyyy"),
+            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("dd-MMM-yyyy").toFormatter(Locale.ENGLISH));
+    private static final String LEDGER_SQL = "SELECT f.transaction_id, f.student_id, s.name, f.amount, f.paid_date, "
+            + "f.fee_type FROM student_fees f JOIN students s ON s.id = f.student_id "
+            + "WHERE f.status = 'PAID' AND f.paid_date >= ? AND f.paid_date < ?";
+    private static final String REPORT_HEADER = "status,statement_row,reference,amount,date,description,"
+            + "transaction_id,student_id,student_name,ledger_amount,ledger_date,score\n";
+
+    private final JdbcTemplate ledgerJdbcTemplate;
+    private final TaskExecutor taskExecutor;
+    private final int partitions;
+    private final int dateWindowDays;
+    private final Map<String, ReconciliationJob> jobs = new ConcurrentHashMap<>();
+
+    public PaymentReconciliationService(DataSource dataSource,
+                                        @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                        @Value("${app.reconciliation.partitions:64}") int partitions,
+                                        @Value("${app.reconciliation.date-window-days:3}") int dateWindowDays,
+                                        @Value("${app.reconciliation.fetch-size:1000}") int fetchSize) {
+        this.ledgerJdbcTemplate = new JdbcTemplate(dataSource);
+        this.ledgerJdbcTemplate.setFetchSize(fetchSize);
+        this.taskExecutor = taskExecutor;
+        this.partitions = partitions;
+        this.dateWindowDays = dateWindowDays;
+    }
+
+    public ReconciliationJob submit(MultipartFile file) throws IOException {
+        String fileName = Objects.requireNonNullElse(file.getOriginalFilename(), "");
+        TabularRowReader reader = TabularRowReader.forFileName(fileName);
+        Path spooled = Files.createTempFile("bank-statement-", fileName.substring(fileName.lastIndexOf('.')));
+        file.transferTo(spooled);
+
+        evictFinishedJobs();
+        ReconciliationJob job = new ReconciliationJob(fileName);
+        jobs.put(job.getId(), job);
+        taskExecutor.execute(() -> run(job, spooled, reader));
+        logger.info("Queued reconciliation {} for {}", job.getId(), fileName);
+        return job;
+    }
+
+    public ReconciliationJob getJob(String jobId) {
+        ReconciliationJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new NotFoundException("Reconciliation job not found: " + jobId);
+        }
+        return job;
+    }
+
+    public Path getReport(String jobId) {
+        ReconciliationJob job = getJob(jobId);
+        if (job.getStatus() != ReconciliationJob.Status.COMPLETED) {
+            throw new RuntimeException("Reconciliation " + jobId + " is " + job.getStatus());
+        }
+        return job.getReport();
+    }
+
+    private void run(ReconciliationJob job, Path file, TabularRowReader reader) {
+        try {
+            job.start(Files.createTempFile("reconciliation-report-", ".csv"));
+            try (BufferedWriter report = Files.newBufferedWriter(job.getReport(), StandardCharsets.UTF_8);
+                 StatementReconciler reconciler = new StatementReconciler(partitions, dateWindowDays,
+                         result -> write(report, job, result))) {
+                report.write(REPORT_HEADER);
+                reader.read(file, row -> {
+                    job.lineRead();
+                    StatementLine line = toStatementLine(row);
+                    if (line != null) {
+                        reconciler.addStatementLine(line);
+                    } else {
+                        job.lineInvalid();
+                    }
+                });
+                reconciler.ledgerPeriod().ifPresent(period -> ledgerJdbcTemplate.query(LEDGER_SQL, rs -> {
+                    job.ledgerEntryRead();
+                    reconciler.addLedgerEntry(new LedgerEntry(rs.getString(1), rs.getLong(2), rs.getString(3),
+                            toMinorUnits(rs.getDouble(4)), rs.getTimestamp(5).toLocalDateTime().toLocalDate(),
+                            rs.getString(6)));
+                }, Date.valueOf(period[0]), Date.valueOf(period[1].plusDays(1))));
+                reconciler.reconcile();
+            }
+            job.complete();
+            logger.info("Reconciliation {} finished: {} lines, {} ledger entries, {}",
+                    job.getId(), job.getLinesRead(), job.getLedgerEntries(), job.getOutcomes());
+        } catch (Exception e) {
+            logger.error("Reconciliation {} failed", job.getId(), e);
+            job.fail(e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Could not delete statement file {}", file, e);
+            }
+        }
+    }
+
+    private StatementLine toStatementLine(TabularRow row) {
+        String amount = row.get("amount", "credit", "creditAmount", "deposit");
+        LocalDate date = parseDate(row.get("date", "transactionDate", "valueDate", "postingDate"));
+        if (amount == null || date == null) {
+            return null;
+        }
+        long minorUnits;
+        try {
+            minorUnits = new BigDecimal(amount.replaceAll("[^0-9.\\-]", "")).movePointRight(2).longValueExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            return null;
+        }
+        if (minorUnits <= 0) {
+            return null;
+        }
+        String description = row.get("description", "narration", "particulars", "remarks", "details");
+        String reference = row.get("reference", "transactionId", "txnId", "utr");
+        if (reference == null && description != null) {
+            Matcher matcher = TRANSACTION_ID.matcher(description.toUpperCase(Locale.ROOT));
+            reference = matcher.find() ? matcher.group() : null;
+        }
+        return new StatementLine(row.rowNumber(), reference, minorUnits, date, description);
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format);
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        return null;
+    }
+
+    private static long toMinorUnits(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static void write(BufferedWriter report, ReconciliationJob job, ReconciliationResult result) {
+        job.outcome(result.status());
+        StatementLine line = result.line();
+        LedgerEntry entry = result.entry();
+        StringBuilder csv = new StringBuilder(160).append(result.status()).append(',');
+        if (line != null) {
+            csv.append(line.rowNumber()).append(',').append(csv(line.reference())).append(',')
+                    .append(BigDecimal.valueOf(line.amount(), 2)).append(',').append(line.date()).append(',')
+                    .append(csv(line.description())).append(',');
+        } else {
+            csv.append(",,,,,");
+        }
+        if (entry != null) {
+            csv.append(entry.transactionId()).append(',').append(entry.studentId()).append(',')
+                    .append(csv(entry.studentName())).append(',').append(BigDecimal.valueOf(entry.amount(), 2))
+                    .append(',').append(entry.date()).append(',');
+        } else {
+            csv.append(",,,,,");
+        }
+        csv.append(String.format(Locale.ROOT, "%.2f", result.score())).append('\n');
+        synchronized (report) {
+            try {
+                report.write(csv.toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(1);
+        jobs.values().removeIf(job -> {
+            if (!job.isFinished() || !job.getFinishedAt().isBefore(cutoff)) {
+                return false;
+            }
+            try {
+                if (job.getReport() != null) {
+                    Files.deleteIfExists(job.getReport());
+                }
+            } catch (IOException e) {
+                logger.warn("Could not delete reconciliation report {}", job.getReport(), e);
+            }
+            return true;
+        });
+    }
+}
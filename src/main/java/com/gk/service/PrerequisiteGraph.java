@@ -0,0 +1,247 @@
+package com.gk.service;
+
+import com.gk.exception.PrerequisiteCycleException;
+
+import java.util.*;
+
+/**
+ * Immutable prerequisite graph compiled into transitive-closure bitsets.
+ * Every course (and every prerequisite that does not name a known course)
+ * is a node; {@code closure[n]} holds all nodes that must be completed
+ * before node {@code n}, directly or through a chain.
+ */
+public final class PrerequisiteGraph {
+    private final Map<String, Integer> index;
+    private final String[] keys;
+    private final Long[] courseIds;
+    private final BitSet[] closure;
+    private final BitSet courseNodes;
+
+    private PrerequisiteGraph(Map<String, Integer> index, String[] keys, Long[] courseIds,
+                              BitSet[] closure, BitSet courseNodes) {
+        this.index = index;
+        this.keys = keys;
+        this.courseIds = courseIds;
+        this.closure = closure;
+        this.courseNodes = courseNodes;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public OptionalInt nodeOf(String codeOrName) {
+        Integer node = codeOrName == null ? null : index.get(normalize(codeOrName));
+        return node == null ? OptionalInt.empty() : OptionalInt.of(node);
+    }
+
+    public OptionalInt nodeOfCourse(Long courseId) {
+        for (int node = courseNodes.nextSetBit(0); node >= 0; node = courseNodes.nextSetBit(node + 1)) {
+            if (courseIds[node].equals(courseId)) {
+                return OptionalInt.of(node);
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    public String keyAt(int node) {
+        return keys[node];
+    }
+
+    public Long courseIdAt(int node) {
+        return courseIds[node];
+    }
+
+    public BitSet prerequisitesOf(int node) {
+        return (BitSet) closure[node].clone();
+    }
+
+    /**
+     * Maps passed subjects (course codes or names) onto graph nodes.
+     * Subjects that do not correspond to any node are ignored.
+     */
+    public BitSet completedFrom(Collection<String> passedSubjects) {
+        BitSet completed = new BitSet(keys.length);
+        for (String subject : passedSubjects) {
+            nodeOf(subject).ifPresent(completed::set);
+        }
+        return completed;
+    }
+
+    /**
+     * Returns the course nodes whose whole prerequisite closure is contained in
+     * {@code completed}, excluding courses that are already completed.
+     */
+    public BitSet eligibleCourses(BitSet completed) {
+        BitSet outstanding = new BitSet(keys.length);
+        outstanding.set(0, keys.length);
+        outstanding.andNot(completed);
+
+        BitSet eligible = new BitSet(keys.length);
+        for (int node = courseNodes.nextSetBit(0); node >= 0; node = courseNodes.nextSetBit(node + 1)) {
+            if (!completed.get(node) && !closure[node].intersects(outstanding)) {
+                eligible.set(node);
+            }
+        }
+        return eligible;
+    }
+
+    public BitSet missingPrerequisites(int node, BitSet completed) {
+        BitSet missing = (BitSet) closure[node].clone();
+        missing.andNot(completed);
+        return missing;
+    }
+
+    public List<String> keysOf(BitSet nodes) {
+        List<String> result = new ArrayList<>(nodes.cardinality());
+        nodes.stream().forEach(node -> result.add(keys[node]));
+        return result;
+    }
+
+    static String normalize(String key) {
+        return key.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public static final class Builder {
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<String> keys = new ArrayList<>();
+        private final List<Long> courseIds = new ArrayList<>();
+        private final Map<Integer, Set<String>> prerequisites = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder addCourse(Long courseId, String code, String name) {
+            int node = nodeFor(code);
+            courseIds.set(node, courseId);
+            if (name != null && !name.isBlank()) {
+                index.putIfAbsent(normalize(name), node);
+            }
+            return this;
+        }
+
+        public Builder addPrerequisite(String courseCode, String prerequisite) {
+            if (prerequisite != null && !prerequisite.isBlank()) {
+                prerequisites.computeIfAbsent(nodeFor(courseCode), node -> new LinkedHashSet<>()).add(prerequisite);
+            }
+            return this;
+        }
+
+        /**
+         * Resolves prerequisites, orders the nodes topologically and folds the
+         * closures in that order.
+         *
+         * @throws PrerequisiteCycleException if a course transitively requires itself
+         */
+        public PrerequisiteGraph build() {
+            List<BitSet> direct = new ArrayList<>();
+            prerequisites.forEach((node, names) -> {
+                for (String name : names) {
+                    int prerequisite = nodeFor(name);
+                    while (direct.size() <= node) {
+                        direct.add(new BitSet());
+                    }
+                    direct.get(node).set(prerequisite);
+                }
+            });
+            int size = keys.size();
+            while (direct.size() < size) {
+                direct.add(new BitSet());
+            }
+
+            int[] pending = new int[size];
+            List<List<Integer>> dependents = new ArrayList<>(size);
+            for (int node = 0; node < size; node++) {
+                dependents.add(new ArrayList<>());
+            }
+            for (int node = 0; node < size; node++) {
+                BitSet edges = direct.get(node);
+                pending[node] = edges.cardinality();
+                for (int p = edges.nextSetBit(0); p >= 0; p = edges.nextSetBit(p + 1)) {
+                    dependents.get(p).add(node);
+                }
+            }
+
+            BitSet[] closure = new BitSet[size];
+            Deque<Integer> ready = new ArrayDeque<>();
+            for (int node = 0; node < size; node++) {
+                if (pending[node] == 0) {
+                    ready.add(node);
+                }
+            }
+            int processed = 0;
+            while (!ready.isEmpty()) {
+                int node = ready.poll();
+                processed++;
+                BitSet edges = direct.get(node);
+                BitSet all = new BitSet(size);
+                for (int p = edges.nextSetBit(0); p >= 0; p = edges.nextSetBit(p + 1)) {
+                    all.or(closure[p]);
+                    all.set(p);
+                }
+                closure[node] = all;
+                for (int dependent : dependents.get(node)) {
+                    if (--pending[dependent] == 0) {
+                        ready.add(dependent);
+                    }
+                }
+            }
+            if (processed < size) {
+                throw new PrerequisiteCycleException("Prerequisite cycle detected: " + describeCycle(direct, pending));
+            }
+
+            BitSet courseNodes = new BitSet(size);
+            for (int node = 0; node < size; node++) {
+                if (courseIds.get(node) != null) {
+                    courseNodes.set(node);
+                }
+            }
+            return new PrerequisiteGraph(Map.copyOf(index), keys.toArray(new String[0]),
+                    courseIds.toArray(new Long[0]), closure, courseNodes);
+        }
+
+        private int nodeFor(String key) {
+            String normalized = normalize(key);
+            Integer node = index.get(normalized);
+            if (node == null) {
+                node = keys.size();
+                index.put(normalized, node);
+                keys.add(normalized);
+                courseIds.add(null);
+            }
+            return node;
+        }
+
+        private String describeCycle(List<BitSet> direct, int[] pending) {
+            // Every node left with pending edges sits on or behind a cycle, so
+            // following unresolved prerequisites must eventually revisit a node.
+            int start = 0;
+            while (pending[start] == 0) {
+                start++;
+            }
+            Map<Integer, Integer> seen = new LinkedHashMap<>();
+            List<Integer> path = new ArrayList<>();
+            int node = start;
+            while (!seen.containsKey(node)) {
+                seen.put(node, path.size());
+                path.add(node);
+                BitSet edges = direct.get(node);
+                int next = edges.nextSetBit(0);
+                while (pending[next] == 0) {
+                    next = edges.nextSetBit(next + 1);
+                }
+                node = next;
+            }
+            StringJoiner cycle = new StringJoiner(" -> ");
+            for (int i = seen.get(node); i < path.size(); i++) {
+                cycle.add(keys.get(path.get(i)));
+            }
+            cycle.add(keys.get(node));
+            return cycle.toString();
+        }
+    }
+}
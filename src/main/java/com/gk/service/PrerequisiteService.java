@@ -0,0 +1,146 @@
+package com.gk.service;
+
+import com.gk.model.Course;
+import com.gk.model.SubjectMark;
+import com.gk.repository.CourseRepository;
+import com.gk.repository.StudentRepository;
+import com.gk.service.invalidation.CacheInvalidationService;
+import com.gk.service.invalidation.CachedEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+@Transactional(readOnly = true)
+public class PrerequisiteService {
+    private static final Logger logger = LoggerFactory.getLogger(PrerequisiteService.class);
+
+    private final CourseRepository courseRepository;
+    private final StudentRepository studentRepository;
+    // Compiling queries the database; a monitor would pin a virtual thread to its carrier meanwhile
+    private final Lock compileLock = new ReentrantLock();
+    // Moved on by invalidate(); a graph compiled in an earlier generation is stale
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Compiled compiled;
+
+    private record Compiled(PrerequisiteGraph graph, long generation) {
+    }
+
+    public PrerequisiteService(CourseRepository courseRepository, StudentRepository studentRepository,
+                               CacheInvalidationService cacheInvalidationService) {
+        this.courseRepository = courseRepository;
+        this.studentRepository = studentRepository;
+        // Course changes made on other instances, and on this one once they commit
+        cacheInvalidationService.subscribe(CachedEntity.COURSE, ranges -> invalidate());
+    }
+
+    public PrerequisiteGraph getGraph() {
+        Compiled current = compiled;
+        if (current == null || current.generation() != generation.get()) {
+            compileLock.lock();
+            try {
+                current = compiled;
+                long started = generation.get();
+                if (current == null || current.generation() != started) {
+                    current = new Compiled(compile(null), started);
+                    // Invalidated while compiling: this caller gets the graph it asked for, the next one a new
+                    // graph. The generation in Compiled covers an invalidation between this check and the store.
+                    if (generation.get() == started) {
+                        compiled = current;
+                    }
+                    logger.debug("Compiled prerequisite graph with {} nodes", current.graph().size());
+                }
+            } finally {
+                compileLock.unlock();
+            }
+        }
+        return current.graph();
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Compiles the graph as it would look after saving {@code candidate}, so a
+     * course that closes a prerequisite cycle is rejected before it is stored.
+     */
+    public void validateNoCycles(Course candidate) {
+        compile(candidate);
+    }
+
+    public List<Map<String, Object>> getEligibleCourses(Long studentId) {
+        PrerequisiteGraph current = getGraph();
+        BitSet completed = current.completedFrom(studentRepository.findPassedSubjects(studentId, SubjectMark.PASS_MARK));
+        return toCourseSummaries(current, current.eligibleCourses(completed));
+    }
+
+    public List<String> getMissingPrerequisites(Long studentId, Long courseId) {
+        PrerequisiteGraph current = getGraph();
+        OptionalInt node = current.nodeOfCourse(courseId);
+        if (node.isEmpty()) {
+            return List.of();
+        }
+        BitSet completed = current.completedFrom(studentRepository.findPassedSubjects(studentId, SubjectMark.PASS_MARK));
+        return current.keysOf(current.missingPrerequisites(node.getAsInt(), completed));
+    }
+
+    /**
+     * Answers eligibility for every student in a grade from a single query:
+     * passed subjects are folded into one completed-courses bitset per student
+     * and each bitset is checked against all course closures.
+     */
+    public Map<Long, List<String>> getEligibleCoursesByGrade(String grade) {
+        PrerequisiteGraph current = getGraph();
+        Map<Long, BitSet> completedByStudent = new LinkedHashMap<>();
+        for (Object[] row : studentRepository.findPassedSubjectsByGrade(grade, SubjectMark.PASS_MARK)) {
+            BitSet completed = completedByStudent.computeIfAbsent((Long) row[0], id -> new BitSet(current.size()));
+            if (row[1] != null) {
+                current.nodeOf((String) row[1]).ifPresent(completed::set);
+            }
+        }
+
+        Map<Long, List<String>> eligibility = new LinkedHashMap<>();
+        completedByStudent.forEach((studentId, completed) ->
+                eligibility.put(studentId, current.keysOf(current.eligibleCourses(completed))));
+        return eligibility;
+    }
+
+    private PrerequisiteGraph compile(Course candidate) {
+        PrerequisiteGraph.Builder builder = PrerequisiteGraph.builder();
+        for (Object[] row : courseRepository.findPrerequisiteRows()) {
+            Long id = (Long) row[0];
+            String code = (String) row[1];
+            if (candidate != null && (Objects.equals(id, candidate.getId())
+                    || code.equalsIgnoreCase(candidate.getCode()))) {
+                continue;
+            }
+            builder.addCourse(id, code, (String) row[2]);
+            builder.addPrerequisite(code, (String) row[3]);
+        }
+        if (candidate != null) {
+            builder.addCourse(candidate.getId() != null ? candidate.getId() : -1L, candidate.getCode(), candidate.getName());
+            if (candidate.getPrerequisites() != null) {
+                candidate.getPrerequisites().forEach(prerequisite -> builder.addPrerequisite(candidate.getCode(), prerequisite));
+            }
+        }
+        return builder.build();
+    }
+
+    private List<Map<String, Object>> toCourseSummaries(PrerequisiteGraph current, BitSet courses) {
+        List<Map<String, Object>> summaries = new ArrayList<>(courses.cardinality());
+        courses.stream().forEach(node -> {
+            Map<String, Object> course = new HashMap<>();
+            course.put("id", current.courseIdAt(node));
+            course.put("code", current.keyAt(node));
+            summaries.add(course);
+        });
+        return summaries;
+    }
+}
@@ -0,0 +1,209 @@
+package com.gk.service;
+
+import com.gk.dto.StudentDues;
+import com.gk.model.Course;
+import com.gk.repository.CourseRepository;
+import com.gk.repository.StudentDuesRepository;
+import com.gk.repository.StudentDuesRepository.PaidTotal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps {@code student_dues} up to date. Students are processed in chunks by a
+ * few parallel workers; each chunk costs two queries and one batched upsert no
+ * matter how many courses or payments its students have. Payments and
+ * enrollment changes only mark rows dirty, and a scheduled refresh recomputes
+ * those; a nightly full pass moves installments into overdue as dates pass.
+ */
+@Service
+public class StudentDuesService {
+    private static final Logger logger = LoggerFactory.getLogger(StudentDuesService.class);
+    private static final int MAX_PASSES = 50;
+
+    private final StudentDuesRepository duesRepository;
+    private final CourseRepository courseRepository;
+    private final TransactionTemplate scheduleTransaction;
+    private final TaskExecutor taskExecutor;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int outstandingLimit;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    public StudentDuesService(StudentDuesRepository duesRepository, CourseRepository courseRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                              @Value("${app.dues.chunk-size:1000}") int chunkSize,
+                              @Value("${app.dues.parallelism:4}") int parallelism,
+                              @Value("${app.dues.report-limit:1000}") int outstandingLimit) {
+        this.duesRepository = duesRepository;
+        this.courseRepository = courseRepository;
+        // Read-write so the schedules come from the primary: a lagging replica could store dues computed
+        // from installments that were just changed. The query loads the courses read-only instead.
+        this.scheduleTransaction = new TransactionTemplate(transactionManager);
+        this.taskExecutor = taskExecutor;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.outstandingLimit = outstandingLimit;
+    }
+
+    /**
+     * One student's dues: the stored row while it is current, otherwise
+     * computed from the schedules of the student's own courses. Only reads, so
+     * a read-only transaction can serve it; a row found stale is left for the
+     * scheduled refresh to store.
+     */
+    public StudentDues getDues(Long studentId) {
+        LocalDate today = LocalDate.now();
+        // Computed before today, the row may miss installments that have since fallen due
+        Optional<StudentDues> stored = duesRepository.findCurrent(studentId, today);
+        if (stored.isPresent()) {
+            return stored.get();
+        }
+        List<Long> studentIds = List.of(studentId);
+        Map<Long, List<Long>> enrollments = duesRepository.findEnrollments(studentIds);
+        Map<Long, List<DuesCalculator.Installment>> schedules = new HashMap<>();
+        List<Long> courseIds = enrollments.getOrDefault(studentId, List.of());
+        if (!courseIds.isEmpty()) {
+            for (Course course : courseRepository.findAllWithInstallmentsByIdIn(courseIds)) {
+                schedules.put(course.getId(), DuesCalculator.installments(course));
+            }
+        }
+        return compute(studentIds, enrollments, duesRepository.findPaidTotals(studentIds), schedules, today).get(0);
+    }
+
+    public StudentDuesRepository.DuesTotals getTotals() {
+        return duesRepository.totals();
+    }
+
+    /** Students with an outstanding balance, most urgent first. */
+    public List<StudentDuesRepository.DueRow> getOutstanding() {
+        return duesRepository.findOutstanding(outstandingLimit);
+    }
+
+    public void markStudentsDirty(Collection<Long> studentIds) {
+        duesRepository.markDirty(studentIds);
+    }
+
+    public void markCourseDirty(Long courseId) {
+        duesRepository.markCourseDirty(courseId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.dues.refresh-interval-ms:30000}",
+            initialDelayString = "${app.dues.refresh-interval-ms:30000}")
+    public void refreshStale() {
+        if (!refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            Map<Long, List<DuesCalculator.Installment>> schedules = null;
+            LocalDate today = LocalDate.now();
+            int refreshed = 0;
+            int batch = chunkSize * parallelism;
+            // Bounded so rows re-marked faster than they are refreshed cannot pin this thread
+            for (int pass = 0; pass < MAX_PASSES; pass++) {
+                List<Long> stale = duesRepository.findStaleStudentIds(batch);
+                if (stale.isEmpty()) {
+                    break;
+                }
+                if (schedules == null) {
+                    schedules = loadSchedules();
+                }
+                refreshed += refreshInParallel(stale, schedules, today);
+                if (stale.size() < batch) {
+                    break;
+                }
+            }
+            if (refreshed > 0) {
+                logger.debug("Refreshed dues of {} students", refreshed);
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Scheduled(cron = "${app.dues.full-refresh-cron:0 5 0 * * *}")
+    public int refreshAll() {
+        refreshLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            int removed = duesRepository.deleteOrphans();
+            int refreshed = refreshInParallel(duesRepository.findAllStudentIds(), loadSchedules(), LocalDate.now());
+            logger.info("Recomputed dues of {} students in {} ms ({} stale rows removed)",
+                    refreshed, System.currentTimeMillis() - start, removed);
+            return refreshed;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private int refreshInParallel(List<Long> studentIds, Map<Long, List<DuesCalculator.Installment>> schedules,
+                                  LocalDate today) {
+        Queue<List<Long>> chunks = new ConcurrentLinkedQueue<>();
+        for (int from = 0; from < studentIds.size(); from += chunkSize) {
+            chunks.add(studentIds.subList(from, Math.min(from + chunkSize, studentIds.size())));
+        }
+        AtomicInteger refreshed = new AtomicInteger();
+        int workers = Math.min(parallelism, chunks.size());
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> {
+                List<Long> chunk;
+                while ((chunk = chunks.poll()) != null) {
+                    refreshed.addAndGet(refresh(chunk, schedules, today).size());
+                }
+            }, taskExecutor);
+        }
+        CompletableFuture.allOf(futures).join();
+        return refreshed.get();
+    }
+
+    private List<StudentDues> refresh(List<Long> studentIds, Map<Long, List<DuesCalculator.Installment>> schedules,
+                                      LocalDate today) {
+        Timestamp startedAt = new Timestamp(System.currentTimeMillis());
+        List<StudentDues> dues = compute(studentIds, duesRepository.findEnrollments(studentIds),
+                duesRepository.findPaidTotals(studentIds), schedules, today);
+        duesRepository.saveAll(dues, startedAt);
+        return dues;
+    }
+
+    private static List<StudentDues> compute(List<Long> studentIds, Map<Long, List<Long>> enrollments,
+                                             Map<Long, PaidTotal> paid,
+                                             Map<Long, List<DuesCalculator.Installment>> schedules, LocalDate today) {
+        List<StudentDues> dues = new ArrayList<>(studentIds.size());
+        for (Long studentId : studentIds) {
+            List<List<DuesCalculator.Installment>> courses = new ArrayList<>();
+            for (Long courseId : enrollments.getOrDefault(studentId, List.of())) {
+                courses.add(schedules.getOrDefault(courseId, List.of()));
+            }
+            PaidTotal total = paid.get(studentId);
+            dues.add(DuesCalculator.compute(studentId, courses, total != null ? total.amount() : 0,
+                    total != null ? total.lastPaymentDate() : null, today));
+        }
+        return dues;
+    }
+
+    private Map<Long, List<DuesCalculator.Installment>> loadSchedules() {
+        return scheduleTransaction.execute(status -> {
+            Map<Long, List<DuesCalculator.Installment>> schedules = new HashMap<>();
+            for (Course course : courseRepository.findAllWithInstallments()) {
+                schedules.put(course.getId(), DuesCalculator.installments(course));
+            }
+            return schedules;
+        });
+    }
+}
@@ -0,0 +1,278 @@
+package com.gk.service;
+
+import com.gk.dto.ImportJob;
+import com.gk.exception.NotFoundException;
+import com.gk.model.Student;
+import com.gk.repository.IdBlockAllocator;
+import com.gk.service.tabular.TabularRow;
+import com.gk.service.tabular.TabularRowReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bulk student import. Uploads are spooled to a temporary file and streamed
+ * row by row on a background worker; valid rows are inserted in JDBC batches
+ * with ids taken from {@link IdBlockAllocator}, invalid rows are collected
+ * into a per-row error report.
+ */
+@Service
+public class StudentImportService {
+    private static final Logger logger = LoggerFactory.getLogger(StudentImportService.class);
+
+    private static final String STUDENTS_TABLE = "students";
+    private static final String INSERT_SQL = "INSERT INTO students (id, name, age, email, phone_number, grade, "
+            + "attendance, address, date_of_birth, parent_email, parent_phone, blood_group, emergency_contact, "
+            + "admission_date, registration_number, section, roll_number, parent_name, parent_occupation, "
+            + "annual_income, last_modified_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IdBlockAllocator idBlockAllocator;
+    private final Validator validator;
+    private final TaskExecutor taskExecutor;
+    private final int batchSize;
+    private final int maxErrors;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public StudentImportService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                IdBlockAllocator idBlockAllocator,
+                                Validator validator,
+                                @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                @Value("${app.import.batch-size:500}") int batchSize,
+                                @Value("${app.import.max-errors:10000}") int maxErrors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idBlockAllocator = idBlockAllocator;
+        this.validator = validator;
+        this.taskExecutor = taskExecutor;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public ImportJob submit(MultipartFile file) throws IOException {
+        String fileName = Objects.requireNonNullElse(file.getOriginalFilename(), "");
+        TabularRowReader reader = TabularRowReader.forFileName(fileName);
+        Path spooled = Files.createTempFile("student-import-", fileName.substring(fileName.lastIndexOf('.')));
+        file.transferTo(spooled);
+
+        evictFinishedJobs();
+        ImportJob job = new ImportJob(fileName, maxErrors);
+        jobs.put(job.getId(), job);
+        taskExecutor.execute(() -> run(job, spooled, reader));
+        logger.info("Queued student import {} for {}", job.getId(), fileName);
+        return job;
+    }
+
+    public ImportJob getJob(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new NotFoundException("Import job not found: " + jobId);
+        }
+        return job;
+    }
+
+    public String getErrorReport(String jobId) {
+        StringBuilder report = new StringBuilder("row,field,message\n");
+        for (ImportJob.RowError error : getJob(jobId).getErrors()) {
+            report.append(error.row()).append(',')
+                    .append(csv(error.field())).append(',')
+                    .append(csv(error.message())).append('\n');
+        }
+        return report.toString();
+    }
+
+    private void run(ImportJob job, Path file, TabularRowReader reader) {
+        job.start();
+        IdBlockAllocator.Pool ids = idBlockAllocator.pool(STUDENTS_TABLE, batchSize);
+        List<PendingRow> batch = new ArrayList<>(batchSize);
+        try {
+            reader.read(file, row -> {
+                job.rowRead();
+                Student student = toStudent(row, job);
+                if (student != null) {
+                    batch.add(new PendingRow(row.rowNumber(), student));
+                    if (batch.size() >= batchSize) {
+                        flush(batch, job, ids);
+                    }
+                }
+            });
+            flush(batch, job, ids);
+            job.complete();
+            logger.info("Student import {} finished: {} rows, {} imported, {} rejected",
+                    job.getId(), job.getRowsRead(), job.getImported(), job.getRejected());
+        } catch (Exception e) {
+            logger.error("Student import {} failed", job.getId(), e);
+            job.fail(e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Could not delete import file {}", file, e);
+            }
+        }
+    }
+
+    private Student toStudent(TabularRow row, ImportJob job) {
+        List<ImportJob.RowError> errors = new ArrayList<>();
+        Student student = new Student();
+        student.setName(row.get("name", "studentName"));
+        student.setEmail(row.get("email"));
+        student.setPhoneNumber(row.get("phoneNumber", "phone"));
+        student.setGrade(row.get("grade"));
+        student.setSection(row.get("section"));
+        student.setAddress(row.get("address"));
+        student.setRollNumber(row.get("rollNumber"));
+        student.setRegistrationNumber(row.get("registrationNumber"));
+        student.setParentName(row.get("parentName"));
+        student.setParentEmail(row.get("parentEmail"));
+        student.setParentPhone(row.get("parentPhone"));
+        student.setParentOccupation(row.get("parentOccupation"));
+        student.setBloodGroup(row.get("bloodGroup"));
+        student.setEmergencyContact(row.get("emergencyContact"));
+        student.setDateOfBirth(parseDate(row, errors, "dateOfBirth", "dob"));
+        student.setAdmissionDate(parseDate(row, errors, "admissionDate"));
+        student.setAnnualIncome(parseNumber(row, errors, "annualIncome"));
+        Double attendance = parseNumber(row, errors, "attendance");
+        student.setAttendance(attendance != null ? attendance : 0.0);
+        Double age = parseNumber(row, errors, "age");
+        student.setAge(age != null ? age.intValue() : student.getAge());
+
+        // A cell that could not be read is reported once, not again for the value left in its place
+        Set<String> unreadable = new HashSet<>();
+        errors.forEach(error -> unreadable.add(error.field()));
+        for (ConstraintViolation<Student> violation : validator.validate(student)) {
+            String field = violation.getPropertyPath().toString();
+            if (!unreadable.contains(field)) {
+                errors.add(new ImportJob.RowError(row.rowNumber(), field, violation.getMessage()));
+            }
+        }
+        if (!errors.isEmpty()) {
+            job.reject(errors);
+            return null;
+        }
+        if (student.getAdmissionDate() == null) {
+            student.setAdmissionDate(LocalDate.now());
+        }
+        return student;
+    }
+
+    private LocalDate parseDate(TabularRow row, List<ImportJob.RowError> errors, String... columns) {
+        String value = row.get(columns);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            errors.add(new ImportJob.RowError(row.rowNumber(), columns[0], "Expected a yyyy-MM-dd date: " + value));
+            return null;
+        }
+    }
+
+    private Double parseNumber(TabularRow row, List<ImportJob.RowError> errors, String column) {
+        String value = row.get(column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value.replace(",", ""));
+        } catch (NumberFormatException e) {
+            errors.add(new ImportJob.RowError(row.rowNumber(), column, "Expected a number: " + value));
+            return null;
+        }
+    }
+
+    private void flush(List<PendingRow> batch, ImportJob job, IdBlockAllocator.Pool ids) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (PendingRow row : batch) {
+            row.student().setId(ids.nextId());
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+            job.rowsImported(batch.size());
+        } catch (DataAccessException e) {
+            // One bad row (typically a duplicate email) fails the whole batch;
+            // retry row by row so only the offending rows are reported.
+            logger.debug("Batch insert failed, retrying {} rows individually: {}", batch.size(), e.getMessage());
+            for (PendingRow row : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(List.of(row)));
+                    job.rowsImported(1);
+                } catch (DataAccessException rowFailure) {
+                    job.reject(row.rowNumber(), null, rowFailure.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    private void insert(List<PendingRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+            Student student = row.student();
+            ps.setLong(1, student.getId());
+            ps.setString(2, student.getName());
+            ps.setInt(3, student.getAge());
+            ps.setString(4, student.getEmail());
+            ps.setString(5, student.getPhoneNumber());
+            ps.setString(6, student.getGrade());
+            ps.setDouble(7, student.getAttendance());
+            ps.setString(8, student.getAddress());
+            ps.setObject(9, student.getDateOfBirth());
+            ps.setString(10, student.getParentEmail());
+            ps.setString(11, student.getParentPhone());
+            ps.setString(12, student.getBloodGroup());
+            ps.setString(13, student.getEmergencyContact());
+            ps.setObject(14, student.getAdmissionDate());
+            ps.setString(15, student.getRegistrationNumber());
+            ps.setString(16, student.getSection());
+            ps.setString(17, student.getRollNumber());
+            ps.setString(18, student.getParentName());
+            ps.setString(19, student.getParentOccupation());
+            ps.setObject(20, student.getAnnualIncome());
+            ps.setTimestamp(21, now);
+        });
+    }
+
+    private void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(1);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private record PendingRow(int rowNumber, Student student) {
+    }
+}
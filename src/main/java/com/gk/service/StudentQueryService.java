@@ -0,0 +1,208 @@
+package com.gk.service;
+
+import com.gk.dto.ClassRank;
+import com.gk.dto.StudentDues;
+import com.gk.repository.ResourceVersionRepository;
+import com.gk.repository.ResourceVersionRepository.CalendarVersion;
+import com.gk.repository.ResourceVersionRepository.Version;
+import com.gk.repository.StudentDuesRepository;
+import com.gk.repository.StudentReportRepository;
+import com.gk.repository.StudentReportRepository.DailyPayments;
+import com.gk.repository.StudentReportRepository.RecentPayment;
+import com.gk.repository.StudentReportRepository.StudentSummary;
+import com.gk.repository.StudentReportRepository.TopPerformer;
+import com.gk.service.ranking.ClassRankService;
+import com.gk.service.singleflight.SingleFlight;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Read side of the student reports: the dashboard, the reports overview, the
+ * fees summary and the statistics API. Figures come from aggregate queries
+ * and projections, never from {@code Student} entities, so these pages neither
+ * load collections nor fill a persistence context. The full-table aggregates
+ * are {@link SingleFlight}: a cohort opening the same page at once shares one
+ * computation of each.
+ */
+@Service
+@Transactional(readOnly = true)
+public class StudentQueryService {
+    private static final int TREND_MONTHS = 6;
+    private static final int RECENT_PAYMENTS = 10;
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("MMM");
+
+    private final StudentReportRepository reportRepository;
+    private final StudentDuesService studentDuesService;
+    private final ResourceVersionRepository versionRepository;
+    private final ClassRankService classRankService;
+
+    public StudentQueryService(StudentReportRepository reportRepository, StudentDuesService studentDuesService,
+                               ResourceVersionRepository versionRepository, ClassRankService classRankService) {
+        this.reportRepository = reportRepository;
+        this.studentDuesService = studentDuesService;
+        this.versionRepository = versionRepository;
+        this.classRankService = classRankService;
+    }
+
+    // Versions, for conditional GETs
+    public Optional<Instant> getStudentLastModified(Long id) {
+        return versionRepository.findStudentLastModified(id);
+    }
+
+    public Optional<Version> getCourseVersion(Long id) {
+        return versionRepository.findCourseVersion(id);
+    }
+
+    public Version getStudentsVersion() {
+        return versionRepository.studentsVersion();
+    }
+
+    public Version getCoursesVersion() {
+        return versionRepository.coursesVersion();
+    }
+
+    public CalendarVersion getCalendarVersion(LocalDateTime now) {
+        return versionRepository.calendarVersion(now);
+    }
+
+    // Students
+    public long getTotalStudents() {
+        return reportRepository.countStudents();
+    }
+
+    public List<StudentSummary> getStudentSummaries() {
+        return reportRepository.findStudentSummaries();
+    }
+
+    public double getAverageAttendance() {
+        return reportRepository.averageAttendance();
+    }
+
+    @SingleFlight
+    public double getAverageGrade() {
+        return reportRepository.averageOfStudentAverages();
+    }
+
+    @SingleFlight
+    public Map<String, Long> getGradeDistribution() {
+        return reportRepository.gradeDistribution();
+    }
+
+    /** The school's best students by average mark, from the class ranks; students without marks are not ranked. */
+    @SingleFlight
+    public List<TopPerformer> getTopPerformers(int limit) {
+        List<ClassRank> top = classRankService.getTop(null, null, null, null, limit);
+        Map<Long, StudentSummary> students = reportRepository.findStudentSummaries(
+                top.stream().map(ClassRank::studentId).toList());
+        List<TopPerformer> performers = new ArrayList<>(top.size());
+        for (ClassRank rank : top) {
+            StudentSummary student = students.get(rank.studentId());
+            if (student != null) {
+                performers.add(new TopPerformer(student.id(), student.name(), student.grade(), student.attendance(),
+                        rank.score()));
+            }
+        }
+        return performers;
+    }
+
+    /** Attendance percentage of each of the last six complete months, the most recent first. */
+    @SingleFlight
+    public Map<String, Double> getAttendanceTrend() {
+        YearMonth current = YearMonth.now();
+        Map<YearMonth, Double> percentages = reportRepository.attendancePercentageByMonth(
+                current.minusMonths(TREND_MONTHS).atDay(1), current.atDay(1));
+        Map<String, Double> trend = new LinkedHashMap<>();
+        for (int i = 1; i <= TREND_MONTHS; i++) {
+            YearMonth month = current.minusMonths(i);
+            trend.put(month.format(MONTH_LABEL), percentages.getOrDefault(month, 0.0));
+        }
+        return trend;
+    }
+
+    // Courses
+    public long getTotalCourses() {
+        return reportRepository.countCourses();
+    }
+
+    public long getCoursesWithEnrollments() {
+        return reportRepository.countCoursesWithEnrollments();
+    }
+
+    // Fees
+    @SingleFlight
+    public double calculateTotalRevenue() {
+        return reportRepository.totalPaid();
+    }
+
+    @SingleFlight
+    public DailyPayments getTodayPayments() {
+        return reportRepository.paymentsOn(LocalDate.now());
+    }
+
+    // Read from the precomputed dues; they trail payments by at most one refresh interval
+    @SingleFlight
+    public double calculateTotalPendingDues() {
+        return studentDuesService.getTotals().outstanding();
+    }
+
+    @SingleFlight
+    public double calculateCollectionRate() {
+        StudentDuesRepository.DuesTotals totals = studentDuesService.getTotals();
+        // Overpayments do not count towards other students' fees
+        return totals.totalFees() == 0 ? 0
+                : (totals.totalFees() - totals.outstanding()) / totals.totalFees() * 100;
+    }
+
+    /** Payments recorded in each of the last six months including this one, oldest first. */
+    @SingleFlight
+    public List<Map<String, Object>> getRevenueTrend() {
+        YearMonth current = YearMonth.now();
+        YearMonth first = current.minusMonths(TREND_MONTHS - 1);
+        Map<YearMonth, Double> amounts = reportRepository.paymentsByMonth(first.atDay(1),
+                current.plusMonths(1).atDay(1));
+        List<Map<String, Object>> trend = new ArrayList<>();
+        for (YearMonth month = first; !month.isAfter(current); month = month.plusMonths(1)) {
+            Map<String, Object> monthData = new HashMap<>();
+            monthData.put("month", Date.valueOf(month.atDay(1)));
+            monthData.put("revenue", amounts.getOrDefault(month, 0.0));
+            trend.add(monthData);
+        }
+        return trend;
+    }
+
+    @SingleFlight
+    public Map<String, Double> getFeeTypeDistribution() {
+        return reportRepository.paidByFeeType();
+    }
+
+    @SingleFlight
+    public List<RecentPayment> getRecentPayments() {
+        return reportRepository.findRecentPayments(RECENT_PAYMENTS);
+    }
+
+    @SingleFlight
+    public List<Map<String, Object>> getDuePayments() {
+        return studentDuesService.getOutstanding().stream()
+                .map(row -> {
+                    StudentDues dues = row.dues();
+                    Map<String, Object> dueData = new HashMap<>();
+                    dueData.put("studentName", row.studentName());
+                    dueData.put("studentId", dues.studentId());
+                    dueData.put("dueAmount", dues.outstanding());
+                    dueData.put("overdueAmount", dues.overdueAmount());
+                    dueData.put("dueDate", dues.nextDueDate());
+                    dueData.put("lastPaymentDate", dues.lastPaymentDate());
+                    return dueData;
+                })
+                .collect(Collectors.toList());
+    }
+}
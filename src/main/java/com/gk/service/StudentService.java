@@ -1,10 +1,19 @@
 package com.gk.service;
 
 import com.gk.dto.AttendanceStatus;
+import com.gk.dto.ClassRank;
 import com.gk.dto.FeeDetail;
+import com.gk.dto.StudentDues;
+import com.gk.exception.NotFoundException;
 import com.gk.model.*;
-import com.gk.repository.AttendanceRepository;
+import com.gk.repository.ChangeFeedRepository;
+import com.gk.repository.ChangeFeedRepository.Source;
+import com.gk.repository.FeePaymentRepository;
 import com.gk.repository.StudentRepository;
+import com.gk.service.events.DomainEvent;
+import com.gk.service.events.DomainEventPublisher;
+import com.gk.service.events.DomainEventPublisher.PendingEvent;
+import com.gk.service.ranking.ClassRankService;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
@@ -18,27 +27,44 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Reads run in read-only transactions, which skip Hibernate's dirty checking
+ * and may be served by the read replica. Methods that write are read-write.
+ */
 @Service
-@Transactional
+@Transactional(readOnly = true)
 public class StudentService {
     private static final Logger logger = LoggerFactory.getLogger(StudentService.class);
 
     private final StudentRepository studentRepository;
-    private final AttendanceRepository attendanceRepository;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final FeePaymentRepository feePaymentRepository;
+    private final StudentDuesService studentDuesService;
+    private final ChangeFeedRepository changeFeedRepository;
+    private final DomainEventPublisher domainEventPublisher;
+    private final ClassRankService classRankService;
 
     @Autowired
-    public StudentService(StudentRepository studentRepository, AttendanceRepository attendanceRepository) {
+    public StudentService(StudentRepository studentRepository, TransactionIdGenerator transactionIdGenerator,
+                          FeePaymentRepository feePaymentRepository,
+                          StudentDuesService studentDuesService, ChangeFeedRepository changeFeedRepository,
+                          DomainEventPublisher domainEventPublisher, ClassRankService classRankService) {
         this.studentRepository = studentRepository;
-        this.attendanceRepository = attendanceRepository;
+        this.transactionIdGenerator = transactionIdGenerator;
+        this.feePaymentRepository = feePaymentRepository;
+        this.studentDuesService = studentDuesService;
+        this.changeFeedRepository = changeFeedRepository;
+        this.domainEventPublisher = domainEventPublisher;
+        this.classRankService = classRankService;
     }
 
     // Basic Student Operations
+    @Transactional
     public Student createStudent(Student student) {
         return studentRepository.save(student);
     }
@@ -52,8 +78,11 @@ public class StudentService {
                 .orElseThrow(() -> new RuntimeException("Student not found with id: " + id));
     }
 
+    @Transactional
     public Student updateStudent(Long id, Student studentDetails) {
         Student student = getStudentById(id);
+        String previousGrade = student.getGrade();
+        String previousSection = student.getSection();
         student.setName(studentDetails.getName());
         student.setEmail(studentDetails.getEmail());
         student.setPhoneNumber(studentDetails.getPhoneNumber());
@@ -70,11 +99,20 @@ public class StudentService {
         student.setParentOccupation(studentDetails.getParentOccupation());
         student.setAnnualIncome(studentDetails.getAnnualIncome());
 
-        return studentRepository.save(student);
+        Student saved = studentRepository.save(student);
+        if (!Objects.equals(previousGrade, saved.getGrade()) || !Objects.equals(previousSection, saved.getSection())) {
+            domainEventPublisher.publish(DomainEvent.Type.STUDENT_MOVED, id, DomainEventPublisher.data(
+                    "grade", saved.getGrade(), "section", saved.getSection(),
+                    "previousGrade", previousGrade, "previousSection", previousSection));
+        }
+        return saved;
     }
 
+    @Transactional
     public void deleteStudent(Long id) {
         studentRepository.deleteById(id);
+        changeFeedRepository.insertTombstone(Source.STUDENT, id, id);
+        domainEventPublisher.publish(DomainEvent.Type.STUDENT_DELETED, id, Map.of());
     }
 
     public List<Student> searchStudents(String query) {
@@ -88,10 +126,16 @@ public class StudentService {
     }
 
     // Marks Management
+    @Transactional
     public void addMarkToStudent(Long studentId, SubjectMark mark) {
         Student student = getStudentById(studentId);
+        mark.setRecordedAt(new Date());
         student.getMarks().add(mark);
+        student.touch();
         studentRepository.save(student);
+        domainEventPublisher.publish(DomainEvent.Type.MARK_RECORDED, studentId, DomainEventPublisher.data(
+                "subject", mark.getSubject(), "marks", mark.getMarks(), "term", mark.getTerm(),
+                "examType", mark.getExamType()));
     }
 
     public double calculateAverageMarks(Long studentId) {
@@ -105,15 +149,30 @@ public class StudentService {
                 .orElse(0.0);
     }
 
+    /** The school's best students by average mark, from the class ranks; students without marks are not ranked. */
     public List<Student> getTopPerformers(int limit) {
-        return studentRepository.findAll().stream()
-                .peek(student -> student.setAverageScore(calculateAverageMarks(student.getId())))
-                .sorted((s1, s2) -> Double.compare(
-                        s2.getAverageScore(),
-                        s1.getAverageScore()
-                ))
-                .limit(limit)
-                .collect(Collectors.toList());
+        List<ClassRank> top = classRankService.getTop(null, null, null, null, limit);
+        Map<Long, Student> students = studentRepository.findAllById(top.stream().map(ClassRank::studentId).toList())
+                .stream()
+                .collect(Collectors.toMap(Student::getId, student -> student));
+        List<Student> performers = new ArrayList<>(top.size());
+        for (ClassRank rank : top) {
+            Student student = students.get(rank.studentId());
+            if (student != null) {
+                student.setAverageScore(rank.score());
+                performers.add(student);
+            }
+        }
+        return performers;
+    }
+
+    public ClassRank getClassRank(Long studentId, ClassRankService.Scope scope, String subject, String term) {
+        return classRankService.getRank(studentId, scope, subject, term)
+                .orElseThrow(() -> new NotFoundException("No marks ranked for student " + studentId));
+    }
+
+    public List<ClassRank> getTopRanked(String grade, String section, String subject, String term, int limit) {
+        return classRankService.getTop(grade, section, subject, term, limit);
     }
 
     // Attendance Management
@@ -130,8 +189,10 @@ public class StudentService {
                 .collect(Collectors.toList());
     }
 
+    @Transactional
     public void markAttendance(Date date, List<Long> studentIds,
                                List<String> statuses, List<String> notes) {
+        List<PendingEvent> events = new ArrayList<>(studentIds.size());
         for (int i = 0; i < studentIds.size(); i++) {
             Student student = getStudentById(studentIds.get(i));
             AttendanceRecord record = new AttendanceRecord();
@@ -143,25 +204,46 @@ public class StudentService {
             }
             record.setMarkedBy("System");
             student.getAttendanceRecords().add(record);
+            student.touch();
             studentRepository.save(student);
+            events.add(new PendingEvent(DomainEvent.Type.ATTENDANCE_MARKED, student.getId(),
+                    DomainEventPublisher.data("date", date, "status", record.getStatus())));
         }
+        domainEventPublisher.publishAll(events);
     }
 
     // Fee Management
+    @Transactional
     public void recordFeePayment(Long studentId, String feeType, double amount) {
-        Student student = getStudentById(studentId);
+        if (!studentRepository.existsById(studentId)) {
+            throw new RuntimeException("Student not found with id: " + studentId);
+        }
         FeeDetail payment = new FeeDetail();
         payment.setFeeType(feeType);
         payment.setAmount(amount);
         payment.setPaidDate(new Date());
         payment.setStatus("PAID");
         payment.setTransactionId(generateTransactionId());
-        student.getFeePayments().add(payment);
-        studentRepository.save(student);
+        // Appended directly: going through the entity would load and rewrite every stored payment
+        feePaymentRepository.insertFee(studentId, payment);
+        studentDuesService.markStudentsDirty(List.of(studentId));
+        domainEventPublisher.publish(DomainEvent.Type.PAYMENT_RECORDED, studentId, paymentData(payment));
+    }
+
+    static Map<String, Object> paymentData(FeeDetail payment) {
+        return DomainEventPublisher.data("transactionId", payment.getTransactionId(), "feeType", payment.getFeeType(),
+                "amount", payment.getAmount());
+    }
+
+    public StudentDues getStudentDues(Long studentId) {
+        if (!studentRepository.existsById(studentId)) {
+            throw new RuntimeException("Student not found with id: " + studentId);
+        }
+        return studentDuesService.getDues(studentId);
     }
 
     public double calculateTotalFees(Long studentId) {
-        return getStudentById(studentId).getCourses().size() * 500.0;
+        return getStudentDues(studentId).totalFees();
     }
 
     public double calculatePaidAmount(Long studentId) {
@@ -173,20 +255,26 @@ public class StudentService {
     }
 
     public double calculateDueAmount(Long studentId) {
-        return calculateTotalFees(studentId) - calculatePaidAmount(studentId);
+        return getStudentDues(studentId).outstanding();
     }
 
     // Event Management
+    @Transactional
     public void addEventToStudent(Long studentId, StudentEvent event) {
         Student student = getStudentById(studentId);
         event.setStudent(student);
         student.getEvents().add(event);
+        student.touch();
         studentRepository.save(student);
     }
 
+    @Transactional
     public void removeEventFromStudent(Long studentId, Long eventId) {
         Student student = getStudentById(studentId);
-        student.getEvents().removeIf(event -> event.getId().equals(eventId));
+        if (student.getEvents().removeIf(event -> event.getId().equals(eventId))) {
+            student.touch();
+            changeFeedRepository.insertTombstone(Source.EVENT, eventId, studentId);
+        }
         studentRepository.save(student);
     }
 
@@ -213,11 +301,14 @@ public class StudentService {
 
     // Fee Management Methods
     public Map<String, Object> getFeeSummary(Long studentId) {
+        StudentDues dues = getStudentDues(studentId);
         Map<String, Object> summary = new HashMap<>();
-        summary.put("totalFees", calculateTotalFees(studentId));
-        summary.put("paidAmount", calculatePaidAmount(studentId));
-        summary.put("dueAmount", calculateDueAmount(studentId));
-        summary.put("nextDueDate", LocalDate.now().plusMonths(1));
+        summary.put("totalFees", dues.totalFees());
+        summary.put("paidAmount", dues.paidAmount());
+        summary.put("dueAmount", dues.outstanding());
+        summary.put("overdueAmount", dues.overdueAmount());
+        summary.put("nextDueDate", dues.nextDueDate());
+        summary.put("nextDueAmount", dues.nextDueAmount());
         summary.put("paymentHistory", getPaymentHistory(studentId));
         return summary;
     }
@@ -230,9 +321,10 @@ public class StudentService {
         report.put("studentInfo", student);
         report.put("averageMarks", calculateAverageMarks(studentId));
         report.put("attendance", student.getAttendance());
-        report.put("totalFees", calculateTotalFees(studentId));
-        report.put("paidFees", calculatePaidAmount(studentId));
-        report.put("dueFees", calculateDueAmount(studentId));
+        StudentDues dues = getStudentDues(studentId);
+        report.put("totalFees", dues.totalFees());
+        report.put("paidFees", dues.paidAmount());
+        report.put("dueFees", dues.outstanding());
         report.put("upcomingEvents", student.getEvents().stream()
                 .filter(event -> event.getStart().isAfter(LocalDateTime.now()))
                 .collect(Collectors.toList()));
@@ -398,10 +490,8 @@ public class StudentService {
 
     // Helper Methods
     public Date getNextDueDate(Long studentId) {
-        // TODO: Implement based on fee schedule
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.MONTH, 1);
-        return cal.getTime();
+        LocalDate nextDueDate = getStudentDues(studentId).nextDueDate();
+        return nextDueDate != null ? java.sql.Date.valueOf(nextDueDate) : null;
     }
 
     private List<Map<String, Object>> getPaymentHistory(Long studentId) {
@@ -420,10 +510,11 @@ public class StudentService {
     }
 
     private String generateTransactionId() {
-        return "TXN" + System.currentTimeMillis();
+        return transactionIdGenerator.nextTransactionId();
     }
 
     // Batch Operations
+    @Transactional
     public void updateGradeBatch(List<Long> studentIds, String grade) {
         studentIds.forEach(id -> {
             Student student = getStudentById(id);
@@ -432,6 +523,7 @@ public class StudentService {
         });
     }
 
+    @Transactional
     public void recalculateAttendanceBatch(List<Long> studentIds) {
         studentIds.forEach(id -> {
             Student student = getStudentById(id);
@@ -451,120 +543,6 @@ public class StudentService {
         return (double) presentCount / student.getAttendanceRecords().size() * 100;
     }
 
-    // Fee Statistics and Reports
-    public double calculateTotalRevenue() {
-        return studentRepository.findAll().stream()
-                .flatMap(student -> student.getFeePayments().stream())
-                .filter(payment -> "PAID".equals(payment.getStatus()))
-                .mapToDouble(FeeDetail::getAmount)
-                .sum();
-    }
-
-    public double calculateTodayPayments() {
-        Date today = new Date();
-        return studentRepository.findAll().stream()
-                .flatMap(student -> student.getFeePayments().stream())
-                .filter(payment -> "PAID".equals(payment.getStatus()))
-                .filter(payment -> isSameDay(payment.getPaidDate(), today))
-                .mapToDouble(FeeDetail::getAmount)
-                .sum();
-    }
-
-    public int getTodayTransactionCount() {
-        Date today = new Date();
-        return (int) studentRepository.findAll().stream()
-                .flatMap(student -> student.getFeePayments().stream())
-                .filter(payment -> isSameDay(payment.getPaidDate(), today))
-                .count();
-    }
-
-    public double calculateTotalPendingDues() {
-        return studentRepository.findAll().stream()
-                .mapToDouble(student -> calculateDueAmount(student.getId()))
-                .sum();
-    }
-
-    public double calculateCollectionRate() {
-        double totalFees = studentRepository.findAll().stream()
-                .mapToDouble(student -> calculateTotalFees(student.getId()))
-                .sum();
-        return totalFees == 0 ? 0 : (calculateTotalRevenue() / totalFees) * 100;
-    }
-
-    public List<Map<String, Object>> getRevenueTrend() {
-        // Returns last 6 months revenue trend
-        List<Map<String, Object>> trend = new ArrayList<>();
-        Calendar cal = Calendar.getInstance();
-        for (int i = 5; i >= 0; i--) {
-            cal.set(Calendar.MONTH, cal.get(Calendar.MONTH) - i);
-            Map<String, Object> monthData = new HashMap<>();
-            monthData.put("month", cal.getTime());
-            monthData.put("revenue", calculateRevenueForMonth(cal.get(Calendar.MONTH), cal.get(Calendar.YEAR)));
-            trend.add(monthData);
-        }
-        return trend;
-    }
-
-    private double calculateRevenueForMonth(int month, int year) {
-        return studentRepository.findAll().stream()
-                .flatMap(student -> student.getFeePayments().stream())
-                .filter(payment -> {
-                    Calendar cal = Calendar.getInstance();
-                    cal.setTime(payment.getPaidDate());
-                    return cal.get(Calendar.MONTH) == month && cal.get(Calendar.YEAR) == year;
-                })
-                .mapToDouble(FeeDetail::getAmount)
-                .sum();
-    }
-
-    public Map<String, Double> getFeeTypeDistribution() {
-        return studentRepository.findAll().stream()
-                .flatMap(student -> student.getFeePayments().stream())
-                .filter(payment -> "PAID".equals(payment.getStatus()))
-                .collect(Collectors.groupingBy(
-                        FeeDetail::getFeeType,
-                        Collectors.summingDouble(FeeDetail::getAmount)
-                ));
-    }
-
-    public List<Map<String, Object>> getRecentPayments() {
-        return studentRepository.findAll().stream()
-                .flatMap(student -> student.getFeePayments().stream()
-                        .map(payment -> {
-                            Map<String, Object> paymentData = new HashMap<>();
-                            paymentData.put("studentName", student.getName());
-                            paymentData.put("amount", payment.getAmount());
-                            paymentData.put("date", payment.getPaidDate());
-                            paymentData.put("type", payment.getFeeType());
-                            return paymentData;
-                        }))
-                .sorted((p1, p2) -> ((Date) p2.get("date")).compareTo((Date) p1.get("date")))
-                .limit(10)
-                .collect(Collectors.toList());
-    }
-
-    public List<Map<String, Object>> getDuePayments() {
-        return studentRepository.findAll().stream()
-                .filter(student -> calculateDueAmount(student.getId()) > 0)
-                .map(student -> {
-                    Map<String, Object> dueData = new HashMap<>();
-                    dueData.put("studentName", student.getName());
-                    dueData.put("studentId", student.getId());
-                    dueData.put("dueAmount", calculateDueAmount(student.getId()));
-                    dueData.put("lastPaymentDate", getLastPaymentDate(student));
-                    return dueData;
-                })
-                .collect(Collectors.toList());
-    }
-
-    private Date getLastPaymentDate(Student student) {
-        return student.getFeePayments().stream()
-                .filter(payment -> "PAID".equals(payment.getStatus()))
-                .map(FeeDetail::getPaidDate)
-                .max(Date::compareTo)
-                .orElse(null);
-    }
-
     public void sendFeeReminder(Long studentId) {
         Student student = getStudentById(studentId);
         double dueAmount = calculateDueAmount(studentId);
@@ -673,98 +651,6 @@ public class StudentService {
         return outputStream.toByteArray();
     }
 
-    private boolean isSameDay(Date date1, Date date2) {
-        Calendar cal1 = Calendar.getInstance();
-        Calendar cal2 = Calendar.getInstance();
-        cal1.setTime(date1);
-        cal2.setTime(date2);
-        return cal1.get(Calendar.YEAR) == cal2.get(Calendar.YEAR) &&
-                cal1.get(Calendar.MONTH) == cal2.get(Calendar.MONTH) &&
-                cal1.get(Calendar.DAY_OF_MONTH) == cal2.get(Calendar.DAY_OF_MONTH);
-    }
-
-    // Statistics methods
-    public long getTotalStudents() {
-        return studentRepository.count();
-    }
-
-    public double getAverageAttendance() {
-        List<Student> students = getAllStudents();
-        if (students.isEmpty()) {
-            return 0.0;
-        }
-        return students.stream()
-                .mapToDouble(Student::getAttendance)
-                .average()
-                .orElse(0.0);
-    }
-
-    public double getAverageGrade() {
-        List<Student> students = getAllStudents();
-        if (students.isEmpty()) {
-            return 0.0;
-        }
-        return students.stream()
-                .mapToDouble(student -> calculateAverageMarks(student.getId()))
-                .average()
-                .orElse(0.0);
-    }
-
-    public long getTotalCourses() {
-        return studentRepository.findAll().stream()
-                .flatMap(student -> student.getCourses().stream())
-                .distinct()
-                .count();
-    }
-
-    public Map<String, Long> getGradeDistribution() {
-        return studentRepository.findAll().stream()
-                .collect(Collectors.groupingBy(
-                        Student::getGrade,
-                        Collectors.counting()
-                ));
-    }
-
-    public Map<String, Double> getAttendanceTrend() {
-        Map<String, Double> trend = new LinkedHashMap<>();
-        Calendar cal = Calendar.getInstance();
-        SimpleDateFormat monthFormat = new SimpleDateFormat("MMM");
-
-        // Initialize with current month and go back 6 months
-        for (int i = 5; i >= 0; i--) {
-            cal.add(Calendar.MONTH, -1);
-            String monthLabel = monthFormat.format(cal.getTime());
-            List<Attendance> monthlyAttendance = attendanceRepository.findByDateBetween(
-                    getMonthStart(cal.getTime()),
-                    getMonthEnd(cal.getTime())
-            );
-
-            double attendancePercentage = 0.0;
-            if (!monthlyAttendance.isEmpty()) {
-                long presentCount = monthlyAttendance.stream()
-                        .filter(Attendance::isPresent)
-                        .count();
-                attendancePercentage = (double) presentCount * 100 / monthlyAttendance.size();
-            }
-            trend.put(monthLabel, attendancePercentage);
-        }
-        return trend;
-    }
-
-    private Date getMonthStart(Date date) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        cal.set(Calendar.DAY_OF_MONTH, 1);
-        return cal.getTime();
-    }
-
-    private Date getMonthEnd(Date date) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        cal.set(Calendar.DAY_OF_MONTH, cal.getActualMaximum(Calendar.DAY_OF_MONTH));
-        return cal.getTime();
-    }
-
     // Academic Progress Methods
     public Map<String, Object> getAcademicProgressData(Long studentId) {
         Student student = getStudentById(studentId);
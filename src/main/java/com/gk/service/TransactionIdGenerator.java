@@ -0,0 +1,103 @@
+package com.gk.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake-style generator for payment transaction ids: 41 bits of
+ * milliseconds since 2024-01-01, 10 bits of node id and a 12-bit sequence
+ * within the millisecond.
+ * <p>
+ * Timestamp and sequence live in a single {@link AtomicLong} advanced by CAS,
+ * so callers never take a lock. The timestamp part is a logical clock: it
+ * never moves backwards when the wall clock does, and a sequence overflow
+ * borrows the next millisecond. Once the logical clock is more than
+ * {@value #MAX_LEAD_MS} ms ahead of the wall clock, callers spin until the
+ * wall clock catches up.
+ */
+@Component
+public class TransactionIdGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionIdGenerator.class);
+
+    static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    static final long MAX_LEAD_MS = 5;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final String PREFIX = "TXN";
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    private final AtomicLong state = new AtomicLong();
+    private final AtomicBoolean clockBehind = new AtomicBoolean();
+
+    @Autowired
+    public TransactionIdGenerator(@Value("${app.node-id:0}") long nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    TransactionIdGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long lastTime = current >>> SEQUENCE_BITS;
+            long now = clock.getAsLong() - EPOCH;
+            long next;
+            if (now > lastTime) {
+                next = now << SEQUENCE_BITS;
+                clockBehind.set(false);
+            } else {
+                next = current + 1;
+                if ((next & SEQUENCE_MASK) == 0 && (next >>> SEQUENCE_BITS) - now > MAX_LEAD_MS) {
+                    if (lastTime - now > MAX_LEAD_MS && clockBehind.compareAndSet(false, true)) {
+                        logger.warn("Clock moved {} ms backwards, waiting for it to catch up", lastTime - now);
+                    }
+                    Thread.onSpinWait();
+                    continue;
+                }
+            }
+            if (state.compareAndSet(current, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & SEQUENCE_MASK;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    /**
+     * Returns the next id as {@code TXN} followed by 13 Crockford base32
+     * digits. The width is fixed, so string order matches issue order.
+     */
+    public String nextTransactionId() {
+        return encode(nextId());
+    }
+
+    public static String encode(long id) {
+        char[] chars = new char[PREFIX.length() + ENCODED_LENGTH];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+        for (int i = chars.length - 1; i >= PREFIX.length(); i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
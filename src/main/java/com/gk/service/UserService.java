@@ -2,6 +2,12 @@ package com.gk.service;
 
 import com.gk.model.User;
 import com.gk.repository.UserRepository;
+import com.gk.service.invalidation.CacheInvalidationService;
+import com.gk.service.invalidation.CachedEntity;
+import com.gk.service.invalidation.IdRange;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,19 +18,29 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 public class UserService implements UserDetailsService {
+    private static final long MAX_EVICTED_IDS = 1000;
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final Cache secondLevelCache;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       CacheInvalidationService cacheInvalidationService,
+                       EntityManagerFactory entityManagerFactory) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cacheInvalidationService.subscribe(CachedEntity.USER, this::evict);
     }
 
     @Override
@@ -74,6 +90,7 @@ public class UserService implements UserDetailsService {
         user.setPasswordResetToken(token);
         user.setPasswordResetExpires(LocalDateTime.now().plusHours(24));
         userRepository.save(user);
+        cacheInvalidationService.invalidate(CachedEntity.USER, user.getId());
 
         // TODO: Send password reset email
     }
@@ -91,6 +108,7 @@ public class UserService implements UserDetailsService {
         user.setPasswordResetToken(null);
         user.setPasswordResetExpires(null);
         userRepository.save(user);
+        cacheInvalidationService.invalidate(CachedEntity.USER, user.getId());
     }
 
     public User getCurrentUser() {
@@ -113,6 +131,7 @@ public class UserService implements UserDetailsService {
         existingUser.setEmail(user.getEmail());
 
         userRepository.save(existingUser);
+        cacheInvalidationService.invalidate(CachedEntity.USER, existingUser.getId());
     }
 
     @Transactional
@@ -126,9 +145,25 @@ public class UserService implements UserDetailsService {
 
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        cacheInvalidationService.invalidate(CachedEntity.USER, userId);
     }
 
     public boolean userExists(String username) {
         return userRepository.existsByUsername(username);
     }
+
+    /** Drops cached users changed on this instance or another; large ranges clear the whole region. */
+    private void evict(List<IdRange> ranges) {
+        for (IdRange range : ranges) {
+            if (range.size() > MAX_EVICTED_IDS) {
+                secondLevelCache.evictEntityData(User.class);
+                secondLevelCache.evictCollectionData(User.class.getName() + ".roles");
+                return;
+            }
+            for (long userId = range.first(); userId <= range.last(); userId++) {
+                secondLevelCache.evictEntityData(User.class, userId);
+                secondLevelCache.evictCollectionData(User.class.getName() + ".roles", userId);
+            }
+        }
+    }
 }
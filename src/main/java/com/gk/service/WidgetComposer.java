@@ -0,0 +1,167 @@
+package com.gk.service;
+
+import com.gk.config.monitoring.QueryStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent queries behind a page, its widgets, side by side on
+ * virtual threads, so the page waits for its slowest widget rather than for
+ * all of them in turn. A widget that fails, or is not ready within its
+ * timeout, shows its fallback and the rest of the page renders as usual.
+ * <pre>
+ * model.addAllAttributes(widgetComposer.compose()
+ *         .add("totalStudents", studentQueryService::getTotalStudents, 0L)
+ *         .add("gradeDistribution", studentQueryService::getGradeDistribution, Map.of())
+ *         .join());
+ * </pre>
+ * Each widget runs in a transaction of its own and holds a connection while
+ * it runs, so at most {@code app.widgets.max-concurrent} of them run on
+ * virtual threads at once. Widgets beyond that run on the request thread one
+ * after another instead of queueing for the pool.
+ */
+@Component
+public class WidgetComposer implements DisposableBean {
+    static final String FALLBACK_METRIC = "app.widgets.fallbacks";
+    private static final Logger logger = LoggerFactory.getLogger(WidgetComposer.class);
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("widget-", 0).factory());
+    private final Semaphore permits;
+    private final Duration timeout;
+    private final MeterRegistry meterRegistry;
+
+    public WidgetComposer(@Value("${app.widgets.max-concurrent:5}") int maxConcurrent,
+                          @Value("${app.widgets.timeout-ms:2000}") long timeoutMillis,
+                          MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent);
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Composition compose() {
+        return new Composition();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public final class Composition {
+        private final Map<String, Widget<?>> widgets = new LinkedHashMap<>();
+
+        private Composition() {
+        }
+
+        public <T> Composition add(String name, Supplier<T> query, T fallback) {
+            return add(name, timeout, query, fallback);
+        }
+
+        public <T> Composition add(String name, Duration widgetTimeout, Supplier<T> query, T fallback) {
+            widgets.put(name, new Widget<>(name, widgetTimeout, query, fallback));
+            return this;
+        }
+
+        /** Runs the widgets and returns their values, or their fallbacks, by name in the order they were added. */
+        public Map<String, Object> join() {
+            long start = System.nanoTime();
+            widgets.values().forEach(Widget::start);
+            Map<String, Object> values = new LinkedHashMap<>();
+            widgets.forEach((name, widget) -> values.put(name, widget.await(start)));
+            return values;
+        }
+    }
+
+    private record Outcome<T>(T value, QueryStats stats) {
+    }
+
+    private final class Widget<T> {
+        private final String name;
+        private final Duration timeout;
+        private final Supplier<T> query;
+        private final T fallback;
+        private Future<Outcome<T>> future;
+
+        Widget(String name, Duration timeout, Supplier<T> query, T fallback) {
+            this.name = name;
+            this.timeout = timeout;
+            this.query = query;
+            this.fallback = fallback;
+        }
+
+        void start() {
+            if (!permits.tryAcquire()) {
+                return;
+            }
+            RequestAttributes request = RequestContextHolder.getRequestAttributes();
+            SecurityContext security = SecurityContextHolder.getContext();
+            try {
+                future = executor.submit(() -> run(request, security));
+            } catch (RejectedExecutionException e) {
+                permits.release();
+            }
+        }
+
+        private Outcome<T> run(RequestAttributes request, SecurityContext security) {
+            // The request's endpoint tags the service metrics, its user keys the read-your-writes window
+            RequestContextHolder.setRequestAttributes(request);
+            SecurityContextHolder.setContext(security);
+            try (QueryStats stats = QueryStats.open()) {
+                return new Outcome<>(query.get(), stats);
+            } finally {
+                permits.release();
+            }
+        }
+
+        T await(long start) {
+            if (future == null) {
+                try {
+                    return query.get();
+                } catch (RuntimeException e) {
+                    return fallBack("error", e);
+                }
+            }
+            long remaining = timeout.toNanos() - (System.nanoTime() - start);
+            try {
+                Outcome<T> outcome = future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+                QueryStats.include(outcome.stats());
+                return outcome.value();
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                return fallBack("timeout", null);
+            } catch (ExecutionException e) {
+                return fallBack("error", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                return fallBack("interrupted", null);
+            }
+        }
+
+        private T fallBack(String reason, Throwable cause) {
+            meterRegistry.counter(FALLBACK_METRIC, "widget", name, "reason", reason).increment();
+            if (cause == null) {
+                logger.warn("Widget {} not ready within {} ms ({}), showing its fallback", name,
+                        timeout.toMillis(), reason);
+            } else {
+                logger.warn("Widget {} failed, showing its fallback", name, cause);
+            }
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.gk.service.events;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A committed change to a student, numbered by its offset in the outbox.
+ * Delivery is at least once: after a failure or a restart a subscriber can be
+ * handed an event again, and should apply it idempotently.
+ */
+public record DomainEvent(long offset, Type type, long studentId, Map<String, Object> data, Instant occurredAt) {
+
+    public enum Type {
+        MARK_RECORDED,
+        ATTENDANCE_MARKED,
+        PAYMENT_RECORDED,
+        STUDENT_ENROLLED,
+        STUDENT_UNENROLLED,
+        /** The student's grade or section changed. */
+        STUDENT_MOVED,
+        STUDENT_DELETED
+    }
+}
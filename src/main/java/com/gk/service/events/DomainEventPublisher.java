@@ -0,0 +1,67 @@
+package com.gk.service.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gk.repository.OutboxRepository;
+import com.gk.repository.OutboxRepository.OutboxEntry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records domain events in the outbox. It must be called inside the
+ * transaction that makes the change: the events are then committed or rolled
+ * back with it, and {@link DomainEventRelay} delivers only committed ones.
+ */
+@Service
+public class DomainEventPublisher {
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    public DomainEventPublisher(OutboxRepository outboxRepository, ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /** An event before it has an offset. */
+    public record PendingEvent(DomainEvent.Type type, long studentId, Map<String, Object> data) {
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(DomainEvent.Type type, long studentId, Map<String, Object> data) {
+        publishAll(List.of(new PendingEvent(type, studentId, data)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishAll(List<PendingEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<OutboxEntry> entries = new ArrayList<>(events.size());
+        for (PendingEvent event : events) {
+            try {
+                entries.add(new OutboxEntry(event.type().name(), event.studentId(),
+                        objectMapper.writeValueAsString(event.data())));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Cannot serialize " + event.type() + " event", e);
+            }
+        }
+        outboxRepository.append(entries);
+    }
+
+    /** Event data from alternating names and values, leaving out null values. */
+    public static Map<String, Object> data(Object... namesAndValues) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            if (namesAndValues[i + 1] != null) {
+                data.put((String) namesAndValues[i], namesAndValues[i + 1]);
+            }
+        }
+        return data;
+    }
+}
@@ -0,0 +1,195 @@
+package com.gk.service.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gk.repository.OutboxRepository;
+import com.gk.repository.OutboxRepository.StoredEntry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Delivers committed outbox events to every {@link DomainEventSubscriber}.
+ * A single poller reads the outbox in offset order and hands each subscriber
+ * its share through a lock-free mailbox; subscribers run on the task executor
+ * and acknowledge by batch. Offsets are saved after each batch, so a restart
+ * resumes where a subscriber left off and redelivers at most the batch it was
+ * handling.
+ * <p>
+ * Offsets are allocated when a row is inserted, not when it commits, so a gap
+ * can be a transaction still in flight. The relay waits for the gap to fill
+ * and only after {@code app.outbox.gap-timeout-ms} takes it for a rollback.
+ * A transaction that holds its outbox insert uncommitted for longer than that
+ * can have its events skipped.
+ */
+@Service
+public class DomainEventRelay {
+    private static final Logger logger = LoggerFactory.getLogger(DomainEventRelay.class);
+    static final String LAG_METRIC = "app.outbox.lag";
+    private static final TypeReference<Map<String, Object>> DATA = new TypeReference<>() {
+    };
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectProvider<DomainEventSubscriber> subscribers;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor taskExecutor;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final int maxQueuedBatches;
+    private final long gapTimeoutMillis;
+    private final long retryDelayMillis;
+    private final Duration retention;
+    private final ReentrantLock relayLock = new ReentrantLock();
+    private volatile List<Subscription> subscriptions = List.of();
+    private volatile long latestOffset;
+    // Guarded by relayLock: offsets up to here have been checked for gaps
+    private long checkedUpTo;
+    private long gapOffset;
+    private long gapSince;
+
+    public DomainEventRelay(OutboxRepository outboxRepository, ObjectProvider<DomainEventSubscriber> subscribers,
+                            ObjectMapper objectMapper,
+                            @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.outbox.batch-size:500}") int batchSize,
+                            @Value("${app.outbox.max-queued-batches:4}") int maxQueuedBatches,
+                            @Value("${app.outbox.gap-timeout-ms:10000}") long gapTimeoutMillis,
+                            @Value("${app.outbox.retry-delay-ms:5000}") long retryDelayMillis,
+                            @Value("${app.outbox.retention-days:7}") int retentionDays) {
+        this.outboxRepository = outboxRepository;
+        this.subscribers = subscribers;
+        this.objectMapper = objectMapper;
+        this.taskExecutor = taskExecutor;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.maxQueuedBatches = maxQueuedBatches;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.retryDelayMillis = retryDelayMillis;
+        this.retention = Duration.ofDays(retentionDays);
+    }
+
+    /** Loads each subscriber's saved offset; until then nothing is delivered. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        relayLock.lock();
+        try {
+            Map<String, Long> offsets = outboxRepository.findOffsets();
+            latestOffset = outboxRepository.findLatestOffset();
+            List<Subscription> started = new ArrayList<>();
+            subscribers.orderedStream().forEach(subscriber -> {
+                Long saved = offsets.get(subscriber.name());
+                Subscription subscription = new Subscription(subscriber, saved != null ? saved : latestOffset,
+                        outboxRepository, taskExecutor);
+                started.add(subscription);
+                Gauge.builder(LAG_METRIC, subscription, s -> Math.max(0, latestOffset - s.acknowledged()))
+                        .description("Outbox events not yet acknowledged by the subscriber")
+                        .tag("subscriber", subscriber.name())
+                        .register(meterRegistry);
+                logger.info("Delivering domain events to {} from offset {}", subscriber.name(),
+                        subscription.acknowledged());
+            });
+            checkedUpTo = started.stream().mapToLong(Subscription::acknowledged).min().orElse(latestOffset);
+            subscriptions = List.copyOf(started);
+        } finally {
+            relayLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:200}",
+            initialDelayString = "${app.outbox.poll-interval-ms:200}")
+    public void relay() {
+        if (subscriptions.isEmpty() || !relayLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            while (relayBatch(now) == batchSize) {
+                now = System.currentTimeMillis();
+            }
+        } finally {
+            relayLock.unlock();
+        }
+    }
+
+    private int relayBatch(long now) {
+        long from = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            subscription.retryIfDue(now, retryDelayMillis);
+            subscription.resume();
+            if (subscription.ready(maxQueuedBatches)) {
+                from = Math.min(from, subscription.enqueued());
+            }
+        }
+        if (from == Long.MAX_VALUE) {
+            return 0;
+        }
+        List<DomainEvent> events = new ArrayList<>();
+        long previous = from;
+        for (StoredEntry entry : outboxRepository.findAfter(from, batchSize)) {
+            if (entry.offset() > checkedUpTo && entry.offset() != previous + 1 && !gapExpired(previous + 1, now)) {
+                break;
+            }
+            events.add(toEvent(entry));
+            previous = entry.offset();
+        }
+        checkedUpTo = Math.max(checkedUpTo, previous);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        latestOffset = Math.max(latestOffset, previous);
+        for (Subscription subscription : subscriptions) {
+            if (subscription.ready(maxQueuedBatches)) {
+                subscription.offer(events);
+            }
+        }
+        return events.size();
+    }
+
+    private boolean gapExpired(long missing, long now) {
+        if (gapOffset != missing) {
+            gapOffset = missing;
+            gapSince = now;
+        }
+        if (now - gapSince < gapTimeoutMillis) {
+            return false;
+        }
+        logger.debug("Outbox offset {} still missing after {} ms, taking it for a rollback", missing, gapTimeoutMillis);
+        return true;
+    }
+
+    private DomainEvent toEvent(StoredEntry entry) {
+        try {
+            return new DomainEvent(entry.offset(), DomainEvent.Type.valueOf(entry.type()), entry.studentId(),
+                    objectMapper.readValue(entry.payload(), DATA), entry.occurredAt());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable outbox entry " + entry.offset(), e);
+        }
+    }
+
+    /** Removes events every subscriber here has acknowledged, once they are older than the retention. */
+    @Scheduled(cron = "${app.outbox.purge-cron:0 40 0 * * *}")
+    public void purge() {
+        long acknowledged = subscriptions.stream().mapToLong(Subscription::acknowledged).min().orElse(Long.MAX_VALUE);
+        int purged = outboxRepository.deleteUpTo(acknowledged, Instant.now().minus(retention));
+        if (purged > 0) {
+            logger.info("Purged {} outbox events older than {} days", purged, retention.toDays());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.gk.service.events;
+
+import java.util.List;
+
+/**
+ * A bean that reacts to domain events. The relay finds every bean of this
+ * type and delivers to each on its own, so a slow or failing subscriber does
+ * not hold the others back.
+ */
+public interface DomainEventSubscriber {
+
+    /**
+     * Keys the subscriber's stored offset. A name the outbox has not seen
+     * starts from the events written after it first runs.
+     */
+    String name();
+
+    default boolean accepts(DomainEvent.Type type) {
+        return true;
+    }
+
+    /**
+     * Handles a batch of events, in offset order. Throwing redelivers the
+     * batch, and everything after it, once {@code app.outbox.retry-delay-ms}
+     * has passed.
+     */
+    void onEvents(List<DomainEvent> events);
+}
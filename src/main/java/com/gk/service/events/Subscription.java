@@ -0,0 +1,154 @@
+package com.gk.service.events;
+
+import com.gk.repository.OutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One subscriber's mailbox. The relay thread is its only producer and at most
+ * one drain runs at a time, so batches reach the subscriber in offset order
+ * without either side taking a lock.
+ * <p>
+ * A batch that fails is not acknowledged. The drain stops, and once the retry
+ * delay has passed the relay drops what is still queued and reads again from
+ * the last acknowledged offset.
+ */
+final class Subscription {
+    private static final Logger logger = LoggerFactory.getLogger(Subscription.class);
+
+    private record Batch(List<DomainEvent> events, long upTo) {
+    }
+
+    private final DomainEventSubscriber subscriber;
+    private final OutboxRepository outboxRepository;
+    private final TaskExecutor taskExecutor;
+    private final Queue<Batch> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile long acknowledged;
+    private volatile long failedAt;
+    // Written by the relay thread only
+    private long enqueued;
+
+    Subscription(DomainEventSubscriber subscriber, long offset, OutboxRepository outboxRepository,
+                 TaskExecutor taskExecutor) {
+        this.subscriber = subscriber;
+        this.outboxRepository = outboxRepository;
+        this.taskExecutor = taskExecutor;
+        this.acknowledged = offset;
+        this.enqueued = offset;
+    }
+
+    String name() {
+        return subscriber.name();
+    }
+
+    long acknowledged() {
+        return acknowledged;
+    }
+
+    long enqueued() {
+        return enqueued;
+    }
+
+    /** Whether the relay should read on this subscriber's behalf. */
+    boolean ready(int maxQueuedBatches) {
+        return failedAt == 0 && queued.get() < maxQueuedBatches;
+    }
+
+    /** After a failure, rewinds to the last acknowledged offset once {@code retryDelayMillis} has passed. */
+    void retryIfDue(long now, long retryDelayMillis) {
+        if (failedAt != 0 && !draining.get() && now - failedAt >= retryDelayMillis) {
+            mailbox.clear();
+            queued.set(0);
+            enqueued = acknowledged;
+            failedAt = 0;
+        }
+    }
+
+    /** Queues the events after {@link #enqueued()} that the subscriber wants, and starts a drain if none is running. */
+    void offer(List<DomainEvent> events) {
+        long upTo = events.get(events.size() - 1).offset();
+        if (upTo <= enqueued) {
+            return;
+        }
+        List<DomainEvent> batch = new ArrayList<>(events.size());
+        for (DomainEvent event : events) {
+            if (event.offset() > enqueued && subscriber.accepts(event.type())) {
+                batch.add(event);
+            }
+        }
+        // Queued even when empty, so the offset moves past events the subscriber skips
+        mailbox.add(new Batch(batch, upTo));
+        queued.incrementAndGet();
+        enqueued = upTo;
+        startDrain();
+    }
+
+    /**
+     * Starts a drain if batches are waiting and none is running, as when the
+     * executor turned the last one away. A full mailbox gets no more offers, so
+     * the relay calls this on every poll.
+     */
+    void resume() {
+        if (failedAt == 0 && !mailbox.isEmpty()) {
+            startDrain();
+        }
+    }
+
+    private void startDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                taskExecutor.execute(this::drain);
+            } catch (TaskRejectedException e) {
+                draining.set(false);
+                logger.warn("Could not start delivery to {}, retrying on the next poll: {}", name(), e.getMessage());
+            }
+        }
+    }
+
+    private void drain() {
+        do {
+            Batch batch;
+            while (failedAt == 0 && (batch = mailbox.poll()) != null) {
+                queued.decrementAndGet();
+                if (!deliver(batch)) {
+                    break;
+                }
+            }
+            draining.set(false);
+            // A batch queued after the last poll but before the flag was cleared would otherwise wait
+        } while (failedAt == 0 && !mailbox.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    private boolean deliver(Batch batch) {
+        if (!batch.events().isEmpty()) {
+            try {
+                subscriber.onEvents(batch.events());
+            } catch (RuntimeException e) {
+                logger.warn("Subscriber {} failed on events up to offset {}, they will be delivered again",
+                        name(), batch.upTo(), e);
+                failedAt = System.currentTimeMillis();
+                return false;
+            }
+        }
+        acknowledged = batch.upTo();
+        try {
+            outboxRepository.saveOffset(name(), batch.upTo());
+        } catch (DataAccessException e) {
+            logger.warn("Could not save the offset of {}; events up to {} may be delivered again after a restart: {}",
+                    name(), batch.upTo(), e.getMessage());
+        }
+        return true;
+    }
+}
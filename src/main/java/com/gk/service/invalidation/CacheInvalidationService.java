@@ -0,0 +1,243 @@
+package com.gk.service.invalidation;
+
+import com.gk.repository.InvalidationLogRepository;
+import com.gk.repository.InvalidationLogRepository.Invalidation;
+import com.gk.repository.InvalidationLogRepository.LogEntry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps in-process caches consistent across application instances using only
+ * the shared database. A write invalidates entity ids here: this instance
+ * drops its copies once the write commits, and the ids go to the
+ * invalidation log in the same transaction, so the other instances see them
+ * only if the write committed. Each instance polls the log and applies other
+ * instances' rows to its own caches.
+ * <p>
+ * Ids invalidated in one transaction are coalesced into ranges and written
+ * as one batch; what a poll reads is coalesced again per entity before the
+ * caches are called. An instance that stops polling for longer than the log
+ * is kept clears its caches completely when it resumes.
+ */
+@Service
+public class CacheInvalidationService {
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationService.class);
+    static final String DELAY_METRIC = "app.cache.invalidation.delay";
+
+    private final InvalidationLogRepository logRepository;
+    private final String nodeId;
+    private final int batchSize;
+    private final int maxRanges;
+    private final long gapTimeoutMillis;
+    private final Duration retention;
+    private final Timer delay;
+    private final Map<CachedEntity, List<Consumer<List<IdRange>>>> handlers = new ConcurrentHashMap<>();
+    private final ReentrantLock pollLock = new ReentrantLock();
+    // Guarded by pollLock: the log has been applied up to cursor, and these ids above it
+    private final Set<Long> appliedAboveCursor = new HashSet<>();
+    private long cursor;
+    private long gapId;
+    private long gapSince;
+    private long lastPollAt;
+
+    public CacheInvalidationService(InvalidationLogRepository logRepository, MeterRegistry meterRegistry,
+                                    @Value("${app.invalidation.node-id:}") String nodeId,
+                                    @Value("${app.invalidation.batch-size:1000}") int batchSize,
+                                    @Value("${app.invalidation.max-ranges:32}") int maxRanges,
+                                    @Value("${app.invalidation.gap-timeout-ms:10000}") long gapTimeoutMillis,
+                                    @Value("${app.invalidation.retention-minutes:60}") int retentionMinutes) {
+        this.logRepository = logRepository;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.batchSize = batchSize;
+        this.maxRanges = maxRanges;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.delay = Timer.builder(DELAY_METRIC)
+                .description("Time from an invalidation being written to another instance applying it")
+                .register(meterRegistry);
+    }
+
+    /** Starts from the end of the log: this instance's caches are empty, so older rows are irrelevant to it. */
+    @PostConstruct
+    public void start() {
+        pollLock.lock();
+        try {
+            cursor = logRepository.findLatestId();
+            lastPollAt = System.currentTimeMillis();
+        } finally {
+            pollLock.unlock();
+        }
+        logger.info("Tailing the cache invalidation log as {} from id {}", nodeId, cursor);
+    }
+
+    /** Registers a cache to clear; it is given the coalesced ranges to drop. */
+    public void subscribe(CachedEntity entity, Consumer<List<IdRange>> handler) {
+        handlers.computeIfAbsent(entity, e -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    public void invalidate(CachedEntity entity, long id) {
+        invalidate(entity, IdRange.of(id));
+    }
+
+    public void invalidateAll(CachedEntity entity) {
+        invalidate(entity, IdRange.ALL);
+    }
+
+    public void invalidate(CachedEntity entity, IdRange range) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingInvalidations pending = (PendingInvalidations) TransactionSynchronizationManager.getResource(this);
+            if (pending == null) {
+                pending = new PendingInvalidations();
+                TransactionSynchronizationManager.bindResource(this, pending);
+                TransactionSynchronizationManager.registerSynchronization(pending);
+            }
+            pending.add(entity, range);
+        } else {
+            Map<CachedEntity, List<IdRange>> ranges = Map.of(entity, List.of(range));
+            logRepository.append(nodeId, toLog(ranges));
+            apply(ranges);
+        }
+    }
+
+    /** What one transaction invalidated, written before it commits and applied here after. */
+    private final class PendingInvalidations implements TransactionSynchronization {
+        private final Map<CachedEntity, List<IdRange>> ranges = new EnumMap<>(CachedEntity.class);
+
+        void add(CachedEntity entity, IdRange range) {
+            ranges.computeIfAbsent(entity, e -> new ArrayList<>()).add(range);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            coalesce(ranges);
+            logRepository.append(nodeId, toLog(ranges));
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CacheInvalidationService.this);
+            if (status == STATUS_COMMITTED) {
+                apply(ranges);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.invalidation.poll-interval-ms:250}",
+            initialDelayString = "${app.invalidation.poll-interval-ms:250}")
+    public void poll() {
+        if (!pollLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            if (now - lastPollAt > retention.toMillis()) {
+                // Rows this instance never read may have been deleted
+                logger.warn("Invalidation log not polled for {} ms, clearing all cached entities", now - lastPollAt);
+                Map<CachedEntity, List<IdRange>> everything = new EnumMap<>(CachedEntity.class);
+                handlers.keySet().forEach(entity -> everything.put(entity, List.of(IdRange.ALL)));
+                apply(everything);
+            }
+            lastPollAt = now;
+            Map<CachedEntity, List<IdRange>> remote = new EnumMap<>(CachedEntity.class);
+            for (LogEntry entry : logRepository.findAfter(cursor, batchSize)) {
+                if (!appliedAboveCursor.add(entry.id()) || entry.origin().equals(nodeId)) {
+                    continue;
+                }
+                CachedEntity entity = entity(entry.invalidation().entity());
+                if (entity != null) {
+                    Invalidation invalidation = entry.invalidation();
+                    remote.computeIfAbsent(entity, e -> new ArrayList<>())
+                            .add(new IdRange(invalidation.firstId(), invalidation.lastId()));
+                    delay.record(Duration.between(entry.createdAt(), Instant.ofEpochMilli(now)).abs());
+                }
+            }
+            advanceCursor(now);
+            if (!remote.isEmpty()) {
+                coalesce(remote);
+                apply(remote);
+            }
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    /**
+     * Moves the cursor over the ids applied so far. Ids are allocated when a
+     * row is inserted, not when it commits, so a missing id may still arrive;
+     * rows after it are applied meanwhile, and the cursor waits for it until
+     * the gap timeout says it was rolled back.
+     */
+    private void advanceCursor(long now) {
+        while (!appliedAboveCursor.isEmpty()) {
+            if (appliedAboveCursor.remove(cursor + 1)) {
+                cursor++;
+                gapId = 0;
+            } else if (gapId != cursor + 1) {
+                gapId = cursor + 1;
+                gapSince = now;
+                return;
+            } else if (now - gapSince >= gapTimeoutMillis) {
+                cursor++;
+                gapId = 0;
+            } else {
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.invalidation.purge-interval-ms:600000}")
+    public void purge() {
+        int purged = logRepository.deleteBefore(Instant.now().minus(retention));
+        if (purged > 0) {
+            logger.debug("Deleted {} cache invalidations older than {} minutes", purged, retention.toMinutes());
+        }
+    }
+
+    private void coalesce(Map<CachedEntity, List<IdRange>> ranges) {
+        ranges.replaceAll((entity, list) -> IdRange.coalesce(list, maxRanges));
+    }
+
+    private void apply(Map<CachedEntity, List<IdRange>> ranges) {
+        ranges.forEach((entity, list) -> {
+            for (Consumer<List<IdRange>> handler : handlers.getOrDefault(entity, List.of())) {
+                try {
+                    handler.accept(list);
+                } catch (RuntimeException e) {
+                    logger.warn("Could not invalidate cached {} {}", entity, list, e);
+                }
+            }
+        });
+    }
+
+    private static List<Invalidation> toLog(Map<CachedEntity, List<IdRange>> ranges) {
+        List<Invalidation> invalidations = new ArrayList<>();
+        ranges.forEach((entity, list) -> list.forEach(range ->
+                invalidations.add(new Invalidation(entity.name(), range.first(), range.last()))));
+        return invalidations;
+    }
+
+    private static CachedEntity entity(String name) {
+        try {
+            return CachedEntity.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            // Written by a newer version of the application
+            return null;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.gk.service.invalidation;
+
+/** The kinds of entity whose copies are cached in each application instance. */
+public enum CachedEntity {
+    COURSE,
+    USER
+}
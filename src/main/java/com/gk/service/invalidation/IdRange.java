@@ -0,0 +1,52 @@
+package com.gk.service.invalidation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/** An inclusive range of entity ids; {@link #ALL} stands for every entity of the type. */
+public record IdRange(long first, long last) {
+    public static final IdRange ALL = new IdRange(Long.MIN_VALUE, Long.MAX_VALUE);
+
+    public IdRange {
+        if (first > last) {
+            throw new IllegalArgumentException("Empty id range " + first + ".." + last);
+        }
+    }
+
+    public static IdRange of(long id) {
+        return new IdRange(id, id);
+    }
+
+    public boolean isAll() {
+        return first == Long.MIN_VALUE && last == Long.MAX_VALUE;
+    }
+
+    public long size() {
+        return isAll() ? Long.MAX_VALUE : last - first + 1;
+    }
+
+    /**
+     * Merges overlapping and adjacent ranges, in id order. Beyond
+     * {@code maxRanges} the result is one range spanning them all: a few
+     * needless evictions cost less than a long message.
+     */
+    public static List<IdRange> coalesce(List<IdRange> ranges, int maxRanges) {
+        List<IdRange> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(IdRange::first));
+        List<IdRange> merged = new ArrayList<>();
+        for (IdRange range : sorted) {
+            IdRange last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && (last.last() == Long.MAX_VALUE || range.first() <= last.last() + 1)) {
+                merged.set(merged.size() - 1, new IdRange(last.first(), Math.max(last.last(), range.last())));
+            } else {
+                merged.add(range);
+            }
+        }
+        if (merged.size() > maxRanges) {
+            return List.of(new IdRange(merged.get(0).first(),
+                    merged.stream().mapToLong(IdRange::last).max().orElseThrow()));
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,321 @@
+package com.gk.service.ranking;
+
+import com.gk.dto.ClassRank;
+import com.gk.repository.ClassRankRepository;
+import com.gk.repository.ClassRankRepository.MarkRow;
+import com.gk.service.events.DomainEvent;
+import com.gk.service.events.DomainEventSubscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Class ranks and percentiles by average mark, kept in memory for every
+ * cohort: each section and each grade, by subject and by term, and over all
+ * subjects and terms, plus the whole school over everything. Each cohort is a
+ * {@link RankTree}, so a student's rank and the top of a cohort are
+ * logarithmic lookups.
+ * <p>
+ * The index is built from the marks table when the application starts and
+ * rebuilt every night. In between, recorded marks, grade and section changes
+ * and deleted students reach it through the domain event outbox, and the
+ * student's entries are recomputed from their marks in the database, so an
+ * event delivered twice does no harm and a deleted student leaves every
+ * cohort. Marks written by the dataset seeder only show after the next
+ * rebuild.
+ */
+@Service
+public class ClassRankService implements DomainEventSubscriber {
+    private static final Logger logger = LoggerFactory.getLogger(ClassRankService.class);
+
+    public enum Scope {
+        SECTION,
+        GRADE
+    }
+
+    private final ClassRankRepository classRankRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // Guarded by lock
+    private Ranking ranking = new Ranking();
+    // Set while a rebuild reads the marks: students refreshed meanwhile, refreshed again once it is in place
+    private volatile Set<Long> refreshedDuringRebuild;
+
+    public ClassRankService(ClassRankRepository classRankRepository) {
+        this.classRankRepository = classRankRepository;
+    }
+
+    @Override
+    public String name() {
+        return "class-ranks";
+    }
+
+    @Override
+    public boolean accepts(DomainEvent.Type type) {
+        return type == DomainEvent.Type.MARK_RECORDED || type == DomainEvent.Type.STUDENT_MOVED
+                || type == DomainEvent.Type.STUDENT_DELETED;
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        Set<Long> studentIds = new LinkedHashSet<>();
+        events.forEach(event -> studentIds.add(event.studentId()));
+        refresh(studentIds);
+    }
+
+    /** Recomputes the students' entries from their marks; students without marks leave every cohort. */
+    public void refresh(Collection<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            return;
+        }
+        Set<Long> pending = refreshedDuringRebuild;
+        if (pending != null) {
+            pending.addAll(studentIds);
+        }
+        Map<Long, StudentScores> scores = new HashMap<>();
+        ScoresCollector collector = new ScoresCollector(scores::put);
+        classRankRepository.forEachMark(studentIds, collector);
+        collector.flush();
+        lock.writeLock().lock();
+        try {
+            for (Long studentId : studentIds) {
+                ranking.put(studentId, scores.get(studentId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.ranks.rebuild-cron:0 50 0 * * *}")
+    public void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            refreshedDuringRebuild = ConcurrentHashMap.newKeySet();
+            Ranking rebuilt = new Ranking();
+            ScoresCollector collector = new ScoresCollector(rebuilt::put);
+            classRankRepository.forEachMark(collector);
+            collector.flush();
+            lock.writeLock().lock();
+            try {
+                ranking = rebuilt;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Set<Long> refreshed = refreshedDuringRebuild;
+            refreshedDuringRebuild = null;
+            refresh(List.copyOf(refreshed));
+            logger.info("Ranked {} students in {} cohorts in {} ms", rebuilt.students.size(), rebuilt.cohorts.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            logger.warn("Could not rebuild the class ranks", e);
+        } finally {
+            refreshedDuringRebuild = null;
+            rebuildLock.unlock();
+        }
+    }
+
+    /** The student's standing in their section or grade; empty if they have no marks for the subject and term. */
+    public Optional<ClassRank> getRank(long studentId, Scope scope, String subject, String term) {
+        lock.readLock().lock();
+        try {
+            StudentScores scores = ranking.students.get(studentId);
+            if (scores == null || scores.grade == null || (scope == Scope.SECTION && scores.section == null)) {
+                return Optional.empty();
+            }
+            int index = scores.indexOf(subject, term);
+            if (index < 0) {
+                return Optional.empty();
+            }
+            CohortKey cohort = new CohortKey(scores.grade, scope == Scope.SECTION ? scores.section : null,
+                    subject, term);
+            return Optional.of(standing(studentId, cohort, ranking.cohorts.get(cohort), scores.averages[index]));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The best students of a section, or of a grade without one, or of the school without a grade either. */
+    public List<ClassRank> getTop(String grade, String section, String subject, String term, int limit) {
+        CohortKey cohort = grade == null ? CohortKey.SCHOOL : new CohortKey(grade, section, subject, term);
+        lock.readLock().lock();
+        try {
+            RankTree tree = ranking.cohorts.get(cohort);
+            if (tree == null || limit <= 0) {
+                return List.of();
+            }
+            List<ClassRank> top = new ArrayList<>(Math.min(limit, tree.size()));
+            tree.visitTop(limit, (studentId, score) -> top.add(standing(studentId, cohort, tree, score)));
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static ClassRank standing(long studentId, CohortKey cohort, RankTree tree, double score) {
+        int above = tree.countAbove(score);
+        int atLeast = tree.countAtLeast(score);
+        int size = tree.size();
+        double percentile = 100.0 * (size - atLeast + (atLeast - above) / 2.0) / size;
+        return new ClassRank(studentId, cohort.grade, cohort.section, cohort.subject, cohort.term, above + 1, size,
+                percentile, score);
+    }
+
+    /** Null fields stand for all sections, subjects or terms. */
+    private record CohortKey(String grade, String section, String subject, String term) {
+        static final CohortKey SCHOOL = new CohortKey(null, null, null, null);
+    }
+
+    /** The trees of every cohort, and the scores each student was entered with, to take them out again. */
+    private static final class Ranking {
+        private final Map<Long, StudentScores> students = new HashMap<>();
+        private final Map<CohortKey, RankTree> cohorts = new HashMap<>();
+
+        void put(long studentId, StudentScores scores) {
+            StudentScores previous = scores == null ? students.remove(studentId) : students.put(studentId, scores);
+            if (previous != null) {
+                previous.forEachCohort((cohort, score) -> {
+                    RankTree tree = cohorts.get(cohort);
+                    tree.remove(studentId, score);
+                    if (tree.size() == 0) {
+                        cohorts.remove(cohort);
+                    }
+                });
+            }
+            if (scores != null) {
+                scores.forEachCohort((cohort, score) ->
+                        cohorts.computeIfAbsent(cohort, c -> new RankTree(c.hashCode())).insert(studentId, score));
+            }
+        }
+    }
+
+    private interface CohortVisitor {
+        void visit(CohortKey cohort, double score);
+    }
+
+    /**
+     * One student's average marks, by subject and term; a null subject or
+     * term is the average over all of them.
+     */
+    private static final class StudentScores {
+        private final String grade;
+        private final String section;
+        private final String[] subjects;
+        private final String[] terms;
+        private final double[] averages;
+
+        StudentScores(String grade, String section, String[] subjects, String[] terms, double[] averages) {
+            this.grade = grade;
+            this.section = section;
+            this.subjects = subjects;
+            this.terms = terms;
+            this.averages = averages;
+        }
+
+        int indexOf(String subject, String term) {
+            for (int i = 0; i < averages.length; i++) {
+                if (Objects.equals(subjects[i], subject) && Objects.equals(terms[i], term)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void forEachCohort(CohortVisitor visitor) {
+            for (int i = 0; i < averages.length; i++) {
+                if (grade != null) {
+                    if (section != null) {
+                        visitor.visit(new CohortKey(grade, section, subjects[i], terms[i]), averages[i]);
+                    }
+                    visitor.visit(new CohortKey(grade, null, subjects[i], terms[i]), averages[i]);
+                }
+                if (subjects[i] == null && terms[i] == null) {
+                    visitor.visit(CohortKey.SCHOOL, averages[i]);
+                }
+            }
+        }
+    }
+
+    /** Turns mark rows, in student order, into each student's scores. */
+    private static final class ScoresCollector implements Consumer<MarkRow> {
+        private record Filter(String subject, String term) {
+        }
+
+        private final StudentConsumer consumer;
+        private final Map<Filter, double[]> totals = new LinkedHashMap<>();
+        private long studentId;
+        private String grade;
+        private String section;
+
+        interface StudentConsumer {
+            void accept(long studentId, StudentScores scores);
+        }
+
+        ScoresCollector(StudentConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(MarkRow row) {
+            if (!totals.isEmpty() && row.studentId() != studentId) {
+                flush();
+            }
+            studentId = row.studentId();
+            grade = row.grade();
+            section = row.section();
+            add(row.subject(), row.term(), row.marks());
+            if (row.term() != null) {
+                add(row.subject(), null, row.marks());
+            }
+            if (row.subject() != null) {
+                add(null, row.term(), row.marks());
+                if (row.term() != null) {
+                    add(null, null, row.marks());
+                }
+            }
+        }
+
+        private void add(String subject, String term, double marks) {
+            double[] total = totals.computeIfAbsent(new Filter(intern(subject), intern(term)), f -> new double[2]);
+            total[0] += marks;
+            total[1]++;
+        }
+
+        /** Hands over the student read last; called again once the rows run out. */
+        void flush() {
+            if (totals.isEmpty()) {
+                return;
+            }
+            String[] subjects = new String[totals.size()];
+            String[] terms = new String[totals.size()];
+            double[] averages = new double[totals.size()];
+            int i = 0;
+            for (Map.Entry<Filter, double[]> entry : totals.entrySet()) {
+                subjects[i] = entry.getKey().subject();
+                terms[i] = entry.getKey().term();
+                averages[i] = entry.getValue()[0] / entry.getValue()[1];
+                i++;
+            }
+            totals.clear();
+            consumer.accept(studentId, new StudentScores(intern(grade), intern(section), subjects, terms, averages));
+        }
+
+        // A few distinct names repeated for every student
+        private static String intern(String name) {
+            return name == null ? null : name.intern();
+        }
+    }
+}
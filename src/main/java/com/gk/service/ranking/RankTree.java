@@ -0,0 +1,210 @@
+package com.gk.service.ranking;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Order-statistic tree of (student, score) entries, best score first and
+ * ties by student id. It is a treap whose nodes live in parallel primitive
+ * arrays, with subtree sizes kept on every node, so counting the entries
+ * above a score and finding the first entries are O(log n) in expectation.
+ * Not thread-safe.
+ */
+final class RankTree {
+    private static final int NIL = 0;
+
+    private final SplittableRandom random;
+    private double[] scores;
+    private long[] ids;
+    private int[] left;
+    private int[] right;
+    private int[] sizes;
+    private int[] priorities;
+    private int root = NIL;
+    private int next = 1;
+    private int free = NIL;
+    // Results of split(), which has two
+    private int splitBefore;
+    private int splitAfter;
+
+    RankTree(long seed) {
+        random = new SplittableRandom(seed);
+        int capacity = 8;
+        scores = new double[capacity];
+        ids = new long[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        sizes = new int[capacity];
+        priorities = new int[capacity];
+    }
+
+    int size() {
+        return sizes[root];
+    }
+
+    void insert(long id, double score) {
+        int node = allocate(id, score);
+        split(root, score, id);
+        root = merge(merge(splitBefore, node), splitAfter);
+    }
+
+    /** Removes the entry, which must have been inserted with the same score; false if there is none. */
+    boolean remove(long id, double score) {
+        int before = size();
+        root = erase(root, id, score);
+        return size() < before;
+    }
+
+    /** Entries with a score strictly above {@code score}. */
+    int countAbove(double score) {
+        int count = 0;
+        for (int node = root; node != NIL; ) {
+            if (scores[node] > score) {
+                count += sizes[left[node]] + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return count;
+    }
+
+    /** Entries with a score of at least {@code score}. */
+    int countAtLeast(double score) {
+        int count = 0;
+        for (int node = root; node != NIL; ) {
+            if (scores[node] >= score) {
+                count += sizes[left[node]] + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return count;
+    }
+
+    interface EntryVisitor {
+        void visit(long id, double score);
+    }
+
+    /** Visits the first {@code limit} entries in order, walking only the tree's left spine and those entries. */
+    void visitTop(int limit, EntryVisitor visitor) {
+        int[] stack = new int[16];
+        int depth = 0;
+        int node = root;
+        int visited = 0;
+        while (visited < limit && (node != NIL || depth > 0)) {
+            if (node != NIL) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = node;
+                node = left[node];
+            } else {
+                node = stack[--depth];
+                visitor.visit(ids[node], scores[node]);
+                visited++;
+                node = right[node];
+            }
+        }
+    }
+
+    private static boolean before(double score, long id, double otherScore, long otherId) {
+        return score > otherScore || (score == otherScore && id < otherId);
+    }
+
+    /** Splits {@code node}'s subtree into the entries ordered before (score, id) and the rest. */
+    private void split(int node, double score, long id) {
+        if (node == NIL) {
+            splitBefore = NIL;
+            splitAfter = NIL;
+        } else if (before(scores[node], ids[node], score, id)) {
+            split(right[node], score, id);
+            right[node] = splitBefore;
+            update(node);
+            splitBefore = node;
+        } else {
+            split(left[node], score, id);
+            left[node] = splitAfter;
+            update(node);
+            splitAfter = node;
+        }
+    }
+
+    /** Joins two subtrees, all of whose entries in {@code first} come before those in {@code second}. */
+    private int merge(int first, int second) {
+        if (first == NIL) {
+            return second;
+        }
+        if (second == NIL) {
+            return first;
+        }
+        if (priorities[first] > priorities[second]) {
+            right[first] = merge(right[first], second);
+            update(first);
+            return first;
+        }
+        left[second] = merge(first, left[second]);
+        update(second);
+        return second;
+    }
+
+    private int erase(int node, long id, double score) {
+        if (node == NIL) {
+            return NIL;
+        }
+        if (ids[node] == id && scores[node] == score) {
+            int replacement = merge(left[node], right[node]);
+            release(node);
+            return replacement;
+        }
+        if (before(score, id, scores[node], ids[node])) {
+            left[node] = erase(left[node], id, score);
+        } else {
+            right[node] = erase(right[node], id, score);
+        }
+        update(node);
+        return node;
+    }
+
+    private void update(int node) {
+        sizes[node] = sizes[left[node]] + sizes[right[node]] + 1;
+    }
+
+    private int allocate(long id, double score) {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = left[node];
+        } else {
+            if (next == ids.length) {
+                grow();
+            }
+            node = next++;
+        }
+        ids[node] = id;
+        scores[node] = score;
+        left[node] = NIL;
+        right[node] = NIL;
+        sizes[node] = 1;
+        priorities[node] = random.nextInt();
+        return node;
+    }
+
+    private void release(int node) {
+        sizes[node] = 0;
+        right[node] = NIL;
+        left[node] = free;
+        free = node;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        scores = Arrays.copyOf(scores, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+    }
+}
@@ -0,0 +1,32 @@
+package com.gk.service.reconciliation;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * A recorded fee payment as seen by the reconciliation, with its amount in
+ * minor units.
+ */
+public record LedgerEntry(String transactionId, long studentId, String studentName, long amount, LocalDate date,
+                          String feeType) {
+
+    static final PartitionedSpill.Codec<LedgerEntry> CODEC = new PartitionedSpill.Codec<>() {
+        @Override
+        public void write(DataOutputStream out, LedgerEntry entry) throws IOException {
+            out.writeUTF(entry.transactionId);
+            out.writeLong(entry.studentId);
+            out.writeUTF(entry.studentName == null ? "" : entry.studentName);
+            out.writeLong(entry.amount);
+            out.writeLong(entry.date.toEpochDay());
+            out.writeUTF(entry.feeType == null ? "" : entry.feeType);
+        }
+
+        @Override
+        public LedgerEntry read(DataInputStream in) throws IOException {
+            return new LedgerEntry(in.readUTF(), in.readLong(), in.readUTF(), in.readLong(),
+                    LocalDate.ofEpochDay(in.readLong()), in.readUTF());
+        }
+    };
+}
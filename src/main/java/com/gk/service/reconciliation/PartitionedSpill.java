@@ -0,0 +1,97 @@
+package com.gk.service.reconciliation;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hash-partitioned spill of records to temporary files, so a join only ever
+ * holds one partition of each side in memory. Writers may add concurrently;
+ * each partition is read back after {@link #finishWriting()}.
+ */
+final class PartitionedSpill<T> implements Closeable {
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    interface Codec<T> {
+        void write(DataOutputStream out, T value) throws IOException;
+
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private final Path[] files;
+    private final DataOutputStream[] outputs;
+    private final int[] counts;
+    private final Codec<T> codec;
+
+    PartitionedSpill(Path directory, String name, int partitions, Codec<T> codec) throws IOException {
+        this.files = new Path[partitions];
+        this.outputs = new DataOutputStream[partitions];
+        this.counts = new int[partitions];
+        this.codec = codec;
+        for (int i = 0; i < partitions; i++) {
+            files[i] = directory.resolve(name + "-" + i + ".bin");
+            outputs[i] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(files[i]), BUFFER_SIZE));
+        }
+    }
+
+    int partitions() {
+        return files.length;
+    }
+
+    int partitionOf(int hash) {
+        return Math.floorMod(hash ^ (hash >>> 16), files.length);
+    }
+
+    void add(int hash, T value) {
+        int partition = partitionOf(hash);
+        DataOutputStream out = outputs[partition];
+        synchronized (out) {
+            try {
+                codec.write(out, value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            counts[partition]++;
+        }
+    }
+
+    void finishWriting() throws IOException {
+        for (DataOutputStream out : outputs) {
+            synchronized (out) {
+                out.close();
+            }
+        }
+    }
+
+    void forEach(int partition, Consumer<T> consumer) {
+        int count;
+        synchronized (outputs[partition]) {
+            count = counts[partition];
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(files[partition]), BUFFER_SIZE))) {
+            for (int i = 0; i < count; i++) {
+                consumer.accept(codec.read(in));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    List<T> load(int partition) {
+        List<T> values = new ArrayList<>();
+        forEach(partition, values::add);
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (int i = 0; i < files.length; i++) {
+            outputs[i].close();
+            Files.deleteIfExists(files[i]);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.gk.service.reconciliation;
+
+/**
+ * Outcome for one statement line and/or ledger entry. Either side is null
+ * when the other has no counterpart.
+ */
+public record ReconciliationResult(Status status, StatementLine line, LedgerEntry entry, double score) {
+
+    public enum Status {
+        MATCHED,
+        MATCHED_FUZZY,
+        AMOUNT_MISMATCH,
+        DUPLICATE_IN_STATEMENT,
+        DUPLICATE_IN_LEDGER,
+        MISSING_IN_LEDGER,
+        MISSING_IN_STATEMENT
+    }
+}
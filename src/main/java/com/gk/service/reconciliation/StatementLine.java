@@ -0,0 +1,35 @@
+package com.gk.service.reconciliation;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * One credit line of a bank statement. Amounts are in minor units (paise) so
+ * they can be compared and hashed exactly.
+ */
+public record StatementLine(int rowNumber, String reference, long amount, LocalDate date, String description) {
+
+    static final PartitionedSpill.Codec<StatementLine> CODEC = new PartitionedSpill.Codec<>() {
+        @Override
+        public void write(DataOutputStream out, StatementLine line) throws IOException {
+            out.writeInt(line.rowNumber);
+            out.writeUTF(line.reference == null ? "" : line.reference);
+            out.writeLong(line.amount);
+            out.writeLong(line.date.toEpochDay());
+            out.writeUTF(line.description == null ? "" : line.description);
+        }
+
+        @Override
+        public StatementLine read(DataInputStream in) throws IOException {
+            int rowNumber = in.readInt();
+            String reference = in.readUTF();
+            long amount = in.readLong();
+            LocalDate date = LocalDate.ofEpochDay(in.readLong());
+            String description = in.readUTF();
+            return new StatementLine(rowNumber, reference.isEmpty() ? null : reference, amount, date,
+                    description.isEmpty() ? null : description);
+        }
+    };
+}
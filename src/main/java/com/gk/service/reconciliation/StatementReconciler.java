@@ -0,0 +1,347 @@
+package com.gk.service.reconciliation;
+
+import com.gk.service.reconciliation.ReconciliationResult.Status;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Grace hash join of a bank statement against the fee ledger.
+ * <p>
+ * Both sides are first spilled to disk partitioned by transaction id, so the
+ * exact pass only keeps one partition's ledger entries in memory. Whatever
+ * stays unmatched is spilled again for a fuzzy pass that scores candidates of
+ * the same amount by date distance and by how much of the student's name
+ * appears in the statement narration.
+ * <p>
+ * Fee amounts repeat a lot, so the fuzzy pass partitions by amount and by
+ * date block of {@code 2 * window + 1} days. A line can only reach entries of
+ * its own and the two neighbouring blocks; entries close to a block edge are
+ * copied into the neighbour's partition. Even blocks are joined first and odd
+ * blocks second, so no copied entry is ever joined by two threads at once.
+ * Partitions within each round run in parallel on the common fork-join pool.
+ * <p>
+ * Results are handed to the consumer from several threads at once.
+ */
+public final class StatementReconciler implements Closeable {
+    static final double MIN_FUZZY_SCORE = 0.5;
+    private static final double NAME_WEIGHT = 0.7;
+
+    private final Path directory;
+    private final int dateWindowDays;
+    private final int blockDays;
+    private final Consumer<ReconciliationResult> results;
+    private final PartitionedSpill<StatementLine> statementByReference;
+    private final PartitionedSpill<LedgerEntry> ledgerByReference;
+    private final List<PartitionedSpill<StatementLine>> statementByBlock;
+    private final List<PartitionedSpill<BlockEntry>> ledgerByBlock;
+    private final Set<String> takenEdgeEntries = ConcurrentHashMap.newKeySet();
+    private LocalDate firstDate;
+    private LocalDate lastDate;
+
+    public StatementReconciler(int partitions, int dateWindowDays, Consumer<ReconciliationResult> results)
+            throws IOException {
+        this.directory = Files.createTempDirectory("reconciliation-");
+        this.dateWindowDays = dateWindowDays;
+        this.blockDays = 2 * dateWindowDays + 1;
+        this.results = results;
+        this.statementByReference = new PartitionedSpill<>(directory, "statement-ref", partitions, StatementLine.CODEC);
+        this.ledgerByReference = new PartitionedSpill<>(directory, "ledger-ref", partitions, LedgerEntry.CODEC);
+        this.statementByBlock = List.of(
+                new PartitionedSpill<>(directory, "statement-even", partitions, StatementLine.CODEC),
+                new PartitionedSpill<>(directory, "statement-odd", partitions, StatementLine.CODEC));
+        this.ledgerByBlock = List.of(
+                new PartitionedSpill<>(directory, "ledger-even", partitions, BlockEntry.CODEC),
+                new PartitionedSpill<>(directory, "ledger-odd", partitions, BlockEntry.CODEC));
+    }
+
+    public void addStatementLine(StatementLine line) {
+        if (firstDate == null || line.date().isBefore(firstDate)) {
+            firstDate = line.date();
+        }
+        if (lastDate == null || line.date().isAfter(lastDate)) {
+            lastDate = line.date();
+        }
+        if (line.reference() != null) {
+            statementByReference.add(line.reference().hashCode(), line);
+        } else {
+            spillForFuzzyPass(line);
+        }
+    }
+
+    /**
+     * Ledger entries worth loading: payments dated within the statement period
+     * widened by the fuzzy date window. Empty until a statement line was added.
+     */
+    public Optional<LocalDate[]> ledgerPeriod() {
+        if (firstDate == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new LocalDate[]{firstDate.minusDays(dateWindowDays), lastDate.plusDays(dateWindowDays)});
+    }
+
+    public void addLedgerEntry(LedgerEntry entry) {
+        ledgerByReference.add(entry.transactionId().hashCode(), entry);
+    }
+
+    public void reconcile() throws IOException {
+        statementByReference.finishWriting();
+        ledgerByReference.finishWriting();
+        IntStream.range(0, statementByReference.partitions()).parallel().forEach(this::exactPass);
+
+        for (int parity = 0; parity < 2; parity++) {
+            statementByBlock.get(parity).finishWriting();
+            ledgerByBlock.get(parity).finishWriting();
+        }
+        for (int parity = 0; parity < 2; parity++) {
+            int round = parity;
+            IntStream.range(0, statementByReference.partitions()).parallel()
+                    .forEach(partition -> fuzzyPass(round, partition));
+        }
+    }
+
+    private void exactPass(int partition) {
+        Map<String, LedgerEntry> ledger = new HashMap<>();
+        ledgerByReference.forEach(partition, entry -> {
+            if (ledger.putIfAbsent(entry.transactionId(), entry) != null) {
+                results.accept(new ReconciliationResult(Status.DUPLICATE_IN_LEDGER, null, entry, 0));
+            }
+        });
+
+        Set<String> seen = new HashSet<>();
+        Set<String> matched = new HashSet<>();
+        statementByReference.forEach(partition, line -> {
+            LedgerEntry entry = ledger.get(line.reference());
+            if (!seen.add(line.reference())) {
+                results.accept(new ReconciliationResult(Status.DUPLICATE_IN_STATEMENT, line, entry, 0));
+            } else if (entry == null) {
+                // A reference the ledger does not know may still be a payment
+                // recorded without it; let the fuzzy pass try.
+                spillForFuzzyPass(line);
+            } else {
+                matched.add(line.reference());
+                Status status = entry.amount() == line.amount() ? Status.MATCHED : Status.AMOUNT_MISMATCH;
+                results.accept(new ReconciliationResult(status, line, entry, 1));
+            }
+        });
+
+        for (LedgerEntry entry : ledger.values()) {
+            if (!matched.contains(entry.transactionId())) {
+                spillForFuzzyPass(entry);
+            }
+        }
+    }
+
+    private void spillForFuzzyPass(StatementLine line) {
+        long block = Math.floorDiv(line.date().toEpochDay(), blockDays);
+        statementByBlock.get((int) Math.floorMod(block, 2)).add(blockHash(line.amount(), block), line);
+    }
+
+    private void spillForFuzzyPass(LedgerEntry entry) {
+        long day = entry.date().toEpochDay();
+        long block = Math.floorDiv(day, blockDays);
+        long offset = day - block * blockDays;
+        Long neighbour = offset < dateWindowDays ? Long.valueOf(block - 1)
+                : offset >= blockDays - dateWindowDays ? Long.valueOf(block + 1) : null;
+        ledgerByBlock.get((int) Math.floorMod(block, 2))
+                .add(blockHash(entry.amount(), block), new BlockEntry(entry, neighbour != null));
+        if (neighbour != null) {
+            ledgerByBlock.get((int) Math.floorMod(neighbour, 2))
+                    .add(blockHash(entry.amount(), neighbour), new BlockEntry(entry, true));
+        }
+    }
+
+    private static int blockHash(long amount, long block) {
+        return Long.hashCode(amount * 31 + block);
+    }
+
+    private void fuzzyPass(int round, int partition) {
+        Map<AmountDay, List<ScoredEntry>> ledger = new HashMap<>();
+        ledgerByBlock.get(round).forEach(partition, blockEntry -> {
+            LedgerEntry entry = blockEntry.entry();
+            ledger.computeIfAbsent(new AmountDay(entry.amount(), entry.date().toEpochDay()), key -> new ArrayList<>())
+                    .add(new ScoredEntry(blockEntry, bigrams(entry.studentName())));
+        });
+        List<StatementLine> lines = statementByBlock.get(round).load(partition);
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (StatementLine line : lines) {
+            int[] narrationBigrams = bigrams(line.description());
+            long day = line.date().toEpochDay();
+            for (long d = day - dateWindowDays; d <= day + dateWindowDays; d++) {
+                List<ScoredEntry> entries = ledger.get(new AmountDay(line.amount(), d));
+                if (entries == null) {
+                    continue;
+                }
+                double dateScore = 1.0 - (double) Math.abs(d - day) / (dateWindowDays + 1);
+                double minimumNameScore = (MIN_FUZZY_SCORE - (1 - NAME_WEIGHT) * dateScore) / NAME_WEIGHT;
+                for (ScoredEntry entry : entries) {
+                    double nameScore = containment(entry.nameBigrams(), narrationBigrams, minimumNameScore);
+                    if (nameScore >= minimumNameScore) {
+                        double score = NAME_WEIGHT * nameScore + (1 - NAME_WEIGHT) * dateScore;
+                        candidates.add(new Candidate(line, entry.entry(), score));
+                    }
+                }
+            }
+        }
+
+        // Greedy assignment, best pairs first; each side is used at most once.
+        candidates.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        Set<StatementLine> matchedLines = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<BlockEntry> matchedEntries = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<List<Object>> matchedLineKeys = new HashSet<>();
+        for (Candidate candidate : candidates) {
+            BlockEntry entry = candidate.entry();
+            if (matchedLines.contains(candidate.line()) || matchedEntries.contains(entry)
+                    || entry.onEdge() && !takenEdgeEntries.add(entry.entry().transactionId())) {
+                continue;
+            }
+            matchedLines.add(candidate.line());
+            matchedEntries.add(entry);
+            matchedLineKeys.add(duplicateKey(candidate.line()));
+            results.accept(new ReconciliationResult(Status.MATCHED_FUZZY, candidate.line(), entry.entry(),
+                    candidate.score()));
+        }
+
+        for (StatementLine line : lines) {
+            if (!matchedLines.contains(line)) {
+                Status status = matchedLineKeys.contains(duplicateKey(line))
+                        ? Status.DUPLICATE_IN_STATEMENT : Status.MISSING_IN_LEDGER;
+                results.accept(new ReconciliationResult(status, line, null, 0));
+            }
+        }
+        for (List<ScoredEntry> entries : ledger.values()) {
+            for (ScoredEntry scoredEntry : entries) {
+                BlockEntry blockEntry = scoredEntry.entry();
+                // An entry on a block edge is also seen by the neighbour; only the
+                // second round knows whether either side matched it.
+                boolean decided = round == 1 || !blockEntry.onEdge();
+                LedgerEntry entry = blockEntry.entry();
+                if (decided && !matchedEntries.contains(blockEntry)
+                        && !(blockEntry.onEdge() && takenEdgeEntries.contains(entry.transactionId()))
+                        && !entry.date().isBefore(firstDate) && !entry.date().isAfter(lastDate)) {
+                    // Entries from the widened margins were only loaded as candidates.
+                    results.accept(new ReconciliationResult(Status.MISSING_IN_STATEMENT, null, entry, 0));
+                }
+            }
+        }
+    }
+
+    /**
+     * Share of the name's letter bigrams that also occur in the narration, which
+     * tolerates reordered names, missing middle names and small misspellings.
+     */
+    static double nameScore(String name, String narration) {
+        return containment(bigrams(name), bigrams(narration), 0);
+    }
+
+    /**
+     * Merges the two sorted bigram arrays, giving up with 0 as soon as the
+     * name can no longer reach {@code minimum}.
+     */
+    private static double containment(int[] nameBigrams, int[] narrationBigrams, double minimum) {
+        if (nameBigrams.length == 0) {
+            return 0;
+        }
+        int allowedMisses = nameBigrams.length - (int) Math.ceil(minimum * nameBigrams.length);
+        int found = 0;
+        int i = 0;
+        for (int j = 0; i < nameBigrams.length && j < narrationBigrams.length; ) {
+            if (nameBigrams[i] == narrationBigrams[j]) {
+                found++;
+                i++;
+                j++;
+            } else if (nameBigrams[i] < narrationBigrams[j]) {
+                if (i++ - found >= allowedMisses) {
+                    return 0;
+                }
+            } else {
+                j++;
+            }
+        }
+        return (double) found / nameBigrams.length;
+    }
+
+    /**
+     * Distinct letter bigrams of the text's words, sorted, so two sets can be
+     * intersected with a single merge.
+     */
+    private static int[] bigrams(String text) {
+        if (text == null) {
+            return new int[0];
+        }
+        String letters = text.toLowerCase(Locale.ROOT).replaceAll("[^a-z]+", " ");
+        int[] bigrams = new int[letters.length()];
+        int count = 0;
+        for (int i = 0; i + 1 < letters.length(); i++) {
+            char first = letters.charAt(i);
+            char second = letters.charAt(i + 1);
+            if (first != ' ' && second != ' ') {
+                bigrams[count++] = first << 16 | second;
+            }
+        }
+        return Arrays.stream(bigrams, 0, count).sorted().distinct().toArray();
+    }
+
+    private static List<Object> duplicateKey(StatementLine line) {
+        return List.of(line.amount(), line.date(), Objects.requireNonNullElse(line.reference(), ""),
+                Objects.requireNonNullElse(line.description(), ""));
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        List<PartitionedSpill<?>> spills = new ArrayList<>(List.of(statementByReference, ledgerByReference));
+        spills.addAll(statementByBlock);
+        spills.addAll(ledgerByBlock);
+        for (PartitionedSpill<?> spill : spills) {
+            try {
+                spill.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        Files.deleteIfExists(directory);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * A ledger entry in the fuzzy pass. Entries within the date window of a
+     * block edge are on the edge and also copied into the neighbouring block.
+     */
+    private record BlockEntry(LedgerEntry entry, boolean onEdge) {
+        static final PartitionedSpill.Codec<BlockEntry> CODEC = new PartitionedSpill.Codec<>() {
+            @Override
+            public void write(DataOutputStream out, BlockEntry value) throws IOException {
+                out.writeBoolean(value.onEdge);
+                LedgerEntry.CODEC.write(out, value.entry);
+            }
+
+            @Override
+            public BlockEntry read(DataInputStream in) throws IOException {
+                boolean onEdge = in.readBoolean();
+                return new BlockEntry(LedgerEntry.CODEC.read(in), onEdge);
+            }
+        };
+    }
+
+    private record ScoredEntry(BlockEntry entry, int[] nameBigrams) {
+    }
+
+    private record AmountDay(long amount, long epochDay) {
+    }
+
+    private record Candidate(StatementLine line, BlockEntry entry, double score) {
+    }
+}
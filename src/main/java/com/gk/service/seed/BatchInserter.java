@@ -0,0 +1,42 @@
+package com.gk.service.seed;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffers rows of one INSERT statement and writes them as JDBC batches on
+ * {@link #flush()}. Rows are held until then, so callers control the order in
+ * which tables reach the database. Not thread-safe.
+ */
+final class BatchInserter {
+    private final JdbcTemplate jdbcTemplate;
+    private final String sql;
+    private final int batchSize;
+    private final List<Object[]> rows = new ArrayList<>();
+    private long written;
+
+    BatchInserter(JdbcTemplate jdbcTemplate, String table, String columns, int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sql = "INSERT INTO " + table + " (" + columns + ") VALUES ("
+                + "?, ".repeat(columns.split(",").length - 1) + "?)";
+        this.batchSize = batchSize;
+    }
+
+    void add(Object... row) {
+        rows.add(row);
+    }
+
+    void flush() {
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + batchSize, rows.size())));
+        }
+        written += rows.size();
+        rows.clear();
+    }
+
+    long written() {
+        return written;
+    }
+}
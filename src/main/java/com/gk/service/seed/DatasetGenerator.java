@@ -0,0 +1,542 @@
+package com.gk.service.seed;
+
+import com.gk.dto.AttendanceStatus;
+import com.gk.model.EventType;
+import com.gk.model.SubjectMark;
+import com.gk.repository.IdBlockAllocator;
+import com.gk.service.TransactionIdGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates a synthetic school: staff and parent accounts, courses with
+ * schedules and installments, and students with marks, daily attendance, fee
+ * payments, enrollments and events. Everything is written with batched JDBC
+ * inserts and ids reserved up front from {@link IdBlockAllocator}.
+ * <p>
+ * Each student draws from its own random stream derived from the seed and its
+ * index, so the output does not depend on chunking or parallelism. The data is
+ * skewed the way real schools are: a few courses attract most enrollments,
+ * ability and attendance vary per student, and some families pay late, in
+ * part or not at all.
+ */
+@Service
+public class DatasetGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(DatasetGenerator.class);
+
+    private static final String[] FIRST_NAMES = {"Aarav", "Vivaan", "Aditya", "Vihaan", "Arjun", "Sai", "Reyansh",
+            "Krishna", "Ishaan", "Rohan", "Kabir", "Ananya", "Diya", "Aadhya", "Saanvi", "Pari", "Myra", "Isha",
+            "Kavya", "Meera", "Priya", "Sneha", "Nisha", "Pooja", "Rahul", "Karan", "Dev", "Nikhil", "Tara", "Zara"};
+    private static final String[] LAST_NAMES = {"Sharma", "Verma", "Gupta", "Kumar", "Singh", "Patel", "Reddy",
+            "Iyer", "Nair", "Menon", "Das", "Joshi", "Mehta", "Shah", "Rao", "Pillai", "Chopra", "Malhotra",
+            "Banerjee", "Mukherjee", "Khan", "Fernandes", "Thomas", "Bhat"};
+    private static final String[] SUBJECTS = {"Mathematics", "Science", "English", "Social Studies", "Computer Science"};
+    private static final double[] SUBJECT_BIAS = {-4, -1, 3, 2, 1};
+    private static final String[][] DEPARTMENTS = {{"MTH", "Mathematics"}, {"PHY", "Physics"}, {"CHE", "Chemistry"},
+            {"BIO", "Biology"}, {"ENG", "English"}, {"HIS", "History"}, {"CS", "Computer Science"},
+            {"ART", "Fine Arts"}, {"MUS", "Music"}, {"PE", "Physical Education"}};
+    private static final String[] OCCUPATIONS = {"Engineer", "Teacher", "Doctor", "Business Owner", "Accountant",
+            "Farmer", "Government Employee", "Nurse", "Lawyer", "Driver", "Homemaker", "Shopkeeper"};
+    private static final String[] BLOOD_GROUPS = {"O+", "B+", "A+", "AB+", "O-", "B-", "A-", "AB-"};
+    private static final double[] BLOOD_GROUP_WEIGHTS = {37, 32, 22, 7, 1, 0.5, 0.4, 0.1};
+    private static final String[] CITIES = {"Mumbai", "Delhi", "Bengaluru", "Chennai", "Pune", "Hyderabad", "Kochi"};
+    private static final String[] DAYS = {"MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY", "SATURDAY"};
+    private static final EventType[] EVENT_TYPES = {EventType.EXAM, EventType.ASSIGNMENT, EventType.MEETING,
+            EventType.ACTIVITY, EventType.OTHER};
+    private static final double[] EVENT_TYPE_WEIGHTS = {35, 30, 10, 20, 5};
+    private static final double COURSE_POPULARITY_EXPONENT = 1.1;
+    private static final long SEEDED_TRANSACTION_BIT = 1L << 62;
+
+    private static final long COURSE_STREAM = 1;
+    private static final long STAFF_STREAM = 2;
+    private static final long FAMILY_STREAM = 3;
+    private static final long STUDENT_STREAM = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdBlockAllocator idBlockAllocator;
+    private final PasswordEncoder passwordEncoder;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public DatasetGenerator(JdbcTemplate jdbcTemplate, IdBlockAllocator idBlockAllocator,
+                            PasswordEncoder passwordEncoder, PlatformTransactionManager transactionManager,
+                            @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                            EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idBlockAllocator = idBlockAllocator;
+        this.passwordEncoder = passwordEncoder;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskExecutor = taskExecutor;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public record SeedReport(Map<String, Long> rows, long elapsedMillis) {
+        public long totalRows() {
+            return rows.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long rowsPerSecond() {
+            return elapsedMillis == 0 ? totalRows() : totalRows() * 1000 / elapsedMillis;
+        }
+    }
+
+    public SeedReport generate(SeedOptions options) {
+        Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM students", Long.class);
+        if (existing != null && existing > 0) {
+            throw new RuntimeException("Refusing to seed: the database already holds " + existing + " students");
+        }
+        long start = System.currentTimeMillis();
+        Dataset dataset = new Dataset(options);
+        Map<String, LongAdder> rows = new ConcurrentHashMap<>();
+
+        Writer writer = new Writer(options.batchSize());
+        transactionTemplate.executeWithoutResult(status -> {
+            writeStaff(dataset, writer);
+            writeCourses(dataset, writer);
+            writer.flush(rows);
+        });
+        logger.info("Seeding {} students in chunks of {} on {} workers (seed {})",
+                options.students(), options.chunkSize(), options.parallelism(), options.seed());
+
+        AtomicInteger nextChunk = new AtomicInteger();
+        int chunks = (options.students() + options.chunkSize() - 1) / options.chunkSize();
+        int workers = Math.min(options.parallelism(), chunks);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> {
+                Writer chunkWriter = new Writer(options.batchSize());
+                int chunk;
+                while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+                    int from = chunk * options.chunkSize();
+                    int to = Math.min(from + options.chunkSize(), options.students());
+                    transactionTemplate.executeWithoutResult(status -> {
+                        for (int student = from; student < to; student++) {
+                            writeStudent(dataset, student, chunkWriter);
+                        }
+                        chunkWriter.flush(rows);
+                    });
+                    logger.debug("Seeded students {}-{}", from, to - 1);
+                }
+            }, taskExecutor);
+        }
+        CompletableFuture.allOf(futures).join();
+        // The rows bypassed Hibernate, so nothing cached before the run can be trusted
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+
+        Map<String, Long> counts = new TreeMap<>();
+        rows.forEach((table, count) -> counts.put(table, count.sum()));
+        SeedReport report = new SeedReport(counts, System.currentTimeMillis() - start);
+        logger.info("Seeded {} rows in {} ms ({} rows/s): {}",
+                report.totalRows(), report.elapsedMillis(), report.rowsPerSecond(), counts);
+        return report;
+    }
+
+    /** Ids, calendar and shared choices that every chunk derives its rows from. */
+    private final class Dataset {
+        final SeedOptions options;
+        final List<LocalDate> schoolDays;
+        final LocalDate[] termStarts;
+        final String encodedPassword;
+        final int teachers;
+        final int accountants;
+        final long firstCourse;
+        final long firstUser;
+        final long firstParentUser;
+        final long firstStudent;
+        final long firstAttendanceRecord;
+        final long firstAttendance;
+        final long firstEvent;
+        final double[] courseFees;
+        final double[] coursePopularity;
+        final String[] teacherNames;
+
+        Dataset(SeedOptions options) {
+            this.options = options;
+            int students = options.students();
+            this.schoolDays = schoolDays(options.endDate(), options.attendanceDays());
+            LocalDate yearStart = options.endDate().minusMonths(10).withDayOfMonth(1);
+            this.termStarts = new LocalDate[options.terms()];
+            for (int term = 0; term < options.terms(); term++) {
+                termStarts[term] = yearStart.plusMonths(10L * term / options.terms());
+            }
+            this.encodedPassword = passwordEncoder.encode(options.password());
+            this.teachers = Math.max(5, students / 25);
+            this.accountants = Math.max(2, students / 2000);
+            int staff = 2 + teachers + accountants;
+
+            this.firstCourse = idBlockAllocator.reserve("courses", options.courses());
+            this.firstUser = idBlockAllocator.reserve("users", staff + parentOf(students - 1) + 1);
+            this.firstParentUser = firstUser + staff;
+            this.firstStudent = idBlockAllocator.reserve("students", students);
+            long attendanceRows = (long) students * schoolDays.size();
+            this.firstAttendanceRecord = reserve("attendance_records", attendanceRows);
+            this.firstAttendance = reserve("attendance", attendanceRows);
+            this.firstEvent = reserve("student_event", (long) students * options.eventsPerStudent());
+
+            SplittableRandom random = random(options.seed(), COURSE_STREAM, 0);
+            this.teacherNames = new String[teachers];
+            SplittableRandom staffRandom = random(options.seed(), STAFF_STREAM, 0);
+            for (int i = 0; i < teachers; i++) {
+                teacherNames[i] = pick(staffRandom, FIRST_NAMES) + " " + pick(staffRandom, LAST_NAMES);
+            }
+            this.courseFees = new double[options.courses()];
+            this.coursePopularity = new double[options.courses()];
+            double total = 0;
+            int[] rank = shuffledIndexes(random, options.courses());
+            for (int course = 0; course < options.courses(); course++) {
+                courseFees[course] = 300 + 50 * random.nextInt(35);
+                total += 1 / Math.pow(rank[course] + 1, COURSE_POPULARITY_EXPONENT);
+                coursePopularity[course] = total;
+            }
+        }
+
+        /** Students 4k+2 and 4k+3 are siblings, so a quarter of families have two children. */
+        int parentOf(int student) {
+            return student - (student + 1) / 4;
+        }
+
+        private long reserve(String table, long size) {
+            return size == 0 ? 0 : idBlockAllocator.reserve(table, Math.toIntExact(size));
+        }
+    }
+
+    /** Buffered inserts for every table, flushed parents first so foreign keys hold. */
+    private final class Writer {
+        final BatchInserter users;
+        final BatchInserter userRoles;
+        final BatchInserter courses;
+        final BatchInserter courseSchedules;
+        final BatchInserter courseInstallments;
+        final BatchInserter students;
+        final BatchInserter marks;
+        final BatchInserter attendanceRecords;
+        final BatchInserter attendance;
+        final BatchInserter fees;
+        final BatchInserter enrollments;
+        final BatchInserter events;
+        final Map<String, BatchInserter> inOrder = new LinkedHashMap<>();
+
+        Writer(int batchSize) {
+            users = table("users", "id, username, password, email, enabled, first_name, last_name, phone_number, "
+                    + "account_non_expired, account_non_locked, credentials_non_expired, failed_attempt_count, "
+                    + "created_at, updated_at", batchSize);
+            userRoles = table("user_roles", "user_id, role", batchSize);
+            courses = table("courses", "id, name, code, description, credits, fee, start_date, end_date, "
+                    + "max_students, department, is_active", batchSize);
+            courseSchedules = table("course_schedules", "course_id, day, start_time, end_time, room, instructor, "
+                    + "day_of_week, session_type, is_recurring", batchSize);
+            courseInstallments = table("course_fee_installments", "course_id, label, due_date, percentage", batchSize);
+            students = table("students", "id, name, age, email, phone_number, grade, attendance, address, "
+                    + "date_of_birth, parent_email, parent_phone, blood_group, emergency_contact, admission_date, "
+                    + "registration_number, section, roll_number, parent_name, parent_occupation, annual_income, "
+                    + "attendance_percentage, last_modified_date", batchSize);
+            marks = table("student_marks", "student_id, subject, marks, grade, date, term, exam_type, "
+                    + "is_published, teacher_name, recorded_at", batchSize);
+            attendanceRecords = table("attendance_records", "id, student_id, date, status, marked_by, marked_at",
+                    batchSize);
+            attendance = table("attendance", "id, student_id, date, present, marked_by", batchSize);
+            fees = table("student_fees", "student_id, fee_type, amount, paid_date, status, transaction_id, remarks, "
+                    + "recorded_at", batchSize);
+            enrollments = table("student_courses", "student_id, course_id", batchSize);
+            events = table("student_event", "id, title, start, description, type, status, student_id, location, "
+                    + "duration_minutes, reminder_sent, created_at, modified_at, created_by", batchSize);
+        }
+
+        private BatchInserter table(String table, String columns, int batchSize) {
+            BatchInserter inserter = new BatchInserter(jdbcTemplate, table, columns, batchSize);
+            inOrder.put(table, inserter);
+            return inserter;
+        }
+
+        void flush(Map<String, LongAdder> rows) {
+            inOrder.forEach((table, inserter) -> {
+                long before = inserter.written();
+                inserter.flush();
+                if (inserter.written() > before) {
+                    rows.computeIfAbsent(table, name -> new LongAdder()).add(inserter.written() - before);
+                }
+            });
+        }
+    }
+
+    private void writeStaff(Dataset dataset, Writer writer) {
+        SplittableRandom random = random(dataset.options.seed(), STAFF_STREAM, 1);
+        Timestamp created = Timestamp.valueOf(dataset.options.endDate().minusYears(1).atStartOfDay());
+        long id = dataset.firstUser;
+        for (int i = 0; i < 2; i++) {
+            addUser(writer, id++, "seedadmin" + (i + 1), dataset, "System", "Administrator " + (i + 1),
+                    phone(random), created, "ADMIN");
+        }
+        for (int i = 0; i < dataset.teachers; i++) {
+            String[] name = dataset.teacherNames[i].split(" ");
+            addUser(writer, id++, String.format("teacher%04d", i + 1), dataset, name[0], name[1], phone(random),
+                    created, "TEACHER");
+        }
+        for (int i = 0; i < dataset.accountants; i++) {
+            addUser(writer, id++, String.format("accountant%03d", i + 1), dataset, pick(random, FIRST_NAMES),
+                    pick(random, LAST_NAMES), phone(random), created, "ACCOUNTANT");
+        }
+    }
+
+    private void writeCourses(Dataset dataset, Writer writer) {
+        SplittableRandom random = random(dataset.options.seed(), COURSE_STREAM, 1);
+        LocalDate yearStart = dataset.termStarts[0];
+        int terms = dataset.options.terms();
+        for (int course = 0; course < dataset.options.courses(); course++) {
+            long id = dataset.firstCourse + course;
+            String[] department = DEPARTMENTS[course % DEPARTMENTS.length];
+            int level = 100 + 100 * (course / DEPARTMENTS.length % 4) + course / (DEPARTMENTS.length * 4);
+            writer.courses.add(id, department[1] + " " + level, department[0] + level,
+                    "Synthetic " + department[1].toLowerCase(Locale.ROOT) + " course", 1 + random.nextInt(6),
+                    dataset.courseFees[course], Date.valueOf(yearStart), Date.valueOf(yearStart.plusMonths(10)),
+                    dataset.options.students(), department[1], random.nextInt(20) != 0);
+            int sessions = 2 + random.nextInt(2);
+            String instructor = dataset.teacherNames[random.nextInt(dataset.teachers)];
+            for (int session = 0; session < sessions; session++) {
+                int hour = 8 + random.nextInt(8);
+                String day = DAYS[random.nextInt(DAYS.length)];
+                writer.courseSchedules.add(id, day, String.format("%02d:00", hour), String.format("%02d:50", hour),
+                        (char) ('A' + random.nextInt(4)) + String.valueOf(100 + random.nextInt(300)), instructor,
+                        day, session == 0 ? "LECTURE" : "LAB", true);
+            }
+            double share = Math.floor(10000.0 / terms) / 100;
+            for (int term = 0; term < terms; term++) {
+                writer.courseInstallments.add(id, "Term " + (term + 1), Date.valueOf(dataset.termStarts[term]),
+                        term == terms - 1 ? 100 - share * (terms - 1) : share);
+            }
+        }
+    }
+
+    private void writeStudent(Dataset dataset, int index, Writer writer) {
+        SeedOptions options = dataset.options;
+        SplittableRandom random = random(options.seed(), STUDENT_STREAM, index);
+        long id = dataset.firstStudent + index;
+        LocalDate endDate = options.endDate();
+        Timestamp now = Timestamp.valueOf(endDate.atTime(18, 0));
+
+        int family = dataset.parentOf(index);
+        SplittableRandom familyRandom = random(options.seed(), FAMILY_STREAM, family);
+        String parentFirstName = pick(familyRandom, FIRST_NAMES);
+        String lastName = pick(familyRandom, LAST_NAMES);
+        String parentPhone = phone(familyRandom);
+        String parentEmail = "parent" + family + "@families.example.com";
+        String occupation = pick(familyRandom, OCCUPATIONS);
+        double income = Math.round(Math.exp(13 + 0.6 * familyRandom.nextGaussian()));
+        String city = pick(familyRandom, CITIES);
+        if (index == 0 || dataset.parentOf(index - 1) != family) {
+            addUser(writer, dataset.firstParentUser + family, "parent" + family, dataset, parentFirstName, lastName,
+                    parentPhone, now, "PARENT", parentEmail);
+        }
+
+        String name = pick(random, FIRST_NAMES) + " " + lastName;
+        int grade = 1 + random.nextInt(12);
+        int age = grade + 5 + random.nextInt(2);
+        double ability = clamp(70 + 12 * random.nextGaussian(), 20, 99);
+        // Most students attend reliably; a long tail misses weeks at a time
+        double attendanceRate = random.nextInt(100) < 85 ? 0.88 + 0.11 * random.nextDouble()
+                : 0.55 + 0.3 * random.nextDouble();
+
+        int present = 0;
+        long attendanceId = (long) index * dataset.schoolDays.size();
+        for (LocalDate day : dataset.schoolDays) {
+            AttendanceStatus status;
+            if (random.nextDouble() < attendanceRate) {
+                status = random.nextInt(100) < 6 ? AttendanceStatus.LATE : AttendanceStatus.PRESENT;
+                present++;
+            } else {
+                status = random.nextInt(100) < 25 ? AttendanceStatus.EXCUSED : AttendanceStatus.ABSENT;
+            }
+            Date date = Date.valueOf(day);
+            writer.attendanceRecords.add(dataset.firstAttendanceRecord + attendanceId, id, date, status.name(),
+                    "System", Timestamp.valueOf(day.atTime(9, random.nextInt(30))));
+            writer.attendance.add(dataset.firstAttendance + attendanceId, id, date, status != AttendanceStatus.ABSENT
+                    && status != AttendanceStatus.EXCUSED, "System");
+            attendanceId++;
+        }
+        double attendancePercentage = dataset.schoolDays.isEmpty() ? 0
+                : Math.round(present * 10000.0 / dataset.schoolDays.size()) / 100.0;
+
+        LocalDate admission = LocalDate.of(endDate.getYear() - random.nextInt(grade), 6, 1);
+        writer.students.add(id, name, age, name.toLowerCase(Locale.ROOT).replace(' ', '.') + id + "@students.example.com",
+                phone(random), "Grade " + grade, attendancePercentage,
+                (1 + random.nextInt(200)) + " " + pick(random, LAST_NAMES) + " Road, " + city,
+                Date.valueOf(endDate.minusYears(age).minusDays(random.nextInt(365))), parentEmail, parentPhone,
+                BLOOD_GROUPS[weighted(random, BLOOD_GROUP_WEIGHTS)], parentPhone, Date.valueOf(admission),
+                String.format("REG%08d", id), String.valueOf((char) ('A' + random.nextInt(4))),
+                String.valueOf(1 + index % 40), parentFirstName + " " + lastName, occupation, income,
+                attendancePercentage, now);
+
+        for (int term = 0; term < options.terms(); term++) {
+            LocalDate examDate = dataset.termStarts[term].plusDays(70);
+            if (examDate.isAfter(endDate)) {
+                break;
+            }
+            for (int subject = 0; subject < SUBJECTS.length; subject++) {
+                SubjectMark mark = new SubjectMark();
+                mark.setMarks(Math.round(clamp(ability + SUBJECT_BIAS[subject] + 8 * random.nextGaussian(), 0, 100)
+                        * 10) / 10.0);
+                writer.marks.add(id, SUBJECTS[subject], mark.getMarks(), mark.getGrade(), Date.valueOf(examDate),
+                        "Term " + (term + 1), "FINAL", true, dataset.teacherNames[random.nextInt(dataset.teachers)],
+                        Timestamp.valueOf(examDate.atTime(18, 0)));
+            }
+        }
+
+        int courses = Math.min(options.courses(), 3 + random.nextInt(4));
+        Set<Integer> enrolled = new LinkedHashSet<>();
+        while (enrolled.size() < courses) {
+            enrolled.add(cumulative(random, dataset.coursePopularity));
+        }
+        double totalFees = 0;
+        for (int course : enrolled) {
+            writer.enrollments.add(id, dataset.firstCourse + course);
+            totalFees += dataset.courseFees[course];
+        }
+
+        writeFees(dataset, random, id, totalFees, writer);
+
+        for (int event = 0; event < options.eventsPerStudent(); event++) {
+            EventType type = EVENT_TYPES[weighted(random, EVENT_TYPE_WEIGHTS)];
+            LocalDateTime start = endDate.plusDays(random.nextInt(121) - 60).atTime(9 + random.nextInt(8), 0);
+            writer.events.add(dataset.firstEvent + (long) index * options.eventsPerStudent() + event,
+                    type.getDisplayName() + ": " + SUBJECTS[random.nextInt(SUBJECTS.length)],
+                    Timestamp.valueOf(start), type.getDescription(), type.name(),
+                    start.toLocalDate().isAfter(endDate) ? "SCHEDULED" : "COMPLETED", id,
+                    "Room " + (100 + random.nextInt(300)), type.getDefaultDurationMinutes(), false, now, now,
+                    "seed");
+        }
+    }
+
+    /**
+     * Seven in ten families pay each term on time, two pay part of it late and
+     * one has paid nothing yet. Some also pay library or transport fees.
+     */
+    private void writeFees(Dataset dataset, SplittableRandom random, long studentId, double totalFees,
+                           Writer writer) {
+        int behaviour = random.nextInt(10);
+        int payment = 0;
+        for (int term = 0; term < dataset.termStarts.length && behaviour < 9; term++) {
+            LocalDate due = dataset.termStarts[term];
+            if (due.isAfter(dataset.options.endDate())) {
+                break;
+            }
+            double amount = totalFees / dataset.termStarts.length;
+            int delay = (int) Math.min(60, -Math.log(1 - random.nextDouble()) * (behaviour < 7 ? 5 : 25));
+            if (behaviour >= 7) {
+                amount *= 0.3 + 0.6 * random.nextDouble();
+            }
+            LocalDate paid = due.plusDays(delay);
+            if (!paid.isAfter(dataset.options.endDate())) {
+                addFee(writer, studentId, payment++, "TUITION", Math.round(amount * 100) / 100.0, paid, random);
+            }
+        }
+        if (random.nextInt(100) < 30) {
+            addFee(writer, studentId, payment++, "LIBRARY", 50.0, dataset.termStarts[0].plusDays(random.nextInt(30)),
+                    random);
+        }
+        if (random.nextInt(100) < 20) {
+            addFee(writer, studentId, payment, "TRANSPORT", 400.0, dataset.termStarts[0].plusDays(random.nextInt(30)),
+                    random);
+        }
+    }
+
+    private static void addFee(Writer writer, long studentId, int payment, String type, double amount,
+                               LocalDate date, SplittableRandom random) {
+        Timestamp paid = Timestamp.valueOf(date.atTime(10 + random.nextInt(7), 0));
+        writer.fees.add(studentId, type, amount, paid, "PAID",
+                TransactionIdGenerator.encode(SEEDED_TRANSACTION_BIT | studentId << 8 | payment), null, paid);
+    }
+
+    private void addUser(Writer writer, long id, String username, Dataset dataset, String firstName, String lastName,
+                         String phone, Timestamp created, String role) {
+        addUser(writer, id, username, dataset, firstName, lastName, phone, created, role,
+                username + "@staff.example.com");
+    }
+
+    private void addUser(Writer writer, long id, String username, Dataset dataset, String firstName, String lastName,
+                         String phone, Timestamp created, String role, String email) {
+        writer.users.add(id, username, dataset.encodedPassword, email, true, firstName, lastName, phone, true, true,
+                true, 0, created, created);
+        writer.userRoles.add(id, role);
+    }
+
+    private static List<LocalDate> schoolDays(LocalDate endDate, int count) {
+        List<LocalDate> days = new ArrayList<>(count);
+        for (LocalDate day = endDate; days.size() < count; day = day.minusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                days.add(day);
+            }
+        }
+        Collections.reverse(days);
+        return days;
+    }
+
+    private static SplittableRandom random(long seed, long stream, long index) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + stream * 0xBF58476D1CE4E5B9L + index);
+    }
+
+    private static int[] shuffledIndexes(SplittableRandom random, int size) {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = swap;
+        }
+        return indexes;
+    }
+
+    /** Index drawn in proportion to {@code weights}. */
+    private static int weighted(SplittableRandom random, double[] weights) {
+        double target = random.nextDouble() * Arrays.stream(weights).sum();
+        for (int i = 0; i < weights.length - 1; i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    /** Index drawn in proportion to the steps of an ascending cumulative weight array. */
+    private static int cumulative(SplittableRandom random, double[] cumulativeWeights) {
+        int found = Arrays.binarySearch(cumulativeWeights,
+                random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1]);
+        return Math.min(found >= 0 ? found + 1 : -found - 1, cumulativeWeights.length - 1);
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String phone(SplittableRandom random) {
+        return (7 + random.nextInt(3)) + String.format("%09d", random.nextInt(1_000_000_000));
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
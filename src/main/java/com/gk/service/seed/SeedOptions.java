@@ -0,0 +1,29 @@
+package com.gk.service.seed;
+
+import java.time.LocalDate;
+
+/**
+ * Size and shape of a generated dataset. The same options, including
+ * {@code seed} and {@code endDate}, always produce the same rows.
+ *
+ * @param attendanceDays school days of attendance history ending at {@code endDate}
+ * @param parallelism    chunks of students generated and written concurrently
+ */
+public record SeedOptions(int students, int courses, int terms, int attendanceDays, int eventsPerStudent,
+                          long seed, LocalDate endDate, int batchSize, int chunkSize, int parallelism,
+                          String password) {
+
+    public SeedOptions {
+        if (students < 1 || courses < 1 || terms < 1 || attendanceDays < 0 || eventsPerStudent < 0) {
+            throw new IllegalArgumentException("Dataset sizes must be positive");
+        }
+        if (batchSize < 1 || chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Batch size, chunk size and parallelism must be positive");
+        }
+    }
+
+    public static SeedOptions of(int students, long seed) {
+        return new SeedOptions(students, Math.max(10, Math.min(200, students / 50)), 2, 60, 3, seed,
+                LocalDate.now(), 1000, 1000, 4, "password");
+    }
+}
@@ -0,0 +1,18 @@
+package com.gk.service.singleflight;
+
+import java.lang.annotation.*;
+
+/**
+ * Lets concurrent calls of the annotated method with equal arguments share one
+ * execution: the first caller runs it and the others wait for its result, or
+ * its exception. Nothing is kept once the call returns, so this is not a
+ * cache; it only stops a burst of identical calls from each computing the
+ * same thing. Callers get the same result instance and must not modify it.
+ * A failure caused by interrupting the running caller is not shared; another
+ * waiting caller runs the method instead.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SingleFlight {
+}
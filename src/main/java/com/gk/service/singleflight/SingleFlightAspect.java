@@ -0,0 +1,125 @@
+package com.gk.service.singleflight;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Implements {@link SingleFlight}. It runs before the transaction interceptor,
+ * so waiting callers hold no connection. Callers that were answered with
+ * another caller's result are counted as {@value #METRIC}, tagged with the
+ * method.
+ * <p>
+ * A leader that fails because its own thread was interrupted, as when a page
+ * gives up on a widget and cancels it, does not pass that failure on: the
+ * waiting callers asked for no cancellation, so one of them runs the call
+ * again as the new leader.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SingleFlightAspect {
+    static final String METRIC = "app.singleflight.collapsed";
+
+    private record Key(Method method, List<Object> args) {
+    }
+
+    // Completes a call whose leader was interrupted: run it again
+    private static final Object ABANDONED = new Object();
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Method, Counter> collapsed = new ConcurrentHashMap<>();
+
+    public SingleFlightAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("@annotation(com.gk.service.singleflight.SingleFlight)")
+    public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Key key = new Key(method, Arrays.asList(joinPoint.getArgs()));
+        boolean counted = false;
+        while (true) {
+            CompletableFuture<Object> call = new CompletableFuture<>();
+            CompletableFuture<Object> leader = inFlight.putIfAbsent(key, call);
+            if (leader == null) {
+                return lead(joinPoint, key, call);
+            }
+            if (!counted) {
+                collapsed.computeIfAbsent(method, this::register).increment();
+                counted = true;
+            }
+            Object result;
+            try {
+                result = leader.get();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+            if (result != ABANDONED) {
+                return result;
+            }
+        }
+    }
+
+    private Object lead(ProceedingJoinPoint joinPoint, Key key, CompletableFuture<Object> call) throws Throwable {
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            // Removed first, so a waiter told to run again finds the slot free
+            inFlight.remove(key, call);
+            if (interrupted(e)) {
+                call.complete(ABANDONED);
+            } else {
+                call.completeExceptionally(e);
+            }
+            throw e;
+        }
+        inFlight.remove(key, call);
+        call.complete(result);
+        return result;
+    }
+
+    /**
+     * Whether the failure came from interrupting this thread. A virtual thread
+     * interrupted in a socket read gets its connection closed and the driver
+     * reports that, so the thread's interrupt status is the usual sign.
+     */
+    private static boolean interrupted(Throwable failure) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause instanceof InterruptedIOException
+                    || cause instanceof ClosedByInterruptException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Counter register(Method method) {
+        return Counter.builder(METRIC)
+                .description("Calls answered with the result of an identical call already in flight")
+                .tag("class", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,183 @@
+package com.gk.service.sync;
+
+import com.gk.dto.ChangeFeed;
+import com.gk.dto.ChangeFeed.Change;
+import com.gk.repository.ChangeFeedRepository;
+import com.gk.repository.ChangeFeedRepository.Position;
+import com.gk.repository.ChangeFeedRepository.Source;
+import com.gk.repository.ChangeFeedRepository.Tombstone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Changes to students, marks, attendance, payments and events since a
+ * client's cursor, so tablets and the parent app download what changed
+ * instead of everything. Each source is paged on its own modification
+ * timestamp; the cursor records how far the client has read each one.
+ * <p>
+ * Rows are stamped when they are written but only visible once their
+ * transaction commits, so the feed stops {@code app.sync.settle-ms} short of
+ * now: a transaction that takes longer than that to commit could have its
+ * changes skipped. Reads go to the primary for the same reason; a lagging
+ * replica would hide rows the cursor then moves past.
+ */
+@Service
+public class ChangeFeedService {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeedService.class);
+    private static final String UPSERT = "upsert";
+    private static final String DELETE = "delete";
+
+    private final ChangeFeedRepository changeFeedRepository;
+    private final Duration settle;
+    private final int maxPageSize;
+    private final Duration tombstoneRetention;
+
+    public ChangeFeedService(ChangeFeedRepository changeFeedRepository,
+                             @Value("${app.sync.settle-ms:2000}") long settleMillis,
+                             @Value("${app.sync.max-page-size:2000}") int maxPageSize,
+                             @Value("${app.sync.tombstone-retention-days:30}") int tombstoneRetentionDays) {
+        this.changeFeedRepository = changeFeedRepository;
+        this.settle = Duration.ofMillis(settleMillis);
+        this.maxPageSize = maxPageSize;
+        this.tombstoneRetention = Duration.ofDays(tombstoneRetentionDays);
+    }
+
+    private record Entry(Source source, Position position) {
+    }
+
+    /**
+     * Up to {@code limit} changes after {@code cursor}, oldest first, to the
+     * given students or, when {@code studentIds} is null, to everyone.
+     *
+     * @throws IllegalArgumentException if the cursor was not issued by this feed
+     */
+    public ChangeFeed getChanges(String cursor, int limit, Collection<Long> studentIds) {
+        SyncCursor from = SyncCursor.decode(cursor);
+        Instant upTo = Instant.now().minus(settle);
+        long tombstonesSeen = from.position(Source.TOMBSTONE).millis();
+        if (tombstonesSeen > 0 && tombstonesSeen < upTo.minus(tombstoneRetention).toEpochMilli()) {
+            // Deletions the client has not seen may have been purged
+            return new ChangeFeed(List.of(), null, false, true);
+        }
+        if (studentIds != null && studentIds.isEmpty()) {
+            return new ChangeFeed(List.of(), from.encode(), false, false);
+        }
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+
+        Map<Source, List<Position>> fetched = new EnumMap<>(Source.class);
+        List<Entry> entries = new ArrayList<>();
+        for (Source source : Source.values()) {
+            List<Position> positions = changeFeedRepository.findChanges(source, from.position(source), upTo,
+                    studentIds, pageSize + 1);
+            fetched.put(source, positions);
+            positions.forEach(position -> entries.add(new Entry(source, position)));
+        }
+        entries.sort(Comparator.comparing(Entry::position).thenComparing(Entry::source));
+        List<Entry> page = entries.subList(0, Math.min(pageSize, entries.size()));
+
+        Map<Source, Position> next = new EnumMap<>(Source.class);
+        Map<Source, Integer> taken = new EnumMap<>(Source.class);
+        for (Entry entry : page) {
+            next.put(entry.source(), entry.position());
+            taken.merge(entry.source(), 1, Integer::sum);
+        }
+        boolean hasMore = false;
+        Position caughtUp = new Position(upTo.toEpochMilli(), Long.MAX_VALUE);
+        for (Source source : Source.values()) {
+            int rows = fetched.get(source).size();
+            if (rows <= pageSize && taken.getOrDefault(source, 0) == rows) {
+                // Everything up to upTo has been read; another instance's clock may be ahead of this one's
+                Position previous = from.position(source);
+                next.put(source, previous.compareTo(caughtUp) > 0 ? previous : caughtUp);
+            } else {
+                next.putIfAbsent(source, from.position(source));
+                hasMore = true;
+            }
+        }
+        return new ChangeFeed(load(page), new SyncCursor(next).encode(), hasMore, false);
+    }
+
+    /** The students a parent may sync: their own children. */
+    public List<Long> getChildrenOf(String username) {
+        return changeFeedRepository.findChildrenOf(username);
+    }
+
+    private List<Change> load(List<Entry> page) {
+        Map<Source, Set<Long>> keys = new EnumMap<>(Source.class);
+        for (Entry entry : page) {
+            keys.computeIfAbsent(entry.source(), source -> new LinkedHashSet<>()).add(entry.position().key());
+        }
+        Map<Long, Map<String, Object>> students = changeFeedRepository.findStudents(keys(keys, Source.STUDENT));
+        Map<Long, Map<String, Object>> events = changeFeedRepository.findEvents(keys(keys, Source.EVENT));
+        Map<Long, Map<String, Object>> attendance = changeFeedRepository.findAttendance(keys(keys, Source.ATTENDANCE));
+        Map<Long, List<Map<String, Object>>> marks = changeFeedRepository.findMarks(keys(keys, Source.MARKS));
+        Map<Long, List<Map<String, Object>>> payments = changeFeedRepository.findPayments(keys(keys, Source.PAYMENTS));
+        Map<Long, Tombstone> tombstones = changeFeedRepository.findTombstones(keys(keys, Source.TOMBSTONE));
+
+        List<Change> changes = new ArrayList<>(page.size());
+        for (Entry entry : page) {
+            Source source = entry.source();
+            long key = entry.position().key();
+            // A student with marks entered at different times gets one list
+            if (!keys.get(source).remove(key)) {
+                continue;
+            }
+            Change change = switch (source) {
+                // Rows deleted since they were listed are left to their tombstones
+                case STUDENT -> students.containsKey(key)
+                        ? new Change(source.type(), UPSERT, key, null, students.get(key)) : null;
+                case EVENT -> upsert(source, key, events.get(key));
+                case ATTENDANCE -> upsert(source, key, attendance.get(key));
+                case MARKS -> new Change(source.type(), UPSERT, null, key, marks.getOrDefault(key, List.of()));
+                case PAYMENTS -> new Change(source.type(), UPSERT, null, key, payments.getOrDefault(key, List.of()));
+                case TOMBSTONE -> {
+                    Tombstone tombstone = tombstones.get(key);
+                    yield tombstone == null ? null
+                            : new Change(tombstone.entity(), DELETE, tombstone.entityId(), tombstone.studentId(), null);
+                }
+            };
+            if (change != null) {
+                changes.add(change);
+            }
+        }
+        return changes;
+    }
+
+    private static Change upsert(Source source, long id, Map<String, Object> row) {
+        if (row == null) {
+            return null;
+        }
+        Long studentId = ((Number) row.remove("studentId")).longValue();
+        return new Change(source.type(), UPSERT, id, studentId, row);
+    }
+
+    private static Set<Long> keys(Map<Source, Set<Long>> keys, Source source) {
+        return keys.getOrDefault(source, Set.of());
+    }
+
+    @Scheduled(cron = "${app.sync.tombstone-purge-cron:0 20 0 * * *}")
+    public void purgeTombstones() {
+        int purged = changeFeedRepository.deleteTombstonesBefore(Instant.now().minus(tombstoneRetention));
+        if (purged > 0) {
+            logger.info("Purged {} sync tombstones older than {} days", purged, tombstoneRetention.toDays());
+        }
+    }
+
+    /** Gives rows written before the feed existed a timestamp, so a first sync returns them. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillTimestamps() {
+        int stamped = changeFeedRepository.backfillTimestamps();
+        if (stamped > 0) {
+            logger.info("Stamped {} rows without a modification time for the change feed", stamped);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.gk.service.sync;
+
+import com.gk.repository.ChangeFeedRepository.Position;
+import com.gk.repository.ChangeFeedRepository.Source;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * How far a client has read each source of the change feed. Clients get it
+ * as an opaque, URL-safe string and hand it back unchanged.
+ */
+public final class SyncCursor {
+    public static final SyncCursor START = new SyncCursor(new EnumMap<>(Source.class));
+
+    private static final String VERSION = "1";
+
+    private final Map<Source, Position> positions;
+
+    SyncCursor(Map<Source, Position> positions) {
+        this.positions = positions;
+    }
+
+    public Position position(Source source) {
+        return positions.getOrDefault(source, Position.START);
+    }
+
+    public String encode() {
+        StringJoiner text = new StringJoiner(",", VERSION + ":", "");
+        for (Source source : Source.values()) {
+            Position position = position(source);
+            text.add(position.millis() + "." + position.key());
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Reads a cursor from {@link #encode()}; a blank one is the start of the feed. */
+    public static SyncCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!text.startsWith(VERSION + ":")) {
+                throw new IllegalArgumentException("Unknown sync cursor version");
+            }
+            String[] parts = text.substring(VERSION.length() + 1).split(",");
+            Source[] sources = Source.values();
+            if (parts.length != sources.length) {
+                throw new IllegalArgumentException("Sync cursor does not match the feed");
+            }
+            Map<Source, Position> positions = new EnumMap<>(Source.class);
+            for (int i = 0; i < sources.length; i++) {
+                int dot = parts[i].indexOf('.');
+                positions.put(sources[i], new Position(Long.parseLong(parts[i].substring(0, dot)),
+                        Long.parseLong(parts[i].substring(dot + 1))));
+            }
+            return new SyncCursor(positions);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid sync cursor", e);
+        }
+    }
+}
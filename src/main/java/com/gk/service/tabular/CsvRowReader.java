@@ -0,0 +1,89 @@
+package com.gk.service.tabular;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * RFC 4180 reader: quoted fields may contain separators, doubled quotes and
+ * line breaks. Only the current record is held in memory.
+ */
+public class CsvRowReader implements TabularRowReader {
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+
+    @Override
+    public void read(Path file, Consumer<TabularRow> consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<String> headers = null;
+            int rowNumber = 0;
+            List<String> fields;
+            while ((fields = nextRecord(reader)) != null) {
+                rowNumber++;
+                if (headers == null) {
+                    headers = new ArrayList<>(fields.size());
+                    for (String field : fields) {
+                        headers.add(TabularRow.normalizeHeader(field));
+                    }
+                    continue;
+                }
+                TabularRow row = TabularRow.of(rowNumber, headers, fields);
+                if (!row.isBlank()) {
+                    consumer.accept(row);
+                }
+            }
+        }
+    }
+
+    private List<String> nextRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (c != -1) {
+            char ch = (char) c;
+            if (quoted) {
+                if (ch == QUOTE) {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == QUOTE) {
+                        field.append(QUOTE);
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == QUOTE && field.isEmpty()) {
+                quoted = true;
+            } else if (ch == SEPARATOR) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '\n') {
+                break;
+            } else if (ch == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n') {
+                    reader.reset();
+                }
+                break;
+            } else {
+                field.append(ch);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
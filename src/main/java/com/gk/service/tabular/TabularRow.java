@@ -0,0 +1,54 @@
+package com.gk.service.tabular;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public record TabularRow(int rowNumber, Map<String, String> values) {
+
+    public static TabularRow of(int rowNumber, List<String> headers, List<String> cells) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < headers.size() && i < cells.size(); i++) {
+            String header = headers.get(i);
+            if (header != null && !header.isEmpty()) {
+                values.put(header, cells.get(i));
+            }
+        }
+        return new TabularRow(rowNumber, values);
+    }
+
+    /**
+     * Returns the first non-blank value among the given column aliases.
+     */
+    public String get(String... columns) {
+        for (String column : columns) {
+            String value = values.get(normalizeHeader(column));
+            if (value != null && !value.isBlank()) {
+                return value.trim();
+            }
+        }
+        return null;
+    }
+
+    public boolean isBlank() {
+        return values.values().stream().allMatch(value -> value == null || value.isBlank());
+    }
+
+    /**
+     * Header names are matched case-insensitively and ignoring punctuation, so
+     * "Parent Email", "parent_email" and "parentEmail" all address one column.
+     */
+    public static String normalizeHeader(String header) {
+        if (header == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(header.length());
+        for (char c : header.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+}
@@ -0,0 +1,27 @@
+package com.gk.service.tabular;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Streams the rows of an uploaded spreadsheet one at a time. The first row is
+ * the header; each following non-blank row is handed to the consumer keyed by
+ * normalized header name.
+ */
+public interface TabularRowReader {
+
+    void read(Path file, Consumer<TabularRow> consumer) throws IOException;
+
+    static TabularRowReader forFileName(String fileName) {
+        String name = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return new CsvRowReader();
+        }
+        if (name.endsWith(".xlsx")) {
+            return new XlsxRowReader();
+        }
+        throw new IllegalArgumentException("Unsupported file type, expected .csv or .xlsx: " + fileName);
+    }
+}
@@ -0,0 +1,106 @@
+package com.gk.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Runs the JMH benchmarks, writes the JSON results and compares them with a
+ * stored baseline. Arguments are {@code key=value} pairs:
+ * <pre>
+ * sizes=1000,10000,100000       student counts to seed
+ * include=ServiceBenchmarks     benchmark name regex
+ * results=target/jmh-results.json
+ * baseline=benchmarks/baseline.json
+ * threshold=0.10                slowdown that counts as a regression
+ * saveBaseline=true             store these results as the new baseline
+ * </pre>
+ * Exits with status 1 when a benchmark regressed beyond the threshold.
+ */
+public class BenchmarkRunner {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+        Path results = Path.of(options.getOrDefault("results", "target/jmh-results.json"));
+        Path baseline = Path.of(options.getOrDefault("baseline", "benchmarks/baseline.json"));
+        double threshold = Double.parseDouble(options.getOrDefault("threshold", "0.10"));
+        Files.createDirectories(results.toAbsolutePath().getParent());
+
+        new Runner(new OptionsBuilder()
+                .include(options.getOrDefault("include", ServiceBenchmarks.class.getSimpleName()))
+                .param("students", options.getOrDefault("sizes", "1000").split(","))
+                .shouldFailOnError(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result(results.toString())
+                .build()).run();
+
+        boolean regressed = false;
+        if (Files.exists(baseline)) {
+            regressed = compare(baseline, results, threshold);
+        } else {
+            System.out.println("No baseline at " + baseline + "; pass saveBaseline=true to create one");
+        }
+        if (Boolean.parseBoolean(options.getOrDefault("saveBaseline", "false"))) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.copy(results, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Saved baseline to " + baseline);
+        }
+        if (regressed) {
+            System.exit(1);
+        }
+    }
+
+    /** Prints each benchmark against its baseline score and returns whether any got slower than allowed. */
+    static boolean compare(Path baseline, Path results, double threshold) throws IOException {
+        Map<String, JsonNode> previous = index(MAPPER.readTree(baseline.toFile()));
+        boolean regressed = false;
+        System.out.printf("%n%-60s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, JsonNode> entry : index(MAPPER.readTree(results.toFile())).entrySet()) {
+            JsonNode current = entry.getValue();
+            JsonNode before = previous.get(entry.getKey());
+            double score = current.path("primaryMetric").path("score").asDouble();
+            String unit = current.path("primaryMetric").path("scoreUnit").asText();
+            if (before == null) {
+                System.out.printf("%-60s %14s %11.3f %s %9s%n", entry.getKey(), "-", score, unit, "new");
+                continue;
+            }
+            double base = before.path("primaryMetric").path("score").asDouble();
+            double change = base == 0 ? 0 : (score - base) / base;
+            // Throughput modes improve upwards, time modes downwards
+            double slowdown = "thrpt".equals(current.path("mode").asText()) ? -change : change;
+            boolean regression = slowdown > threshold;
+            regressed |= regression;
+            System.out.printf("%-60s %11.3f %s %11.3f %s %+8.1f%%%s%n", entry.getKey(), base, unit, score, unit,
+                    change * 100, regression ? "  REGRESSION" : "");
+        }
+        return regressed;
+    }
+
+    private static Map<String, JsonNode> index(JsonNode runs) {
+        Map<String, JsonNode> byKey = new TreeMap<>();
+        for (JsonNode run : runs) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText()
+                    .replaceFirst("^.*\\.(\\w+\\.\\w+)$", "$1"));
+            run.path("params").properties().forEach(param ->
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            byKey.put(key.toString(), run);
+        }
+        return byKey;
+    }
+}
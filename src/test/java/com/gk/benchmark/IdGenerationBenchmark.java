@@ -0,0 +1,129 @@
+package com.gk.benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.gk.repository.IdBlockAllocator;
+import org.h2.tools.Server;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Compares insert throughput of IDENTITY keys (one statement and one
+ * generated-key round trip per row, which is what Hibernate does for
+ * IDENTITY) with pooled ids from {@link IdBlockAllocator} and JDBC batching.
+ * <p>
+ * By default it starts an in-process H2 TCP server, so every statement still
+ * pays a (loopback) network round trip as it would against MySQL. Pass a JDBC
+ * URL, user and password to measure a real MySQL server instead:
+ * <pre>
+ * java ... com.gk.benchmark.IdGenerationBenchmark [rows] [jdbcUrl user password]
+ * </pre>
+ */
+public class IdGenerationBenchmark {
+    private static final int BATCH_SIZE = 50;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws SQLException {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        Server server = null;
+        String url;
+        if (args.length > 1) {
+            url = args[1];
+        } else {
+            server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+            url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:idbench;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        }
+        String user = args.length > 2 ? args[2] : "sa";
+        String password = args.length > 3 ? args[3] : "";
+
+        // The allocator commits its reservations on a connection of its own,
+        // just like it does next to an open JPA transaction in the application.
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(url, user, password, true);
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            for (String table : new String[]{"bench_identity", "bench_pooled"}) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+                jdbcTemplate.execute("CREATE TABLE " + table + " (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                        + "name VARCHAR(100) NOT NULL, grade VARCHAR(10) NOT NULL)");
+            }
+            IdBlockAllocator allocator = new IdBlockAllocator(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+            allocator.createTable();
+            jdbcTemplate.update("DELETE FROM " + IdBlockAllocator.TABLE + " WHERE sequence_name = 'bench_pooled'");
+
+            for (int round = 0; round <= ROUNDS; round++) {
+                double identity = rowsPerSecond(rows, () -> insertWithIdentity(connection, rows));
+                double pooled = rowsPerSecond(rows, () -> insertWithPooledIds(connection, allocator, rows));
+                jdbcTemplate.execute("DELETE FROM bench_identity");
+                jdbcTemplate.execute("DELETE FROM bench_pooled");
+                if (round == 0) {
+                    continue; // warm-up
+                }
+                System.out.printf("round %d: IDENTITY %,.0f rows/s, pooled+batch %,.0f rows/s (%.1fx)%n",
+                        round, identity, pooled, pooled / identity);
+            }
+        } finally {
+            dataSource.destroy();
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    private static void insertWithIdentity(Connection connection, int rows) throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_identity (name, grade) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < rows; i++) {
+                insert.setString(1, "Student " + i);
+                insert.setString(2, "G" + (i % 12 + 1));
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                }
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    private static void insertWithPooledIds(Connection connection, IdBlockAllocator allocator, int rows)
+            throws SQLException {
+        IdBlockAllocator.Pool ids = allocator.pool("bench_pooled", BATCH_SIZE);
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_pooled (id, name, grade) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setLong(1, ids.nextId());
+                insert.setString(2, "Student " + i);
+                insert.setString(3, "G" + (i % 12 + 1));
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    private static double rowsPerSecond(int rows, SqlRunnable work) throws SQLException {
+        long start = System.nanoTime();
+        work.run();
+        return rows / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    @FunctionalInterface
+    private interface SqlRunnable {
+        void run() throws SQLException;
+    }
+}
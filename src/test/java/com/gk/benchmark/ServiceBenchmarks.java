@@ -0,0 +1,128 @@
+package com.gk.benchmark;
+
+import com.gk.StudentApplication;
+import com.gk.model.Course;
+import com.gk.model.Student;
+import com.gk.service.CourseService;
+import com.gk.service.StudentQueryService;
+import com.gk.service.StudentService;
+import com.gk.service.ranking.ClassRankService;
+import com.gk.service.seed.DatasetGenerator;
+import com.gk.service.seed.SeedOptions;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of the dashboard, search, fee and export screens, measured through
+ * the real Spring services against an embedded H2 database (MySQL mode) seeded
+ * by {@link DatasetGenerator} with {@code students} students. Run through
+ * {@link BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx4g"})
+public class ServiceBenchmarks {
+    private static final long SEED = 20240101L;
+
+    @Param({"1000"})
+    public int students;
+
+    private ConfigurableApplicationContext context;
+    private StudentService studentService;
+    private StudentQueryService studentQueryService;
+    private CourseService courseService;
+    private long[] studentIds;
+    private long openCourseId;
+    private int nextStudent;
+
+    @Setup(Level.Trial)
+    public void start() {
+        // Passed as command line arguments so they take precedence over application.properties
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.url", "jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=DAY;"
+                + "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("app.dues.refresh-interval-ms", Long.MAX_VALUE / 2);
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.gk", "WARN");
+        context = new SpringApplicationBuilder(StudentApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .run(properties.entrySet().stream()
+                        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                        .toArray(String[]::new));
+
+        // Ends today, so the date-windowed reports see the same amount of data on every run
+        context.getBean(DatasetGenerator.class).generate(SeedOptions.of(students, SEED));
+        context.getBean(ClassRankService.class).rebuild();
+        studentIds = context.getBean(JdbcTemplate.class)
+                .queryForList("SELECT id FROM students ORDER BY id", Long.class).stream()
+                .mapToLong(Long::longValue).toArray();
+        studentService = context.getBean(StudentService.class);
+        studentQueryService = context.getBean(StudentQueryService.class);
+        courseService = context.getBean(CourseService.class);
+
+        Course openCourse = new Course();
+        openCourse.setName("Open Elective");
+        openCourse.setCode("OPEN001");
+        openCourse.setCredits(2);
+        openCourse.setFee(400);
+        openCourse.setMaxStudents(Integer.MAX_VALUE);
+        openCourseId = courseService.saveCourse(openCourse).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Student> searchStudents() {
+        return studentService.searchStudents("sharma");
+    }
+
+    @Benchmark
+    public List<Student> getTopPerformers() {
+        return studentService.getTopPerformers(10);
+    }
+
+    @Benchmark
+    public Map<String, Double> getAttendanceTrend() {
+        return studentQueryService.getAttendanceTrend();
+    }
+
+    @Benchmark
+    public double calculateTotalRevenue() {
+        return studentQueryService.calculateTotalRevenue();
+    }
+
+    @Benchmark
+    public byte[] exportToExcel() {
+        return studentService.exportToExcel();
+    }
+
+    /** Enrolls a different student each time and withdraws them again, so the course never fills up. */
+    @Benchmark
+    public long enrollStudent() {
+        long studentId = studentIds[nextStudent++ % studentIds.length];
+        courseService.enrollStudent(openCourseId, studentId);
+        courseService.unenrollStudent(openCourseId, studentId);
+        return studentId;
+    }
+}
@@ -0,0 +1,73 @@
+package com.gk.config.bulkhead;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveLimiterTest {
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void queuesUpToItsBoundAndTurnsTheRestAway() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 1, 1, 1, 1, TimeUnit.SECONDS.toNanos(5), TARGET);
+        assertThat(limiter.tryAcquire()).isTrue();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Boolean> waiting = executor.submit(limiter::tryAcquire);
+            while (limiter.queued() == 0) {
+                Thread.sleep(1);
+            }
+            assertThat(limiter.tryAcquire()).as("queue full").isFalse();
+            limiter.release(0);
+            assertThat(waiting.get()).isTrue();
+        }
+        assertThat(limiter.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void givesUpAfterTheMaximumWait() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 1, 1, 1, 5, TimeUnit.MILLISECONDS.toNanos(20), TARGET);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.queued()).isZero();
+    }
+
+    @Test
+    void lowersTheLimitWhenLatencyExceedsTheTarget() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 8, 2, 8, 0, 0, TARGET);
+        completeWindow(limiter, 1, TARGET * 2);
+        assertThat(limiter.limit()).isEqualTo(6);
+        completeWindow(limiter, 1, TARGET * 2);
+        completeWindow(limiter, 1, TARGET * 2);
+        completeWindow(limiter, 1, TARGET * 2);
+        assertThat(limiter.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void raisesTheLimitOnlyWhenSaturatedAndFast() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 2, 1, 3, 0, 0, TARGET);
+        completeWindow(limiter, 1, TARGET / 2);
+        assertThat(limiter.limit()).as("never saturated").isEqualTo(2);
+        completeWindow(limiter, 2, TARGET / 2);
+        assertThat(limiter.limit()).isEqualTo(3);
+        completeWindow(limiter, 3, TARGET / 2);
+        assertThat(limiter.limit()).as("capped at max-limit").isEqualTo(3);
+    }
+
+    /** Completes a window of requests, {@code concurrency} at a time. */
+    private static void completeWindow(AdaptiveLimiter limiter, int concurrency, long latencyNanos)
+            throws InterruptedException {
+        for (int completed = 0; completed < 10; completed += concurrency) {
+            for (int i = 0; i < concurrency; i++) {
+                assertThat(limiter.tryAcquire()).isTrue();
+            }
+            for (int i = 0; i < concurrency; i++) {
+                limiter.release(latencyNanos);
+            }
+        }
+    }
+}
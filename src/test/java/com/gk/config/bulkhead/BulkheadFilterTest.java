@@ -0,0 +1,165 @@
+package com.gk.config.bulkhead;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkheadFilterTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Bulkhead export = new Bulkhead("export", endpointClass(
+            List.of("/students/export", "/api/students/*/fees/receipt"), 1, 0, 1, Duration.ofSeconds(30)));
+    private final Bulkhead interactive = new Bulkhead("interactive", endpointClass(
+            List.of(), 2, 0, 0, Duration.ofMillis(500)));
+    private final BulkheadFilter filter = new BulkheadFilter(List.of(export), interactive, meterRegistry);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.close();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void admitsEachRequestThroughTheClassOfItsPath() throws Exception {
+        assertThat(classify("", "/students/export")).isSameAs(export);
+        assertThat(classify("/portal", "/portal/students/export")).isSameAs(export);
+        assertThat(classify("", "/api/students/42/fees/receipt")).isSameAs(export);
+        assertThat(classify("", "/students/42")).isSameAs(interactive);
+
+        MockHttpServletResponse unclassified = new MockHttpServletResponse();
+        new BulkheadFilter(List.of(export), null, meterRegistry)
+                .doFilter(new MockHttpServletRequest("GET", "/students/42"), unclassified, (request, response) -> { });
+        assertThat(unclassified.getStatus()).isEqualTo(200);
+        assertThat(export.limiter().inFlight()).isZero();
+    }
+
+    @Test
+    void turnsAwayARequestOnceTheClassAndItsQueueAreFull() throws Exception {
+        Future<MockHttpServletResponse> held = hold("alice", "/students/export");
+        Future<MockHttpServletResponse> queued = executor.submit(() -> perform("carol", "/students/export"));
+        while (export.limiter().queued() == 0) {
+            Thread.sleep(1);
+        }
+
+        MockHttpServletResponse rejected = perform("bob", "/students/export");
+        MockHttpServletResponse otherClass = perform("bob", "/students/42");
+
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+        assertThat(otherClass.getStatus()).isEqualTo(200);
+        assertThat(rejections("export", "full")).isEqualTo(1);
+
+        release.countDown();
+        assertThat(held.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        assertThat(queued.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        assertThat(perform("bob", "/students/export").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void limitsEachUserToTheirShareOfTheClass() throws Exception {
+        Bulkhead reports = new Bulkhead("report", endpointClass(List.of("/students/reports"), 3, 1, 0,
+                Duration.ofMillis(500)));
+        BulkheadFilter perUser = new BulkheadFilter(List.of(reports), null, meterRegistry);
+        Future<MockHttpServletResponse> held = hold(perUser, "alice", "/students/reports");
+
+        MockHttpServletResponse again = perform(perUser, "alice", "/students/reports");
+        MockHttpServletResponse someoneElse = perform(perUser, "bob", "/students/reports");
+        MockHttpServletResponse anonymous = perform(perUser, null, "/students/reports");
+
+        assertThat(again.getStatus()).isEqualTo(429);
+        // Rounded up: a client never retries straight away
+        assertThat(again.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(someoneElse.getStatus()).isEqualTo(200);
+        assertThat(anonymous.getStatus()).isEqualTo(200);
+        assertThat(rejections("report", "user")).isEqualTo(1);
+
+        release.countDown();
+        held.get(5, TimeUnit.SECONDS);
+        assertThat(perform(perUser, "alice", "/students/reports").getStatus()).isEqualTo(200);
+    }
+
+    /** The bulkhead a request to {@code uri} is admitted through, seen from inside the chain. */
+    private Bulkhead classify(String contextPath, String uri) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setContextPath(contextPath);
+        Bulkhead[] admitted = new Bulkhead[1];
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            for (Bulkhead bulkhead : List.of(export, interactive)) {
+                if (bulkhead.limiter().inFlight() > 0) {
+                    admitted[0] = bulkhead;
+                }
+            }
+        });
+        return admitted[0];
+    }
+
+    private MockHttpServletResponse perform(String user, String uri) throws Exception {
+        return perform(filter, user, uri);
+    }
+
+    private static MockHttpServletResponse perform(BulkheadFilter filter, String user, String uri) throws Exception {
+        return perform(filter, user, uri, (request, response) -> { });
+    }
+
+    private static MockHttpServletResponse perform(BulkheadFilter filter, String user, String uri, FilterChain chain)
+            throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(user == null ? null
+                : UsernamePasswordAuthenticationToken.authenticated(user, null, List.of()));
+        try {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", uri), response, chain);
+            return response;
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private Future<MockHttpServletResponse> hold(String user, String uri) throws InterruptedException {
+        return hold(filter, user, uri);
+    }
+
+    /** Starts a request that stays in the chain until {@link #release}; returns once it is in. */
+    private Future<MockHttpServletResponse> hold(BulkheadFilter filter, String user, String uri)
+            throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        Future<MockHttpServletResponse> held = executor.submit(() -> perform(filter, user, uri, (request, response) -> {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        return held;
+    }
+
+    private double rejections(String endpointClass, String reason) {
+        return meterRegistry.get(BulkheadFilter.REJECTED_METRIC).tag("class", endpointClass).tag("reason", reason)
+                .counter().count();
+    }
+
+    private static BulkheadProperties.EndpointClass endpointClass(List<String> paths, int limit, int perUser,
+                                                                  int queue, Duration retryAfter) {
+        return new BulkheadProperties.EndpointClass(paths, limit, limit, limit, queue, Duration.ofSeconds(5),
+                Duration.ofSeconds(1), perUser, retryAfter);
+    }
+}
@@ -0,0 +1,80 @@
+package com.gk.config.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTest {
+    private final JdbcDataSource primary = database("primary");
+
+    @Test
+    void routesReadOnlyTransactionsToTheReplica() {
+        Routing routing = new Routing(database("replica"), 0);
+        assertThat(routing.read()).isEqualTo("replica");
+        String readWrite = routing.readWrite.execute(status ->
+                routing.jdbcTemplate.queryForObject("SELECT name FROM origin", String.class));
+        assertThat(readWrite).isEqualTo("primary");
+        // Outside a transaction nothing marks the connection read-only
+        assertThat(routing.jdbcTemplate.queryForObject("SELECT name FROM origin", String.class)).isEqualTo("primary");
+        assertThat(routing.replica.getReplicaReads()).isEqualTo(1);
+    }
+
+    @Test
+    void readsOwnWritesFromThePrimaryForAWhile() throws Exception {
+        Routing routing = new Routing(database("replica"), 200);
+        routing.readWrite.executeWithoutResult(status ->
+                routing.jdbcTemplate.update("UPDATE origin SET name = 'primary, updated'"));
+        assertThat(routing.read()).isEqualTo("primary, updated");
+        Thread.sleep(250);
+        assertThat(routing.read()).isEqualTo("replica");
+    }
+
+    @Test
+    void fallsBackToThePrimaryWhenTheReplicaIsDown() {
+        Routing routing = new Routing(new DriverManagerDataSource("jdbc:unreachable:replica"), 0);
+        assertThat(routing.read()).isEqualTo("primary");
+        assertThat(routing.read()).isEqualTo("primary");
+        assertThat(routing.replica.getPrimaryReads()).isEqualTo(2);
+        assertThat(routing.replica.getReplicaReads()).isZero();
+    }
+
+    private final class Routing {
+        final ReplicaDataSource replica;
+        final JdbcTemplate jdbcTemplate;
+        final TransactionTemplate readWrite;
+        final TransactionTemplate readOnly;
+
+        Routing(DataSource replicaDatabase, long readYourWritesMillis) {
+            ReadYourWritesWindow window = new ReadYourWritesWindow(readYourWritesMillis);
+            replica = new ReplicaDataSource(replicaDatabase, primary, window, 60_000);
+            DataSource routing = new ReplicaRoutingDataSource(primary, replica);
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+            transactionManager.addListener(window);
+            jdbcTemplate = new JdbcTemplate(routing);
+            readWrite = new TransactionTemplate(transactionManager);
+            readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+        }
+
+        String read() {
+            return readOnly.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM origin", String.class));
+        }
+    }
+
+    private static JdbcDataSource database(String name) {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(h2);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS origin (name VARCHAR(32))");
+        jdbcTemplate.execute("DELETE FROM origin");
+        jdbcTemplate.update("INSERT INTO origin VALUES (?)", name);
+        return h2;
+    }
+}
@@ -0,0 +1,74 @@
+package com.gk.config.monitoring;
+
+import io.micrometer.common.KeyValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpMetricsConfigTest {
+    private final HttpMetricsConfig config = new HttpMetricsConfig();
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void tagsRequestsWithTheCallersMostPrivilegedRole() throws Exception {
+        assertThat(role(UsernamePasswordAuthenticationToken.authenticated("ada", null,
+                AuthorityUtils.createAuthorityList("ROLE_TEACHER", "ROLE_ADMIN")))).isEqualTo("admin");
+        assertThat(role(UsernamePasswordAuthenticationToken.authenticated("ben", null,
+                AuthorityUtils.createAuthorityList("ROLE_PARENT")))).isEqualTo("parent");
+        assertThat(role(UsernamePasswordAuthenticationToken.authenticated("cy", null,
+                AuthorityUtils.createAuthorityList("ROLE_AUDITOR")))).isEqualTo("other");
+        assertThat(role(new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")))).isEqualTo("anonymous");
+        assertThat(role(null)).isEqualTo("anonymous");
+    }
+
+    @Test
+    void tagsRequestsTheInterceptorNeverSawAsAnonymous() {
+        // Turned away by a filter before reaching a handler
+        assertThat(roleTag(new MockHttpServletRequest("GET", "/students/export"))).isEqualTo("anonymous");
+    }
+
+    /** The role tag of a request made by {@code authentication}, as the interceptor and convention see it. */
+    private String role(Authentication authentication) throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/students");
+        Registry registry = new Registry();
+        config.addInterceptors(registry);
+        for (Object interceptor : registry.interceptors()) {
+            ((HandlerInterceptor) interceptor).preHandle(request, new MockHttpServletResponse(), new Object());
+        }
+        SecurityContextHolder.clearContext();
+        return roleTag(request);
+    }
+
+    private String roleTag(MockHttpServletRequest request) {
+        ServerRequestObservationContext context = new ServerRequestObservationContext(request,
+                new MockHttpServletResponse());
+        return config.roleTaggingObservationConvention().getLowCardinalityKeyValues(context).stream()
+                .filter(keyValue -> keyValue.getKey().equals("role")).map(KeyValue::getValue).findFirst()
+                .orElse(null);
+    }
+
+    private static final class Registry extends InterceptorRegistry {
+        List<Object> interceptors() {
+            return getInterceptors();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.gk.config.monitoring;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MonitoredDataSourceTest {
+    private final List<String> slowStatements = new ArrayList<>();
+    private JdbcDataSource h2;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:query-stats;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(new MonitoredDataSource(h2, true, -1, null));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS marks (student_id BIGINT, marks INT)");
+        jdbcTemplate.execute("DELETE FROM marks");
+        jdbcTemplate.batchUpdate("INSERT INTO marks VALUES (?, ?)",
+                List.of(new Object[]{1, 70}, new Object[]{1, 80}, new Object[]{2, 90}));
+    }
+
+    @Test
+    void countsStatementsAndRows() throws Exception {
+        QueryStats stats = QueryAssertions.assertStatements(2, () -> {
+            jdbcTemplate.queryForList("SELECT marks FROM marks ORDER BY marks", Integer.class);
+            jdbcTemplate.update("UPDATE marks SET marks = marks + 1 WHERE student_id = ?", 2);
+        });
+        assertThat(stats.rows()).isEqualTo(3);
+    }
+
+    @Test
+    void reportsRepeatedStatementsAndNestsScopes() throws Exception {
+        try (QueryStats request = QueryStats.open()) {
+            QueryStats perStudent = QueryAssertions.count(() -> {
+                for (long id = 1; id <= 2; id++) {
+                    jdbcTemplate.queryForObject("SELECT AVG(marks) FROM marks WHERE student_id = ?", Double.class, id);
+                }
+            });
+            assertThat(perStudent.repeatedStatements(2))
+                    .containsEntry("SELECT AVG(marks) FROM marks WHERE student_id = ?", 2);
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM marks", Long.class);
+            request.close();
+            assertThat(request.statements()).isEqualTo(3);
+            assertThat(request.maxRepetitions()).isEqualTo(2);
+        }
+        // Outside any scope nothing is counted
+        assertThat(QueryAssertions.count(() -> { }).statements()).isZero();
+    }
+
+    @Test
+    void reportsSlowStatementsWithTheirBinds() {
+        JdbcTemplate timed = new JdbcTemplate(new MonitoredDataSource(h2, false, 0,
+                (sql, binds, nanos, dataSource) -> slowStatements.add(sql + " " + binds)));
+        timed.queryForObject("SELECT COUNT(*) FROM marks WHERE student_id = ? AND marks > ?", Long.class, 1, 75);
+        timed.update("DELETE FROM marks WHERE marks IS NULL");
+
+        assertThat(slowStatements).containsExactly(
+                "SELECT COUNT(*) FROM marks WHERE student_id = ? AND marks > ? [1, 75]",
+                "DELETE FROM marks WHERE marks IS NULL []");
+    }
+}
@@ -0,0 +1,53 @@
+package com.gk.config.monitoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pins the SQL a piece of code runs on the calling thread, e.g. a MockMvc
+ * request or a service call:
+ * <pre>
+ * QueryAssertions.assertStatements(2, () -> mockMvc.perform(get("/api/students/1")));
+ * </pre>
+ * Failures list the statements that ran, most repeated first.
+ */
+public final class QueryAssertions {
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    private QueryAssertions() {
+    }
+
+    public static QueryStats count(Action action) throws Exception {
+        try (QueryStats stats = QueryStats.open()) {
+            action.run();
+            return stats;
+        }
+    }
+
+    public static QueryStats assertStatements(int expected, Action action) throws Exception {
+        QueryStats stats = count(action);
+        assertThat(stats.statements()).as(describe(stats)).isEqualTo(expected);
+        return stats;
+    }
+
+    public static QueryStats assertAtMostStatements(int budget, Action action) throws Exception {
+        QueryStats stats = count(action);
+        assertThat(stats.statements()).as(describe(stats)).isLessThanOrEqualTo(budget);
+        return stats;
+    }
+
+    /** Fails when any statement runs {@code threshold} times or more, the usual sign of an N+1. */
+    public static QueryStats assertNoRepeatedStatements(int threshold, Action action) throws Exception {
+        QueryStats stats = count(action);
+        assertThat(stats.repeatedStatements(threshold)).as(describe(stats)).isEmpty();
+        assertThat(stats.repeatedCollectionLoads(threshold)).as(describe(stats)).isEmpty();
+        return stats;
+    }
+
+    private static String describe(QueryStats stats) {
+        return stats + "; statements run: " + stats.repeatedStatements(1);
+    }
+}
@@ -0,0 +1,72 @@
+package com.gk.config.monitoring;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ServiceMetricsAspectTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GradeService service = proxy(new GradeService());
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void timesEachCallByMethodEndpointAndException() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/students/42");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/students/{id}");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        service.grade(85);
+        service.grade(40);
+        assertThatThrownBy(() -> service.grade(-1)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(timer("grade", "/students/{id}", "none").count()).isEqualTo(2);
+        assertThat(timer("grade", "/students/{id}", "IllegalArgumentException").count()).isEqualTo(1);
+    }
+
+    @Test
+    void tagsCallsOffTheRequestThreadWithNoEndpoint() {
+        service.grade(70);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        service.grade(70);
+
+        // Neither a background call nor a request that matched no handler has an endpoint
+        assertThat(timer("grade", "none", "none").count()).isEqualTo(2);
+        assertThat(meterRegistry.find(ServiceMetricsAspect.METRIC).timers()).hasSize(1);
+    }
+
+    private Timer timer(String method, String endpoint, String exception) {
+        return meterRegistry.get(ServiceMetricsAspect.METRIC).tag("class", "GradeService").tag("method", method)
+                .tag("endpoint", endpoint).tag("exception", exception).timer();
+    }
+
+    private <T> T proxy(T target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ServiceMetricsAspect(meterRegistry));
+        return factory.getProxy();
+    }
+
+    @Service
+    static class GradeService {
+        public String grade(int marks) {
+            if (marks < 0) {
+                throw new IllegalArgumentException("Negative marks: " + marks);
+            }
+            return marks >= 50 ? "pass" : "fail";
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.gk.config.monitoring;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.gk.config.monitoring.VirtualThreadPinningMonitor.Frame;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** The pinning events as the flight recorder would hand them over, without starting a recording. */
+class VirtualThreadPinningMonitorTest {
+    private static final Frame PARK = new Frame("jdk.internal.misc.Unsafe", "park", -1);
+    private static final Frame LOCK = new Frame("java.util.concurrent.locks.LockSupport", "park", 221);
+    private static final Frame DRIVER = new Frame("com.mysql.cj.protocol.ReadAheadInputStream", "fill", 107);
+    private static final Frame SERVICE = new Frame("com.gk.service.StudentService", "getStudent", 42);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(meterRegistry, 20);
+    private final Logger logger = (Logger) LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private final ListAppender<ILoggingEvent> warnings = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        warnings.start();
+        logger.addAppender(warnings);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(warnings);
+    }
+
+    @Test
+    void placesEachPinningAtTheFirstFrameOutsideTheJdk() {
+        assertThat(VirtualThreadPinningMonitor.site(List.of(PARK, LOCK, DRIVER, SERVICE)))
+                .isEqualTo("com.mysql.cj.protocol.ReadAheadInputStream.fill:107");
+        assertThat(VirtualThreadPinningMonitor.site(List.of(SERVICE)))
+                .isEqualTo("com.gk.service.StudentService.getStudent:42");
+        assertThat(VirtualThreadPinningMonitor.site(List.of(PARK, LOCK))).isEqualTo("jdk");
+        assertThat(VirtualThreadPinningMonitor.site(List.of())).isEqualTo("jdk");
+        assertThat(VirtualThreadPinningMonitor.site(null)).isEqualTo("unknown");
+
+        assertThat(VirtualThreadPinningMonitor.isJdk("sun.nio.ch.NioSocketImpl")).isTrue();
+        assertThat(VirtualThreadPinningMonitor.isJdk("com.sun.crypto.provider.CipherCore")).isTrue();
+        assertThat(VirtualThreadPinningMonitor.isJdk("com.gk.service.StudentService")).isFalse();
+        // Only the package prefix counts
+        assertThat(VirtualThreadPinningMonitor.isJdk("javax.sql.DataSource")).isFalse();
+    }
+
+    @Test
+    void timesEverySiteButWarnsOnlyOnItsFirstPinning() {
+        monitor.pinned(List.of(PARK, DRIVER), 7L, Duration.ofMillis(30));
+        monitor.pinned(List.of(LOCK, DRIVER), 8L, Duration.ofMillis(50));
+        monitor.pinned(null, null, Duration.ofMillis(25));
+
+        Timer driver = site("com.mysql.cj.protocol.ReadAheadInputStream.fill:107");
+        assertThat(driver.count()).isEqualTo(2);
+        assertThat(driver.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(80);
+        assertThat(site("unknown").count()).isEqualTo(1);
+        assertThat(warnings.list).hasSize(2);
+        assertThat(warnings.list.get(0).getFormattedMessage())
+                .startsWith("Virtual thread #7 pinned for 30 ms at " + DRIVER)
+                .contains("\tat jdk.internal.misc.Unsafe.park:-1");
+        assertThat(warnings.list.get(1).getFormattedMessage()).contains("#?").contains("(no stack trace)");
+    }
+
+    @Test
+    void countsSitesBeyondTheLimitAsOther() {
+        for (int line = 1; line <= VirtualThreadPinningMonitor.MAX_SITES; line++) {
+            monitor.pinned(List.of(new Frame("com.gk.Sites", "site", line)), 1L, Duration.ofMillis(30));
+        }
+        monitor.pinned(List.of(DRIVER), 1L, Duration.ofMillis(30));
+        monitor.pinned(List.of(SERVICE), 1L, Duration.ofMillis(30));
+        // A site seen before the limit keeps its own series
+        monitor.pinned(List.of(new Frame("com.gk.Sites", "site", 1)), 1L, Duration.ofMillis(30));
+
+        assertThat(site("other").count()).isEqualTo(2);
+        assertThat(site("com.gk.Sites.site:1").count()).isEqualTo(2);
+        assertThat(meterRegistry.find(VirtualThreadPinningMonitor.METRIC).timers())
+                .hasSize(VirtualThreadPinningMonitor.MAX_SITES + 1);
+        assertThat(warnings.list).hasSize(VirtualThreadPinningMonitor.MAX_SITES + 1);
+    }
+
+    private Timer site(String site) {
+        return meterRegistry.get(VirtualThreadPinningMonitor.METRIC).tag("site", site).timer();
+    }
+}
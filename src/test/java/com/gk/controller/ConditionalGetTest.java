@@ -0,0 +1,185 @@
+package com.gk.controller;
+
+import com.gk.config.monitoring.QueryAssertions;
+import com.gk.config.monitoring.QueryStats;
+import com.gk.service.seed.DatasetGenerator;
+import com.gk.service.seed.SeedOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The 304 path of each conditional GET: the validators a first response
+ * carries, a match answered with nothing but the version query, and the
+ * full response again once the resource or the request differs.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@WithMockUser(username = "teacher", roles = "ADMIN")
+class ConditionalGetTest {
+    // Later than anything the seeder wrote, and than the previous touch
+    private static final AtomicLong touches = new AtomicLong(Timestamp.valueOf("2100-01-01 00:00:00").getTime());
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatasetGenerator datasetGenerator;
+
+    private long studentId;
+    private long courseId;
+
+    @BeforeEach
+    void seed() {
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM students", Integer.class) == 0) {
+            datasetGenerator.generate(SeedOptions.of(10, 1));
+        }
+        studentId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM students", Long.class);
+        courseId = jdbcTemplate.queryForObject("SELECT MIN(course_id) FROM student_courses", Long.class);
+    }
+
+    @Test
+    void studentJsonIsValidatedByStrongETagAndByDate() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/students/{id}", studentId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private, no-cache"))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("\"student-" + studentId + "-");
+
+        assertNotModifiedWithoutLoading(get("/api/students/{id}", studentId).header(HttpHeaders.IF_NONE_MATCH, etag));
+        assertNotModifiedWithoutLoading(get("/api/students/{id}", studentId).header(HttpHeaders.IF_MODIFIED_SINCE,
+                first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)));
+
+        touchStudent();
+        mockMvc.perform(get("/api/students/{id}", studentId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void studentPageIsValidatedPerUser() throws Exception {
+        String etag = weakETag(get("/students/{id}", studentId), "W/\"student-" + studentId + "-");
+
+        assertNotModifiedWithoutLoading(get("/students/{id}", studentId).header(HttpHeaders.IF_NONE_MATCH, etag));
+        // The page shows who is signed in
+        mockMvc.perform(get("/students/{id}", studentId).header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .with(user("parent").roles("ADMIN")))
+                .andExpect(status().isOk());
+
+        touchStudent();
+        mockMvc.perform(get("/students/{id}", studentId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void coursePageChangesWithItsEnrollments() throws Exception {
+        String etag = weakETag(get("/courses/{id}", courseId), "W/\"course-" + courseId + "-");
+
+        assertNotModifiedWithoutLoading(get("/courses/{id}", courseId).header(HttpHeaders.IF_NONE_MATCH, etag));
+
+        jdbcTemplate.update("UPDATE students SET last_modified_date = ? "
+                + "WHERE id = (SELECT MIN(student_id) FROM student_courses WHERE course_id = ?)", later(), courseId);
+        mockMvc.perform(get("/courses/{id}", courseId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void calendarChangesWithAnyEvent() throws Exception {
+        String etag = weakETag(get("/events/calendar"), "W/\"calendar-");
+
+        assertNotModifiedWithoutLoading(get("/events/calendar").header(HttpHeaders.IF_NONE_MATCH, etag));
+
+        // Its own event, as another class sharing the database may have left none
+        long eventId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM student_event", Long.class);
+        jdbcTemplate.update("INSERT INTO student_event (id, student_id, title, start, type, status, reminder_sent,"
+                + " modified_at) VALUES (?, ?, 'Parents evening', ?, 'MEETING', 'SCHEDULED', FALSE, ?)",
+                eventId, studentId, later(), later());
+        mockMvc.perform(get("/events/calendar").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        etag = weakETag(get("/events/calendar"), "W/\"calendar-");
+        jdbcTemplate.update("DELETE FROM student_event WHERE id = ?", eventId);
+        mockMvc.perform(get("/events/calendar").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void calendarChangesWhenItsNextEventStarts() throws Exception {
+        long eventId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM student_event", Long.class);
+        LocalDateTime start = LocalDateTime.now().plusSeconds(1);
+        jdbcTemplate.update("INSERT INTO student_event (id, student_id, title, start, type, status, reminder_sent,"
+                + " modified_at) VALUES (?, ?, 'Assembly', ?, 'ACTIVITY', 'SCHEDULED', FALSE, ?)",
+                eventId, studentId, start, later());
+        try {
+            String etag = weakETag(get("/events/calendar"), "W/\"calendar-");
+            while (!LocalDateTime.now().isAfter(start)) {
+                Thread.sleep(50);
+            }
+
+            // Nothing changed in the table, but the event has left the upcoming list
+            mockMvc.perform(get("/events/calendar").header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isOk());
+        } finally {
+            jdbcTemplate.update("DELETE FROM student_event WHERE id = ?", eventId);
+        }
+    }
+
+    @Test
+    void listsAreRenderedWhenARedirectLeftAFlashMessage() throws Exception {
+        for (String list : new String[]{"/students/list", "/courses"}) {
+            String etag = weakETag(get(list), "W/\"");
+            assertNotModifiedWithoutLoading(get(list).header(HttpHeaders.IF_NONE_MATCH, etag));
+
+            mockMvc.perform(get(list).header(HttpHeaders.IF_NONE_MATCH, etag).flashAttr("message", "Saved"))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    private String weakETag(MockHttpServletRequestBuilder request, String prefix) throws Exception {
+        String etag = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private, no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith(prefix);
+        return etag;
+    }
+
+    /** A 304 after the version lookup alone: no entity, collection or template. */
+    private void assertNotModifiedWithoutLoading(MockHttpServletRequestBuilder request) throws Exception {
+        QueryStats stats = QueryAssertions.assertStatements(1, () -> mockMvc.perform(request)
+                .andExpect(status().isNotModified()));
+        assertThat(stats.collectionInitializations()).isZero();
+    }
+
+    private static Timestamp later() {
+        return new Timestamp(touches.addAndGet(1000));
+    }
+
+    private void touchStudent() {
+        jdbcTemplate.update("UPDATE students SET last_modified_date = ? WHERE id = ?", later(), studentId);
+    }
+}
@@ -0,0 +1,123 @@
+package com.gk.loadtest;
+
+import com.gk.loadtest.LoadDriver.Account;
+import com.gk.loadtest.LoadDriver.Journey;
+import com.gk.loadtest.LoadDriver.Step;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The user journeys replayed by {@link LoadTestRunner}, one per role, built
+ * from the accounts and students of a database seeded by the dataset generator.
+ */
+final class Journeys {
+    static final Map<String, Integer> DEFAULT_MIX = Map.of("teacher", 50, "parent", 30, "accountant", 15, "admin", 5);
+    /** Journeys that sign in with another role's accounts. */
+    private static final Map<String, String> ACCOUNT_ROLES = Map.of("exports", "admin");
+
+    private final Map<String, List<Account>> accountsByRole;
+    private final long[] studentIds;
+    private final String[] surnames;
+
+    private Journeys(Map<String, List<Account>> accountsByRole, long[] studentIds, String[] surnames) {
+        this.accountsByRole = accountsByRole;
+        this.studentIds = studentIds;
+        this.surnames = surnames;
+    }
+
+    /** Reads the seeded staff and parent accounts, which all share {@code password}. */
+    static Journeys load(JdbcTemplate jdbcTemplate, String password) {
+        Map<String, List<Account>> accounts = new HashMap<>();
+        jdbcTemplate.query("SELECT u.username, r.role FROM users u JOIN user_roles r ON r.user_id = u.id "
+                + "WHERE r.role IN ('ADMIN', 'TEACHER', 'ACCOUNTANT') AND u.username <> 'admin' ORDER BY u.id", rs -> {
+            accounts.computeIfAbsent(rs.getString(2).toLowerCase(Locale.ROOT), role -> new ArrayList<>())
+                    .add(new Account(rs.getString(1), password, null));
+        });
+        // A parent with two children appears once per child
+        jdbcTemplate.query("SELECT u.username, s.id FROM students s JOIN users u ON u.email = s.parent_email "
+                + "ORDER BY s.id", rs -> {
+            accounts.computeIfAbsent("parent", role -> new ArrayList<>())
+                    .add(new Account(rs.getString(1), password, rs.getLong(2)));
+        });
+        List<Long> ids = new ArrayList<>();
+        Set<String> surnames = new TreeSet<>();
+        jdbcTemplate.query("SELECT id, name FROM students ORDER BY id", rs -> {
+            ids.add(rs.getLong(1));
+            String name = rs.getString(2);
+            surnames.add(name.substring(name.lastIndexOf(' ') + 1));
+        });
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("No students to load test against; seed the database first");
+        }
+        return new Journeys(accounts, ids.stream().mapToLong(Long::longValue).toArray(),
+                surnames.toArray(String[]::new));
+    }
+
+    /** Journeys with a positive weight in {@code mix}, keyed by role name. */
+    List<Journey> withMix(Map<String, Integer> mix) {
+        List<Journey> journeys = new ArrayList<>();
+        mix.forEach((role, weight) -> {
+            if (weight <= 0) {
+                return;
+            }
+            List<Account> accounts = accountsByRole.get(ACCOUNT_ROLES.getOrDefault(role, role));
+            if (accounts == null || accounts.isEmpty()) {
+                throw new IllegalArgumentException("No seeded accounts for role " + role);
+            }
+            journeys.add(new Journey(role, weight, accounts, steps(role)));
+        });
+        journeys.sort(Comparator.comparing(Journey::name));
+        return journeys;
+    }
+
+    private List<Step> steps(String role) {
+        return switch (role) {
+            case "teacher" -> List.of(
+                    Step.get("/students/dashboard"),
+                    new Step("GET /students/list?search={surname}",
+                            (account, random) -> "/students/list?search=" + surname(random)),
+                    new Step("GET /api/students/search?query={surname}",
+                            (account, random) -> "/api/students/search?query=" + surname(random)),
+                    Step.get("/students/attendance"),
+                    new Step("GET /api/students/{id}/progress",
+                            (account, random) -> "/api/students/" + student(random) + "/progress"),
+                    Step.get("/events/calendar"));
+            case "accountant" -> List.of(
+                    Step.get("/students/fees/summary"),
+                    Step.get("/api/students/fees/summary"),
+                    Step.get("/api/students/fees/due-payments"),
+                    Step.get("/api/students/fees/recent-payments"),
+                    new Step("GET /api/students/{id}/fees/dues",
+                            (account, random) -> "/api/students/" + student(random) + "/fees/dues"));
+            case "parent" -> List.of(
+                    new Step("GET /students/parent-dashboard/{id}",
+                            (account, random) -> "/students/parent-dashboard/" + account.studentId()),
+                    new Step("GET /api/students/{id}/fees/dues",
+                            (account, random) -> "/api/students/" + account.studentId() + "/fees/dues"),
+                    new Step("GET /api/students/{id}/attendance-report",
+                            (account, random) -> "/api/students/" + account.studentId() + "/attendance-report"),
+                    Step.get("/events/calendar"));
+            case "admin" -> List.of(
+                    Step.get("/students/dashboard"),
+                    Step.get("/students/reports"),
+                    Step.get("/api/students/statistics"),
+                    Step.get("/courses"),
+                    Step.get("/api/students/top-performers?limit=10"));
+            case "exports" -> List.of(
+                    Step.get("/api/students/export"),
+                    Step.get("/students/reports"));
+            default -> throw new IllegalArgumentException("Unknown journey " + role);
+        };
+    }
+
+    private long student(SplittableRandom random) {
+        return studentIds[random.nextInt(studentIds.length)];
+    }
+
+    private String surname(SplittableRandom random) {
+        return URLEncoder.encode(surnames[random.nextInt(surnames.length)], StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,32 @@
+package com.gk.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros);
+        }
+        assertThat(histogram.count()).isEqualTo(100_000);
+        assertThat(histogram.percentile(0.50)).isBetween(50_000L, 51_600L);
+        assertThat(histogram.percentile(0.99)).isBetween(99_000L, 100_000L);
+        assertThat(histogram.percentile(0.999)).isBetween(99_900L, 100_000L);
+        assertThat(histogram.max()).isEqualTo(100_000);
+    }
+
+    @Test
+    void bucketsCoverEveryValue() {
+        for (long value : new long[]{0, 63, 64, 65, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertThat(LatencyHistogram.upperBound(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(LatencyHistogram.upperBound(index - 1)).isLessThan(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.gk.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Closed-loop load driver: every virtual user runs on its own virtual thread,
+ * logs in through the form login, then replays its journey until the run ends.
+ * Latencies are recorded per endpoint once the warmup has passed.
+ */
+final class LoadDriver {
+    static final String LOGIN = "POST /login";
+
+    record Account(String username, String password, Long studentId) {
+    }
+
+    /** One request of a journey; {@code endpoint} is the path template results are grouped under. */
+    record Step(String endpoint, BiFunction<Account, SplittableRandom, String> path) {
+        static Step get(String path) {
+            return new Step("GET " + path, (account, random) -> path);
+        }
+    }
+
+    record Journey(String name, int weight, List<Account> accounts, List<Step> steps) {
+    }
+
+    static final class EndpointStats {
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    }
+
+    record Result(Map<String, EndpointStats> endpoints, Map<String, Integer> usersPerJourney, Duration measured) {
+    }
+
+    private final URI baseUri;
+    private final HttpClient client;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Duration thinkTime;
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+
+    LoadDriver(URI baseUri, Duration warmup, Duration duration, Duration thinkTime) {
+        this.baseUri = baseUri;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.thinkTime = thinkTime;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    Result run(List<Journey> journeys, int users, long seed) {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        Map<String, Integer> usersPerJourney = new TreeMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int user = 0; user < users; user++) {
+                SplittableRandom random = new SplittableRandom(seed + user);
+                Journey journey = pick(journeys, random);
+                usersPerJourney.merge(journey.name(), 1, Integer::sum);
+                executor.execute(() -> runUser(journey, random, measureFrom, end));
+            }
+        }
+        return new Result(new TreeMap<>(endpoints), usersPerJourney, duration);
+    }
+
+    private void runUser(Journey journey, SplittableRandom random, long measureFrom, long end) {
+        Account account = journey.accounts().get(random.nextInt(journey.accounts().size()));
+        Map<String, String> cookies = new HashMap<>();
+        boolean loggedIn = false;
+        while (System.nanoTime() < end) {
+            if (!loggedIn) {
+                loggedIn = login(account, cookies, measureFrom);
+                if (!loggedIn) {
+                    pause(Duration.ofMillis(100));
+                    continue;
+                }
+            }
+            for (Step step : journey.steps()) {
+                if (System.nanoTime() >= end) {
+                    return;
+                }
+                HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(step.path().apply(account, random)))
+                        .header("Cookie", cookieHeader(cookies))
+                        .timeout(Duration.ofSeconds(60))
+                        .GET()
+                        .build();
+                long started = System.nanoTime();
+                HttpResponse<Void> response = send(request);
+                record(step.endpoint(), started, measureFrom, response, response != null && response.statusCode() == 200);
+                if (response != null && isLoginRedirect(response)) {
+                    // The session expired or was never established; log in again before the next step
+                    loggedIn = false;
+                    break;
+                }
+                pause(thinkTime);
+            }
+        }
+    }
+
+    private boolean login(Account account, Map<String, String> cookies, long measureFrom) {
+        cookies.clear();
+        String form = "username=" + URLEncoder.encode(account.username(), StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(account.password(), StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        long started = System.nanoTime();
+        HttpResponse<Void> response = send(request);
+        boolean succeeded = response != null && response.statusCode() == 302
+                && !response.headers().firstValue("Location").orElse("").contains("error");
+        record(LOGIN, started, measureFrom, response, succeeded);
+        if (!succeeded) {
+            return false;
+        }
+        for (String cookie : response.headers().allValues("Set-Cookie")) {
+            int separator = cookie.indexOf('=');
+            int end = cookie.indexOf(';');
+            cookies.put(cookie.substring(0, separator), cookie.substring(separator + 1, end < 0 ? cookie.length() : end));
+        }
+        return !cookies.isEmpty();
+    }
+
+    /** Sends the request and reads the whole body; returns null when the connection failed. */
+    private HttpResponse<Void> send(HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void record(String endpoint, long started, long measureFrom, HttpResponse<Void> response,
+                        boolean succeeded) {
+        if (started < measureFrom) {
+            return;
+        }
+        EndpointStats stats = endpoints.computeIfAbsent(endpoint, key -> new EndpointStats());
+        stats.latencies.record((System.nanoTime() - started) / 1000);
+        stats.statuses.computeIfAbsent(response == null ? 0 : response.statusCode(), key -> new LongAdder())
+                .increment();
+        if (!succeeded) {
+            stats.errors.increment();
+        }
+    }
+
+    private static boolean isLoginRedirect(HttpResponse<Void> response) {
+        return response.statusCode() == 302
+                && response.headers().firstValue("Location").orElse("").contains("/login");
+    }
+
+    private static String cookieHeader(Map<String, String> cookies) {
+        StringJoiner header = new StringJoiner("; ");
+        cookies.forEach((name, value) -> header.add(name + "=" + value));
+        return header.toString();
+    }
+
+    private static Journey pick(List<Journey> journeys, SplittableRandom random) {
+        int total = journeys.stream().mapToInt(Journey::weight).sum();
+        int ticket = random.nextInt(total);
+        for (Journey journey : journeys) {
+            ticket -= journey.weight();
+            if (ticket < 0) {
+                return journey;
+            }
+        }
+        throw new IllegalStateException("No journey picked");
+    }
+
+    private static void pause(Duration time) {
+        if (time.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(time);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.gk.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gk.StudentApplication;
+import com.gk.loadtest.LoadDriver.EndpointStats;
+import com.gk.service.StudentDuesService;
+import com.gk.service.ranking.ClassRankService;
+import com.gk.service.seed.DatasetGenerator;
+import com.gk.service.seed.SeedOptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots the portal on a random port against an in-memory H2 database, seeds
+ * it with {@link DatasetGenerator} and drives it with {@link LoadDriver}.
+ * Arguments are {@code key=value} pairs:
+ * <pre>
+ * students=2000                         students to seed
+ * users=50                              concurrent virtual users
+ * warmup=15                             seconds before latencies are recorded
+ * duration=60                           measured seconds
+ * thinkTime=0                           milliseconds each user waits between requests
+ * mix=teacher:50,parent:30,accountant:15,admin:5   also exports, admins downloading the Excel export
+ * seed=20240101
+ * results=target/loadtest-results.json
+ * threads=platform,virtual              request threads; each mode gets a fresh application and database
+ * tomcatThreads=200                     size of the platform request thread pool
+ * </pre>
+ * Prints throughput and p50/p99/p999 latency per endpoint and writes them as
+ * JSON, followed by the service methods that took the most time. With more
+ * than one thread mode, results go to one file per mode and the modes are
+ * compared side by side at the end.
+ */
+public class LoadTestRunner {
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+        int students = Integer.parseInt(options.getOrDefault("students", "2000"));
+        int users = Integer.parseInt(options.getOrDefault("users", "50"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "20240101"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "15")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+        Duration thinkTime = Duration.ofMillis(Long.parseLong(options.getOrDefault("thinkTime", "0")));
+        Map<String, Integer> mix = options.containsKey("mix") ? parseMix(options.get("mix")) : Journeys.DEFAULT_MIX;
+        Path results = Path.of(options.getOrDefault("results", "target/loadtest-results.json"));
+        List<String> modes = options.containsKey("threads")
+                ? List.of(options.get("threads").split(",")) : List.of("");
+
+        Map<String, LoadDriver.Result> resultsByMode = new LinkedHashMap<>();
+        for (String mode : modes) {
+            Map<String, Object> overrides = new LinkedHashMap<>();
+            if (!mode.isEmpty()) {
+                overrides.put("spring.threads.virtual.enabled", switch (mode) {
+                    case "virtual" -> true;
+                    case "platform" -> false;
+                    default -> throw new IllegalArgumentException("Unknown thread mode " + mode);
+                });
+                System.out.printf("%nThread mode: %s%n", mode);
+            }
+            if (options.containsKey("tomcatThreads")) {
+                overrides.put("server.tomcat.threads.max", options.get("tomcatThreads"));
+            }
+            try (ConfigurableApplicationContext context = start(mode.isEmpty() ? "loadtest" : "loadtest-" + mode,
+                    overrides)) {
+                System.out.printf("Seeding %d students...%n", students);
+                SeedOptions seedOptions = SeedOptions.of(students, seed);
+                context.getBean(DatasetGenerator.class).generate(seedOptions);
+                context.getBean(StudentDuesService.class).refreshAll();
+                context.getBean(ClassRankService.class).rebuild();
+                Journeys journeys = Journeys.load(context.getBean(JdbcTemplate.class), seedOptions.password());
+
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                System.out.printf("Driving http://localhost:%d with %d users for %ds after a %ds warmup%n",
+                        port, users, duration.toSeconds(), warmup.toSeconds());
+                LoadDriver.Result result = new LoadDriver(URI.create("http://localhost:" + port), warmup, duration,
+                        thinkTime).run(journeys.withMix(mix), users, seed);
+                print(result);
+                printServiceTimes(context.getBean(MeterRegistry.class));
+                printCollapsedCalls(context.getBean(MeterRegistry.class));
+                write(result, modes.size() > 1 ? withSuffix(results, mode) : results);
+                resultsByMode.put(mode, result);
+            }
+        }
+        if (resultsByMode.size() > 1) {
+            compare(resultsByMode);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String database, Map<String, Object> overrides) {
+        // Passed as command line arguments so they take precedence over application.properties
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("management.server.port", 0);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:" + database + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                + "NON_KEYWORDS=DAY;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.thymeleaf.cache", true);
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.gk", "WARN");
+        properties.putAll(overrides);
+        return new SpringApplicationBuilder(StudentApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .bannerMode(Banner.Mode.OFF)
+                .run(properties.entrySet().stream()
+                        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                        .toArray(String[]::new));
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    private static void print(LoadDriver.Result result) {
+        double seconds = result.measured().toMillis() / 1000.0;
+        System.out.printf("%nUsers per journey: %s%n", result.usersPerJourney());
+        System.out.printf("%-45s %9s %7s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p99 ms", "p999 ms", "Max ms");
+        long requests = 0;
+        long errors = 0;
+        for (Map.Entry<String, EndpointStats> entry : result.endpoints().entrySet()) {
+            EndpointStats stats = entry.getValue();
+            LatencyHistogram latencies = stats.latencies;
+            requests += latencies.count();
+            errors += stats.errors.sum();
+            System.out.printf("%-45s %9d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n", entry.getKey(), latencies.count(),
+                    stats.errors.sum(), latencies.count() / seconds, latencies.percentile(0.50) / 1000.0,
+                    latencies.percentile(0.99) / 1000.0, latencies.percentile(0.999) / 1000.0,
+                    latencies.max() / 1000.0);
+        }
+        System.out.printf("%-45s %9d %7d %9.1f%n", "Total", requests, errors, requests / seconds);
+    }
+
+    private static void compare(Map<String, LoadDriver.Result> resultsByMode) {
+        Set<String> endpoints = new TreeSet<>();
+        resultsByMode.values().forEach(result -> endpoints.addAll(result.endpoints().keySet()));
+        StringBuilder header = new StringBuilder(String.format("%n%-45s", "Endpoint"));
+        resultsByMode.keySet().forEach(mode -> header.append(String.format(" | %-8s %7s %8s %8s %6s",
+                mode, "Req/s", "p50 ms", "p99 ms", "Errors")));
+        System.out.println(header);
+        for (String endpoint : endpoints) {
+            StringBuilder row = new StringBuilder(String.format("%-45s", endpoint));
+            resultsByMode.forEach((mode, result) -> {
+                EndpointStats stats = result.endpoints().get(endpoint);
+                if (stats == null) {
+                    row.append(String.format(" | %-8s %7s %8s %8s %6s", "", "-", "-", "-", "-"));
+                    return;
+                }
+                double seconds = result.measured().toMillis() / 1000.0;
+                LatencyHistogram latencies = stats.latencies;
+                row.append(String.format(" | %-8s %7.1f %8.1f %8.1f %6d", "", latencies.count() / seconds,
+                        latencies.percentile(0.50) / 1000.0, latencies.percentile(0.99) / 1000.0,
+                        stats.errors.sum()));
+            });
+            System.out.println(row);
+        }
+    }
+
+    private static Path withSuffix(Path file, String mode) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String suffixed = dot < 0 ? name + "-" + mode : name.substring(0, dot) + "-" + mode + name.substring(dot);
+        return file.resolveSibling(suffixed);
+    }
+
+    /** Service methods by total time spent in them, to show which calls dominate each endpoint. */
+    private static void printServiceTimes(MeterRegistry meterRegistry) {
+        List<Timer> timers = new ArrayList<>(meterRegistry.find("app.service.calls").timers());
+        timers.sort(Comparator.comparingDouble((Timer timer) -> timer.totalTime(TimeUnit.MILLISECONDS)).reversed());
+        System.out.printf("%n%-45s %-35s %9s %11s %9s %9s%n",
+                "Service method", "Endpoint", "Calls", "Total s", "Mean ms", "Max ms");
+        for (Timer timer : timers.subList(0, Math.min(20, timers.size()))) {
+            System.out.printf("%-45s %-35s %9d %11.1f %9.1f %9.1f%n",
+                    timer.getId().getTag("class") + "." + timer.getId().getTag("method"),
+                    timer.getId().getTag("endpoint"), timer.count(), timer.totalTime(TimeUnit.SECONDS),
+                    timer.mean(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /** Calls answered with the result of an identical call already in flight. */
+    private static void printCollapsedCalls(MeterRegistry meterRegistry) {
+        Collection<Counter> counters = meterRegistry.find("app.singleflight.collapsed").counters();
+        if (counters.isEmpty()) {
+            return;
+        }
+        System.out.printf("%n%-45s %9s%n", "Collapsed into an in-flight call", "Calls");
+        counters.stream()
+                .sorted(Comparator.comparingDouble(Counter::count).reversed())
+                .forEach(counter -> System.out.printf("%-45s %9.0f%n",
+                        counter.getId().getTag("class") + "." + counter.getId().getTag("method"), counter.count()));
+    }
+
+    private static void write(LoadDriver.Result result, Path file) throws IOException {
+        double seconds = result.measured().toMillis() / 1000.0;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("measuredSeconds", seconds);
+        report.put("usersPerJourney", result.usersPerJourney());
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        result.endpoints().forEach((endpoint, stats) -> {
+            LatencyHistogram latencies = stats.latencies;
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("requests", latencies.count());
+            row.put("errors", stats.errors.sum());
+            row.put("throughput", latencies.count() / seconds);
+            row.put("meanMs", latencies.mean() / 1000.0);
+            row.put("p50Ms", latencies.percentile(0.50) / 1000.0);
+            row.put("p99Ms", latencies.percentile(0.99) / 1000.0);
+            row.put("p999Ms", latencies.percentile(0.999) / 1000.0);
+            row.put("maxMs", latencies.max() / 1000.0);
+            Map<String, Long> statuses = new TreeMap<>();
+            stats.statuses.forEach((status, count) -> statuses.put(String.valueOf(status), count.sum()));
+            row.put("statuses", statuses);
+            endpoints.put(endpoint, row);
+        });
+        report.put("endpoints", endpoints);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        System.out.println("Wrote " + file);
+    }
+}
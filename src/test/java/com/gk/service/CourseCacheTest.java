@@ -0,0 +1,145 @@
+package com.gk.service;
+
+import com.gk.config.monitoring.QueryAssertions;
+import com.gk.dto.FeeInstallment;
+import com.gk.dto.Schedule;
+import com.gk.model.Course;
+import com.gk.repository.CourseRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Course reads served from the second-level cache, and every CourseService write dropping what it changed. */
+@SpringBootTest
+@ActiveProfiles("h2")
+class CourseCacheTest {
+    private static final AtomicInteger codes = new AtomicInteger();
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Cache cache;
+    private Course course;
+
+    @BeforeEach
+    void setUp() {
+        cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        Course created = new Course();
+        created.setCode("CACHE" + (1000 + codes.incrementAndGet()));
+        created.setName("Cached course");
+        created.setCredits(3);
+        created.setFee(1200);
+        created.setMaxStudents(30);
+        created.getInstallments().add(new FeeInstallment("Term 1", Date.valueOf("2025-09-01"), 50));
+        course = courseService.saveCourse(created);
+    }
+
+    @Test
+    void repeatedLookupsByIdAndCodeAreCacheHits() throws Exception {
+        cache.evictAllRegions();
+        warm();
+
+        QueryAssertions.assertStatements(0, () -> {
+            assertThat(courseRepository.findById(course.getId())).isPresent();
+            assertThat(courseRepository.findByCode(course.getCode())).isPresent();
+        });
+    }
+
+    @Test
+    void savingACourseEvictsIt() throws Exception {
+        assertEvictedBy(() -> {
+            Course changed = courseService.getCourseById(course.getId());
+            changed.setName("Renamed course");
+            courseService.saveCourse(changed);
+        });
+        assertThat(courseService.getCourseById(course.getId()).getName()).isEqualTo("Renamed course");
+    }
+
+    @Test
+    void deletingACourseEvictsIt() throws Exception {
+        assertEvictedBy(() -> courseService.deleteCourse(course.getId()));
+        assertThat(courseRepository.findByCode(course.getCode())).isEmpty();
+    }
+
+    @Test
+    void changingTheScheduleEvictsTheCourse() throws Exception {
+        Schedule schedule = new Schedule();
+        schedule.setDayOfWeek("MONDAY");
+        schedule.setStartTime("09:00");
+        schedule.setEndTime("10:00");
+        assertEvictedBy(() -> courseService.addSchedule(course.getId(), schedule));
+        assertThat(schedules()).hasSize(1);
+
+        assertEvictedBy(() -> courseService.removeSchedule(course.getId(), 0));
+        assertThat(schedules()).isEmpty();
+    }
+
+    @Test
+    void changingTheInstallmentsEvictsTheCourse() throws Exception {
+        assertEvictedBy(() -> courseService.addInstallment(course.getId(),
+                new FeeInstallment("Term 2", Date.valueOf("2026-01-01"), 50)));
+        assertThat(installments()).hasSize(2);
+
+        assertEvictedBy(() -> courseService.removeInstallment(course.getId(), 0));
+        assertThat(installments()).extracting(FeeInstallment::getLabel).containsExactly("Term 2");
+    }
+
+    /** Caches the course, its collections and the lookup by code, then checks the write drops all of them. */
+    private void assertEvictedBy(Runnable write) throws Exception {
+        warm();
+        assertThat(cache.containsEntity(Course.class, course.getId())).isTrue();
+        assertThat(cache.containsCollection(Course.class.getName() + ".installments", course.getId())).isTrue();
+        assertThat(cache.containsCollection(Course.class.getName() + ".schedules", course.getId())).isTrue();
+
+        // In a transaction, as the page's open session would be around it; the eviction follows the commit
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> write.run());
+
+        assertThat(cache.containsEntity(Course.class, course.getId())).isFalse();
+        assertThat(cache.containsCollection(Course.class.getName() + ".installments", course.getId())).isFalse();
+        assertThat(cache.containsCollection(Course.class.getName() + ".schedules", course.getId())).isFalse();
+        // The cached lookup by code is gone too, so it goes back to the database
+        assertThat(QueryAssertions.count(() -> courseRepository.findByCode(course.getCode())).statements())
+                .isPositive();
+    }
+
+    private void warm() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Course loaded = courseRepository.findById(course.getId()).orElseThrow();
+            loaded.getInstallments().size();
+            loaded.getSchedules().size();
+        });
+        courseRepository.findByCode(course.getCode());
+    }
+
+    private List<Schedule> schedules() {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                List.copyOf(courseService.getCourseById(course.getId()).getSchedules()));
+    }
+
+    private List<FeeInstallment> installments() {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                List.copyOf(courseService.getCourseById(course.getId()).getInstallments()));
+    }
+}
@@ -0,0 +1,76 @@
+package com.gk.service;
+
+import com.gk.dto.FeeInstallment;
+import com.gk.dto.StudentDues;
+import com.gk.model.Course;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuesCalculatorTest {
+    private static final LocalDate TODAY = LocalDate.of(2025, 10, 1);
+
+    @Test
+    void paymentsSettleTheOldestInstallmentsFirst() {
+        Course termly = course(1200, "2025-08-01",
+                new FeeInstallment("Term 1", Date.valueOf("2025-08-01"), 50),
+                new FeeInstallment("Term 2", Date.valueOf("2025-12-01"), 25));
+        Course lab = course(300, "2025-09-15");
+
+        List<DuesCalculator.Installment> installments = DuesCalculator.installments(termly);
+        // The unallocated 25% is billed with the last installment
+        assertThat(installments).extracting(DuesCalculator.Installment::amount).containsExactly(600.0, 600.0);
+
+        StudentDues dues = DuesCalculator.compute(7, List.of(installments, DuesCalculator.installments(lab)),
+                700, null, TODAY);
+        assertThat(dues.totalFees()).isEqualTo(1500);
+        assertThat(dues.outstanding()).isEqualTo(800);
+        assertThat(dues.overdueAmount()).isEqualTo(200);
+        assertThat(dues.nextDueDate()).isEqualTo(TODAY);
+        assertThat(dues.nextDueAmount()).isEqualTo(200);
+    }
+
+    @Test
+    void nextDueDateIsTheEarliestOpenInstallment() {
+        Course course = course(1000, "2025-09-01",
+                new FeeInstallment("First", Date.valueOf("2025-09-01"), 40),
+                new FeeInstallment("Second", Date.valueOf("2026-01-10"), 60));
+
+        StudentDues dues = DuesCalculator.compute(7, List.of(DuesCalculator.installments(course)), 400, null, TODAY);
+        assertThat(dues.overdueAmount()).isZero();
+        assertThat(dues.nextDueDate()).isEqualTo(LocalDate.of(2026, 1, 10));
+        assertThat(dues.nextDueAmount()).isEqualTo(600);
+
+        StudentDues settled = DuesCalculator.compute(7, List.of(DuesCalculator.installments(course)), 1100, null, TODAY);
+        assertThat(settled.outstanding()).isZero();
+        assertThat(settled.nextDueDate()).isNull();
+    }
+
+    @Test
+    void aCourseWithoutScheduleOrStartDateIsAlreadyDue() {
+        Course undated = course(500, "2025-09-01");
+        undated.setStartDate(null);
+        Course later = course(300, "2025-12-01");
+
+        assertThat(DuesCalculator.installments(undated)).extracting(DuesCalculator.Installment::dueDate)
+                .containsExactly(LocalDate.EPOCH);
+        StudentDues dues = DuesCalculator.compute(7, List.of(DuesCalculator.installments(later),
+                DuesCalculator.installments(undated)), 400, null, TODAY);
+        // Paid first, so the payment leaves only 100 of it overdue
+        assertThat(dues.overdueAmount()).isEqualTo(100);
+        assertThat(dues.nextDueDate()).isEqualTo(TODAY);
+        assertThat(dues.nextDueAmount()).isEqualTo(100);
+    }
+
+    private static Course course(double fee, String startDate, FeeInstallment... installments) {
+        Course course = new Course();
+        course.setFee(fee);
+        course.setStartDate(Date.valueOf(startDate));
+        course.getInstallments().addAll(List.of(installments));
+        return course;
+    }
+}
@@ -0,0 +1,247 @@
+package com.gk.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gk.dto.PaymentEvent;
+import com.gk.exception.NotFoundException;
+import com.gk.repository.FeePaymentRepository;
+import com.gk.repository.OutboxRepository;
+import com.gk.service.events.DomainEventPublisher;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** The ingestion pipeline against H2, with a dues service that can hold the writer in the middle of a batch. */
+class PaymentIngestionServiceTest {
+    private static final long STUDENT = 1;
+    private static final long OTHER_STUDENT = 2;
+
+    private final JdbcDataSource h2 = new JdbcDataSource();
+    private final DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(h2);
+    private final HeldDues dues = new HeldDues(transactionManager);
+    private JdbcTemplate jdbcTemplate;
+    private PaymentIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        h2.setURL("jdbc:h2:mem:payments;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(h2);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE students (id BIGINT PRIMARY KEY, last_modified_date TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE student_fees (student_id BIGINT NOT NULL, fee_type VARCHAR(50) NOT NULL,"
+                + " amount DOUBLE, paid_date TIMESTAMP, status VARCHAR(20), transaction_id VARCHAR(32),"
+                + " remarks VARCHAR(255), recorded_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO students (id) VALUES (?), (?)", STUDENT, OTHER_STUDENT);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dues.release();
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    void recordsSingleAndBatchedPaymentsAndWritesTheQueueBeforeStopping() throws Exception {
+        service = start(100);
+
+        Map<String, Object> single = service.submit(List.of(payment("single", STUDENT))).get(0);
+        List<Map<String, Object>> batch = service.submit(List.of(payment("batch-1", STUDENT),
+                payment("batch-2", OTHER_STUDENT), payment("batch-3", 99)));
+        service.stop();
+
+        assertThat(single.get("status")).isEqualTo(PaymentIngestionService.ACCEPTED);
+        assertThat(batch).extracting(result -> result.get("status")).containsOnly(PaymentIngestionService.ACCEPTED);
+        assertThat(jdbcTemplate.queryForList("SELECT transaction_id FROM student_fees ORDER BY transaction_id",
+                String.class)).containsExactlyInAnyOrder(transactionId(single), transactionId(batch.get(0)),
+                transactionId(batch.get(1)));
+        assertThat(status("single")).isEqualTo(PaymentIngestionService.RECORDED);
+        assertThat(status("batch-3")).isEqualTo(PaymentIngestionService.UNKNOWN_STUDENT);
+        assertThat(dues.dirtied).containsOnly(STUDENT, OTHER_STUDENT);
+    }
+
+    @Test
+    void reportsDuplicatesWhileQueuedAndOnceRecorded() throws Exception {
+        service = start(100);
+        dues.hold();
+
+        Map<String, Object> accepted = service.submit(List.of(payment("key", STUDENT))).get(0);
+        Map<String, Object> queued = service.submit(List.of(payment("key", STUDENT))).get(0);
+
+        assertThat(queued.get("status")).isEqualTo(PaymentIngestionService.DUPLICATE);
+        assertThat(transactionId(queued)).isEqualTo(transactionId(accepted));
+        assertThat(service.getStatus("key").get("status")).isEqualTo(PaymentIngestionService.PENDING);
+
+        dues.release();
+        await(() -> PaymentIngestionService.RECORDED.equals(status("key")));
+        Map<String, Object> recorded = service.submit(List.of(payment("key", STUDENT))).get(0);
+
+        assertThat(recorded.get("status")).isEqualTo(PaymentIngestionService.DUPLICATE);
+        assertThat(transactionId(recorded)).isEqualTo(transactionId(accepted));
+        assertThat(countFees()).isEqualTo(1);
+        assertThatThrownBy(() -> service.getStatus("never-sent")).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void recordsOneGatewayTransactionOnceWhateverItsKeys() throws Exception {
+        service = start(100);
+        dues.hold();
+
+        Map<String, Object> first = service.submit(List.of(payment("first", STUDENT, "GW-1"))).get(0);
+        Map<String, Object> queued = service.submit(List.of(payment("second", STUDENT, "GW-1"))).get(0);
+        dues.release();
+        await(() -> PaymentIngestionService.RECORDED.equals(status("first")));
+        Map<String, Object> recorded = service.submit(List.of(payment("third", STUDENT, "GW-1"))).get(0);
+
+        assertThat(queued.get("status")).isEqualTo(PaymentIngestionService.DUPLICATE);
+        assertThat(recorded.get("status")).isEqualTo(PaymentIngestionService.DUPLICATE);
+        assertThat(transactionId(recorded)).isEqualTo(transactionId(first));
+        assertThat(countFees()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsPaymentsOnceTheBufferIsFull() throws Exception {
+        service = start(2);
+        dues.hold();
+        service.submit(List.of(payment("writing", STUDENT)));
+        // The writer has taken the first payment off the queue and waits in its batch
+        assertThat(dues.entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<Map<String, Object>> results = service.submit(List.of(payment("queued-1", STUDENT),
+                payment("queued-2", STUDENT), payment("overflow", STUDENT)));
+
+        assertThat(results).extracting(result -> result.get("status")).containsExactly(
+                PaymentIngestionService.ACCEPTED, PaymentIngestionService.ACCEPTED, PaymentIngestionService.REJECTED);
+        assertThat(results.get(2).get("transactionId")).isNull();
+        assertThat(service.getStats()).containsEntry("queued", 2).containsEntry("rejected", 1L);
+        // A full buffer still reports a queued payment's duplicate, with the transaction id it will be written under
+        Map<String, Object> duplicate = service.submit(List.of(payment("queued-1", STUDENT))).get(0);
+        assertThat(duplicate.get("status")).isEqualTo(PaymentIngestionService.DUPLICATE);
+        assertThat(transactionId(duplicate)).isEqualTo(transactionId(results.get(0)));
+
+        dues.release();
+        await(() -> PaymentIngestionService.RECORDED.equals(status("queued-2")));
+        assertThat(jdbcTemplate.queryForList("SELECT transaction_id FROM student_fees", String.class))
+                .contains(transactionId(results.get(0)));
+        assertThatThrownBy(() -> service.getStatus("overflow")).isInstanceOf(NotFoundException.class);
+        // Rejected, so the gateway's retry goes through
+        assertThat(service.submit(List.of(payment("overflow", STUDENT))).get(0).get("status"))
+                .isEqualTo(PaymentIngestionService.ACCEPTED);
+    }
+
+    @Test
+    void retriesAFailedBatchRowByRowAndStoresTheRowThatStillFails() throws Exception {
+        service = start(100);
+        dues.hold();
+        service.submit(List.of(payment("holding", STUDENT)));
+        assertThat(dues.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        PaymentEvent broken = payment("broken", STUDENT);
+        broken.setFeeType(null);
+        // Queued together, so the writer takes them as one batch once released
+        service.submit(List.of(payment("good-1", STUDENT), broken, payment("good-2", OTHER_STUDENT)));
+
+        dues.release();
+        await(() -> !PaymentIngestionService.PENDING.equals(status("good-2")));
+
+        assertThat(status("good-1")).isEqualTo(PaymentIngestionService.RECORDED);
+        assertThat(status("good-2")).isEqualTo(PaymentIngestionService.RECORDED);
+        assertThat(status("broken")).isEqualTo(PaymentIngestionService.FAILED);
+        assertThat(countFees()).isEqualTo(3);
+        assertThat(service.getStats()).containsEntry("failed", 1L);
+
+        // The gateway retries the failed payment, this time complete
+        Map<String, Object> retried = service.submit(List.of(payment("broken", STUDENT))).get(0);
+        assertThat(retried.get("status")).isEqualTo(PaymentIngestionService.ACCEPTED);
+        await(() -> PaymentIngestionService.RECORDED.equals(status("broken")));
+        assertThat(countFees()).isEqualTo(4);
+    }
+
+    private PaymentIngestionService start(int queueCapacity) {
+        FeePaymentRepository payments = new FeePaymentRepository(jdbcTemplate);
+        payments.createTable();
+        OutboxRepository outbox = new OutboxRepository(jdbcTemplate);
+        outbox.createTable();
+        PaymentIngestionService started = new PaymentIngestionService(payments, new TransactionIdGenerator(1), dues,
+                new DomainEventPublisher(outbox, new ObjectMapper()), transactionManager, queueCapacity, 100, 50, 3);
+        started.start();
+        return started;
+    }
+
+    private static PaymentEvent payment(String key, long studentId) {
+        return payment(key, studentId, null);
+    }
+
+    private static PaymentEvent payment(String key, long studentId, String gatewayTransactionId) {
+        PaymentEvent event = new PaymentEvent();
+        event.setIdempotencyKey(key);
+        event.setGatewayTransactionId(gatewayTransactionId);
+        event.setStudentId(studentId);
+        event.setFeeType("TUITION");
+        event.setAmount(250.0);
+        return event;
+    }
+
+    private String status(String key) {
+        return (String) service.getStatus(key).get("status");
+    }
+
+    private static String transactionId(Map<String, Object> result) {
+        return (String) result.get("transactionId");
+    }
+
+    private int countFees() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM student_fees", Integer.class);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("waited 5 s").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /** Records the students marked dirty, and can hold the writer there until released. */
+    private static final class HeldDues extends StudentDuesService {
+        final List<Long> dirtied = new java.util.concurrent.CopyOnWriteArrayList<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        HeldDues(DataSourceTransactionManager transactionManager) {
+            super(null, null, transactionManager, new SyncTaskExecutor(), 1, 1, 1);
+        }
+
+        void hold() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        @Override
+        public void markStudentsDirty(Collection<Long> studentIds) {
+            entered.countDown();
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dirtied.addAll(studentIds);
+        }
+    }
+}
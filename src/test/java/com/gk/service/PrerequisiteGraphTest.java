@@ -0,0 +1,62 @@
+package com.gk.service;
+
+import com.gk.exception.PrerequisiteCycleException;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PrerequisiteGraphTest {
+
+    private PrerequisiteGraph chain() {
+        return PrerequisiteGraph.builder()
+                .addCourse(1L, "CS101", "Programming")
+                .addCourse(2L, "CS201", "Data Structures")
+                .addPrerequisite("CS201", "CS101")
+                .addCourse(3L, "CS301", "Algorithms")
+                .addPrerequisite("CS301", "Data Structures")
+                .addPrerequisite("CS301", "Discrete Maths")
+                .build();
+    }
+
+    @Test
+    void closureFollowsChainsAndResolvesNames() {
+        PrerequisiteGraph graph = chain();
+        int algorithms = graph.nodeOf("CS301").orElseThrow();
+
+        assertThat(graph.keysOf(graph.prerequisitesOf(algorithms)))
+                .containsExactlyInAnyOrder("CS101", "CS201", "DISCRETE MATHS");
+    }
+
+    @Test
+    void eligibilityRequiresWholeClosure() {
+        PrerequisiteGraph graph = chain();
+
+        BitSet none = graph.completedFrom(List.of());
+        assertThat(graph.keysOf(graph.eligibleCourses(none))).containsExactly("CS101");
+
+        BitSet partial = graph.completedFrom(List.of("Programming", "CS201"));
+        assertThat(graph.keysOf(graph.eligibleCourses(partial))).isEmpty();
+        assertThat(graph.keysOf(graph.missingPrerequisites(graph.nodeOf("CS301").orElseThrow(), partial)))
+                .containsExactly("DISCRETE MATHS");
+
+        BitSet all = graph.completedFrom(List.of("cs101", "cs201", "discrete maths"));
+        assertThat(graph.keysOf(graph.eligibleCourses(all))).containsExactly("CS301");
+    }
+
+    @Test
+    void cyclesAreRejected() {
+        assertThatThrownBy(() -> PrerequisiteGraph.builder()
+                .addCourse(1L, "MA101", "Calculus I")
+                .addCourse(2L, "MA102", "Calculus II")
+                .addPrerequisite("MA101", "MA102")
+                .addPrerequisite("MA102", "Calculus I")
+                .build())
+                .isInstanceOf(PrerequisiteCycleException.class)
+                .hasMessageContaining("MA101")
+                .hasMessageContaining("MA102");
+    }
+}
@@ -0,0 +1,113 @@
+package com.gk.service;
+
+import com.gk.dto.ImportJob;
+import com.gk.repository.IdBlockAllocator;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/** The import against H2, run on the calling thread, in batches of two so a failed batch is retried row by row. */
+class StudentImportServiceTest {
+    private final JdbcDataSource h2 = new JdbcDataSource();
+    private final DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(h2);
+    private final ValidatorFactory validation = Validation.buildDefaultValidatorFactory();
+    private JdbcTemplate jdbcTemplate;
+    private StudentImportService service;
+
+    @BeforeEach
+    void setUp() {
+        h2.setURL("jdbc:h2:mem:import;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(h2);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE students (id BIGINT PRIMARY KEY, name VARCHAR(100), age INT,"
+                + " email VARCHAR(100) UNIQUE, phone_number VARCHAR(20), grade VARCHAR(10), attendance DOUBLE,"
+                + " address VARCHAR(255), date_of_birth DATE, parent_email VARCHAR(100), parent_phone VARCHAR(20),"
+                + " blood_group VARCHAR(5), emergency_contact VARCHAR(20), admission_date DATE,"
+                + " registration_number VARCHAR(20) UNIQUE, section VARCHAR(10), roll_number VARCHAR(20),"
+                + " parent_name VARCHAR(100), parent_occupation VARCHAR(100), annual_income DOUBLE,"
+                + " last_modified_date TIMESTAMP)");
+        // Rows already there: the allocated ids start above them
+        jdbcTemplate.update("INSERT INTO students (id, name, age, grade) VALUES (40, 'Existing', 15, '9')");
+        IdBlockAllocator allocator = new IdBlockAllocator(jdbcTemplate, transactionManager);
+        allocator.createTable();
+        service = new StudentImportService(jdbcTemplate, transactionManager, allocator, validation.getValidator(),
+                new SyncTaskExecutor(), 2, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        validation.close();
+    }
+
+    @Test
+    void insertsTheValidRowsAndReportsEveryOtherRowWithItsErrors() throws Exception {
+        ImportJob job = service.submit(csv("students.csv", """
+                Name,Age,Email,Grade,Date of Birth,Attendance,Annual Income
+                Ada,15,ada@example.com,10,2010-05-04,92.5,"1,200,000"
+                Ben,old,ben@example.com,10,,,
+                ,,,,,,
+                Cy,15,not-an-email,,,,
+                Dee,16,ada@example.com,10,,,
+                Eve,15,eve@example.com,11,04/05/2010,,
+                Fay,17,fay@example.com,12,,80,
+                """));
+
+        assertThat(job.getStatus()).isEqualTo(ImportJob.Status.COMPLETED);
+        assertThat(job.getRowsRead()).isEqualTo(6);
+        assertThat(job.getImported()).isEqualTo(2);
+        assertThat(job.getRejected()).isEqualTo(4);
+        assertThat(job.getErrors()).extracting(ImportJob.RowError::row, ImportJob.RowError::field)
+                .containsExactlyInAnyOrder(tuple(3, "age"), tuple(5, "email"), tuple(5, "grade"),
+                        tuple(6, null), tuple(7, "dateOfBirth"));
+        // Dee's row failed on the database as part of a batch; only Dee is rejected for it
+        assertThat(job.getErrors()).filteredOn(error -> error.row() == 6).singleElement()
+                .satisfies(error -> assertThat(error.message()).containsIgnoringCase("unique"));
+        assertThat(service.getErrorReport(job.getId())).startsWith("""
+                row,field,message
+                3,age,Expected a number: old
+                """).contains("7,dateOfBirth,Expected a yyyy-MM-dd date: 04/05/2010\n");
+
+        List<Map<String, Object>> students = jdbcTemplate.queryForList("SELECT id, name, age, email, grade,"
+                + " date_of_birth, attendance, annual_income, admission_date FROM students WHERE id > 40 ORDER BY id");
+        assertThat(students).extracting(row -> row.get("NAME")).containsExactly("Ada", "Fay");
+        assertThat(students).extracting(row -> ((Number) row.get("ID")).longValue()).doesNotHaveDuplicates()
+                .allMatch(id -> id > 40);
+        Map<String, Object> ada = students.get(0);
+        // With a date of birth, the age is worked out from it
+        assertThat(ada).containsEntry("AGE", Period.between(LocalDate.of(2010, 5, 4), LocalDate.now()).getYears())
+                .containsEntry("EMAIL", "ada@example.com")
+                .containsEntry("GRADE", "10").containsEntry("DATE_OF_BIRTH", Date.valueOf("2010-05-04"))
+                .containsEntry("ATTENDANCE", 92.5).containsEntry("ANNUAL_INCOME", 1_200_000.0)
+                .containsEntry("ADMISSION_DATE", Date.valueOf(LocalDate.now()));
+        assertThat(students.get(1)).containsEntry("AGE", 17).containsEntry("ATTENDANCE", 80.0).containsEntry("ANNUAL_INCOME", null);
+    }
+
+    @Test
+    void rejectsAnUnsupportedFileBeforeQueueingIt() {
+        assertThatThrownBy(() -> service.submit(csv("students.txt", "name\nAda\n")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM students", Integer.class)).isEqualTo(1);
+    }
+
+    private static MockMultipartFile csv(String fileName, String content) {
+        return new MockMultipartFile("file", fileName, "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
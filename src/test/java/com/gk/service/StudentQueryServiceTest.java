@@ -0,0 +1,227 @@
+package com.gk.service;
+
+import com.gk.dto.FeeDetail;
+import com.gk.model.Attendance;
+import com.gk.model.Course;
+import com.gk.model.Student;
+import com.gk.model.SubjectMark;
+import com.gk.repository.AttendanceRepository;
+import com.gk.repository.StudentReportRepository.RecentPayment;
+import com.gk.repository.StudentReportRepository.TopPerformer;
+import com.gk.repository.StudentRepository;
+import com.gk.service.ranking.ClassRankService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The report aggregates against H2 in MySQL mode, over three students with
+ * known marks, attendance and payments either side of month boundaries.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+// The aggregates count every row, so this class starts from an empty database of its own
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+@WithMockUser(roles = "ADMIN")
+class StudentQueryServiceTest {
+    private static final YearMonth THIS_MONTH = YearMonth.now();
+
+    @Autowired
+    private StudentQueryService queryService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private StudentDuesService studentDuesService;
+
+    @Autowired
+    private ClassRankService classRankService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void seed() {
+        if (studentRepository.count() > 0) {
+            return;
+        }
+        Student ada = student("Ada", "10", 90, mark("Maths", 80), mark("Physics", 90));
+        Student ben = student("Ben", "10", 70, mark("Maths", 60));
+        Student cy = student("Cy", "11", 80);
+
+        // Whole months: the first and the last day of last month count, the first of this month does not
+        YearMonth lastMonth = THIS_MONTH.minusMonths(1);
+        attend(ada, lastMonth.atDay(1), true);
+        attend(ada, lastMonth.atEndOfMonth(), true);
+        attend(ben, lastMonth.atEndOfMonth(), false);
+        attend(ada, THIS_MONTH.minusMonths(2).atDay(15), true);
+        attend(ben, THIS_MONTH.atDay(1), false);
+
+        LocalDateTime now = LocalDateTime.now();
+        pay(ada, "TUITION", 100, "PAID", now);
+        pay(ben, "LAB", 50, "PENDING", now);
+        pay(ada, "TUITION", 200, "PAID", THIS_MONTH.minusMonths(2).atEndOfMonth().atTime(23, 59));
+        // Before the six months of the trend
+        pay(cy, "TRANSPORT", 300, "PAID", THIS_MONTH.minusMonths(6).atDay(20).atStartOfDay());
+
+        Course course = new Course();
+        course.setCode("REP101");
+        course.setName("Reporting");
+        course.setCredits(3);
+        course.setFee(1000);
+        course.setMaxStudents(30);
+        course = courseService.saveCourse(course);
+        courseService.enrollStudent(course.getId(), ada.getId());
+        studentDuesService.refreshAll();
+        // The seeded marks were not recorded through the outbox
+        classRankService.rebuild();
+    }
+
+    @Test
+    void studentAggregates() {
+        assertThat(queryService.getTotalStudents()).isEqualTo(3);
+        assertThat(queryService.getAverageAttendance()).isCloseTo(80.0, within(1e-9));
+        // Cy has no marks and counts as 0
+        assertThat(queryService.getAverageGrade()).isCloseTo((85.0 + 60.0 + 0.0) / 3, within(1e-9));
+        assertThat(queryService.getGradeDistribution()).containsExactly(Map.entry("10", 2L), Map.entry("11", 1L));
+        // From the class ranks, which leave out Cy, who has no marks
+        assertThat(queryService.getTopPerformers(5))
+                .extracting(TopPerformer::name, TopPerformer::grade, TopPerformer::attendance, TopPerformer::averageScore)
+                .containsExactly(tuple("Ada", "10", 90.0, 85.0), tuple("Ben", "10", 70.0, 60.0));
+        assertThat(queryService.getTotalCourses()).isEqualTo(1);
+        assertThat(queryService.getCoursesWithEnrollments()).isEqualTo(1);
+    }
+
+    @Test
+    void attendanceTrendCountsWholeMonthsMostRecentFirst() {
+        Map<String, Double> trend = queryService.getAttendanceTrend();
+
+        assertThat(trend.keySet()).containsExactly(label(1), label(2), label(3), label(4), label(5), label(6));
+        assertThat(trend.get(label(1))).isCloseTo(200.0 / 3, within(1e-9));
+        assertThat(trend.get(label(2))).isEqualTo(100.0);
+        assertThat(trend.get(label(3))).isZero();
+    }
+
+    @Test
+    void revenueTrendCoversSixConsecutiveMonthsOldestFirst() {
+        List<Map<String, Object>> trend = queryService.getRevenueTrend();
+
+        assertThat(trend).extracting(month -> month.get("month")).containsExactly(
+                firstDay(5), firstDay(4), firstDay(3), firstDay(2), firstDay(1), firstDay(0));
+        // Whatever their status; the payment on the last minute of a month stays in it
+        assertThat(trend).extracting(month -> month.get("revenue")).containsExactly(
+                0.0, 0.0, 0.0, 200.0, 0.0, 150.0);
+    }
+
+    @Test
+    void feeAggregates() {
+        assertThat(queryService.calculateTotalRevenue()).isEqualTo(600.0);
+        assertThat(queryService.getTodayPayments().paidAmount()).isEqualTo(100.0);
+        assertThat(queryService.getTodayPayments().transactions()).isEqualTo(2);
+        assertThat(queryService.getFeeTypeDistribution())
+                .containsExactly(Map.entry("TRANSPORT", 300.0), Map.entry("TUITION", 300.0));
+        // Today's two, in either order, before the older ones
+        List<RecentPayment> recent = queryService.getRecentPayments();
+        assertThat(recent).extracting(RecentPayment::amount).hasSize(4).endsWith(200.0, 300.0);
+        assertThat(recent.subList(0, 2)).extracting(RecentPayment::studentName).containsExactlyInAnyOrder("Ada", "Ben");
+        // Only Ada is enrolled: 1000 due, 300 of it paid
+        assertThat(queryService.calculateTotalPendingDues()).isEqualTo(700.0);
+        assertThat(queryService.calculateCollectionRate()).isCloseTo(30.0, within(1e-9));
+        assertThat(queryService.getDuePayments()).singleElement()
+                .satisfies(due -> assertThat(due).containsEntry("studentName", "Ada").containsEntry("dueAmount", 700.0));
+    }
+
+    @Test
+    void feesSummaryPageGetsTheFiguresItsTemplateReads() throws Exception {
+        mockMvc.perform(get("/students/fees/summary"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("totalRevenue", 600.0))
+                .andExpect(model().attribute("todayPayments", 100.0))
+                .andExpect(model().attribute("todayTransactions", 2L))
+                .andExpect(model().attribute("pendingDues", 700.0))
+                .andExpect(model().attribute("pendingCount", 1))
+                .andExpect(model().attribute("feeDistribution", Map.of("TRANSPORT", 300.0, "TUITION", 300.0)))
+                .andExpect(model().attributeExists("recentPayments", "duePayments", "revenueTrend",
+                        "collectionRate"));
+    }
+
+    private static String label(int monthsAgo) {
+        return THIS_MONTH.minusMonths(monthsAgo).format(DateTimeFormatter.ofPattern("MMM"));
+    }
+
+    private static Date firstDay(int monthsAgo) {
+        return Date.valueOf(THIS_MONTH.minusMonths(monthsAgo).atDay(1));
+    }
+
+    private Student student(String name, String grade, double attendance, SubjectMark... marks) {
+        Student student = new Student();
+        student.setName(name);
+        student.setGrade(grade);
+        student.setAge(15);
+        student.setAttendance(attendance);
+        student.getMarks().addAll(List.of(marks));
+        return studentRepository.save(student);
+    }
+
+    private static SubjectMark mark(String subject, double marks) {
+        SubjectMark mark = new SubjectMark();
+        mark.setSubject(subject);
+        mark.setMarks(marks);
+        mark.setTerm("Term 1");
+        return mark;
+    }
+
+    private void attend(Student student, LocalDate day, boolean present) {
+        Attendance attendance = new Attendance();
+        attendance.setStudent(student);
+        attendance.setDate(Date.valueOf(day));
+        attendance.setPresent(present);
+        attendanceRepository.save(attendance);
+    }
+
+    private void pay(Student student, String feeType, double amount, String status, LocalDateTime paidAt) {
+        FeeDetail payment = new FeeDetail();
+        payment.setFeeType(feeType);
+        payment.setAmount(amount);
+        payment.setStatus(status);
+        payment.setPaidDate(Timestamp.valueOf(paidAt));
+        payment.setTransactionId("TXN" + feeType + (int) amount);
+        new TransactionTemplate(transactionManager).executeWithoutResult(transaction ->
+                studentRepository.findById(student.getId()).orElseThrow().getFeePayments().add(payment));
+    }
+}
@@ -0,0 +1,102 @@
+package com.gk.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionIdGeneratorTest {
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        int threads = 8;
+        int perThread = 500_000;
+        TransactionIdGenerator generator = new TransactionIdGenerator(7);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    long[] ids = new long[perThread];
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+            long[] all = new long[threads * perThread];
+            int offset = 0;
+            for (Future<long[]> result : results) {
+                long[] ids = result.get();
+                for (int i = 1; i < ids.length; i++) {
+                    assertThat(ids[i]).isGreaterThan(ids[i - 1]);
+                }
+                System.arraycopy(ids, 0, all, offset, ids.length);
+                offset += ids.length;
+            }
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                assertThat(all[i]).as("duplicate id").isNotEqualTo(all[i - 1]);
+            }
+            assertThat(all[0] >>> TransactionIdGenerator.SEQUENCE_BITS & TransactionIdGenerator.MAX_NODE_ID)
+                    .isEqualTo(7);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void clockRegressionDoesNotReissueIds() {
+        AtomicLong clock = new AtomicLong(TransactionIdGenerator.EPOCH + 10_000);
+        TransactionIdGenerator generator = new TransactionIdGenerator(1, clock::get);
+
+        long before = generator.nextId();
+        clock.addAndGet(-2_000);
+        long during = generator.nextId();
+        clock.addAndGet(5_000);
+        long after = generator.nextId();
+
+        assertThat(during).isGreaterThan(before);
+        assertThat(after).isGreaterThan(during);
+    }
+
+    @Test
+    void sequenceOverflowCarriesIntoNextMillisecond() {
+        TransactionIdGenerator generator = new TransactionIdGenerator(3, () -> TransactionIdGenerator.EPOCH + 1);
+        long previous = generator.nextId();
+        for (int i = 0; i < 3 * (1 << TransactionIdGenerator.SEQUENCE_BITS); i++) {
+            long next = generator.nextId();
+            assertThat(next).isGreaterThan(previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void encodedIdsSortInIssueOrder() {
+        TransactionIdGenerator generator = new TransactionIdGenerator(0);
+        String first = generator.nextTransactionId();
+        String second = generator.nextTransactionId();
+
+        assertThat(first).startsWith("TXN").hasSize(16);
+        assertThat(second).isGreaterThan(first);
+        assertThat(TransactionIdGenerator.encode(Long.MAX_VALUE)).isEqualTo("TXN7ZZZZZZZZZZZZ");
+    }
+
+    @Test
+    void nodeIdMustFitInTenBits() {
+        assertThatThrownBy(() -> new TransactionIdGenerator(1024))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
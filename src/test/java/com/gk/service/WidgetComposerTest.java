@@ -0,0 +1,68 @@
+package com.gk.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WidgetComposerTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private WidgetComposer composer = new WidgetComposer(4, 1000, meterRegistry);
+
+    @AfterEach
+    void stop() {
+        composer.destroy();
+    }
+
+    @Test
+    void runsWidgetsConcurrently() {
+        long start = System.nanoTime();
+        Map<String, Object> widgets = composer.compose()
+                .add("a", () -> sleep(300, "a"), "")
+                .add("b", () -> sleep(300, "b"), "")
+                .add("c", () -> sleep(300, "c"), "")
+                .join();
+        assertThat(widgets).containsExactly(Map.entry("a", "a"), Map.entry("b", "b"), Map.entry("c", "c"));
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(800));
+    }
+
+    @Test
+    void fallsBackOnTimeoutsAndFailures() {
+        Map<String, Object> widgets = composer.compose()
+                .add("slow", Duration.ofMillis(50), () -> sleep(2000, "late"), "fallback")
+                .add("broken", () -> {
+                    throw new IllegalStateException("down");
+                }, "fallback")
+                .add("fine", () -> "value", "fallback")
+                .join();
+        assertThat(widgets).containsEntry("slow", "fallback").containsEntry("broken", "fallback")
+                .containsEntry("fine", "value");
+        assertThat(meterRegistry.counter(WidgetComposer.FALLBACK_METRIC, "widget", "slow", "reason", "timeout")
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void runsOnTheCallingThreadWhenNoPermitIsLeft() {
+        composer.destroy();
+        composer = new WidgetComposer(1, 1000, meterRegistry);
+        Map<String, Object> widgets = composer.compose()
+                // Holds its permit while the second widget starts
+                .add("first", () -> sleep(100, Thread.currentThread().isVirtual()), false)
+                .add("second", () -> Thread.currentThread().isVirtual(), true)
+                .join();
+        assertThat(widgets).containsEntry("first", true).containsEntry("second", false);
+    }
+
+    private static <T> T sleep(long millis, T value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
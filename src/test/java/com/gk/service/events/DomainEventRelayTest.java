@@ -0,0 +1,222 @@
+package com.gk.service.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gk.repository.OutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DomainEventRelayTest {
+    private final InMemoryOutbox outbox = new InMemoryOutbox();
+
+    @Test
+    void deliversInOffsetOrderInBatchesAndResumesAfterARestart() {
+        outbox.saveOffset("rollups", 0);
+        Recorder rollups = new Recorder("rollups");
+        DomainEventRelay relay = relay(0, 0, rollups);
+        for (long offset = 1; offset <= 5; offset++) {
+            outbox.add(offset, DomainEvent.Type.MARK_RECORDED);
+        }
+
+        relay.relay();
+
+        assertThat(rollups.offsets()).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(rollups.batches).hasSize(3);
+        assertThat(outbox.offsets.get("rollups")).isEqualTo(5);
+
+        outbox.add(6, DomainEvent.Type.PAYMENT_RECORDED);
+        Recorder restarted = new Recorder("rollups");
+        relay(0, 0, restarted).relay();
+
+        assertThat(restarted.offsets()).containsExactly(6L);
+    }
+
+    @Test
+    void redeliversAFailedBatchWithoutHoldingOtherSubscribersBack() throws Exception {
+        outbox.saveOffset("cache", 0);
+        outbox.saveOffset("notifications", 0);
+        Recorder cache = new Recorder("cache");
+        Recorder notifications = new Recorder("notifications");
+        notifications.failuresLeft = 1;
+        DomainEventRelay relay = relay(0, 1000, cache, notifications);
+        outbox.add(1, DomainEvent.Type.ATTENDANCE_MARKED);
+        outbox.add(2, DomainEvent.Type.ATTENDANCE_MARKED);
+
+        relay.relay();
+
+        assertThat(cache.offsets()).containsExactly(1L, 2L);
+        assertThat(notifications.offsets()).isEmpty();
+        assertThat(outbox.offsets.get("notifications")).isZero();
+
+        relay.relay();
+        assertThat(notifications.offsets()).isEmpty();
+
+        Thread.sleep(1050);
+        relay.relay();
+
+        assertThat(notifications.offsets()).containsExactly(1L, 2L);
+        assertThat(outbox.offsets.get("notifications")).isEqualTo(2);
+    }
+
+    @Test
+    void waitsForAMissingOffsetBeforeTakingItForARollback() throws Exception {
+        outbox.saveOffset("rollups", 0);
+        Recorder rollups = new Recorder("rollups");
+        DomainEventRelay relay = relay(200, 0, rollups);
+        outbox.add(1, DomainEvent.Type.STUDENT_ENROLLED);
+        outbox.add(3, DomainEvent.Type.STUDENT_UNENROLLED);
+
+        relay.relay();
+        assertThat(rollups.offsets()).containsExactly(1L);
+
+        outbox.add(2, DomainEvent.Type.STUDENT_ENROLLED);
+        relay.relay();
+        assertThat(rollups.offsets()).containsExactly(1L, 2L, 3L);
+
+        outbox.add(5, DomainEvent.Type.MARK_RECORDED);
+        relay.relay();
+        assertThat(rollups.offsets()).containsExactly(1L, 2L, 3L);
+
+        Thread.sleep(250);
+        relay.relay();
+        assertThat(rollups.offsets()).containsExactly(1L, 2L, 3L, 5L);
+    }
+
+    @Test
+    void newSubscribersStartAtTheEndAndSkippedTypesStillMoveTheOffset() {
+        outbox.add(1, DomainEvent.Type.MARK_RECORDED);
+        Recorder payments = new Recorder("payments");
+        payments.accepted = DomainEvent.Type.PAYMENT_RECORDED;
+        DomainEventRelay relay = relay(0, 0, payments);
+        outbox.add(2, DomainEvent.Type.MARK_RECORDED);
+        outbox.add(3, DomainEvent.Type.PAYMENT_RECORDED);
+
+        relay.relay();
+
+        assertThat(payments.offsets()).containsExactly(3L);
+        outbox.add(4, DomainEvent.Type.MARK_RECORDED);
+        relay.relay();
+        assertThat(payments.batches).hasSize(1);
+        assertThat(outbox.offsets.get("payments")).isEqualTo(4);
+    }
+
+    @Test
+    void restartsDeliveryTheExecutorTurnedAwayOnceTheMailboxIsFull() {
+        outbox.saveOffset("rollups", 0);
+        Recorder rollups = new Recorder("rollups");
+        boolean[] rejecting = {true};
+        DomainEventRelay relay = relay(0, 0, task -> {
+            if (rejecting[0]) {
+                throw new TaskRejectedException("busy");
+            }
+            task.run();
+        }, rollups);
+        for (long offset = 1; offset <= 10; offset++) {
+            outbox.add(offset, DomainEvent.Type.MARK_RECORDED);
+        }
+
+        // Four batches fill the mailbox, and no drain is running to empty it
+        relay.relay();
+        assertThat(rollups.batches).isEmpty();
+
+        rejecting[0] = false;
+        relay.relay();
+
+        assertThat(rollups.offsets()).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(outbox.offsets.get("rollups")).isEqualTo(10);
+    }
+
+    private DomainEventRelay relay(long gapTimeoutMillis, long retryDelayMillis, DomainEventSubscriber... subscribers) {
+        return relay(gapTimeoutMillis, retryDelayMillis, new SyncTaskExecutor(), subscribers);
+    }
+
+    private DomainEventRelay relay(long gapTimeoutMillis, long retryDelayMillis, TaskExecutor taskExecutor,
+                                   DomainEventSubscriber... subscribers) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        for (DomainEventSubscriber subscriber : subscribers) {
+            beans.addBean(subscriber.name(), subscriber);
+        }
+        DomainEventRelay relay = new DomainEventRelay(outbox, beans.getBeanProvider(DomainEventSubscriber.class),
+                new ObjectMapper(), taskExecutor, new SimpleMeterRegistry(), 2, 4,
+                gapTimeoutMillis, retryDelayMillis, 7);
+        relay.start();
+        return relay;
+    }
+
+    private static class Recorder implements DomainEventSubscriber {
+        private final String name;
+        private final List<List<DomainEvent>> batches = new ArrayList<>();
+        private DomainEvent.Type accepted;
+        private int failuresLeft;
+
+        Recorder(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public boolean accepts(DomainEvent.Type type) {
+            return accepted == null || accepted == type;
+        }
+
+        @Override
+        public void onEvents(List<DomainEvent> events) {
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new IllegalStateException("down");
+            }
+            batches.add(events);
+        }
+
+        List<Long> offsets() {
+            return batches.stream().flatMap(List::stream).map(DomainEvent::offset).toList();
+        }
+    }
+
+    private static class InMemoryOutbox extends OutboxRepository {
+        private final NavigableMap<Long, StoredEntry> entries = new ConcurrentSkipListMap<>();
+        private final Map<String, Long> offsets = new ConcurrentHashMap<>();
+
+        InMemoryOutbox() {
+            super(null);
+        }
+
+        void add(long offset, DomainEvent.Type type) {
+            entries.put(offset, new StoredEntry(offset, type.name(), 7, "{\"subject\":\"Physics\"}", Instant.now()));
+        }
+
+        @Override
+        public List<StoredEntry> findAfter(long offset, int limit) {
+            return entries.tailMap(offset, false).values().stream().limit(limit).toList();
+        }
+
+        @Override
+        public long findLatestOffset() {
+            return entries.isEmpty() ? 0 : entries.lastKey();
+        }
+
+        @Override
+        public Map<String, Long> findOffsets() {
+            return new HashMap<>(offsets);
+        }
+
+        @Override
+        public void saveOffset(String subscriber, long offset) {
+            offsets.merge(subscriber, offset, Math::max);
+        }
+    }
+}
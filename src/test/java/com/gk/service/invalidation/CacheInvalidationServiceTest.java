@@ -0,0 +1,126 @@
+package com.gk.service.invalidation;
+
+import com.gk.repository.InvalidationLogRepository;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Two instances sharing one database, each tailing the log on its own schedule. */
+class CacheInvalidationServiceTest {
+    private final JdbcDataSource h2 = new JdbcDataSource();
+    private final ScheduledExecutorService pollers = Executors.newScheduledThreadPool(2);
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        h2.setURL("jdbc:h2:mem:invalidation;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(h2);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + InvalidationLogRepository.TABLE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pollers.shutdownNow();
+    }
+
+    @Test
+    void invalidationsReachTheOtherInstanceWithinAFewPolls() throws Exception {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        CacheInvalidationService first = instance("first", meters);
+        CacheInvalidationService second = instance("second", meters);
+        List<IdRange> firstEvicted = new CopyOnWriteArrayList<>();
+        BlockingQueue<Long> secondEvicted = new LinkedBlockingQueue<>();
+        first.subscribe(CachedEntity.COURSE, firstEvicted::addAll);
+        second.subscribe(CachedEntity.COURSE, ranges -> secondEvicted.add(System.nanoTime()));
+        poll(first, second);
+
+        int writes = 50;
+        long[] delays = new long[writes];
+        for (int i = 0; i < writes; i++) {
+            long start = System.nanoTime();
+            first.invalidate(CachedEntity.COURSE, i);
+            Long evictedAt = secondEvicted.poll(5, TimeUnit.SECONDS);
+            assertThat(evictedAt).as("invalidation %d", i).isNotNull();
+            delays[i] = TimeUnit.NANOSECONDS.toMillis(evictedAt - start);
+        }
+        Arrays.sort(delays);
+        // Polling every 20 ms, so anything near a second means rows were waited on or missed
+        assertThat(delays[writes - 1]).isLessThan(1000);
+        Timer delay = meters.get(CacheInvalidationService.DELAY_METRIC).timer();
+        assertThat(delay.count()).isEqualTo(writes);
+        // The writer evicted its own copies once, and skipped its rows in the log
+        assertThat(firstEvicted).hasSize(writes);
+    }
+
+    @Test
+    void aTransactionWritesItsInvalidationsCoalescedAndOnlyIfItCommits() throws Exception {
+        CacheInvalidationService first = instance("first", new SimpleMeterRegistry());
+        CacheInvalidationService second = instance("second", new SimpleMeterRegistry());
+        List<IdRange> firstEvicted = new CopyOnWriteArrayList<>();
+        BlockingQueue<List<IdRange>> secondEvicted = new LinkedBlockingQueue<>();
+        first.subscribe(CachedEntity.COURSE, firstEvicted::addAll);
+        second.subscribe(CachedEntity.COURSE, secondEvicted::add);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(h2));
+
+        transaction.executeWithoutResult(status -> {
+            for (long id : new long[] {3, 1, 2, 7, 2}) {
+                first.invalidate(CachedEntity.COURSE, id);
+            }
+            first.invalidate(CachedEntity.USER, 5);
+            assertThat(firstEvicted).isEmpty();
+        });
+        transaction.executeWithoutResult(status -> {
+            first.invalidate(CachedEntity.COURSE, 40);
+            status.setRollbackOnly();
+        });
+
+        List<IdRange> coalesced = List.of(new IdRange(1, 3), IdRange.of(7));
+        assertThat(firstEvicted).containsExactlyElementsOf(coalesced);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + InvalidationLogRepository.TABLE,
+                Integer.class)).isEqualTo(3);
+        second.poll();
+        assertThat(secondEvicted.poll()).containsExactlyElementsOf(coalesced);
+        assertThat(secondEvicted).isEmpty();
+    }
+
+    @Test
+    void rangesAreMergedAndCappedInNumber() {
+        List<IdRange> ranges = new ArrayList<>(List.of(IdRange.of(9), new IdRange(1, 4), IdRange.of(5),
+                new IdRange(3, 6), IdRange.of(20)));
+
+        assertThat(IdRange.coalesce(ranges, 10))
+                .containsExactly(new IdRange(1, 6), IdRange.of(9), IdRange.of(20));
+        assertThat(IdRange.coalesce(ranges, 2)).containsExactly(new IdRange(1, 20));
+
+        ranges.add(IdRange.ALL);
+        assertThat(IdRange.coalesce(ranges, 10)).containsExactly(IdRange.ALL);
+    }
+
+    private CacheInvalidationService instance(String nodeId, SimpleMeterRegistry meters) {
+        InvalidationLogRepository repository = new InvalidationLogRepository(new JdbcTemplate(h2));
+        repository.createTable();
+        CacheInvalidationService service = new CacheInvalidationService(repository, meters, nodeId, 1000, 32,
+                10_000, 60);
+        service.start();
+        return service;
+    }
+
+    private void poll(CacheInvalidationService... instances) {
+        for (CacheInvalidationService instance : instances) {
+            pollers.scheduleWithFixedDelay(instance::poll, 20, 20, TimeUnit.MILLISECONDS);
+        }
+    }
+}
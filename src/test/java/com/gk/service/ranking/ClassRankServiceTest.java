@@ -0,0 +1,115 @@
+package com.gk.service.ranking;
+
+import com.gk.dto.ClassRank;
+import com.gk.repository.ClassRankRepository;
+import com.gk.service.events.DomainEvent;
+import com.gk.service.ranking.ClassRankService.Scope;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
+
+/** The ranks built from marks in H2: two sections of grade 10, one student in grade 11 and one without marks. */
+class ClassRankServiceTest {
+    private final JdbcDataSource h2 = new JdbcDataSource();
+    private JdbcTemplate jdbcTemplate;
+    private ClassRankService service;
+
+    @BeforeEach
+    void setUp() {
+        h2.setURL("jdbc:h2:mem:ranks;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(h2);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE students (id BIGINT PRIMARY KEY, grade VARCHAR(10), section VARCHAR(10))");
+        jdbcTemplate.execute("CREATE TABLE student_marks (student_id BIGINT, subject VARCHAR(50), term VARCHAR(20),"
+                + " marks DOUBLE)");
+        jdbcTemplate.update("INSERT INTO students (id, grade, section) VALUES (1, '10', 'A'), (2, '10', 'A'),"
+                + " (3, '10', 'B'), (4, '11', 'A'), (5, '10', 'A')");
+        jdbcTemplate.update("INSERT INTO student_marks (student_id, subject, term, marks) VALUES"
+                + " (1, 'Maths', 'Term 1', 80), (1, 'Physics', 'Term 1', 60), (2, 'Maths', 'Term 1', 90),"
+                + " (3, 'Maths', 'Term 1', 70), (4, 'Maths', 'Term 1', 100)");
+        service = new ClassRankService(new ClassRankRepository(jdbcTemplate));
+        service.rebuild();
+    }
+
+    @Test
+    void ranksEachStudentInTheirSectionAndGradeForEverySubjectAndTerm() {
+        // Section 10A overall: 90 and 70
+        assertThat(rank(1, Scope.SECTION, null, null))
+                .isEqualTo(new ClassRank(1, "10", "A", null, null, 2, 2, 25.0, 70.0));
+        // Grade 10 overall: 90, 70 and 70; the tied students share the rank and split the middle
+        ClassRank inGrade = rank(1, Scope.GRADE, null, null);
+        assertThat(inGrade.rank()).isEqualTo(2);
+        assertThat(inGrade.cohortSize()).isEqualTo(3);
+        assertThat(inGrade.percentile()).isCloseTo(100.0 / 3, within(1e-9));
+        assertThat(rank(3, Scope.GRADE, null, null).rank()).isEqualTo(2);
+
+        // Maths in Term 1, Maths over all terms, and Term 1 over all subjects
+        assertThat(rank(1, Scope.GRADE, "Maths", "Term 1")).extracting(ClassRank::rank, ClassRank::percentile,
+                ClassRank::score).containsExactly(2, 50.0, 80.0);
+        assertThat(rank(1, Scope.GRADE, "Maths", null).score()).isEqualTo(80.0);
+        assertThat(rank(1, Scope.SECTION, null, "Term 1").score()).isEqualTo(70.0);
+        assertThat(rank(1, Scope.SECTION, "Physics", "Term 1")).extracting(ClassRank::rank, ClassRank::cohortSize)
+                .containsExactly(1, 1);
+
+        assertThat(service.getRank(1, Scope.GRADE, "Chemistry", null)).isEmpty();
+        assertThat(service.getRank(5, Scope.GRADE, null, null)).as("no marks").isEmpty();
+    }
+
+    @Test
+    void listsTheTopOfASectionAGradeOrTheWholeSchool() {
+        assertThat(service.getTop(null, null, null, null, 10))
+                .extracting(ClassRank::studentId, ClassRank::rank, ClassRank::score)
+                .containsExactly(tuple(4L, 1, 100.0), tuple(2L, 2, 90.0), tuple(1L, 3, 70.0), tuple(3L, 3, 70.0));
+        assertThat(service.getTop(null, null, null, null, 2)).extracting(ClassRank::studentId).containsExactly(4L, 2L);
+        assertThat(service.getTop("10", null, null, null, 10)).extracting(ClassRank::studentId)
+                .containsExactly(2L, 1L, 3L);
+        assertThat(service.getTop("10", "A", "Maths", "Term 1", 10)).extracting(ClassRank::studentId)
+                .containsExactly(2L, 1L);
+        assertThat(service.getTop("12", null, null, null, 10)).isEmpty();
+        assertThat(service.getTop(null, null, null, null, 0)).isEmpty();
+    }
+
+    @Test
+    void takesDeletedStudentsOutAndMovesStudentsToTheirNewClass() {
+        assertThat(service.accepts(DomainEvent.Type.STUDENT_DELETED)).isTrue();
+        assertThat(service.accepts(DomainEvent.Type.STUDENT_MOVED)).isTrue();
+        assertThat(service.accepts(DomainEvent.Type.PAYMENT_RECORDED)).isFalse();
+
+        jdbcTemplate.update("DELETE FROM student_marks WHERE student_id = 2");
+        jdbcTemplate.update("DELETE FROM students WHERE id = 2");
+        jdbcTemplate.update("UPDATE students SET section = 'A' WHERE id = 3");
+        service.onEvents(List.of(event(1, DomainEvent.Type.STUDENT_DELETED, 2),
+                event(2, DomainEvent.Type.STUDENT_MOVED, 3)));
+
+        assertThat(service.getTop(null, null, null, null, 10)).extracting(ClassRank::studentId)
+                .containsExactly(4L, 1L, 3L);
+        assertThat(service.getRank(2, Scope.GRADE, null, null)).isEmpty();
+        // Student 3 now shares section 10A with student 1, and section 10B is gone
+        assertThat(rank(3, Scope.SECTION, null, null)).extracting(ClassRank::section, ClassRank::rank,
+                ClassRank::cohortSize, ClassRank::percentile).containsExactly("A", 1, 2, 50.0);
+        assertThat(service.getTop("10", "B", null, null, 10)).isEmpty();
+
+        // A new mark reaches the ranks through the same refresh
+        jdbcTemplate.update("INSERT INTO student_marks (student_id, subject, term, marks) VALUES"
+                + " (5, 'Maths', 'Term 1', 95)");
+        service.onEvents(List.of(event(3, DomainEvent.Type.MARK_RECORDED, 5)));
+        assertThat(service.getTop("10", "A", null, null, 1)).extracting(ClassRank::studentId).containsExactly(5L);
+    }
+
+    private ClassRank rank(long studentId, Scope scope, String subject, String term) {
+        return service.getRank(studentId, scope, subject, term).orElseThrow();
+    }
+
+    private static DomainEvent event(long offset, DomainEvent.Type type, long studentId) {
+        return new DomainEvent(offset, type, studentId, Map.of(), Instant.now());
+    }
+}
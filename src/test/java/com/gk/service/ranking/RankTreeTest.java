@@ -0,0 +1,64 @@
+package com.gk.service.ranking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RankTreeTest {
+
+    @Test
+    void countsAndTopEntriesMatchASortedListThroughInsertsUpdatesAndRemovals() {
+        Random random = new Random(7);
+        RankTree tree = new RankTree(7);
+        Map<Long, Double> scores = new HashMap<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            long id = random.nextInt(2_000);
+            Double previous = scores.get(id);
+            if (previous != null) {
+                assertThat(tree.remove(id, previous)).isTrue();
+                scores.remove(id);
+            }
+            if (previous == null || random.nextInt(4) > 0) {
+                // Whole and half marks, so many scores are tied
+                double score = random.nextInt(201) / 2.0;
+                tree.insert(id, score);
+                scores.put(id, score);
+            }
+            if (step % 500 == 0) {
+                assertMatches(tree, scores, random.nextInt(101));
+            }
+        }
+        assertMatches(tree, scores, 50.0);
+        assertThat(tree.remove(-1, 50.0)).isFalse();
+    }
+
+    @Test
+    void tiedScoresShareACountAndListInIdOrder() {
+        RankTree tree = new RankTree(1);
+        tree.insert(3, 80);
+        tree.insert(1, 90);
+        tree.insert(2, 80);
+        tree.insert(4, 70);
+
+        assertThat(tree.countAbove(80)).isEqualTo(1);
+        assertThat(tree.countAtLeast(80)).isEqualTo(3);
+        List<Long> top = new ArrayList<>();
+        tree.visitTop(3, (id, score) -> top.add(id));
+        assertThat(top).containsExactly(1L, 2L, 3L);
+    }
+
+    private static void assertMatches(RankTree tree, Map<Long, Double> scores, double probe) {
+        List<Map.Entry<Long, Double>> sorted = new ArrayList<>(scores.entrySet());
+        sorted.sort(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        assertThat(tree.size()).isEqualTo(scores.size());
+        assertThat(tree.countAbove(probe)).isEqualTo(scores.values().stream().filter(s -> s > probe).count());
+        assertThat(tree.countAtLeast(probe)).isEqualTo(scores.values().stream().filter(s -> s >= probe).count());
+        List<Long> top = new ArrayList<>();
+        tree.visitTop(25, (id, score) -> top.add(id));
+        assertThat(top).containsExactlyElementsOf(sorted.stream().limit(25).map(Map.Entry::getKey).toList());
+    }
+}
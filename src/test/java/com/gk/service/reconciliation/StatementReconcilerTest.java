@@ -0,0 +1,56 @@
+package com.gk.service.reconciliation;
+
+import com.gk.service.reconciliation.ReconciliationResult.Status;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementReconcilerTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 6, 2);
+
+    @Test
+    void reportsExactFuzzyDuplicateAndMissingEntries() throws Exception {
+        List<ReconciliationResult> results = new CopyOnWriteArrayList<>();
+        try (StatementReconciler reconciler = new StatementReconciler(4, 3, results::add)) {
+            reconciler.addStatementLine(new StatementLine(2, "TXN0001", 50000, DAY, "NEFT Asha Verma"));
+            reconciler.addStatementLine(new StatementLine(3, "TXN0001", 50000, DAY, "NEFT Asha Verma"));
+            reconciler.addStatementLine(new StatementLine(4, "TXN0002", 45000, DAY, "NEFT Rahul Nair"));
+            reconciler.addStatementLine(new StatementLine(5, null, 120000, DAY.plusDays(1), "UPI/KUMAR PRIYA/fees"));
+            reconciler.addStatementLine(new StatementLine(6, null, 99900, DAY, "Unknown depositor"));
+            reconciler.addLedgerEntry(new LedgerEntry("TXN0001", 1, "Asha Verma", 50000, DAY, "TUITION"));
+            reconciler.addLedgerEntry(new LedgerEntry("TXN0002", 2, "Rahul Nair", 50000, DAY, "TUITION"));
+            reconciler.addLedgerEntry(new LedgerEntry("TXN0003", 3, "Priya Kumar", 120000, DAY, "HOSTEL"));
+            reconciler.addLedgerEntry(new LedgerEntry("TXN0004", 4, "Dev Patel", 120000, DAY, "HOSTEL"));
+            reconciler.addLedgerEntry(new LedgerEntry("TXN0005", 5, "Meera Iyer", 30000, DAY.minusDays(1), "LIBRARY"));
+            reconciler.reconcile();
+        }
+
+        Map<Status, List<ReconciliationResult>> byStatus = results.stream()
+                .collect(Collectors.groupingBy(ReconciliationResult::status));
+        assertThat(byStatus.get(Status.MATCHED)).singleElement()
+                .satisfies(result -> assertThat(result.line().rowNumber()).isEqualTo(2));
+        assertThat(byStatus.get(Status.DUPLICATE_IN_STATEMENT)).singleElement()
+                .satisfies(result -> assertThat(result.line().rowNumber()).isEqualTo(3));
+        assertThat(byStatus.get(Status.AMOUNT_MISMATCH)).singleElement()
+                .satisfies(result -> assertThat(result.entry().transactionId()).isEqualTo("TXN0002"));
+        assertThat(byStatus.get(Status.MATCHED_FUZZY)).singleElement()
+                .satisfies(result -> assertThat(result.entry().transactionId()).isEqualTo("TXN0003"));
+        assertThat(byStatus.get(Status.MISSING_IN_LEDGER)).singleElement()
+                .satisfies(result -> assertThat(result.line().rowNumber()).isEqualTo(6));
+        // Meera's payment predates the statement and was only loaded as a fuzzy candidate.
+        assertThat(byStatus.get(Status.MISSING_IN_STATEMENT)).singleElement()
+                .satisfies(result -> assertThat(result.entry().transactionId()).isEqualTo("TXN0004"));
+    }
+
+    @Test
+    void nameScoreToleratesReorderingAndNoise() {
+        assertThat(StatementReconciler.nameScore("Priya Kumar", "UPI/KUMAR PRIYA/fees")).isEqualTo(1.0);
+        assertThat(StatementReconciler.nameScore("Priya Kumar", "NEFT Dev Patel")).isLessThan(0.2);
+    }
+}
@@ -0,0 +1,114 @@
+package com.gk.service.singleflight;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightAspectTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Aggregates target = new Aggregates();
+    private final Aggregates aggregates = proxy(target);
+
+    @Test
+    void concurrentIdenticalCallsShareOneExecution() throws Exception {
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 5; i++) {
+                results.add(executor.submit(() -> aggregates.compute("grades")));
+            }
+            waitForWaiters(4);
+            target.release.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get()).isEqualTo("grades#1");
+            }
+        }
+        assertThat(target.executions.get()).isEqualTo(1);
+        assertThat(meterRegistry.counter(SingleFlightAspect.METRIC, "class", "Aggregates", "method", "compute")
+                .count()).isEqualTo(4);
+    }
+
+    @Test
+    void callsWithOtherArgumentsOrAfterCompletionRunAgain() throws Exception {
+        target.release.countDown();
+        assertThat(aggregates.compute("grades")).isEqualTo("grades#1");
+        assertThat(aggregates.compute("grades")).isEqualTo("grades#2");
+        assertThat(aggregates.compute("trend")).isEqualTo("trend#3");
+    }
+
+    @Test
+    void waitersGetTheLeadersException() throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> aggregates.compute("fail"));
+            Future<String> follower = executor.submit(() -> aggregates.compute("fail"));
+            waitForWaiters(1);
+            target.release.countDown();
+            assertThatThrownBy(leader::get).hasCauseInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(follower::get).hasCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(target.executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void aCancelledLeaderLeavesTheCallToAWaiter() throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> aggregates.compute("grades"));
+            waitForExecutions(1);
+            Future<String> follower = executor.submit(() -> aggregates.compute("grades"));
+            waitForWaiters(1);
+
+            // As a page does when the widget times out
+            leader.cancel(true);
+            waitForExecutions(2);
+            target.release.countDown();
+
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("grades#2");
+            assertThat(leader.isCancelled()).isTrue();
+        }
+    }
+
+    private void waitForExecutions(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (target.executions.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(target.executions.get()).isEqualTo(expected);
+    }
+
+    private void waitForWaiters(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.find(SingleFlightAspect.METRIC).counters().stream()
+                .mapToDouble(counter -> counter.count()).sum() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private Aggregates proxy(Aggregates aggregates) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(aggregates);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new SingleFlightAspect(meterRegistry));
+        return factory.getProxy();
+    }
+
+    static class Aggregates {
+        final AtomicInteger executions = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @SingleFlight
+        public String compute(String name) throws InterruptedException {
+            int execution = executions.incrementAndGet();
+            release.await();
+            if (name.equals("fail")) {
+                throw new IllegalStateException("failed");
+            }
+            return name + "#" + execution;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.gk.service.sync;
+
+import com.gk.dto.ChangeFeed;
+import com.gk.dto.ChangeFeed.Change;
+import com.gk.repository.ChangeFeedRepository;
+import com.gk.repository.ChangeFeedRepository.Position;
+import com.gk.repository.ChangeFeedRepository.Source;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.assertj.core.groups.Tuple;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/** The feed against H2, over rows of every source stamped a few milliseconds apart and some at the same time. */
+class ChangeFeedServiceTest {
+    private static final Tuple STUDENT_1 = tuple("student", "upsert", 1L, null);
+    private static final Tuple STUDENT_2 = tuple("student", "upsert", 2L, null);
+    private static final Tuple EVENT_3 = tuple("event", "upsert", 3L, 2L);
+    private static final Tuple EVENT_7 = tuple("event", "upsert", 7L, 1L);
+    private static final Tuple ATTENDANCE_1 = tuple("attendance", "upsert", 1L, 1L);
+    private static final Tuple MARKS_2 = tuple("marks", "upsert", null, 2L);
+    private static final Tuple PAYMENTS_1 = tuple("payments", "upsert", null, 1L);
+    private static final Tuple EVENT_99_DELETED = tuple("event", "delete", 99L, 2L);
+    private static final Tuple STUDENT_3_DELETED = tuple("student", "delete", 3L, null);
+
+    private final JdbcDataSource h2 = new JdbcDataSource();
+    private JdbcTemplate jdbcTemplate;
+    private ChangeFeedService service;
+    private long base;
+
+    @BeforeEach
+    void setUp() {
+        h2.setURL("jdbc:h2:mem:changes;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(h2);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE students (id BIGINT PRIMARY KEY, name VARCHAR(100), grade VARCHAR(10),"
+                + " section VARCHAR(10), roll_number VARCHAR(20), registration_number VARCHAR(20), email VARCHAR(100),"
+                + " phone_number VARCHAR(20), attendance DOUBLE, date_of_birth DATE, admission_date DATE,"
+                + " parent_name VARCHAR(100), parent_email VARCHAR(100), parent_phone VARCHAR(20),"
+                + " last_modified_date TIMESTAMP(3))");
+        jdbcTemplate.execute("CREATE TABLE student_event (id BIGINT PRIMARY KEY, student_id BIGINT, title VARCHAR(100),"
+                + " description VARCHAR(255), start TIMESTAMP, type VARCHAR(20), status VARCHAR(20),"
+                + " location VARCHAR(100), duration_minutes INT, created_at TIMESTAMP, modified_at TIMESTAMP(3))");
+        jdbcTemplate.execute("CREATE TABLE attendance_records (id BIGINT PRIMARY KEY, student_id BIGINT, date DATE,"
+                + " status VARCHAR(20), notes VARCHAR(255), late_minutes INT, session_type VARCHAR(20),"
+                + " marked_by VARCHAR(50), marked_at TIMESTAMP(3))");
+        jdbcTemplate.execute("CREATE TABLE student_marks (student_id BIGINT, subject VARCHAR(50), marks DOUBLE,"
+                + " grade VARCHAR(5), term VARCHAR(20), exam_type VARCHAR(20), date DATE, is_published BOOLEAN,"
+                + " recorded_at TIMESTAMP(3))");
+        jdbcTemplate.execute("CREATE TABLE student_fees (student_id BIGINT, fee_type VARCHAR(50), amount DOUBLE,"
+                + " paid_date TIMESTAMP, status VARCHAR(20), transaction_id VARCHAR(32), remarks VARCHAR(255),"
+                + " recorded_at TIMESTAMP(3))");
+        ChangeFeedRepository repository = new ChangeFeedRepository(jdbcTemplate);
+        repository.createTable();
+        service = new ChangeFeedService(repository, 0, 2000, 30);
+
+        base = System.currentTimeMillis() - Duration.ofHours(1).toMillis();
+        jdbcTemplate.update("INSERT INTO students (id, name, last_modified_date) VALUES (1, 'Ada', ?), (2, 'Ben', ?)",
+                at(0), at(10));
+        // At the same time as student 2, so the keys decide: student 2, event 3, then event 7
+        jdbcTemplate.update("INSERT INTO student_event (id, student_id, title, modified_at) VALUES"
+                + " (7, 1, 'Sports day', ?), (3, 2, 'Exam', ?)", at(10), at(10));
+        jdbcTemplate.update("INSERT INTO attendance_records (id, student_id, status, marked_at) VALUES"
+                + " (1, 1, 'PRESENT', ?)", at(20));
+        jdbcTemplate.update("INSERT INTO student_marks (student_id, subject, marks, recorded_at) VALUES"
+                + " (2, 'Maths', 70, ?), (2, 'Physics', 80, ?)", at(30), at(30));
+        jdbcTemplate.update("INSERT INTO student_fees (student_id, fee_type, amount, recorded_at) VALUES"
+                + " (1, 'TUITION', 500, ?)", at(40));
+        jdbcTemplate.update("INSERT INTO " + ChangeFeedRepository.TOMBSTONES_TABLE
+                + " (id, entity, entity_id, student_id, deleted_at) VALUES (1, 'event', 99, 2, ?),"
+                + " (2, 'student', 3, NULL, ?)", at(50), at(60));
+    }
+
+    @Test
+    void pagesThroughEverySourceOldestFirstWithoutSkippingOrRepeating() {
+        List<Change> changes = new ArrayList<>();
+        List<Boolean> hasMore = new ArrayList<>();
+        String cursor = null;
+        ChangeFeed page;
+        do {
+            page = service.getChanges(cursor, 2, null);
+            changes.addAll(page.changes());
+            hasMore.add(page.hasMore());
+            cursor = page.cursor();
+        } while (page.hasMore());
+
+        assertThat(changes).extracting(Change::type, Change::op, Change::id, Change::studentId).containsExactly(
+                STUDENT_1, STUDENT_2, EVENT_3, EVENT_7, ATTENDANCE_1, MARKS_2, PAYMENTS_1, EVENT_99_DELETED,
+                STUDENT_3_DELETED);
+        assertThat(hasMore).containsExactly(true, true, true, true, false);
+        // A student's marks come as their whole list
+        assertThat(changes.get(5).data()).asInstanceOf(InstanceOfAssertFactories.LIST)
+                .hasSize(2);
+        for (Source source : Source.values()) {
+            assertThat(SyncCursor.decode(cursor).position(source).key()).as(source.name()).isEqualTo(Long.MAX_VALUE);
+        }
+
+        ChangeFeed caughtUp = service.getChanges(cursor, 2, null);
+        assertThat(caughtUp.changes()).isEmpty();
+        assertThat(caughtUp.hasMore()).isFalse();
+
+        // Stamped after the time the cursor is caught up to
+        awaitClockPast(SyncCursor.decode(caughtUp.cursor()).position(Source.ATTENDANCE).millis());
+        jdbcTemplate.update("INSERT INTO attendance_records (id, student_id, status, marked_at) VALUES"
+                + " (2, 2, 'ABSENT', ?)", new Timestamp(System.currentTimeMillis()));
+        assertThat(service.getChanges(caughtUp.cursor(), 2, null).changes())
+                .extracting(Change::type, Change::id).containsExactly(tuple("attendance", 2L));
+    }
+
+    @Test
+    void advancesOnlyTheSourcesThatWereReadToTheEnd() {
+        long before = System.currentTimeMillis();
+        ChangeFeed first = service.getChanges(null, 2, null);
+
+        assertThat(first.changes()).extracting(Change::type, Change::op, Change::id, Change::studentId)
+                .containsExactly(STUDENT_1, STUDENT_2);
+        assertThat(first.hasMore()).isTrue();
+        SyncCursor cursor = SyncCursor.decode(first.cursor());
+        // Both students were read, so the source is caught up to the time of the request
+        assertThat(cursor.position(Source.STUDENT).millis()).isGreaterThanOrEqualTo(before);
+        assertThat(cursor.position(Source.STUDENT).key()).isEqualTo(Long.MAX_VALUE);
+        for (Source source : List.of(Source.EVENT, Source.ATTENDANCE, Source.MARKS, Source.PAYMENTS,
+                Source.TOMBSTONE)) {
+            assertThat(cursor.position(source)).as(source.name()).isEqualTo(Position.START);
+        }
+
+        ChangeFeed second = service.getChanges(first.cursor(), 1, null);
+        assertThat(second.changes()).extracting(Change::type, Change::op, Change::id, Change::studentId)
+                .containsExactly(EVENT_3);
+        // Event 7, at the same time, is still to come
+        assertThat(SyncCursor.decode(second.cursor()).position(Source.EVENT)).isEqualTo(new Position(base + 10, 3));
+    }
+
+    @Test
+    void scopesAParentToTheirChildrenAndDeletedStudents() {
+        ChangeFeed feed = service.getChanges(null, 100, List.of(1L));
+
+        assertThat(feed.changes()).extracting(Change::type, Change::op, Change::id, Change::studentId)
+                .containsExactly(STUDENT_1, EVENT_7, ATTENDANCE_1, PAYMENTS_1, STUDENT_3_DELETED);
+        assertThat(feed.hasMore()).isFalse();
+
+        ChangeFeed none = service.getChanges(feed.cursor(), 100, List.of());
+        assertThat(none.changes()).isEmpty();
+        assertThat(none.cursor()).isEqualTo(feed.cursor());
+    }
+
+    @Test
+    void resetsACursorOlderThanTheTombstonesKept() {
+        long retained = System.currentTimeMillis() - Duration.ofDays(30).toMillis();
+        Map<Source, Position> positions = new EnumMap<>(Source.class);
+        positions.put(Source.TOMBSTONE, new Position(retained - Duration.ofMinutes(1).toMillis(), 1));
+
+        ChangeFeed expired = service.getChanges(new SyncCursor(positions).encode(), 100, null);
+
+        assertThat(expired.reset()).isTrue();
+        assertThat(expired.changes()).isEmpty();
+        assertThat(expired.cursor()).isNull();
+
+        positions.put(Source.TOMBSTONE, new Position(retained + Duration.ofMinutes(1).toMillis(), 1));
+        ChangeFeed kept = service.getChanges(new SyncCursor(positions).encode(), 100, null);
+        assertThat(kept.reset()).isFalse();
+        assertThat(kept.changes()).hasSize(9);
+    }
+
+    private Timestamp at(long offsetMillis) {
+        return new Timestamp(base + offsetMillis);
+    }
+
+    private static void awaitClockPast(long millis) {
+        while (System.currentTimeMillis() <= millis) {
+            Thread.onSpinWait();
+        }
+    }
+}
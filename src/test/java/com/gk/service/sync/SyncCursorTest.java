@@ -0,0 +1,51 @@
+package com.gk.service.sync;
+
+import com.gk.repository.ChangeFeedRepository.Position;
+import com.gk.repository.ChangeFeedRepository.Source;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SyncCursorTest {
+
+    @Test
+    void encodedCursorDecodesToTheSamePositions() {
+        Map<Source, Position> positions = new EnumMap<>(Source.class);
+        positions.put(Source.STUDENT, new Position(1_760_000_000_123L, 42));
+        positions.put(Source.MARKS, new Position(1_760_000_000_500L, Long.MAX_VALUE));
+
+        SyncCursor decoded = SyncCursor.decode(new SyncCursor(positions).encode());
+
+        assertThat(decoded.position(Source.STUDENT)).isEqualTo(new Position(1_760_000_000_123L, 42));
+        assertThat(decoded.position(Source.MARKS)).isEqualTo(new Position(1_760_000_000_500L, Long.MAX_VALUE));
+        assertThat(decoded.position(Source.EVENT)).isEqualTo(Position.START);
+        assertThat(new SyncCursor(positions).encode()).doesNotContain("=", "+", "/");
+    }
+
+    @Test
+    void noCursorIsTheStartOfTheFeed() {
+        assertThat(SyncCursor.decode(null)).isSameAs(SyncCursor.START);
+        assertThat(SyncCursor.decode(" ")).isSameAs(SyncCursor.START);
+        for (Source source : Source.values()) {
+            assertThat(SyncCursor.START.position(source)).isEqualTo(Position.START);
+        }
+    }
+
+    @Test
+    void rejectsCursorsItDidNotIssue() {
+        String otherVersion = Base64.getUrlEncoder().encodeToString("2:0.0".getBytes());
+        String tooFewSources = Base64.getUrlEncoder().encodeToString("1:0.0,0.0".getBytes());
+        String notANumber = Base64.getUrlEncoder().encodeToString("1:x.0,0.0,0.0,0.0,0.0,0.0".getBytes());
+
+        for (String cursor : new String[] {"not base64!", otherVersion, tooFewSources, notANumber}) {
+            assertThatThrownBy(() -> SyncCursor.decode(cursor))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid sync cursor");
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.gk.service.tabular;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvRowReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsQuotedFieldsWithSeparatorsQuotesAndLineBreaks() throws Exception {
+        List<TabularRow> rows = read("""
+                Name,Parent Email,Address\r
+                "Lovelace, Ada",ada@example.com,"12 ""Analytical"" Lane\r
+                London"\r
+                Ben,,Leeds\r
+                """);
+
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0).get("name")).isEqualTo("Lovelace, Ada");
+        // Headers match whatever their case and punctuation
+        assertThat(rows.get(0).get("parentEmail")).isEqualTo("ada@example.com");
+        assertThat(rows.get(0).get("address")).isEqualTo("12 \"Analytical\" Lane\r\nLondon");
+        assertThat(rows.get(1).rowNumber()).isEqualTo(3);
+        assertThat(rows.get(1).get("parent_email")).isNull();
+    }
+
+    @Test
+    void skipsBlankRowsButKeepsCountingThem() throws Exception {
+        List<TabularRow> rows = read("name,grade\nAda,10\n\n , \nBen,11\nCy");
+
+        assertThat(rows).extracting(TabularRow::rowNumber).containsExactly(2, 5, 6);
+        assertThat(rows).extracting(row -> row.get("name")).containsExactly("Ada", "Ben", "Cy");
+        // A short last row without a line break still has its first cells
+        assertThat(rows.get(2).get("grade")).isNull();
+    }
+
+    @Test
+    void picksTheReaderByFileExtension() {
+        assertThat(TabularRowReader.forFileName("students.CSV")).isInstanceOf(CsvRowReader.class);
+        assertThat(TabularRowReader.forFileName("students.xlsx")).isInstanceOf(XlsxRowReader.class);
+        assertThatThrownBy(() -> TabularRowReader.forFileName("students.xls"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<TabularRow> read(String csv) throws Exception {
+        Path file = directory.resolve("students.csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        List<TabularRow> rows = new ArrayList<>();
+        new CsvRowReader().read(file, rows::add);
+        return rows;
+    }
+}
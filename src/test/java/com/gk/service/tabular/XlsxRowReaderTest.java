@@ -0,0 +1,79 @@
+package com.gk.service.tabular;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class XlsxRowReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsTheFirstSheetByHeaderWithDatesAsIsoAndGapsAsEmptyCells() throws Exception {
+        Path file = directory.resolve("students.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+            CellStyle date = workbook.createCellStyle();
+            date.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("dd/mm/yyyy"));
+            Sheet sheet = workbook.createSheet("Students");
+            cells(sheet.createRow(0), "Name", "Age", "Date of Birth", "Grade");
+
+            Row ada = sheet.createRow(1);
+            ada.createCell(0).setCellValue("Ada");
+            ada.createCell(1).setCellValue(15);
+            ada.createCell(2).setCellValue(LocalDate.of(2010, 5, 4));
+            ada.getCell(2).setCellStyle(date);
+            ada.createCell(3).setCellValue("10");
+            // Row 3 is missing altogether and row 4 has only empty cells
+            cells(sheet.createRow(3), "", " ");
+            // No age or date cells: the grade stays in its own column
+            Row ben = sheet.createRow(4);
+            ben.createCell(0).setCellValue("Ben");
+            ben.createCell(3).setCellValue("11");
+            cells(sheet.createRow(5), "Cy", "fifteen", "not a date");
+            workbook.createSheet("Ignored").createRow(0).createCell(0).setCellValue("name");
+            workbook.write(out);
+        }
+
+        List<TabularRow> rows = new ArrayList<>();
+        new XlsxRowReader().read(file, rows::add);
+
+        assertThat(rows).extracting(TabularRow::rowNumber).containsExactly(2, 5, 6);
+        assertThat(rows.get(0).get("name")).isEqualTo("Ada");
+        assertThat(rows.get(0).get("age")).isEqualTo("15");
+        assertThat(rows.get(0).get("dateOfBirth")).isEqualTo("2010-05-04");
+        assertThat(rows.get(1).get("age")).isNull();
+        assertThat(rows.get(1).get("grade")).isEqualTo("11");
+        // Bad cells come through as written, for the import to report
+        assertThat(rows.get(2).get("age")).isEqualTo("fifteen");
+        assertThat(rows.get(2).get("dateOfBirth")).isEqualTo("not a date");
+    }
+
+    @Test
+    void reportsAFileThatIsNotAWorkbook() throws Exception {
+        Path file = directory.resolve("students.xlsx");
+        Files.writeString(file, "name,grade\nAda,10\n");
+
+        assertThatThrownBy(() -> new XlsxRowReader().read(file, row -> { })).isInstanceOf(IOException.class);
+    }
+
+    private static void cells(Row row, String... values) {
+        for (int i = 0; i < values.length; i++) {
+            row.createCell(i).setCellValue(values[i]);
+        }
+    }
+}